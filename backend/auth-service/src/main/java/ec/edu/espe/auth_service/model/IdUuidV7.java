@@ -0,0 +1,40 @@
+package ec.edu.espe.auth_service.model;
+
+import ec.edu.espe.auth_service.util.UuidV7;
+import org.hibernate.annotations.IdGeneratorType;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.EnumSet;
+
+//Clave primaria UUID v7 generada en la aplicación al insertar (ver UuidV7); un id ya asignado se respeta
+@IdGeneratorType(IdUuidV7.Generador.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface IdUuidV7 {
+
+    class Generador implements BeforeExecutionGenerator {
+
+        @Override
+        public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                               EventType eventType) {
+            return currentValue != null ? currentValue : UuidV7.generar();
+        }
+
+        @Override
+        public EnumSet<EventType> getEventTypes() {
+            return EventTypeSets.INSERT_ONLY;
+        }
+
+        @Override
+        public boolean allowAssignedIdentifiers() {
+            return true;
+        }
+    }
+}
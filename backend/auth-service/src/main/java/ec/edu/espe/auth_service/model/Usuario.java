@@ -21,10 +21,9 @@ import java.util.UUID;
 public class Usuario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @IdUuidV7
     @Column(columnDefinition = "UUID DEFAULT gen_random_uuid()")
-    @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id;
 
     @Column(nullable = false, unique = true, length = 100)
     private String username;
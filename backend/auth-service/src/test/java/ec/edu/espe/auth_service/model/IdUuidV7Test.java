@@ -0,0 +1,89 @@
+package ec.edu.espe.auth_service.model;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Claves de los usuarios tal como las asigna Hibernate al persistir: UUID v7
+ * crecientes en el orden de inserción. El generador asigna el id en persist(), antes de cualquier
+ * sentencia, por lo que basta una SessionFactory sin base que nunca se sincroniza.
+ */
+class IdUuidV7Test {
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void iniciar() {
+        sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", PostgreSQLDialect.class.getName())
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+                .applySetting("jakarta.persistence.validation.mode", "none")
+                .applySetting("hibernate.check_nullability", false)
+                .build())
+                .addAnnotatedClass(Usuario.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void persist_Usuario_DebeAsignarUuidV7Creciente() {
+        assertIdsV7Crecientes(() -> Usuario.builder().username("testuser").roles(new HashSet<>()).build());
+    }
+
+    @Test
+    void persist_ConIdAsignado_DebeRespetarlo() {
+        UUID asignado = UUID.randomUUID();
+        Usuario usuario = Usuario.builder().id(asignado).username("testuser").roles(new HashSet<>()).build();
+
+        try (Session session = sessionFactory.openSession()) {
+            session.persist(usuario);
+        }
+
+        assertEquals(asignado, usuario.getId());
+    }
+
+    private static <T> void assertIdsV7Crecientes(Supplier<T> entidad) {
+        List<UUID> ids = new ArrayList<>();
+        try (Session session = sessionFactory.openSession()) {
+            for (int i = 0; i < 1_000; i++) {
+                T nueva = entidad.get();
+                session.persist(nueva);
+                ids.add((UUID) session.getIdentifier(nueva));
+            }
+        }
+
+        UUID anterior = null;
+        for (UUID id : ids) {
+            assertEquals(7, id.version(), id.toString());
+            assertEquals(2, id.variant(), id.toString());
+            //Cada inserción queda al final del índice de la clave primaria
+            assertTrue(anterior == null || comparar(anterior, id) < 0, anterior + " >= " + id);
+            anterior = id;
+        }
+    }
+
+    //Orden de PostgreSQL (bytes sin signo); UUID.compareTo compara con signo
+    private static int comparar(UUID a, UUID b) {
+        int mas = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return mas != 0 ? mas : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
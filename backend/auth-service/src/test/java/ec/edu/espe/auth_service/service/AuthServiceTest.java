@@ -17,6 +17,7 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -138,6 +139,24 @@ class AuthServiceTest {
         verify(usuarioRepository, times(1)).save(any(Usuario.class)); // Reset intentos fallidos
     }
 
+    @Test
+    void login_UsuarioSinRoles_DebeAsignarClientePorDefecto() {
+        // Arrange
+        usuario.setRoles(null);
+        when(usuarioRepository.findByUsername("testuser")).thenReturn(Optional.of(usuario));
+        when(passwordEncoder.matches("password123", "$2a$10$encodedPassword")).thenReturn(true);
+        when(jwtUtil.generateAccessToken(anyString(), any())).thenReturn("accessToken");
+        when(jwtUtil.generateRefreshToken(anyString())).thenReturn("refreshToken");
+
+        // Act
+        AuthResponse response = authService.login(loginRequest);
+
+        // Assert
+        assertEquals("accessToken", response.getAccessToken());
+        verify(jwtUtil).generateAccessToken(eq("testuser"),
+                argThat(claims -> List.of("CLIENTE").equals(claims.get("roles"))));
+    }
+
     @Test
     void login_ConCredencialesInvalidas_DebeLanzar401() {
         // Arrange
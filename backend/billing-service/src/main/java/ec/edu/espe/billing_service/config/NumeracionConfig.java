@@ -0,0 +1,33 @@
+package ec.edu.espe.billing_service.config;
+
+import ec.edu.espe.billing_service.util.GeneradorNumeros;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Configuración del generador de números de factura basado en una secuencia
+ * de PostgreSQL con incremento por bloques (hi/lo)
+ */
+@Configuration
+public class NumeracionConfig {
+
+    public static final String SECUENCIA_NUMERO_FACTURA = "factura_numero_seq";
+
+    @Bean
+    public GeneradorNumeros generadorNumeroFactura(
+            JdbcTemplate jdbcTemplate,
+            @Value("${billing.numeracion.tamanio-bloque:1000}") long tamanioBloque) {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SECUENCIA_NUMERO_FACTURA
+                + " INCREMENT BY " + tamanioBloque);
+
+        //El incremento real de la secuencia define el bloque, así todas las instancias reservan rangos disjuntos
+        Long incremento = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?",
+                Long.class, SECUENCIA_NUMERO_FACTURA);
+
+        return new GeneradorNumeros("FAC", incremento, () -> jdbcTemplate.queryForObject(
+                "SELECT nextval('" + SECUENCIA_NUMERO_FACTURA + "')", Long.class));
+    }
+}
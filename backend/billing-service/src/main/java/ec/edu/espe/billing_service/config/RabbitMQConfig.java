@@ -0,0 +1,95 @@
+package ec.edu.espe.billing_service.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de RabbitMQ para el servicio de facturación.
+ * Una cola propia enlazada al exchange de notificaciones recibe los eventos de pedidos
+ * (la cola de notification-service sigue recibiendo su copia) y se consume por lotes. Los mensajes
+ * que siguen fallando tras los reintentos pasan a una cola de fallidos.
+ */
+@Configuration
+public class RabbitMQConfig {
+
+    // Exchange principal de notificaciones (declarado también por los productores)
+    public static final String NOTIFICATIONS_EXCHANGE = "notifications_exchange";
+
+    // Routing key con la que pedido-service publica sus eventos
+    public static final String NOTIFICATIONS_ROUTING_KEY = "notifications_routingKey";
+
+    // Cola de eventos de pedidos para la facturación automática
+    public static final String COLA_FACTURACION = "billing_pedidos_queue";
+
+    // Mensajes que no se pudieron facturar tras agotar los reintentos (se publican por el exchange por defecto)
+    public static final String COLA_FACTURACION_FALLIDOS = "billing_pedidos_queue.dlq";
+
+    public static final String FABRICA_LOTES = "facturacionLoteFactory";
+
+    @Bean
+    public TopicExchange notificationsExchange() {
+        return new TopicExchange(NOTIFICATIONS_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue facturacionQueue() {
+        return new Queue(COLA_FACTURACION, true);
+    }
+
+    @Bean
+    public Queue facturacionFallidosQueue() {
+        return new Queue(COLA_FACTURACION_FALLIDOS, true);
+    }
+
+    @Bean
+    public Binding facturacionBinding(Queue facturacionQueue, TopicExchange notificationsExchange) {
+        return BindingBuilder
+                .bind(facturacionQueue)
+                .to(notificationsExchange)
+                .with(NOTIFICATIONS_ROUTING_KEY);
+    }
+
+    /**
+     * Contenedor por micro-lotes: entrega al listener hasta tamanio-lote mensajes juntos, o los que
+     * hayan llegado cuando pasa espera-lote-ms sin mensajes nuevos. El lote se confirma completo al
+     * terminar el listener; si falla se reintenta hasta reintentos veces con espera creciente (la
+     * inserción es idempotente) y después el recuperador separa los mensajes que fallan por sí solos.
+     * Un lote rechazado nunca vuelve a la cola por defecto: así un mensaje venenoso no bloquea la cola.
+     */
+    @Bean(FABRICA_LOTES)
+    public SimpleRabbitListenerContainerFactory facturacionLoteFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${billing.facturacion-automatica.tamanio-lote:200}") int tamanioLote,
+            @Value("${billing.facturacion-automatica.espera-lote-ms:500}") long esperaLoteMs,
+            @Value("${billing.facturacion-automatica.consumidores:1}") int consumidores,
+            @Value("${billing.facturacion-automatica.reintentos:3}") int reintentos,
+            @Value("${billing.facturacion-automatica.espera-reintento-ms:1000}") long esperaReintentoMs,
+            MessageBatchRecoverer recuperadorLotes) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanioLote);
+        factory.setPrefetchCount(tamanioLote);
+        factory.setReceiveTimeout(esperaLoteMs);
+        factory.setConcurrentConsumers(consumidores);
+        factory.setDefaultRequeueRejected(false);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxRetries(reintentos)
+                .backOffOptions(esperaReintentoMs, 2.0, esperaReintentoMs * 8)
+                .recoverer(recuperadorLotes)
+                .build());
+        return factory;
+    }
+}
@@ -0,0 +1,185 @@
+package ec.edu.espe.billing_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource de las transacciones de solo lectura: reparte las conexiones entre las réplicas
+ * en round-robin, saltando las que no responden o cuyo retraso de replicación supera el máximo.
+ * Una tarea periódica vuelve a medir cada réplica y la rehabilita cuando se pone al día.
+ * Si no queda ninguna disponible, o la petición en curso debe ver sus propias escrituras,
+ * la conexión se obtiene de la base principal.
+ */
+@Slf4j
+public class ReplicasLectura extends AbstractDataSource implements AutoCloseable {
+
+    //Retraso en ms; NULL si la réplica aún no aplicó ninguna transacción. Sin recuperación en curso no hay retraso
+    static final String SQL_RETRASO = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000
+                   END
+            """;
+
+    //Marca de la petición en curso: sus lecturas deben ir a la principal
+    private static final ThreadLocal<Boolean> LECTURA_EN_PRINCIPAL = new ThreadLocal<>();
+
+    private final DataSource principal;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long retrasoMaximoMs;
+    private final long ventanaLecturaPropiaMs;
+
+    private final AtomicInteger turno = new AtomicInteger();
+
+    //Cliente -> instante de su última escritura; se depura en cada verificación
+    private final Map<String, Long> ultimasEscrituras = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService verificador;
+
+    public ReplicasLectura(DataSource principal, Map<String, DataSource> replicas,
+                           long retrasoMaximoMs, long ventanaLecturaPropiaMs) {
+        this.principal = principal;
+        replicas.forEach((nombre, dataSource) -> this.replicas.add(new Replica(nombre, dataSource)));
+        this.retrasoMaximoMs = retrasoMaximoMs;
+        this.ventanaLecturaPropiaMs = ventanaLecturaPropiaMs;
+    }
+
+    //Réplica con el resultado de su última medición
+    private static final class Replica {
+        private final String nombre;
+        private final DataSource dataSource;
+        private volatile boolean disponible;
+        private volatile long retrasoMs = -1;
+
+        private Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Apertura {
+        Connection abrir(DataSource dataSource) throws SQLException;
+    }
+
+    //Primera verificación síncrona y luego periódica
+    public void iniciar(long intervaloMs) {
+        verificar();
+        verificador = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("verificador-replicas").daemon().factory());
+        verificador.scheduleWithFixedDelay(this::verificar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return obtener(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return obtener(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection obtener(Apertura apertura) throws SQLException {
+        if (Boolean.TRUE.equals(LECTURA_EN_PRINCIPAL.get()) || replicas.isEmpty()) {
+            return apertura.abrir(principal);
+        }
+        int inicio = Math.floorMod(turno.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((inicio + i) % replicas.size());
+            if (!replica.disponible) {
+                continue;
+            }
+            try {
+                return apertura.abrir(replica.dataSource);
+            } catch (SQLException e) {
+                //Se rehabilita en la próxima verificación exitosa
+                replica.disponible = false;
+                log.warn("Réplica {} no disponible, se omite hasta la próxima verificación: {}",
+                        replica.nombre, e.getMessage());
+            }
+        }
+        return apertura.abrir(principal);
+    }
+
+    //Medir cada réplica y depurar las escrituras que ya salieron de la ventana
+    void verificar() {
+        for (Replica replica : replicas) {
+            boolean disponible;
+            try {
+                replica.retrasoMs = medirRetraso(replica.dataSource);
+                disponible = replica.retrasoMs <= retrasoMaximoMs;
+            } catch (SQLException | RuntimeException e) {
+                disponible = false;
+                log.debug("Réplica {} no responde: {}", replica.nombre, e.getMessage());
+            }
+            if (disponible != replica.disponible) {
+                log.info("Réplica {} {} (retraso {} ms, máximo {} ms)", replica.nombre,
+                        disponible ? "habilitada" : "deshabilitada", replica.retrasoMs, retrasoMaximoMs);
+            }
+            replica.disponible = disponible;
+        }
+        long limite = System.currentTimeMillis() - ventanaLecturaPropiaMs;
+        ultimasEscrituras.values().removeIf(instante -> instante < limite);
+    }
+
+    private static long medirRetraso(DataSource dataSource) throws SQLException {
+        try (Connection conexion = dataSource.getConnection();
+             Statement sentencia = conexion.createStatement();
+             ResultSet resultado = sentencia.executeQuery(SQL_RETRASO)) {
+            resultado.next();
+            long retraso = (long) resultado.getDouble(1);
+            //Sin ninguna transacción aplicada no se puede saber qué tan atrasada está
+            return resultado.wasNull() ? Long.MAX_VALUE : retraso;
+        }
+    }
+
+    //El cliente acaba de escribir: durante la ventana sus lecturas van a la principal
+    public void registrarEscritura(String cliente) {
+        ultimasEscrituras.put(cliente, System.currentTimeMillis());
+    }
+
+    public boolean escribioRecientemente(String cliente) {
+        Long instante = ultimasEscrituras.get(cliente);
+        return instante != null && System.currentTimeMillis() - instante < ventanaLecturaPropiaMs;
+    }
+
+    static void leerDePrincipal(boolean enPrincipal) {
+        LECTURA_EN_PRINCIPAL.set(enPrincipal);
+    }
+
+    static void limpiar() {
+        LECTURA_EN_PRINCIPAL.remove();
+    }
+
+    int replicasDisponibles() {
+        return (int) replicas.stream().filter(replica -> replica.disponible).count();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (verificador != null) {
+            verificador.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+}
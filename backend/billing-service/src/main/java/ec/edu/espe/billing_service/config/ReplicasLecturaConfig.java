@@ -0,0 +1,91 @@
+package ec.edu.espe.billing_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enrutamiento de las transacciones de solo lectura a réplicas de PostgreSQL.
+ * Sólo se activa si billing.replicas.urls tiene alguna URL; sin ella se usa el DataSource
+ * autoconfigurado. El DataSource principal es un LazyConnectionDataSourceProxy: en una
+ * transacción @Transactional(readOnly = true) la conexión se marca como de solo lectura antes
+ * de pedirla y el proxy la obtiene de {@link ReplicasLectura}; el resto va a la base principal.
+ * Las réplicas usan las mismas credenciales y configuración de Hikari que la principal.
+ */
+@Configuration
+@ConditionalOnProperty(name = "billing.replicas.urls")
+public class ReplicasLecturaConfig {
+
+    private static final String PREFIJO_HIKARI = "spring.datasource.hikari";
+
+    @Bean
+    public HikariDataSource dataSourcePrincipal(DataSourceProperties properties, Environment environment) {
+        return crearPool(properties, environment, properties.determineUrl(), "billing-principal");
+    }
+
+    @Bean
+    public ReplicasLectura replicasLectura(
+            @Qualifier("dataSourcePrincipal") DataSource principal,
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${billing.replicas.urls}") List<String> urls,
+            @Value("${billing.replicas.retraso-maximo-ms:2000}") long retrasoMaximoMs,
+            @Value("${billing.replicas.ventana-lectura-propia-ms:5000}") long ventanaLecturaPropiaMs,
+            @Value("${billing.replicas.intervalo-verificacion-ms:2000}") long intervaloVerificacionMs) {
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<String> configuradas = urls.stream().filter(StringUtils::hasText).map(String::trim).toList();
+        for (int i = 0; i < configuradas.size(); i++) {
+            String nombre = "billing-replica-" + (i + 1);
+            HikariDataSource replica = crearPool(properties, environment, configuradas.get(i), nombre);
+            replica.setReadOnly(true);
+            replicas.put(nombre, replica);
+        }
+
+        ReplicasLectura replicasLectura = new ReplicasLectura(principal, replicas,
+                retrasoMaximoMs, ventanaLecturaPropiaMs);
+        replicasLectura.iniciar(intervaloVerificacionMs);
+        return replicasLectura;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrincipal") DataSource principal,
+                                 ReplicasLectura replicasLectura) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(principal);
+        proxy.setReadOnlyDataSource(replicasLectura);
+        return proxy;
+    }
+
+    @Bean
+    public LecturaPropiaFilter lecturaPropiaFilter(ReplicasLectura replicasLectura) {
+        return new LecturaPropiaFilter(replicasLectura);
+    }
+
+    //Pool con las credenciales de spring.datasource y las propiedades de spring.datasource.hikari
+    private static HikariDataSource crearPool(DataSourceProperties properties, Environment environment,
+                                              String url, String nombre) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind(PREFIJO_HIKARI, Bindable.ofInstance(pool));
+        pool.setPoolName(nombre);
+        return pool;
+    }
+}
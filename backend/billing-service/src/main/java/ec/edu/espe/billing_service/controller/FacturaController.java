@@ -1,18 +1,26 @@
 package ec.edu.espe.billing_service.controller;
 
+import ec.edu.espe.billing_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.billing_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.billing_service.dto.CreateFacturaRequest;
 import ec.edu.espe.billing_service.dto.FacturaResponse;
 import ec.edu.espe.billing_service.dto.UpdateFacturaRequest;
 import ec.edu.espe.billing_service.model.EstadoFactura;
 import ec.edu.espe.billing_service.service.FacturaService;
+import ec.edu.espe.billing_service.service.RegistroIdempotencia;
+import ec.edu.espe.billing_service.util.Etags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 //Controlador REST para gestión de facturas
@@ -22,13 +30,20 @@ import java.util.UUID;
 public class FacturaController {
 
     private final FacturaService facturaService;
+    private final RegistroIdempotencia registroIdempotencia;
 
-    //Crear nueva factura
+    //Crear nueva factura; con Idempotency-Key los reintentos devuelven la factura ya creada
     @PostMapping
-    public ResponseEntity<FacturaResponse> crearFactura(@Valid @RequestBody CreateFacturaRequest request) {
+    public ResponseEntity<FacturaResponse> crearFactura(
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            @Valid @RequestBody CreateFacturaRequest request) {
         try {
-            FacturaResponse factura = facturaService.crearFactura(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(factura);
+            if (claveIdempotencia == null) {
+                FacturaResponse factura = facturaService.crearFactura(request);
+                return ResponseEntity.status(HttpStatus.CREATED).body(factura);
+            }
+            return respuestaIdempotente(registroIdempotencia.ejecutar("crearFactura", claveIdempotencia, request,
+                    FacturaResponse.class, () -> facturaService.crearFactura(request)));
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Error al crear factura: " + e.getMessage());
         }
@@ -36,14 +51,22 @@ public class FacturaController {
 
     //Obtener todas las facturas
     @GetMapping
-    public ResponseEntity<List<FacturaResponse>> obtenerTodasLasFacturas() {
+    public ResponseEntity<List<FacturaResponse>> obtenerTodasLasFacturas(WebRequest webRequest) {
+        //ETag débil del listado: 304 sin cargar entidades si nada entró, salió ni cambió
+        if (webRequest.checkNotModified(Etags.debil("activos", facturaService.obtenerMarcaVersion()))) {
+            return null;
+        }
         List<FacturaResponse> facturas = facturaService.obtenerTodasLasFacturas();
         return ResponseEntity.ok(facturas);
     }
 
     //Obtener factura por ID
     @GetMapping("/{id}")
-    public ResponseEntity<FacturaResponse> obtenerFacturaPorId(@PathVariable UUID id) {
+    public ResponseEntity<FacturaResponse> obtenerFacturaPorId(@PathVariable UUID id, WebRequest webRequest) {
+        //GET condicional: si el cliente ya tiene esta versión se responde 304 sin cargar la entidad
+        if (noModificado(webRequest, facturaService.obtenerFechaActualizacion(id))) {
+            return null;
+        }
         try {
             FacturaResponse factura = facturaService.obtenerFacturaPorId(id);
             return ResponseEntity.ok(factura);
@@ -54,7 +77,11 @@ public class FacturaController {
 
     //Obtener factura por número
     @GetMapping("/numero/{numeroFactura}")
-    public ResponseEntity<FacturaResponse> obtenerFacturaPorNumero(@PathVariable String numeroFactura) {
+    public ResponseEntity<FacturaResponse> obtenerFacturaPorNumero(@PathVariable String numeroFactura,
+                                                                   WebRequest webRequest) {
+        if (noModificado(webRequest, facturaService.obtenerFechaActualizacionPorNumero(numeroFactura))) {
+            return null;
+        }
         try {
             FacturaResponse factura = facturaService.obtenerFacturaPorNumero(numeroFactura);
             return ResponseEntity.ok(factura);
@@ -65,7 +92,10 @@ public class FacturaController {
 
     //Obtener factura por pedido
     @GetMapping("/pedido/{pedidoId}")
-    public ResponseEntity<FacturaResponse> obtenerFacturaPorPedido(@PathVariable UUID pedidoId) {
+    public ResponseEntity<FacturaResponse> obtenerFacturaPorPedido(@PathVariable UUID pedidoId, WebRequest webRequest) {
+        if (noModificado(webRequest, facturaService.obtenerFechaActualizacionPorPedido(pedidoId))) {
+            return null;
+        }
         try {
             FacturaResponse factura = facturaService.obtenerFacturaPorPedido(pedidoId);
             return ResponseEntity.ok(factura);
@@ -74,6 +104,28 @@ public class FacturaController {
         }
     }
 
+    //Obtener varias facturas por ID en una sola llamada (resultado por ID, null si no existe)
+    @PostMapping("/batch")
+    public ResponseEntity<BusquedaLoteResponse<FacturaResponse>> obtenerFacturasPorIds(
+            @Valid @RequestBody BusquedaLoteRequest request) {
+        try {
+            return ResponseEntity.ok(facturaService.obtenerFacturasPorIds(request.getIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Obtener las facturas de varios pedidos; el resultado se indexa por ID de pedido
+    @PostMapping("/batch/pedidos")
+    public ResponseEntity<BusquedaLoteResponse<FacturaResponse>> obtenerFacturasPorPedidos(
+            @Valid @RequestBody BusquedaLoteRequest request) {
+        try {
+            return ResponseEntity.ok(facturaService.obtenerFacturasPorPedidos(request.getIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //Obtener facturas por cliente
     @GetMapping("/cliente/{clienteId}")
     public ResponseEntity<List<FacturaResponse>> obtenerFacturasPorCliente(@PathVariable UUID clienteId) {
@@ -141,4 +193,23 @@ public class FacturaController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    //201 con el recurso creado (marcado si es una repetición), 409 si otra solicitud con la clave sigue en curso
+    //y 422 si la clave se usó con otro cuerpo
+    private static <T> ResponseEntity<T> respuestaIdempotente(RegistroIdempotencia.Resultado<T> resultado) {
+        return switch (resultado.estado()) {
+            case EJECUTADA -> ResponseEntity.status(HttpStatus.CREATED).body(resultado.cuerpo());
+            case REPETIDA -> ResponseEntity.status(HttpStatus.CREATED)
+                    .header(RegistroIdempotencia.CABECERA_REPETIDA, "true")
+                    .body(resultado.cuerpo());
+            case EN_CURSO -> ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").build();
+            case CLAVE_REUTILIZADA -> ResponseEntity.status(HttpStatus.UNPROCESSABLE_CONTENT).build();
+        };
+    }
+
+    //GET condicional de un recurso individual: ETag fuerte y Last-Modified de su fechaActualizacion
+    private static boolean noModificado(WebRequest webRequest, Optional<LocalDateTime> fechaActualizacion) {
+        return fechaActualizacion.isPresent() && webRequest.checkNotModified(
+                Etags.fuerte(fechaActualizacion.get()), Etags.milisegundos(fechaActualizacion.get()));
+    }
 }
@@ -19,11 +19,13 @@ public class HomeController {
         info.put("descripcion", "Microservicio para cálculo de tarifas y generación de facturas");
         info.put("puerto", 8085);
         info.put("endpoints", Map.ofEntries(
-            Map.entry("crear", "POST /api/facturas"),
+            Map.entry("crear", "POST /api/facturas [Idempotency-Key: XXX]"),
             Map.entry("listar", "GET /api/facturas"),
             Map.entry("obtenerPorId", "GET /api/facturas/{id}"),
             Map.entry("obtenerPorNumero", "GET /api/facturas/numero/{numeroFactura}"),
             Map.entry("obtenerPorPedido", "GET /api/facturas/pedido/{pedidoId}"),
+            Map.entry("obtenerPorIds", "POST /api/facturas/batch"),
+            Map.entry("obtenerPorPedidos", "POST /api/facturas/batch/pedidos"),
             Map.entry("obtenerPorCliente", "GET /api/facturas/cliente/{clienteId}"),
             Map.entry("obtenerPorEstado", "GET /api/facturas/estado/{estado}"),
             Map.entry("actualizar", "PUT /api/facturas/{id}"),
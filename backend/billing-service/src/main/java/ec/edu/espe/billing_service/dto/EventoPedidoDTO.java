@@ -0,0 +1,29 @@
+package ec.edu.espe.billing_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+//Evento de pedido publicado por pedido-service en notifications_exchange (sólo los campos que usa la facturación)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EventoPedidoDTO {
+
+    private String microservice;
+
+    //UPDATED (un pedido) o BATCH_UPDATED (data.pedidos con un elemento por pedido)
+    private String action;
+
+    private String entityType;
+
+    private String entityId;
+
+    private Map<String, Object> data;
+}
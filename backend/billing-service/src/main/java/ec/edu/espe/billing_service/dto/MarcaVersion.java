@@ -0,0 +1,10 @@
+package ec.edu.espe.billing_service.dto;
+
+import java.time.LocalDateTime;
+
+//Cantidad y última modificación de un listado; base de su ETag débil sin cargar las entidades
+public record MarcaVersion(
+        long cantidad,
+        LocalDateTime ultimaActualizacion
+) {
+}
@@ -12,7 +12,8 @@ import java.util.UUID;
 
 //Entidad Factura - Facturación de servicios de entrega
 @Entity
-@Table(name = "factura")
+//Una factura por pedido: la facturación automática inserta con ON CONFLICT (pedido_id) DO NOTHING
+@Table(name = "factura", uniqueConstraints = @UniqueConstraint(name = "uk_factura_pedido", columnNames = "pedido_id"))
 @Getter
 @Setter
 @Builder
@@ -21,7 +22,7 @@ import java.util.UUID;
 public class Factura {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @IdUuidV7
     private UUID id;
 
     @Column(nullable = false, unique = true, length = 50)
@@ -1,10 +1,15 @@
 package ec.edu.espe.billing_service.repository;
 
+import ec.edu.espe.billing_service.dto.MarcaVersion;
 import ec.edu.espe.billing_service.model.EstadoFactura;
 import ec.edu.espe.billing_service.model.Factura;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,6 +22,8 @@ public interface FacturaRepository extends JpaRepository<Factura, UUID> {
 
     Optional<Factura> findByPedidoId(UUID pedidoId);
 
+    List<Factura> findByPedidoIdIn(Collection<UUID> pedidoIds);
+
     List<Factura> findByClienteIdAndActivoTrue(UUID clienteId);
 
     List<Factura> findByEstadoAndActivoTrue(EstadoFactura estado);
@@ -26,4 +33,22 @@ public interface FacturaRepository extends JpaRepository<Factura, UUID> {
     Boolean existsByNumeroFactura(String numeroFactura);
 
     Boolean existsByPedidoId(UUID pedidoId);
+
+    //Pedidos del lote que ya tienen factura (sólo la columna, para descartarlos antes de numerar)
+    @Query("SELECT f.pedidoId FROM Factura f WHERE f.pedidoId IN :pedidoIds")
+    List<UUID> findPedidoIdsFacturados(@Param("pedidoIds") Collection<UUID> pedidoIds);
+
+    //Versiones para GET condicionales: sólo la columna necesaria, sin hidratar la entidad
+    @Query("SELECT f.fechaActualizacion FROM Factura f WHERE f.id = :id")
+    Optional<LocalDateTime> findFechaActualizacionById(@Param("id") UUID id);
+
+    @Query("SELECT f.fechaActualizacion FROM Factura f WHERE f.numeroFactura = :numeroFactura")
+    Optional<LocalDateTime> findFechaActualizacionByNumeroFactura(@Param("numeroFactura") String numeroFactura);
+
+    @Query("SELECT f.fechaActualizacion FROM Factura f WHERE f.pedidoId = :pedidoId")
+    Optional<LocalDateTime> findFechaActualizacionByPedidoId(@Param("pedidoId") UUID pedidoId);
+
+    @Query("SELECT new ec.edu.espe.billing_service.dto.MarcaVersion(COUNT(f), MAX(f.fechaActualizacion)) " +
+           "FROM Factura f WHERE f.activo = true")
+    MarcaVersion marcaVersionActivos();
 }
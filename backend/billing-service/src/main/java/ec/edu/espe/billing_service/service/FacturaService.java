@@ -1,11 +1,15 @@
 package ec.edu.espe.billing_service.service;
 
+import ec.edu.espe.billing_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.billing_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.billing_service.dto.CreateFacturaRequest;
 import ec.edu.espe.billing_service.dto.FacturaResponse;
+import ec.edu.espe.billing_service.dto.MarcaVersion;
 import ec.edu.espe.billing_service.dto.UpdateFacturaRequest;
 import ec.edu.espe.billing_service.model.EstadoFactura;
 import ec.edu.espe.billing_service.model.Factura;
 import ec.edu.espe.billing_service.repository.FacturaRepository;
+import ec.edu.espe.billing_service.util.GeneradorNumeros;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -15,8 +19,9 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -26,6 +31,7 @@ import java.util.stream.Collectors;
 public class FacturaService {
 
     private final FacturaRepository facturaRepository;
+    private final GeneradorNumeros generadorNumeroFactura;
 
     //Tarifas configurables desde application.yaml
     @Value("${billing.tarifas.urbana.base:3.00}")
@@ -75,9 +81,15 @@ public class FacturaService {
             throw new IllegalArgumentException("Ya existe una factura para el pedido: " + request.getNumeroPedido());
         }
 
-        //Generar número de factura
-        String numeroFactura = generarNumeroFactura();
+        //Generar número de factura (sin consultar la base de datos)
+        Factura factura = construirFactura(request, generadorNumeroFactura.siguiente());
 
+        Factura savedFactura = facturaRepository.save(factura);
+        return convertirAResponse(savedFactura);
+    }
+
+    //Factura en BORRADOR con tarifas y total calculados, sin guardar (también la usa la facturación automática)
+    public Factura construirFactura(CreateFacturaRequest request, String numeroFactura) {
         //Calcular tarifas
         BigDecimal tarifaBase = calcularTarifaBase(request.getTipoEntrega());
         BigDecimal cargoDistancia = calcularCargoDistancia(request.getTipoEntrega(), request.getDistanciaKm());
@@ -108,9 +120,7 @@ public class FacturaService {
 
         //Calcular total
         factura.calcularTotal();
-
-        Factura savedFactura = facturaRepository.save(factura);
-        return convertirAResponse(savedFactura);
+        return factura;
     }
 
     //Obtener todas las facturas activas
@@ -121,6 +131,28 @@ public class FacturaService {
                 .collect(Collectors.toList());
     }
 
+    //Versión de un factura para GET condicionales (vacío si no existe)
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacion(UUID id) {
+        return facturaRepository.findFechaActualizacionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacionPorNumero(String numeroFactura) {
+        return facturaRepository.findFechaActualizacionByNumeroFactura(numeroFactura);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacionPorPedido(UUID pedidoId) {
+        return facturaRepository.findFechaActualizacionByPedidoId(pedidoId);
+    }
+
+    //Cantidad y última modificación del listado de activos (base de su ETag débil)
+    @Transactional(readOnly = true)
+    public MarcaVersion obtenerMarcaVersion() {
+        return facturaRepository.marcaVersionActivos();
+    }
+
     //Obtener factura por ID
     @Transactional(readOnly = true)
     public FacturaResponse obtenerFacturaPorId(UUID id) {
@@ -145,6 +177,25 @@ public class FacturaService {
         return convertirAResponse(factura);
     }
 
+    //Obtener varias facturas por ID con una sola consulta
+    @Transactional(readOnly = true)
+    public BusquedaLoteResponse<FacturaResponse> obtenerFacturasPorIds(List<UUID> ids) {
+        List<UUID> unicos = BusquedaLoteRequest.idsUnicos(ids);
+        Map<UUID, FacturaResponse> encontradas = facturaRepository.findAllById(unicos).stream()
+                .collect(Collectors.toMap(Factura::getId, this::convertirAResponse));
+        return BusquedaLoteResponse.de(unicos, encontradas);
+    }
+
+    //Obtener las facturas de varios pedidos con una sola consulta, indexadas por ID de pedido
+    @Transactional(readOnly = true)
+    public BusquedaLoteResponse<FacturaResponse> obtenerFacturasPorPedidos(List<UUID> pedidoIds) {
+        List<UUID> unicos = BusquedaLoteRequest.idsUnicos(pedidoIds);
+        //Un pedido tiene como máximo una factura (validado al crearla)
+        Map<UUID, FacturaResponse> encontradas = facturaRepository.findByPedidoIdIn(unicos).stream()
+                .collect(Collectors.toMap(Factura::getPedidoId, this::convertirAResponse, (primera, otra) -> primera));
+        return BusquedaLoteResponse.de(unicos, encontradas);
+    }
+
     //Obtener facturas por cliente
     @Transactional(readOnly = true)
     public List<FacturaResponse> obtenerFacturasPorCliente(UUID clienteId) {
@@ -311,20 +362,6 @@ public class FacturaService {
         };
     }
 
-    //Generar número de factura único
-    private String generarNumeroFactura() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-        String random = String.format("%04d", (int)(Math.random() * 10000));
-        String numero = "FAC-" + timestamp + "-" + random;
-
-        while (facturaRepository.existsByNumeroFactura(numero)) {
-            random = String.format("%04d", (int)(Math.random() * 10000));
-            numero = "FAC-" + timestamp + "-" + random;
-        }
-
-        return numero;
-    }
-
     //Convertir entidad a DTO
     private FacturaResponse convertirAResponse(Factura factura) {
         return FacturaResponse.builder()
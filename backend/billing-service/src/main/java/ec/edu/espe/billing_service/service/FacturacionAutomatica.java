@@ -0,0 +1,319 @@
+package ec.edu.espe.billing_service.service;
+
+import ec.edu.espe.billing_service.config.RabbitMQConfig;
+import ec.edu.espe.billing_service.dto.CreateFacturaRequest;
+import ec.edu.espe.billing_service.dto.EventoPedidoDTO;
+import ec.edu.espe.billing_service.model.Factura;
+import ec.edu.espe.billing_service.repository.FacturaRepository;
+import ec.edu.espe.billing_service.util.GeneradorNumeros;
+import ec.edu.espe.billing_service.util.UuidV7;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Facturación automática de los pedidos entregados.
+ * Consume por micro-lotes los eventos de pedido-service (UPDATED y BATCH_UPDATED con estado
+ * ENTREGADO), arma cada factura con las tarifas de {@link FacturaService} y las inserta en un único
+ * batch JDBC por lote. Es idempotente por pedidoId: los pedidos ya facturados se descartan antes
+ * de numerar y la restricción única cubre las entregas repetidas que llegan en paralelo
+ * (ON CONFLICT DO NOTHING), así que un lote reprocesado tras un fallo no duplica facturas.
+ * Si el lote sigue fallando tras los reintentos, se recupera mensaje a mensaje y sólo los que fallan
+ * por sí solos se publican en la cola de fallidos.
+ */
+@Component
+@Slf4j
+public class FacturacionAutomatica implements MessageBatchRecoverer {
+
+    private static final String ESTADO_ENTREGADO = "ENTREGADO";
+
+    private static final String OBSERVACIONES = "Factura generada automáticamente al entregar el pedido";
+
+    private static final String SQL_INSERTAR = """
+            INSERT INTO factura (id, numero_factura, pedido_id, numero_pedido, cliente_id, cliente_nombre,
+                tipo_entrega, distancia_km, peso_kg, tarifa_base, cargo_distancia, cargo_peso, recargo_prioridad,
+                descuento, subtotal, impuesto_iva, total, estado, fecha_emision, fecha_vencimiento, observaciones,
+                activo, fecha_creacion, fecha_actualizacion)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (pedido_id) DO NOTHING""";
+
+    private final FacturaService facturaService;
+    private final FacturaRepository facturaRepository;
+    private final GeneradorNumeros generadorNumeroFactura;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final RepublishMessageRecoverer colaFallidos;
+
+    private final Counter facturasCreadas;
+    private final Counter entregasYaFacturadas;
+    private final Counter entregasRepetidas;
+    private final Counter eventosInvalidos;
+    private final Counter facturasSinDistancia;
+    private final Counter mensajesFallidos;
+    private final DistributionSummary tamanioLotes;
+
+    public FacturacionAutomatica(FacturaService facturaService,
+                                 FacturaRepository facturaRepository,
+                                 GeneradorNumeros generadorNumeroFactura,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 AmqpTemplate amqpTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.facturaService = facturaService;
+        this.facturaRepository = facturaRepository;
+        this.generadorNumeroFactura = generadorNumeroFactura;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.colaFallidos = new RepublishMessageRecoverer(amqpTemplate, "", RabbitMQConfig.COLA_FACTURACION_FALLIDOS);
+
+        this.facturasCreadas = Counter.builder("billing.facturacion.creadas")
+                .description("Facturas creadas automáticamente por pedidos entregados")
+                .register(meterRegistry);
+        this.entregasYaFacturadas = Counter.builder("billing.facturacion.duplicadas")
+                .description("Entregas recibidas de nuevo para un pedido que ya tenía factura")
+                .register(meterRegistry);
+        this.entregasRepetidas = Counter.builder("billing.facturacion.repetidas")
+                .description("Copias de la entrega de un mismo pedido recibidas dentro del mismo lote")
+                .register(meterRegistry);
+        this.eventosInvalidos = Counter.builder("billing.facturacion.invalidos")
+                .description("Eventos de entrega descartados por no poder leerse o faltarles datos")
+                .register(meterRegistry);
+        this.facturasSinDistancia = Counter.builder("billing.facturacion.sin-distancia")
+                .description("Facturas creadas sin distancia del pedido (sin cargo por distancia)")
+                .register(meterRegistry);
+        this.mensajesFallidos = Counter.builder("billing.facturacion.fallidos")
+                .description("Mensajes enviados a la cola de fallidos tras agotar los reintentos")
+                .register(meterRegistry);
+        this.tamanioLotes = DistributionSummary.builder("billing.facturacion.lote")
+                .description("Mensajes recibidos por lote")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.COLA_FACTURACION, containerFactory = RabbitMQConfig.FABRICA_LOTES,
+            autoStartup = "${billing.facturacion-automatica.habilitada:true}")
+    public void procesarLote(List<Message> mensajes) {
+        tamanioLotes.record(mensajes.size());
+        List<CreateFacturaRequest> entregas = new ArrayList<>();
+        for (Message mensaje : mensajes) {
+            entregas.addAll(leerEntregas(mensaje.getBody()));
+        }
+        if (!entregas.isEmpty()) {
+            facturar(entregas);
+        }
+    }
+
+    /**
+     * Recuperación de un lote que sigue fallando tras los reintentos: cada mensaje se procesa por
+     * separado y los que vuelven a fallar se publican en la cola de fallidos con la causa en sus
+     * cabeceras, así el resto del lote se factura y confirma. Si la base no está disponible o no se
+     * puede publicar en la cola de fallidos, el lote vuelve a la cola en lugar de perderse.
+     */
+    @Override
+    public void recover(List<Message> mensajes, Throwable causa) {
+        log.warn("Lote de {} mensajes fallido tras los reintentos, se procesa mensaje a mensaje: {}",
+                mensajes.size(), causa.getMessage());
+        for (Message mensaje : mensajes) {
+            try {
+                List<CreateFacturaRequest> entregas = leerEntregas(mensaje.getBody());
+                if (!entregas.isEmpty()) {
+                    facturar(entregas);
+                }
+            } catch (DataAccessResourceFailureException | TransientDataAccessException e) {
+                throw new ImmediateRequeueAmqpException("Base de facturación no disponible", e);
+            } catch (RuntimeException e) {
+                enviarAFallidos(mensaje, e);
+            }
+        }
+    }
+
+    private void enviarAFallidos(Message mensaje, RuntimeException causa) {
+        try {
+            colaFallidos.recover(mensaje, causa);
+        } catch (AmqpException e) {
+            throw new ImmediateRequeueAmqpException("No se pudo publicar en la cola de fallidos", e);
+        }
+        mensajesFallidos.increment();
+        log.error("Mensaje de facturación enviado a {}: {}", RabbitMQConfig.COLA_FACTURACION_FALLIDOS, causa.getMessage());
+    }
+
+    //Entregas contenidas en un evento; los demás eventos de pedidos se ignoran
+    List<CreateFacturaRequest> leerEntregas(byte[] cuerpo) {
+        EventoPedidoDTO evento;
+        try {
+            evento = objectMapper.readValue(cuerpo, EventoPedidoDTO.class);
+        } catch (JacksonException e) {
+            //Un mensaje ilegible no debe devolver a la cola todo el lote
+            eventosInvalidos.increment();
+            log.warn("Evento de pedido ilegible descartado: {}", e.getMessage());
+            return List.of();
+        }
+        Map<String, Object> data = evento.getData();
+        if (!"PEDIDO".equals(evento.getEntityType()) || data == null || !ESTADO_ENTREGADO.equals(data.get("estadoNuevo"))) {
+            return List.of();
+        }
+
+        List<Map<String, Object>> pedidos = new ArrayList<>();
+        if ("BATCH_UPDATED".equals(evento.getAction()) && data.get("pedidos") instanceof List<?> lista) {
+            for (Object elemento : lista) {
+                if (elemento instanceof Map<?, ?> pedido) {
+                    pedidos.add(comoMapa(pedido));
+                }
+            }
+        } else if ("UPDATED".equals(evento.getAction())) {
+            Map<String, Object> pedido = new LinkedHashMap<>(data);
+            pedido.putIfAbsent("pedidoId", evento.getEntityId());
+            pedidos.add(pedido);
+        }
+
+        List<CreateFacturaRequest> entregas = new ArrayList<>(pedidos.size());
+        for (Map<String, Object> pedido : pedidos) {
+            CreateFacturaRequest solicitud = solicitud(pedido);
+            if (solicitud == null) {
+                //Eventos de versiones de pedido-service que no publican los datos de facturación
+                eventosInvalidos.increment();
+                log.warn("Entrega sin datos de facturación descartada: {}", pedido.get("pedidoId"));
+            } else {
+                entregas.add(solicitud);
+            }
+        }
+        return entregas;
+    }
+
+    /**
+     * Inserta en una transacción las facturas de las entregas que aún no la tienen.
+     *
+     * @return facturas creadas
+     */
+    public int facturar(List<CreateFacturaRequest> entregas) {
+        Map<UUID, CreateFacturaRequest> porPedido = new LinkedHashMap<>();
+        for (CreateFacturaRequest entrega : entregas) {
+            porPedido.putIfAbsent(entrega.getPedidoId(), entrega);
+        }
+        //La transacción quita de porPedido los ya facturados: se cuentan los pedidos distintos antes
+        int pedidosDistintos = porPedido.size();
+        int repetidas = entregas.size() - pedidosDistintos;
+
+        List<CreateFacturaRequest> insertadas = transactionTemplate.execute(status -> {
+            facturaRepository.findPedidoIdsFacturados(porPedido.keySet()).forEach(porPedido::remove);
+            if (porPedido.isEmpty()) {
+                return List.of();
+            }
+            LocalDateTime ahora = LocalDateTime.now();
+            List<CreateFacturaRequest> pendientes = new ArrayList<>(porPedido.values());
+            List<Object[]> filas = new ArrayList<>(pendientes.size());
+            for (CreateFacturaRequest entrega : pendientes) {
+                filas.add(fila(facturaService.construirFactura(entrega, generadorNumeroFactura.siguiente()), ahora));
+            }
+            //Cada sentencia informa 1 (insertada) o 0 (otra instancia ya facturó el pedido)
+            int[] filasAfectadas = jdbcTemplate.batchUpdate(SQL_INSERTAR, filas);
+            List<CreateFacturaRequest> resultado = new ArrayList<>(pendientes.size());
+            for (int i = 0; i < filasAfectadas.length; i++) {
+                if (filasAfectadas[i] > 0) {
+                    resultado.add(pendientes.get(i));
+                }
+            }
+            return resultado;
+        });
+
+        int creadas = insertadas.size();
+        int duplicadas = pedidosDistintos - creadas;
+        facturasCreadas.increment(creadas);
+        entregasYaFacturadas.increment(duplicadas);
+        entregasRepetidas.increment(repetidas);
+        log.info("Facturación automática: {} facturas creadas, {} entregas ya facturadas, {} repetidas en el lote",
+                creadas, duplicadas, repetidas);
+
+        //pedido-service no publica la distancia de los pedidos sin coordenadas: se facturan sin cargo por distancia
+        List<String> sinDistancia = insertadas.stream()
+                .filter(entrega -> entrega.getDistanciaKm() == null)
+                .map(CreateFacturaRequest::getNumeroPedido)
+                .toList();
+        if (!sinDistancia.isEmpty()) {
+            facturasSinDistancia.increment(sinDistancia.size());
+            log.warn("{} facturas creadas sin distancia del pedido (cargo por distancia 0): {}", sinDistancia.size(), sinDistancia);
+        }
+        return creadas;
+    }
+
+    //null si al pedido le faltan datos obligatorios para facturarlo
+    private static CreateFacturaRequest solicitud(Map<String, Object> pedido) {
+        UUID pedidoId = uuid(pedido.get("pedidoId"));
+        UUID clienteId = uuid(pedido.get("clienteId"));
+        Object numeroPedido = pedido.get("numeroPedido");
+        Object clienteNombre = pedido.get("clienteNombre");
+        Object tipoEntrega = pedido.get("tipoEntrega");
+        if (pedidoId == null || clienteId == null || numeroPedido == null || clienteNombre == null || tipoEntrega == null) {
+            return null;
+        }
+        return CreateFacturaRequest.builder()
+                .pedidoId(pedidoId)
+                .numeroPedido(numeroPedido.toString())
+                .clienteId(clienteId)
+                .clienteNombre(clienteNombre.toString())
+                .tipoEntrega(tipoEntrega.toString())
+                .prioridad(pedido.get("prioridad") != null ? pedido.get("prioridad").toString() : null)
+                .distanciaKm(decimal(pedido.get("distanciaKm")))
+                .pesoKg(decimal(pedido.get("pesoKg")))
+                .observaciones(OBSERVACIONES)
+                .build();
+    }
+
+    private static Object[] fila(Factura factura, LocalDateTime ahora) {
+        return new Object[]{
+                UuidV7.generar(), factura.getNumeroFactura(), factura.getPedidoId(), factura.getNumeroPedido(),
+                factura.getClienteId(), factura.getClienteNombre(), factura.getTipoEntrega(), factura.getDistanciaKm(),
+                factura.getPesoKg(), factura.getTarifaBase(), factura.getCargoDistancia(), factura.getCargoPeso(),
+                factura.getRecargoPrioridad(), factura.getDescuento(), factura.getSubtotal(), factura.getImpuestoIVA(),
+                factura.getTotal(), factura.getEstado().name(), factura.getFechaEmision(), factura.getFechaVencimiento(),
+                factura.getObservaciones(), factura.getActivo(), ahora, ahora};
+    }
+
+    private static Map<String, Object> comoMapa(Map<?, ?> mapa) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        mapa.forEach((clave, valor) -> resultado.put(String.valueOf(clave), valor));
+        return resultado;
+    }
+
+    private static UUID uuid(Object valor) {
+        try {
+            return valor != null ? UUID.fromString(valor.toString()) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal decimal(Object valor) {
+        try {
+            return valor != null ? new BigDecimal(valor.toString()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ec.edu.espe.billing_service.util;
+
+import ec.edu.espe.billing_service.dto.MarcaVersion;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+//ETags para GET condicionales derivados de fechaActualizacion
+public final class Etags {
+
+    private Etags() {
+    }
+
+    //ETag fuerte de un recurso individual (la columna guarda microsegundos)
+    public static String fuerte(LocalDateTime fechaActualizacion) {
+        return "\"" + Long.toHexString(microsegundos(fechaActualizacion)) + "\"";
+    }
+
+    //ETag débil de un listado: cambia si un elemento entra, sale o se modifica
+    public static String debil(String variante, MarcaVersion marca) {
+        long ultima = marca.ultimaActualizacion() != null ? microsegundos(marca.ultimaActualizacion()) : 0;
+        return "W/\"" + variante + "-" + marca.cantidad() + "-" + Long.toHexString(ultima) + "\"";
+    }
+
+    //Valor para Last-Modified (Hibernate guarda LocalDateTime en la zona de la JVM)
+    public static long milisegundos(LocalDateTime fechaActualizacion) {
+        return fechaActualizacion.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long microsegundos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + fecha.getNano() / 1_000;
+    }
+}
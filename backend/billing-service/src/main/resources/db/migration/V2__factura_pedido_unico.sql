@@ -0,0 +1,43 @@
+-- Tabla de facturas (hasta ahora la creaba ddl-auto) con la restricción única por pedido_id que
+-- necesita el INSERT ... ON CONFLICT (pedido_id) de la facturación automática.
+CREATE TABLE IF NOT EXISTS factura (
+    id                  UUID           PRIMARY KEY,
+    numero_factura      VARCHAR(50)    NOT NULL,
+    pedido_id           UUID           NOT NULL,
+    numero_pedido       VARCHAR(50)    NOT NULL,
+    cliente_id          UUID           NOT NULL,
+    cliente_nombre      VARCHAR(200)   NOT NULL,
+    tipo_entrega        VARCHAR(20)    NOT NULL,
+    distancia_km        NUMERIC(10, 2),
+    peso_kg             NUMERIC(10, 2),
+    tarifa_base         NUMERIC(10, 2) NOT NULL,
+    cargo_distancia     NUMERIC(10, 2),
+    cargo_peso          NUMERIC(10, 2),
+    recargo_prioridad   NUMERIC(10, 2),
+    descuento           NUMERIC(10, 2),
+    subtotal            NUMERIC(10, 2) NOT NULL,
+    impuesto_iva        NUMERIC(10, 2) NOT NULL,
+    total               NUMERIC(10, 2) NOT NULL,
+    estado              VARCHAR(20)    NOT NULL
+        CHECK (estado IN ('BORRADOR', 'PENDIENTE', 'PAGADA', 'VENCIDA', 'CANCELADA', 'ANULADA')),
+    fecha_emision       DATE           NOT NULL,
+    fecha_vencimiento   DATE,
+    fecha_pago          DATE,
+    metodo_pago         VARCHAR(50),
+    observaciones       VARCHAR(500),
+    activo              BOOLEAN        NOT NULL,
+    fecha_creacion      TIMESTAMP(6)   NOT NULL,
+    fecha_actualizacion TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT uk_factura_numero_factura UNIQUE (numero_factura),
+    CONSTRAINT uk_factura_pedido UNIQUE (pedido_id)
+);
+
+-- Bases donde ddl-auto creó la tabla antes de declararse la restricción (update no la agrega):
+-- falla si ya hay pedidos con más de una factura, que deben depurarse antes de migrar.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = 'factura'::regclass AND conname = 'uk_factura_pedido') THEN
+        ALTER TABLE factura ADD CONSTRAINT uk_factura_pedido UNIQUE (pedido_id);
+    END IF;
+END $$;
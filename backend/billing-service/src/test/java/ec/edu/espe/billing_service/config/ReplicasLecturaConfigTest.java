@@ -0,0 +1,183 @@
+package ec.edu.espe.billing_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Cableado de réplicas de billing-service: ReplicasLecturaConfig sólo se activa con
+ * billing.replicas.urls y, activada, las transacciones readOnly del JpaTransactionManager
+ * autoconfigurado leen de la réplica y las demás de la principal. Las bases son un driver JDBC
+ * simulado que identifica cada conexión por su URL.
+ */
+class ReplicasLecturaConfigTest {
+
+    private static final String PRINCIPAL = "jdbc:prueba:principal";
+    private static final String REPLICA = "jdbc:prueba:replica";
+
+    private final ApplicationContextRunner contexto = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class,
+                    HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class))
+            .withUserConfiguration(ReplicasLecturaConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=" + PRINCIPAL,
+                    "spring.datasource.driver-class-name=" + DriverPrueba.class.getName(),
+                    "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+                    "spring.jpa.hibernate.ddl-auto=none",
+                    "spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false");
+
+    @Test
+    void sinUrlsDeReplicas_DebeUsarElDataSourceAutoconfigurado() {
+        contexto.run(context -> {
+            assertThat(context).doesNotHaveBean(ReplicasLectura.class);
+            assertThat(context).doesNotHaveBean(LecturaPropiaFilter.class);
+            assertThat(context.getBean(DataSource.class)).isInstanceOf(HikariDataSource.class);
+        });
+    }
+
+    @Test
+    void conUrlsDeReplicas_DebeActivarElEnrutamientoIgnorandoEntradasVacias() {
+        contexto.withPropertyValues("billing.replicas.urls=" + REPLICA + ", ")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(LecturaPropiaFilter.class);
+                    assertThat(context.getBean(DataSource.class)).isInstanceOf(LazyConnectionDataSourceProxy.class);
+                    assertThat(context.getBean("dataSourcePrincipal", HikariDataSource.class).getPoolName())
+                            .isEqualTo("billing-principal");
+                    //La entrada vacía se ignora
+                    assertThat(context.getBean(ReplicasLectura.class).replicasDisponibles()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void conUrlsDeReplicas_TransaccionReadOnly_DebeLeerDeLaReplica() {
+        contexto.withPropertyValues("billing.replicas.urls=" + REPLICA)
+                .run(context -> {
+                    PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+                    EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+
+                    assertThat(urlEnTransaccion(transactionManager, emf, true)).isEqualTo(REPLICA);
+                    assertThat(urlEnTransaccion(transactionManager, emf, false)).isEqualTo(PRINCIPAL);
+                });
+    }
+
+    @Test
+    void lecturaPropiaFilter_TrasEscrituraDelCliente_DebeLeerDeLaPrincipal() {
+        contexto.withPropertyValues("billing.replicas.urls=" + REPLICA)
+                .run(context -> {
+                    PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+                    EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+                    LecturaPropiaFilter filtro = context.getBean(LecturaPropiaFilter.class);
+
+                    assertThat(urlEnPeticion(filtro, "GET", transactionManager, emf)).isEqualTo(REPLICA);
+                    urlEnPeticion(filtro, "POST", transactionManager, emf);
+                    //Dentro de la ventana de lectura propia el mismo cliente lee lo que acaba de escribir
+                    assertThat(urlEnPeticion(filtro, "GET", transactionManager, emf)).isEqualTo(PRINCIPAL);
+                });
+    }
+
+    //URL leída por una transacción readOnly durante una petición que atraviesa el filtro
+    private static String urlEnPeticion(LecturaPropiaFilter filtro, String metodo,
+                                        PlatformTransactionManager transactionManager,
+                                        EntityManagerFactory emf) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, "/api/facturas");
+        request.setRemoteAddr("10.0.0.1");
+        AtomicReference<String> url = new AtomicReference<>();
+        filtro.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> url.set(urlEnTransaccion(transactionManager, emf, true)));
+        return url.get();
+    }
+
+    //URL de la base que atiende la conexión JDBC de la sesión de Hibernate dentro de la transacción
+    private static String urlEnTransaccion(PlatformTransactionManager transactionManager,
+                                           EntityManagerFactory emf, boolean soloLectura) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(soloLectura);
+        return transaccion.execute(status -> EntityManagerFactoryUtils.getTransactionalEntityManager(emf)
+                .unwrap(Session.class)
+                .doReturningWork(conexion -> conexion.getMetaData().getURL()));
+    }
+
+    //Driver JDBC simulado: conexiones válidas que informan su URL y una réplica sin retraso
+    public static class DriverPrueba implements Driver {
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Connection conexion = mock(Connection.class);
+            DatabaseMetaData metadatos = mock(DatabaseMetaData.class);
+            Statement sentencia = mock(Statement.class);
+            ResultSet resultado = mock(ResultSet.class);
+            when(conexion.isValid(anyInt())).thenReturn(true);
+            when(conexion.getAutoCommit()).thenReturn(true);
+            when(conexion.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+            when(conexion.getMetaData()).thenReturn(metadatos);
+            when(metadatos.getURL()).thenReturn(url);
+            when(conexion.createStatement()).thenReturn(sentencia);
+            when(sentencia.executeQuery(anyString())).thenReturn(resultado);
+            when(resultado.next()).thenReturn(true);
+            when(resultado.getDouble(1)).thenReturn(0d);
+            return conexion;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith("jdbc:prueba:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ec.edu.espe.billing_service.controller;
+
+import ec.edu.espe.billing_service.dto.FacturaResponse;
+import ec.edu.espe.billing_service.service.FacturaService;
+import ec.edu.espe.billing_service.service.RegistroIdempotencia;
+import ec.edu.espe.billing_service.util.Etags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FacturaControllerTest {
+
+    private final LocalDateTime fechaActualizacion = LocalDateTime.of(2024, 1, 16, 10, 30, 0, 123_456_000);
+    private final UUID facturaId = UUID.randomUUID();
+    private final UUID pedidoId = UUID.randomUUID();
+
+    private FacturaService facturaService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        facturaService = mock(FacturaService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new FacturaController(facturaService, mock(RegistroIdempotencia.class))).build();
+    }
+
+    @Test
+    void obtenerFacturaPorId_ConEtagVigente_DebeResponder304SinCargarla() throws Exception {
+        // Arrange
+        when(facturaService.obtenerFechaActualizacion(facturaId)).thenReturn(Optional.of(fechaActualizacion));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/facturas/{id}", facturaId)
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotModified());
+        verify(facturaService, never()).obtenerFacturaPorId(any());
+    }
+
+    @Test
+    void obtenerFacturaPorNumero_ConEtagVigente_DebeResponder304SinCargarla() throws Exception {
+        // Arrange
+        when(facturaService.obtenerFechaActualizacionPorNumero("FAC-20240116-000001"))
+                .thenReturn(Optional.of(fechaActualizacion));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/facturas/numero/{numero}", "FAC-20240116-000001")
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotModified());
+        verify(facturaService, never()).obtenerFacturaPorNumero(any());
+    }
+
+    @Test
+    void obtenerFacturaPorPedido_ConFechaNoModificada_DebeResponder304SinCargarla() throws Exception {
+        // Arrange: el cliente sólo envía If-Modified-Since
+        when(facturaService.obtenerFechaActualizacionPorPedido(pedidoId)).thenReturn(Optional.of(fechaActualizacion));
+        HttpHeaders condicion = new HttpHeaders();
+        condicion.setIfModifiedSince(Etags.milisegundos(fechaActualizacion.plusSeconds(1)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/facturas/pedido/{pedidoId}", pedidoId).headers(condicion))
+                .andExpect(status().isNotModified());
+        verify(facturaService, never()).obtenerFacturaPorPedido(any());
+    }
+
+    @Test
+    void obtenerFacturaPorPedido_ConEtagAnterior_DebeResponderLaFacturaConSuEtag() throws Exception {
+        // Arrange: la factura cambió después de la versión que tiene el cliente
+        LocalDateTime anterior = fechaActualizacion.minusMinutes(5);
+        when(facturaService.obtenerFechaActualizacionPorPedido(pedidoId)).thenReturn(Optional.of(fechaActualizacion));
+        when(facturaService.obtenerFacturaPorPedido(pedidoId)).thenReturn(FacturaResponse.builder()
+                .id(facturaId)
+                .pedidoId(pedidoId)
+                .fechaActualizacion(fechaActualizacion)
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/facturas/pedido/{pedidoId}", pedidoId)
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(anterior)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Etags.fuerte(fechaActualizacion)));
+    }
+}
@@ -1,10 +1,12 @@
 package ec.edu.espe.billing_service.service;
 
+import ec.edu.espe.billing_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.billing_service.dto.CreateFacturaRequest;
 import ec.edu.espe.billing_service.dto.FacturaResponse;
 import ec.edu.espe.billing_service.model.EstadoFactura;
 import ec.edu.espe.billing_service.model.Factura;
 import ec.edu.espe.billing_service.repository.FacturaRepository;
+import ec.edu.espe.billing_service.util.GeneradorNumeros;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -26,6 +29,9 @@ class FacturaServiceTest {
     @Mock
     private FacturaRepository facturaRepository;
 
+    @Mock
+    private GeneradorNumeros generadorNumeroFactura;
+
     @InjectMocks
     private FacturaService facturaService;
 
@@ -155,4 +161,22 @@ class FacturaServiceTest {
         assertNotNull(response);
         verify(facturaRepository, times(1)).save(any(Factura.class));
     }
+
+    @Test
+    void obtenerFacturasPorPedidos_DebeIndexarPorPedidoYMarcarFaltantes() {
+        // Arrange
+        UUID pedidoSinFactura = UUID.randomUUID();
+        when(facturaRepository.findByPedidoIdIn(List.of(pedidoId, pedidoSinFactura)))
+                .thenReturn(List.of(factura));
+
+        // Act
+        BusquedaLoteResponse<FacturaResponse> response =
+                facturaService.obtenerFacturasPorPedidos(List.of(pedidoId, pedidoSinFactura));
+
+        // Assert
+        assertEquals(facturaId, response.getResultados().get(pedidoId).getId());
+        assertTrue(response.getResultados().containsKey(pedidoSinFactura));
+        assertNull(response.getResultados().get(pedidoSinFactura));
+        assertEquals(List.of(pedidoSinFactura), response.getNoEncontrados());
+    }
 }
@@ -0,0 +1,241 @@
+package ec.edu.espe.billing_service.service;
+
+import ec.edu.espe.billing_service.config.RabbitMQConfig;
+import ec.edu.espe.billing_service.dto.CreateFacturaRequest;
+import ec.edu.espe.billing_service.model.EstadoFactura;
+import ec.edu.espe.billing_service.model.Factura;
+import ec.edu.espe.billing_service.repository.FacturaRepository;
+import ec.edu.espe.billing_service.util.GeneradorNumeros;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacturacionAutomaticaTest {
+
+    @Mock
+    private FacturaService facturaService;
+
+    @Mock
+    private FacturaRepository facturaRepository;
+
+    @Mock
+    private GeneradorNumeros generadorNumeroFactura;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private AmqpTemplate amqpTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FacturacionAutomatica facturacion;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        facturacion = new FacturacionAutomatica(facturaService, facturaRepository, generadorNumeroFactura,
+                jdbcTemplate, transactionManager, JsonMapper.builder().build(), amqpTemplate, meterRegistry);
+    }
+
+    @Test
+    void leerEntregas_EventoEntregado_DebeArmarSolicitud() {
+        UUID pedidoId = UUID.randomUUID();
+        UUID clienteId = UUID.randomUUID();
+        String evento = """
+                {"microservice":"pedido-service","action":"UPDATED","entityType":"PEDIDO","entityId":"%s",
+                 "severity":"INFO","data":{"estadoAnterior":"EN_RUTA","estadoNuevo":"ENTREGADO",
+                 "pedidoId":"%s","numeroPedido":"PED-20240116-000001","clienteId":"%s","clienteNombre":"Juan Pérez",
+                 "tipoEntrega":"URBANA_RAPIDA","prioridad":"ALTA","pesoKg":2.5,"distanciaKm":5.12}}
+                """.formatted(pedidoId, pedidoId, clienteId);
+
+        List<CreateFacturaRequest> entregas = facturacion.leerEntregas(evento.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, entregas.size());
+        CreateFacturaRequest solicitud = entregas.get(0);
+        assertEquals(pedidoId, solicitud.getPedidoId());
+        assertEquals(clienteId, solicitud.getClienteId());
+        assertEquals("URBANA_RAPIDA", solicitud.getTipoEntrega());
+        assertEquals("ALTA", solicitud.getPrioridad());
+        assertEquals(0, new BigDecimal("5.12").compareTo(solicitud.getDistanciaKm()));
+        assertEquals(0, new BigDecimal("2.5").compareTo(solicitud.getPesoKg()));
+    }
+
+    @Test
+    void leerEntregas_LoteEntregado_DebeExpandirPedidos() {
+        String evento = """
+                {"action":"BATCH_UPDATED","entityType":"PEDIDO","entityId":"LOTE",
+                 "data":{"estadoNuevo":"ENTREGADO","pedidos":[%s,%s]}}
+                """.formatted(pedido(UUID.randomUUID()), pedido(UUID.randomUUID()));
+
+        assertEquals(2, facturacion.leerEntregas(evento.getBytes(StandardCharsets.UTF_8)).size());
+    }
+
+    @Test
+    void leerEntregas_OtrosEventosOIncompletos_DebeIgnorarlos() {
+        String enRuta = """
+                {"action":"UPDATED","entityType":"PEDIDO","entityId":"%s","data":{"estadoNuevo":"EN_RUTA"}}
+                """.formatted(UUID.randomUUID());
+        String sinDatos = """
+                {"action":"UPDATED","entityType":"PEDIDO","entityId":"%s","data":{"estadoNuevo":"ENTREGADO"}}
+                """.formatted(UUID.randomUUID());
+
+        assertTrue(facturacion.leerEntregas(enRuta.getBytes(StandardCharsets.UTF_8)).isEmpty());
+        assertTrue(facturacion.leerEntregas(sinDatos.getBytes(StandardCharsets.UTF_8)).isEmpty());
+        assertTrue(facturacion.leerEntregas("no es json".getBytes(StandardCharsets.UTF_8)).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void facturar_ConPedidosYaFacturadosYRepetidos_DebeInsertarSoloLosNuevos() {
+        UUID nuevo = UUID.randomUUID();
+        UUID yaFacturado = UUID.randomUUID();
+        CreateFacturaRequest entregaNueva = solicitud(nuevo);
+        when(facturaRepository.findPedidoIdsFacturados(anyCollection())).thenReturn(List.of(yaFacturado));
+        when(generadorNumeroFactura.siguiente()).thenReturn("FAC-20240116-000001");
+        when(facturaService.construirFactura(entregaNueva, "FAC-20240116-000001")).thenReturn(factura(nuevo));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        int creadas = facturacion.facturar(List.of(entregaNueva, solicitud(yaFacturado), solicitud(nuevo)));
+
+        assertEquals(1, creadas);
+        ArgumentCaptor<List<Object[]>> filas = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (pedido_id) DO NOTHING"), filas.capture());
+        assertEquals(1, filas.getValue().size());
+        assertEquals(nuevo, filas.getValue().get(0)[2]);
+        verify(generadorNumeroFactura, times(1)).siguiente();
+        //La copia repetida del pedido nuevo no cuenta como ya facturada
+        assertEquals(1.0, meterRegistry.counter("billing.facturacion.duplicadas").count());
+        assertEquals(1.0, meterRegistry.counter("billing.facturacion.repetidas").count());
+    }
+
+    @Test
+    void facturar_TodosYaFacturados_NoDebeInsertar() {
+        UUID pedidoId = UUID.randomUUID();
+        when(facturaRepository.findPedidoIdsFacturados(anyCollection())).thenReturn(List.of(pedidoId));
+
+        assertEquals(0, facturacion.facturar(List.of(solicitud(pedidoId))));
+        verifyNoInteractions(jdbcTemplate, generadorNumeroFactura, facturaService);
+    }
+
+    @Test
+    void facturar_EntregaSinDistancia_DebeContarla() {
+        // Arrange: el pedido no tenía coordenadas y el evento no trae distanciaKm
+        UUID pedidoId = UUID.randomUUID();
+        CreateFacturaRequest entrega = solicitud(pedidoId);
+        when(facturaRepository.findPedidoIdsFacturados(anyCollection())).thenReturn(List.of());
+        when(generadorNumeroFactura.siguiente()).thenReturn("FAC-20240116-000001");
+        when(facturaService.construirFactura(entrega, "FAC-20240116-000001")).thenReturn(factura(pedidoId));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // Act
+        facturacion.facturar(List.of(entrega));
+
+        // Assert
+        assertEquals(1.0, meterRegistry.counter("billing.facturacion.sin-distancia").count());
+    }
+
+    @Test
+    void recover_MensajeQueFallaSolo_DebeIrAFallidosYFacturarElResto() {
+        // Arrange
+        UUID valido = UUID.randomUUID();
+        UUID venenoso = UUID.randomUUID();
+        Message mensajeValido = mensaje(valido);
+        Message mensajeVenenoso = mensaje(venenoso);
+        when(facturaRepository.findPedidoIdsFacturados(anyCollection())).thenReturn(List.of());
+        when(generadorNumeroFactura.siguiente()).thenReturn("FAC-20240116-000001");
+        when(facturaService.construirFactura(any(), anyString())).thenAnswer(invocacion -> {
+            CreateFacturaRequest entrega = invocacion.getArgument(0);
+            if (entrega.getPedidoId().equals(venenoso)) {
+                throw new IllegalArgumentException("Tipo de entrega inválido");
+            }
+            return factura(entrega.getPedidoId());
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // Act
+        facturacion.recover(List.of(mensajeValido, mensajeVenenoso), new IllegalArgumentException("Tipo de entrega inválido"));
+
+        // Assert
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(amqpTemplate).send("", RabbitMQConfig.COLA_FACTURACION_FALLIDOS, mensajeVenenoso);
+        verifyNoMoreInteractions(amqpTemplate);
+        assertEquals(1.0, meterRegistry.counter("billing.facturacion.fallidos").count());
+    }
+
+    @Test
+    void recover_BaseNoDisponible_DebeDevolverElLoteALaCola() {
+        when(facturaRepository.findPedidoIdsFacturados(anyCollection()))
+                .thenThrow(new CannotGetJdbcConnectionException("Conexión rechazada"));
+
+        assertThrows(ImmediateRequeueAmqpException.class, () -> facturacion.recover(
+                List.of(mensaje(UUID.randomUUID())), new CannotGetJdbcConnectionException("Conexión rechazada")));
+        verifyNoInteractions(amqpTemplate);
+    }
+
+    private static Message mensaje(UUID pedidoId) {
+        String evento = """
+                {"action":"UPDATED","entityType":"PEDIDO","entityId":"%s","data":%s}
+                """.formatted(pedidoId, pedido(pedidoId));
+        return new Message(evento.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+
+    private static String pedido(UUID pedidoId) {
+        return """
+                {"pedidoId":"%s","numeroPedido":"PED-20240116-000002","clienteId":"%s","clienteNombre":"Ana",
+                 "tipoEntrega":"INTERMUNICIPAL","prioridad":"NORMAL","estadoNuevo":"ENTREGADO"}
+                """.formatted(pedidoId, UUID.randomUUID());
+    }
+
+    private static CreateFacturaRequest solicitud(UUID pedidoId) {
+        return CreateFacturaRequest.builder()
+                .pedidoId(pedidoId)
+                .numeroPedido("PED-20240116-000001")
+                .clienteId(UUID.randomUUID())
+                .clienteNombre("Juan Pérez")
+                .tipoEntrega("URBANA_RAPIDA")
+                .build();
+    }
+
+    private static Factura factura(UUID pedidoId) {
+        return Factura.builder()
+                .numeroFactura("FAC-20240116-000001")
+                .pedidoId(pedidoId)
+                .numeroPedido("PED-20240116-000001")
+                .clienteId(UUID.randomUUID())
+                .clienteNombre("Juan Pérez")
+                .tipoEntrega("URBANA_RAPIDA")
+                .subtotal(BigDecimal.valueOf(10.00))
+                .impuestoIVA(BigDecimal.valueOf(1.20))
+                .total(BigDecimal.valueOf(11.20))
+                .estado(EstadoFactura.BORRADOR)
+                .fechaEmision(LocalDate.now())
+                .activo(true)
+                .build();
+    }
+}
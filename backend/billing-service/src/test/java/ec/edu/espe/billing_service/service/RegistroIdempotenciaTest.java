@@ -0,0 +1,210 @@
+package ec.edu.espe.billing_service.service;
+
+import ec.edu.espe.billing_service.dto.FacturaResponse;
+import ec.edu.espe.billing_service.service.RegistroIdempotencia.Estado;
+import ec.edu.espe.billing_service.service.RegistroIdempotencia.Resultado;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Claves de idempotencia contra PostgreSQL real: la operación se ejecuta una sola vez por clave,
+ * incluso con repeticiones concurrentes o desde otra instancia sin la respuesta en memoria.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RegistroIdempotenciaTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RegistroIdempotencia registro;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        registro = nuevaInstancia();
+        ejecuciones = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM claves_idempotencia");
+    }
+
+    private RegistroIdempotencia nuevaInstancia() {
+        return new RegistroIdempotencia(jdbcTemplate, transactionManager,
+                JsonMapper.builder().build(), new SimpleMeterRegistry(), 24, 1000, 5000);
+    }
+
+    //Operación que cuenta sus ejecuciones y tarda lo indicado
+    private Supplier<FacturaResponse> crear(long demoraMs) {
+        return () -> {
+            ejecuciones.incrementAndGet();
+            try {
+                Thread.sleep(demoraMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return FacturaResponse.builder()
+                    .id(UUID.randomUUID())
+                    .numeroFactura("FAC-IDEM-" + ejecuciones.get())
+                    .build();
+        };
+    }
+
+    @Test
+    void ejecutar_Repetida_DebeDevolverLaRespuestaGuardadaSinEjecutarDeNuevo() {
+        Map<String, String> solicitud = Map.of("clienteNombre", "Juan Pérez");
+
+        Resultado<FacturaResponse> primera = registro.ejecutar("crearFactura", "clave-1", solicitud, FacturaResponse.class, crear(0));
+        Resultado<FacturaResponse> repetida = registro.ejecutar("crearFactura", "clave-1", solicitud, FacturaResponse.class, crear(0));
+        //Otra instancia sin la respuesta en memoria la obtiene de la tabla
+        Resultado<FacturaResponse> otraInstancia = nuevaInstancia()
+                .ejecutar("crearFactura", "clave-1", solicitud, FacturaResponse.class, crear(0));
+
+        assertEquals(Estado.EJECUTADA, primera.estado());
+        assertEquals(Estado.REPETIDA, repetida.estado());
+        assertEquals(Estado.REPETIDA, otraInstancia.estado());
+        assertEquals(primera.cuerpo().getId(), repetida.cuerpo().getId());
+        assertEquals(primera.cuerpo().getId(), otraInstancia.cuerpo().getId());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_RepeticionesConcurrentes_DebenEsperarLaEjecucionEnCurso() throws Exception {
+        Map<String, String> solicitud = Map.of("clienteNombre", "Juan Pérez");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        //Dos instancias: las repeticiones de la misma instancia esperan en memoria, las de la otra en la tabla
+        RegistroIdempotencia otra = nuevaInstancia();
+
+        List<Future<Resultado<FacturaResponse>>> resultados = IntStream.range(0, 8)
+                .mapToObj(i -> executor.submit(() -> (i % 2 == 0 ? registro : otra)
+                        .ejecutar("crearFactura", "clave-2", solicitud, FacturaResponse.class, crear(300))))
+                .toList();
+        executor.shutdown();
+
+        UUID id = null;
+        int ejecutadas = 0;
+        for (Future<Resultado<FacturaResponse>> resultado : resultados) {
+            Resultado<FacturaResponse> obtenido = resultado.get();
+            assertNotEquals(Estado.EN_CURSO, obtenido.estado());
+            ejecutadas += obtenido.estado() == Estado.EJECUTADA ? 1 : 0;
+            id = id == null ? obtenido.cuerpo().getId() : id;
+            assertEquals(id, obtenido.cuerpo().getId());
+        }
+        assertEquals(1, ejecutadas);
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_MismaClaveConOtroCuerpo_DebeRechazarse() {
+        registro.ejecutar("crearFactura", "clave-3", Map.of("clienteNombre", "Juan Pérez"), FacturaResponse.class, crear(0));
+
+        Resultado<FacturaResponse> resultado = registro.ejecutar("crearFactura", "clave-3",
+                Map.of("clienteNombre", "Ana Torres"), FacturaResponse.class, crear(0));
+
+        assertEquals(Estado.CLAVE_REUTILIZADA, resultado.estado());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_ConFallo_DebeLiberarLaClave() {
+        Map<String, String> solicitud = Map.of("clienteNombre", "Juan Pérez");
+
+        assertThrows(IllegalArgumentException.class, () -> registro.ejecutar("crearFactura", "clave-4", solicitud,
+                FacturaResponse.class, () -> {
+                    throw new IllegalArgumentException("Pedido no entregado");
+                }));
+        Resultado<FacturaResponse> reintento = registro.ejecutar("crearFactura", "clave-4", solicitud,
+                FacturaResponse.class, crear(0));
+
+        assertEquals(Estado.EJECUTADA, reintento.estado());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void ejecutar_ReservaVencidaDuranteUnaEjecucionLenta_SoloDebeConfirmarseUna() throws Exception {
+        // Arrange: la primera ejecución escribe en su transacción y queda detenida tras reservar
+        Map<String, String> solicitud = Map.of("clienteNombre", "Juan Pérez");
+        CountDownLatch reservada = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        Supplier<FacturaResponse> lenta = () -> {
+            marcar();
+            reservada.countDown();
+            try {
+                continuar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return crear(0).get();
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Resultado<FacturaResponse>> primera = executor.submit(() ->
+                    registro.ejecutar("crearFactura", "clave-5", solicitud, FacturaResponse.class, lenta));
+            reservada.await();
+
+            // Act: la reserva vence y otra instancia toma la clave y completa su ejecución
+            jdbcTemplate.update("UPDATE claves_idempotencia SET fecha_expiracion = now() - interval '1 minute'"
+                    + " WHERE estado = 'EN_CURSO'");
+            Resultado<FacturaResponse> segunda = nuevaInstancia().ejecutar("crearFactura", "clave-5", solicitud,
+                    FacturaResponse.class, () -> {
+                        marcar();
+                        return crear(0).get();
+                    });
+            continuar.countDown();
+
+            // Assert: la primera pierde la reserva, se deshace y devuelve la respuesta de la segunda
+            assertEquals(Estado.EJECUTADA, segunda.estado());
+            Resultado<FacturaResponse> resultadoPrimera = primera.get();
+            assertEquals(Estado.REPETIDA, resultadoPrimera.estado());
+            assertEquals(segunda.cuerpo().getId(), resultadoPrimera.cuerpo().getId());
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM claves_idempotencia WHERE estado = 'MARCA'", Integer.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //Escritura de la operación en su transacción (la del registro): sólo persiste si se confirma
+    private void marcar() {
+        jdbcTemplate.update("INSERT INTO claves_idempotencia VALUES (?, repeat('0', 64), 'MARCA', NULL, now(), now())",
+                "marca-" + UUID.randomUUID());
+    }
+}
@@ -0,0 +1,63 @@
+package ec.edu.espe.fleet_service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Lectura de las propias escrituras con réplicas: una petición que modifica datos marca a su
+ * cliente, y durante la ventana configurada las lecturas de ese cliente se sirven desde la principal.
+ * Las peticiones de escritura leen siempre de la principal; así, con open-in-view, la conexión que
+ * la sesión conserva durante la petición nunca es una réplica cuando luego toca escribir.
+ * Se ejecuta después de la cadena de seguridad, por lo que el usuario autenticado ya es conocido.
+ */
+public class LecturaPropiaFilter extends OncePerRequestFilter {
+
+    private static final Set<String> METODOS_LECTURA = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReplicasLectura replicasLectura;
+
+    public LecturaPropiaFilter(ReplicasLectura replicasLectura) {
+        this.replicasLectura = replicasLectura;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String cliente = identificarCliente(request);
+        boolean escritura = !METODOS_LECTURA.contains(request.getMethod());
+
+        ReplicasLectura.leerDePrincipal(escritura || replicasLectura.escribioRecientemente(cliente));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicasLectura.limpiar();
+            if (escritura) {
+                replicasLectura.registrarEscritura(cliente);
+            }
+        }
+    }
+
+    //Usuario del token; sin autenticación, la IP de origen informada por el proxy o la de la conexión
+    private static String identificarCliente(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "usuario:" + authentication.getName();
+        }
+        String reenviado = request.getHeader("X-Forwarded-For");
+        if (reenviado != null && !reenviado.isBlank()) {
+            return "ip:" + reenviado.split(",")[0].trim();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -19,29 +19,31 @@ public class HomeController {
         info.put("descripcion", "Microservicio para gestión de repartidores y vehículos de la flota");
         info.put("puerto", 8084);
         info.put("endpoints", Map.of(
-            "repartidores", Map.of(
-                "crear", "POST /api/repartidores",
-                "listar", "GET /api/repartidores",
-                "obtenerPorId", "GET /api/repartidores/{id}",
-                "obtenerPorCodigo", "GET /api/repartidores/codigo/{codigo}",
-                "obtenerPorEstado", "GET /api/repartidores/estado/{estado}",
-                "disponibles", "GET /api/repartidores/disponibles",
-                "actualizar", "PUT /api/repartidores/{id}",
-                "cambiarEstado", "PATCH /api/repartidores/{id}/estado",
-                "asignarVehiculo", "PATCH /api/repartidores/{repartidorId}/asignar-vehiculo/{vehiculoId}",
-                "eliminar", "DELETE /api/repartidores/{id}"
+            "repartidores", Map.ofEntries(
+                Map.entry("crear", "POST /api/repartidores"),
+                Map.entry("listar", "GET /api/repartidores"),
+                Map.entry("obtenerPorId", "GET /api/repartidores/{id}"),
+                Map.entry("obtenerPorIds", "POST /api/repartidores/batch"),
+                Map.entry("obtenerPorCodigo", "GET /api/repartidores/codigo/{codigo}"),
+                Map.entry("obtenerPorEstado", "GET /api/repartidores/estado/{estado}"),
+                Map.entry("disponibles", "GET /api/repartidores/disponibles"),
+                Map.entry("actualizar", "PUT /api/repartidores/{id}"),
+                Map.entry("cambiarEstado", "PATCH /api/repartidores/{id}/estado"),
+                Map.entry("asignarVehiculo", "PATCH /api/repartidores/{repartidorId}/asignar-vehiculo/{vehiculoId}"),
+                Map.entry("eliminar", "DELETE /api/repartidores/{id}")
             ),
-            "vehiculos", Map.of(
-                "crear", "POST /api/vehiculos",
-                "listar", "GET /api/vehiculos",
-                "obtenerPorId", "GET /api/vehiculos/{id}",
-                "obtenerPorPlaca", "GET /api/vehiculos/placa/{placa}",
-                "obtenerPorTipo", "GET /api/vehiculos/tipo/{tipo}",
-                "obtenerPorEstado", "GET /api/vehiculos/estado/{estado}",
-                "disponibles", "GET /api/vehiculos/disponibles",
-                "actualizar", "PUT /api/vehiculos/{id}",
-                "cambiarEstado", "PATCH /api/vehiculos/{id}/estado",
-                "eliminar", "DELETE /api/vehiculos/{id}"
+            "vehiculos", Map.ofEntries(
+                Map.entry("crear", "POST /api/vehiculos"),
+                Map.entry("listar", "GET /api/vehiculos"),
+                Map.entry("obtenerPorId", "GET /api/vehiculos/{id}"),
+                Map.entry("obtenerPorIds", "POST /api/vehiculos/batch"),
+                Map.entry("obtenerPorPlaca", "GET /api/vehiculos/placa/{placa}"),
+                Map.entry("obtenerPorTipo", "GET /api/vehiculos/tipo/{tipo}"),
+                Map.entry("obtenerPorEstado", "GET /api/vehiculos/estado/{estado}"),
+                Map.entry("disponibles", "GET /api/vehiculos/disponibles"),
+                Map.entry("actualizar", "PUT /api/vehiculos/{id}"),
+                Map.entry("cambiarEstado", "PATCH /api/vehiculos/{id}/estado"),
+                Map.entry("eliminar", "DELETE /api/vehiculos/{id}")
             )
         ));
         return ResponseEntity.ok(info);
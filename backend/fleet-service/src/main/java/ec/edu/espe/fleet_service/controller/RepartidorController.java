@@ -1,18 +1,24 @@
 package ec.edu.espe.fleet_service.controller;
 
+import ec.edu.espe.fleet_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.fleet_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.fleet_service.dto.CreateRepartidorRequest;
 import ec.edu.espe.fleet_service.dto.RepartidorResponse;
 import ec.edu.espe.fleet_service.dto.UpdateRepartidorRequest;
 import ec.edu.espe.fleet_service.model.EstadoRepartidor;
 import ec.edu.espe.fleet_service.service.RepartidorService;
+import ec.edu.espe.fleet_service.util.Etags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 //Controlador REST para gestión de repartidores
@@ -36,14 +42,33 @@ public class RepartidorController {
 
     //Obtener todos los repartidores
     @GetMapping
-    public ResponseEntity<List<RepartidorResponse>> obtenerTodosLosRepartidores() {
+    public ResponseEntity<List<RepartidorResponse>> obtenerTodosLosRepartidores(WebRequest webRequest) {
+        //ETag débil del listado: 304 sin cargar entidades si nada entró, salió ni cambió
+        if (webRequest.checkNotModified(Etags.debil("activos", repartidorService.obtenerMarcaVersion()))) {
+            return null;
+        }
         List<RepartidorResponse> repartidores = repartidorService.obtenerTodosLosRepartidores();
         return ResponseEntity.ok(repartidores);
     }
 
+    //Obtener varios repartidores por ID en una sola llamada (resultado por ID, null si no existe)
+    @PostMapping("/batch")
+    public ResponseEntity<BusquedaLoteResponse<RepartidorResponse>> obtenerRepartidoresPorIds(
+            @Valid @RequestBody BusquedaLoteRequest request) {
+        try {
+            return ResponseEntity.ok(repartidorService.obtenerRepartidoresPorIds(request.getIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //Obtener repartidor por ID
     @GetMapping("/{id}")
-    public ResponseEntity<RepartidorResponse> obtenerRepartidorPorId(@PathVariable UUID id) {
+    public ResponseEntity<RepartidorResponse> obtenerRepartidorPorId(@PathVariable UUID id, WebRequest webRequest) {
+        //GET condicional: si el cliente ya tiene esta versión se responde 304 sin cargar la entidad
+        if (noModificado(webRequest, repartidorService.obtenerFechaActualizacion(id))) {
+            return null;
+        }
         try {
             RepartidorResponse repartidor = repartidorService.obtenerRepartidorPorId(id);
             return ResponseEntity.ok(repartidor);
@@ -54,7 +79,11 @@ public class RepartidorController {
 
     //Obtener repartidor por código
     @GetMapping("/codigo/{codigoEmpleado}")
-    public ResponseEntity<RepartidorResponse> obtenerRepartidorPorCodigo(@PathVariable String codigoEmpleado) {
+    public ResponseEntity<RepartidorResponse> obtenerRepartidorPorCodigo(@PathVariable String codigoEmpleado,
+                                                                         WebRequest webRequest) {
+        if (noModificado(webRequest, repartidorService.obtenerFechaActualizacionPorCodigo(codigoEmpleado))) {
+            return null;
+        }
         try {
             RepartidorResponse repartidor = repartidorService.obtenerRepartidorPorCodigo(codigoEmpleado);
             return ResponseEntity.ok(repartidor);
@@ -127,4 +156,10 @@ public class RepartidorController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    //GET condicional de un recurso individual: ETag fuerte y Last-Modified de su fechaActualizacion
+    private static boolean noModificado(WebRequest webRequest, Optional<LocalDateTime> fechaActualizacion) {
+        return fechaActualizacion.isPresent() && webRequest.checkNotModified(
+                Etags.fuerte(fechaActualizacion.get()), Etags.milisegundos(fechaActualizacion.get()));
+    }
 }
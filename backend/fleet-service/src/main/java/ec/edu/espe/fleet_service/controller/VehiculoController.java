@@ -1,19 +1,25 @@
 package ec.edu.espe.fleet_service.controller;
 
+import ec.edu.espe.fleet_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.fleet_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.fleet_service.dto.CreateVehiculoRequest;
 import ec.edu.espe.fleet_service.dto.UpdateVehiculoRequest;
 import ec.edu.espe.fleet_service.dto.VehiculoResponse;
 import ec.edu.espe.fleet_service.model.EstadoVehiculo;
 import ec.edu.espe.fleet_service.model.TipoVehiculo;
 import ec.edu.espe.fleet_service.service.VehiculoService;
+import ec.edu.espe.fleet_service.util.Etags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 //Controlador REST para gestión de vehículos
@@ -37,14 +43,33 @@ public class VehiculoController {
 
     //Obtener todos los vehículos
     @GetMapping
-    public ResponseEntity<List<VehiculoResponse>> obtenerTodosLosVehiculos() {
+    public ResponseEntity<List<VehiculoResponse>> obtenerTodosLosVehiculos(WebRequest webRequest) {
+        //ETag débil del listado: 304 sin cargar entidades si nada entró, salió ni cambió
+        if (webRequest.checkNotModified(Etags.debil("activos", vehiculoService.obtenerMarcaVersion()))) {
+            return null;
+        }
         List<VehiculoResponse> vehiculos = vehiculoService.obtenerTodosLosVehiculos();
         return ResponseEntity.ok(vehiculos);
     }
 
+    //Obtener varios vehiculos por ID en una sola llamada (resultado por ID, null si no existe)
+    @PostMapping("/batch")
+    public ResponseEntity<BusquedaLoteResponse<VehiculoResponse>> obtenerVehiculosPorIds(
+            @Valid @RequestBody BusquedaLoteRequest request) {
+        try {
+            return ResponseEntity.ok(vehiculoService.obtenerVehiculosPorIds(request.getIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //Obtener vehículo por ID
     @GetMapping("/{id}")
-    public ResponseEntity<VehiculoResponse> obtenerVehiculoPorId(@PathVariable UUID id) {
+    public ResponseEntity<VehiculoResponse> obtenerVehiculoPorId(@PathVariable UUID id, WebRequest webRequest) {
+        //GET condicional: si el cliente ya tiene esta versión se responde 304 sin cargar la entidad
+        if (noModificado(webRequest, vehiculoService.obtenerFechaActualizacion(id))) {
+            return null;
+        }
         try {
             VehiculoResponse vehiculo = vehiculoService.obtenerVehiculoPorId(id);
             return ResponseEntity.ok(vehiculo);
@@ -55,7 +80,10 @@ public class VehiculoController {
 
     //Obtener vehículo por placa
     @GetMapping("/placa/{placa}")
-    public ResponseEntity<VehiculoResponse> obtenerVehiculoPorPlaca(@PathVariable String placa) {
+    public ResponseEntity<VehiculoResponse> obtenerVehiculoPorPlaca(@PathVariable String placa, WebRequest webRequest) {
+        if (noModificado(webRequest, vehiculoService.obtenerFechaActualizacionPorPlaca(placa))) {
+            return null;
+        }
         try {
             VehiculoResponse vehiculo = vehiculoService.obtenerVehiculoPorPlaca(placa);
             return ResponseEntity.ok(vehiculo);
@@ -122,4 +150,10 @@ public class VehiculoController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    //GET condicional de un recurso individual: ETag fuerte y Last-Modified de su fechaActualizacion
+    private static boolean noModificado(WebRequest webRequest, Optional<LocalDateTime> fechaActualizacion) {
+        return fechaActualizacion.isPresent() && webRequest.checkNotModified(
+                Etags.fuerte(fechaActualizacion.get()), Etags.milisegundos(fechaActualizacion.get()));
+    }
 }
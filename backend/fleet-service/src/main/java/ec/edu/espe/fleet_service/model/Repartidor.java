@@ -22,7 +22,7 @@ import java.util.UUID;
 public class Repartidor {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @IdUuidV7
     private UUID id;
 
     @Column(nullable = false, unique = true, length = 20)
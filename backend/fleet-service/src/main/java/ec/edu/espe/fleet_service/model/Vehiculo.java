@@ -21,7 +21,7 @@ import java.util.UUID;
 public class Vehiculo {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @IdUuidV7
     private UUID id;
 
     @Column(nullable = false, unique = true, length = 10)
@@ -1,10 +1,16 @@
 package ec.edu.espe.fleet_service.repository;
 
+import ec.edu.espe.fleet_service.dto.MarcaVersion;
 import ec.edu.espe.fleet_service.model.EstadoRepartidor;
 import ec.edu.espe.fleet_service.model.Repartidor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,9 +29,24 @@ public interface RepartidorRepository extends JpaRepository<Repartidor, UUID> {
 
     List<Repartidor> findByActivoTrue();
 
+    //Búsqueda por lote: licencias y vehículo en la misma consulta para no disparar N+1
+    @EntityGraph(attributePaths = {"licenciasConducir", "vehiculoAsignado"})
+    List<Repartidor> findByIdIn(Collection<UUID> ids);
+
     Boolean existsByCodigoEmpleado(String codigoEmpleado);
 
     Boolean existsByCedula(String cedula);
 
     Boolean existsByEmail(String email);
+
+    //Versiones para GET condicionales: sólo la columna necesaria, sin hidratar la entidad
+    @Query("SELECT r.fechaActualizacion FROM Repartidor r WHERE r.id = :id")
+    Optional<LocalDateTime> findFechaActualizacionById(@Param("id") UUID id);
+
+    @Query("SELECT r.fechaActualizacion FROM Repartidor r WHERE r.codigoEmpleado = :codigoEmpleado")
+    Optional<LocalDateTime> findFechaActualizacionByCodigoEmpleado(@Param("codigoEmpleado") String codigoEmpleado);
+
+    @Query("SELECT new ec.edu.espe.fleet_service.dto.MarcaVersion(COUNT(r), MAX(r.fechaActualizacion)) " +
+           "FROM Repartidor r WHERE r.activo = true")
+    MarcaVersion marcaVersionActivos();
 }
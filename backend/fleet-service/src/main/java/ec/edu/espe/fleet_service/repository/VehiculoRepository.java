@@ -1,11 +1,15 @@
 package ec.edu.espe.fleet_service.repository;
 
+import ec.edu.espe.fleet_service.dto.MarcaVersion;
 import ec.edu.espe.fleet_service.model.EstadoVehiculo;
 import ec.edu.espe.fleet_service.model.TipoVehiculo;
 import ec.edu.espe.fleet_service.model.Vehiculo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,4 +27,15 @@ public interface VehiculoRepository extends JpaRepository<Vehiculo, UUID> {
     List<Vehiculo> findByActivoTrue();
 
     Boolean existsByPlaca(String placa);
+
+    //Versiones para GET condicionales: sólo la columna necesaria, sin hidratar la entidad
+    @Query("SELECT v.fechaActualizacion FROM Vehiculo v WHERE v.id = :id")
+    Optional<LocalDateTime> findFechaActualizacionById(@Param("id") UUID id);
+
+    @Query("SELECT v.fechaActualizacion FROM Vehiculo v WHERE v.placa = :placa")
+    Optional<LocalDateTime> findFechaActualizacionByPlaca(@Param("placa") String placa);
+
+    @Query("SELECT new ec.edu.espe.fleet_service.dto.MarcaVersion(COUNT(v), MAX(v.fechaActualizacion)) " +
+           "FROM Vehiculo v WHERE v.activo = true")
+    MarcaVersion marcaVersionActivos();
 }
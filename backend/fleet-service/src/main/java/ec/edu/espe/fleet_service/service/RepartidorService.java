@@ -1,6 +1,9 @@
 package ec.edu.espe.fleet_service.service;
 
+import ec.edu.espe.fleet_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.fleet_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.fleet_service.dto.CreateRepartidorRequest;
+import ec.edu.espe.fleet_service.dto.MarcaVersion;
 import ec.edu.espe.fleet_service.dto.RepartidorResponse;
 import ec.edu.espe.fleet_service.dto.UpdateRepartidorRequest;
 import ec.edu.espe.fleet_service.model.EstadoRepartidor;
@@ -12,13 +15,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-<<<<<<< HEAD
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-=======
-import java.util.List;
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,10 +30,7 @@ public class RepartidorService {
 
     private final RepartidorRepository repartidorRepository;
     private final VehiculoRepository vehiculoRepository;
-<<<<<<< HEAD
     private final NotificationProducer notificationProducer;
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
 
     //Crear nuevo repartidor
     @Transactional
@@ -74,7 +72,6 @@ public class RepartidorService {
         }
 
         Repartidor savedRepartidor = repartidorRepository.save(repartidor);
-<<<<<<< HEAD
         
         // Publicar evento de repartidor creado
         try {
@@ -89,8 +86,6 @@ public class RepartidorService {
             System.err.println("Error al publicar evento repartidor.creado: " + e.getMessage());
         }
         
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
         return convertirAResponse(savedRepartidor);
     }
 
@@ -102,6 +97,23 @@ public class RepartidorService {
                 .collect(Collectors.toList());
     }
 
+    //Versión de un repartidor para GET condicionales (vacío si no existe)
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacion(UUID id) {
+        return repartidorRepository.findFechaActualizacionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacionPorCodigo(String codigoEmpleado) {
+        return repartidorRepository.findFechaActualizacionByCodigoEmpleado(codigoEmpleado);
+    }
+
+    //Cantidad y última modificación del listado de activos (base de su ETag débil)
+    @Transactional(readOnly = true)
+    public MarcaVersion obtenerMarcaVersion() {
+        return repartidorRepository.marcaVersionActivos();
+    }
+
     //Obtener repartidor por ID
     @Transactional(readOnly = true)
     public RepartidorResponse obtenerRepartidorPorId(UUID id) {
@@ -110,6 +122,15 @@ public class RepartidorService {
         return convertirAResponse(repartidor);
     }
 
+    //Obtener varios repartidores por ID con una sola consulta
+    @Transactional(readOnly = true)
+    public BusquedaLoteResponse<RepartidorResponse> obtenerRepartidoresPorIds(List<UUID> ids) {
+        List<UUID> unicos = BusquedaLoteRequest.idsUnicos(ids);
+        Map<UUID, RepartidorResponse> encontrados = repartidorRepository.findByIdIn(unicos).stream()
+                .collect(Collectors.toMap(Repartidor::getId, this::convertirAResponse));
+        return BusquedaLoteResponse.de(unicos, encontrados);
+    }
+
     //Obtener repartidor por código
     @Transactional(readOnly = true)
     public RepartidorResponse obtenerRepartidorPorCodigo(String codigoEmpleado) {
@@ -141,11 +162,8 @@ public class RepartidorService {
         Repartidor repartidor = repartidorRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Repartidor no encontrado con ID: " + id));
 
-<<<<<<< HEAD
         EstadoRepartidor estadoAnterior = repartidor.getEstado();
 
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
         if (request.getNombreCompleto() != null) {
             repartidor.setNombreCompleto(request.getNombreCompleto());
         }
@@ -192,7 +210,6 @@ public class RepartidorService {
         }
 
         Repartidor updatedRepartidor = repartidorRepository.save(repartidor);
-<<<<<<< HEAD
         
         // Publicar evento si cambió el estado
         if (request.getEstado() != null && !estadoAnterior.equals(request.getEstado())) {
@@ -212,8 +229,6 @@ public class RepartidorService {
             }
         }
         
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
         return convertirAResponse(updatedRepartidor);
     }
 
@@ -223,7 +238,6 @@ public class RepartidorService {
         Repartidor repartidor = repartidorRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Repartidor no encontrado con ID: " + id));
         
-<<<<<<< HEAD
         EstadoRepartidor estadoAnterior = repartidor.getEstado();
         
         repartidor.setEstado(nuevoEstado);
@@ -245,10 +259,6 @@ public class RepartidorService {
             System.err.println("Error al publicar evento cambio de estado: " + e.getMessage());
         }
         
-=======
-        repartidor.setEstado(nuevoEstado);
-        Repartidor updatedRepartidor = repartidorRepository.save(repartidor);
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
         return convertirAResponse(updatedRepartidor);
     }
 
@@ -1,6 +1,9 @@
 package ec.edu.espe.fleet_service.service;
 
+import ec.edu.espe.fleet_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.fleet_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.fleet_service.dto.CreateVehiculoRequest;
+import ec.edu.espe.fleet_service.dto.MarcaVersion;
 import ec.edu.espe.fleet_service.dto.UpdateVehiculoRequest;
 import ec.edu.espe.fleet_service.dto.VehiculoResponse;
 import ec.edu.espe.fleet_service.model.EstadoVehiculo;
@@ -11,7 +14,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -64,6 +70,23 @@ public class VehiculoService {
                 .collect(Collectors.toList());
     }
 
+    //Versión de un vehículo para GET condicionales (vacío si no existe)
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacion(UUID id) {
+        return vehiculoRepository.findFechaActualizacionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> obtenerFechaActualizacionPorPlaca(String placa) {
+        return vehiculoRepository.findFechaActualizacionByPlaca(placa);
+    }
+
+    //Cantidad y última modificación del listado de activos (base de su ETag débil)
+    @Transactional(readOnly = true)
+    public MarcaVersion obtenerMarcaVersion() {
+        return vehiculoRepository.marcaVersionActivos();
+    }
+
     //Obtener vehículo por ID
     @Transactional(readOnly = true)
     public VehiculoResponse obtenerVehiculoPorId(UUID id) {
@@ -72,6 +95,15 @@ public class VehiculoService {
         return convertirAResponse(vehiculo);
     }
 
+    //Obtener varios vehículos por ID con una sola consulta
+    @Transactional(readOnly = true)
+    public BusquedaLoteResponse<VehiculoResponse> obtenerVehiculosPorIds(List<UUID> ids) {
+        List<UUID> unicos = BusquedaLoteRequest.idsUnicos(ids);
+        Map<UUID, VehiculoResponse> encontrados = vehiculoRepository.findAllById(unicos).stream()
+                .collect(Collectors.toMap(Vehiculo::getId, this::convertirAResponse));
+        return BusquedaLoteResponse.de(unicos, encontrados);
+    }
+
     //Obtener vehículo por placa
     @Transactional(readOnly = true)
     public VehiculoResponse obtenerVehiculoPorPlaca(String placa) {
@@ -0,0 +1,51 @@
+package ec.edu.espe.fleet_service.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generador de UUID versión 7 (RFC 9562): 48 bits de milisegundos Unix, 12 bits de contador y
+ * 62 bits aleatorios. Los identificadores de una instancia son estrictamente crecientes, así que
+ * las inserciones caen al final del índice de la clave primaria en lugar de repartirse por todo él.
+ * El milisegundo y el contador avanzan juntos con un compare-and-set (sin bloqueos): más de 4096
+ * identificadores en un milisegundo, o un reloj que retrocede, continúan desde el último emitido.
+ */
+public final class UuidV7 {
+
+    private static final UuidV7 INSTANCIA = new UuidV7(System::currentTimeMillis);
+
+    private static final int BITS_CONTADOR = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANTE = 0x8000000000000000L;
+    private static final long MASCARA_ALEATORIA = 0x3FFFFFFFFFFFFFFFL;
+
+    private final LongSupplier reloj;
+
+    //(milisegundos << 12) | contador del último identificador emitido
+    private final AtomicLong ultimo = new AtomicLong();
+
+    UuidV7(LongSupplier reloj) {
+        this.reloj = reloj;
+    }
+
+    public static UUID generar() {
+        return INSTANCIA.siguiente();
+    }
+
+    UUID siguiente() {
+        long ahora = reloj.getAsLong() << BITS_CONTADOR;
+        long marca = ultimo.accumulateAndGet(ahora, (previa, actual) -> actual > previa ? actual : previa + 1);
+
+        long masSignificativos = (marca >>> BITS_CONTADOR) << 16 | VERSION | (marca & 0xFFF);
+        //Los bits aleatorios sólo evitan colisiones entre instancias; el orden lo dan marca y contador
+        long menosSignificativos = ThreadLocalRandom.current().nextLong() & MASCARA_ALEATORIA | VARIANTE;
+        return new UUID(masSignificativos, menosSignificativos);
+    }
+
+    //Milisegundo Unix codificado en un UUID v7
+    public static long milisegundos(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,88 @@
+package ec.edu.espe.fleet_service.controller;
+
+import ec.edu.espe.fleet_service.dto.RepartidorResponse;
+import ec.edu.espe.fleet_service.service.RepartidorService;
+import ec.edu.espe.fleet_service.util.Etags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RepartidorControllerTest {
+
+    private final LocalDateTime fechaActualizacion = LocalDateTime.of(2024, 1, 16, 10, 30, 0, 123_456_000);
+    private final UUID repartidorId = UUID.randomUUID();
+
+    private RepartidorService repartidorService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        repartidorService = mock(RepartidorService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new RepartidorController(repartidorService)).build();
+    }
+
+    @Test
+    void obtenerRepartidorPorId_ConEtagVigente_DebeResponder304SinCargarlo() throws Exception {
+        // Arrange
+        when(repartidorService.obtenerFechaActualizacion(repartidorId)).thenReturn(Optional.of(fechaActualizacion));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/repartidores/{id}", repartidorId)
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotModified());
+        verify(repartidorService, never()).obtenerRepartidorPorId(any());
+    }
+
+    @Test
+    void obtenerRepartidorPorCodigo_ConEtagVigente_DebeResponder304SinCargarlo() throws Exception {
+        // Arrange
+        when(repartidorService.obtenerFechaActualizacionPorCodigo("REP-0001")).thenReturn(Optional.of(fechaActualizacion));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/repartidores/codigo/{codigo}", "REP-0001")
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotModified());
+        verify(repartidorService, never()).obtenerRepartidorPorCodigo(any());
+    }
+
+    @Test
+    void obtenerRepartidorPorCodigo_SinEtag_DebePublicarEtagYLastModified() throws Exception {
+        // Arrange
+        when(repartidorService.obtenerFechaActualizacionPorCodigo("REP-0001")).thenReturn(Optional.of(fechaActualizacion));
+        when(repartidorService.obtenerRepartidorPorCodigo("REP-0001")).thenReturn(RepartidorResponse.builder()
+                .id(repartidorId)
+                .codigoEmpleado("REP-0001")
+                .fechaActualizacion(fechaActualizacion)
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/repartidores/codigo/{codigo}", "REP-0001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Etags.fuerte(fechaActualizacion)))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, Etags.milisegundos(fechaActualizacion) / 1000 * 1000));
+    }
+
+    @Test
+    void obtenerRepartidorPorCodigo_Inexistente_DebeResponder404() throws Exception {
+        // Arrange
+        when(repartidorService.obtenerFechaActualizacionPorCodigo("REP-9999")).thenReturn(Optional.empty());
+        when(repartidorService.obtenerRepartidorPorCodigo("REP-9999"))
+                .thenThrow(new IllegalArgumentException("Repartidor no encontrado: REP-9999"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/repartidores/codigo/{codigo}", "REP-9999")
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,88 @@
+package ec.edu.espe.fleet_service.controller;
+
+import ec.edu.espe.fleet_service.dto.VehiculoResponse;
+import ec.edu.espe.fleet_service.service.VehiculoService;
+import ec.edu.espe.fleet_service.util.Etags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class VehiculoControllerTest {
+
+    private final LocalDateTime fechaActualizacion = LocalDateTime.of(2024, 1, 16, 10, 30, 0, 123_456_000);
+    private final UUID vehiculoId = UUID.randomUUID();
+
+    private VehiculoService vehiculoService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        vehiculoService = mock(VehiculoService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new VehiculoController(vehiculoService)).build();
+    }
+
+    @Test
+    void obtenerVehiculoPorId_ConEtagVigente_DebeResponder304SinCargarlo() throws Exception {
+        // Arrange
+        when(vehiculoService.obtenerFechaActualizacion(vehiculoId)).thenReturn(Optional.of(fechaActualizacion));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/vehiculos/{id}", vehiculoId)
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotModified());
+        verify(vehiculoService, never()).obtenerVehiculoPorId(any());
+    }
+
+    @Test
+    void obtenerVehiculoPorPlaca_ConEtagVigente_DebeResponder304SinCargarlo() throws Exception {
+        // Arrange
+        when(vehiculoService.obtenerFechaActualizacionPorPlaca("PBA-1234")).thenReturn(Optional.of(fechaActualizacion));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/vehiculos/placa/{placa}", "PBA-1234")
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotModified());
+        verify(vehiculoService, never()).obtenerVehiculoPorPlaca(any());
+    }
+
+    @Test
+    void obtenerVehiculoPorPlaca_SinEtag_DebePublicarEtagYLastModified() throws Exception {
+        // Arrange
+        when(vehiculoService.obtenerFechaActualizacionPorPlaca("PBA-1234")).thenReturn(Optional.of(fechaActualizacion));
+        when(vehiculoService.obtenerVehiculoPorPlaca("PBA-1234")).thenReturn(VehiculoResponse.builder()
+                .id(vehiculoId)
+                .placa("PBA-1234")
+                .fechaActualizacion(fechaActualizacion)
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/vehiculos/placa/{placa}", "PBA-1234"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Etags.fuerte(fechaActualizacion)))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, Etags.milisegundos(fechaActualizacion) / 1000 * 1000));
+    }
+
+    @Test
+    void obtenerVehiculoPorPlaca_Inexistente_DebeResponder404() throws Exception {
+        // Arrange
+        when(vehiculoService.obtenerFechaActualizacionPorPlaca("PBX-9999")).thenReturn(Optional.empty());
+        when(vehiculoService.obtenerVehiculoPorPlaca("PBX-9999"))
+                .thenThrow(new IllegalArgumentException("Vehículo no encontrado con placa: PBX-9999"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/vehiculos/placa/{placa}", "PBX-9999")
+                        .header(HttpHeaders.IF_NONE_MATCH, Etags.fuerte(fechaActualizacion)))
+                .andExpect(status().isNotFound());
+    }
+}
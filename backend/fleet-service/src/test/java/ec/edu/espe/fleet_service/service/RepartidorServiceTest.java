@@ -1,5 +1,6 @@
 package ec.edu.espe.fleet_service.service;
 
+import ec.edu.espe.fleet_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.fleet_service.dto.CreateRepartidorRequest;
 import ec.edu.espe.fleet_service.dto.RepartidorResponse;
 import ec.edu.espe.fleet_service.model.EstadoRepartidor;
@@ -19,6 +20,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -163,4 +165,23 @@ class RepartidorServiceTest {
                 () -> repartidorService.obtenerRepartidorPorId(repartidorId)
         );
     }
+
+    @Test
+    void obtenerRepartidoresPorIds_ConIdsMixtos_DebeMarcarNoEncontrados() {
+        // Arrange
+        UUID inexistente = UUID.randomUUID();
+        when(repartidorRepository.findByIdIn(List.of(repartidorId, inexistente)))
+                .thenReturn(List.of(repartidor));
+
+        // Act
+        BusquedaLoteResponse<RepartidorResponse> response = repartidorService
+                .obtenerRepartidoresPorIds(List.of(repartidorId, inexistente, repartidorId));
+
+        // Assert
+        assertEquals(List.of(repartidorId, inexistente), List.copyOf(response.getResultados().keySet()));
+        assertEquals("Carlos Rodríguez", response.getResultados().get(repartidorId).getNombreCompleto());
+        assertNull(response.getResultados().get(inexistente));
+        assertEquals(List.of(inexistente), response.getNoEncontrados());
+        verify(repartidorRepository, times(1)).findByIdIn(anyCollection());
+    }
 }
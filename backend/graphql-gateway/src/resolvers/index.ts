@@ -2,8 +2,10 @@ import { DeliveryDataSource } from '../services/delivery.service';
 
 export const resolvers = {
   Query: {
-    pedido: async (_: any, { id }: { id: string }, context: any) => {
-      return DeliveryDataSource.getPedidoById(id, context.token);
+    // Por el DataLoader: varios pedido(id) en una misma consulta salen en un solo POST /batch
+    // (que también busca en el archivo); null si el pedido no existe
+    pedido: async (_: any, { id }: { id: string }, { loaders }: any) => {
+      return loaders.pedidoLoader.load(id);
     },
 
     pedidos: async (_: any, { filtro }: { filtro: any }, context: any) => {
@@ -37,8 +39,8 @@ export const resolvers = {
       return loaders.repartidorLoader.load(parent.repartidorId);
     },
 
-    factura: async (parent: any, _: any, context: any) => {
-      return DeliveryDataSource.getFacturaByPedidoId(parent.id, context.token);
+    factura: async (parent: any, _: any, { loaders }: any) => {
+      return loaders.facturaPorPedidoLoader.load(parent.id);
     }
   },
 
@@ -39,19 +39,25 @@ export class DeliveryDataSource {
     throw new Error(`Error de conexión al obtener ${resourceType}: ${error.message}`);
   }
   
-  // --- Pedidos ---
-  
-  static async getPedidoById(id: string, token?: string) {
+  // Helper para endpoints de búsqueda por lote: devuelve un resultado por ID (null si no existe)
+  private static async postBatch(url: string, ids: readonly string[], resourceType: string, token?: string) {
     try {
-      const response = await axios.get(`${PEDIDO_SERVICE_URL}/${id}`, {
+      const response = await axios.post(url, { ids }, {
         headers: this.getAuthHeaders(token)
       });
-      return response.data;
+      const resultados = response.data?.resultados || {};
+      return ids.map(id => resultados[id] ?? null);
     } catch (error) {
-      this.handleError(error, 'Pedido', id);
+      this.handleError(error, resourceType);
     }
   }
 
+  // --- Pedidos ---
+  
+  static async getPedidosByIds(ids: readonly string[], token?: string) {
+    return this.postBatch(`${PEDIDO_SERVICE_URL}/batch`, ids, 'Pedidos', token);
+  }
+
   static async getPedidos(filtro: any, token?: string) {
     try {
       const params = new URLSearchParams();
@@ -98,6 +104,10 @@ export class DeliveryDataSource {
     }
   }
 
+  static async getRepartidoresByIds(ids: readonly string[], token?: string) {
+    return this.postBatch(`${FLEET_SERVICE_URL}/batch`, ids, 'Repartidores', token);
+  }
+
   static async getFlotaResumen(zonaId: string, token?: string) {
     try {
         // Obtener todos los repartidores activos
@@ -142,6 +152,10 @@ export class DeliveryDataSource {
     }
   }
 
+  static async getFacturasByPedidoIds(pedidoIds: readonly string[], token?: string) {
+    return this.postBatch(`${BILLING_SERVICE_URL}/batch/pedidos`, pedidoIds, 'Facturas', token);
+  }
+
   static async getFacturaById(id: string, token?: string) {
     try {
       const response = await axios.get(`${BILLING_SERVICE_URL}/${id}`, {
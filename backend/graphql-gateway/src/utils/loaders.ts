@@ -1,13 +1,24 @@
 import DataLoader from 'dataloader';
 import { DeliveryDataSource } from '../services/delivery.service';
 
+// Los endpoints /batch aceptan hasta 500 IDs por solicitud
+const MAXIMO_IDS_POR_LOTE = 500;
+
 export function createLoaders(token?: string) {
   return {
-    repartidorLoader: new DataLoader(async (ids: readonly string[]) => {
-      // Implementación básica de batch loading si fuera necesario
-      // Por ahora devuelve promesas individuales usando Promise.all
-      // En producción, esto debería usar un endpoint de 'getManyByIds' si existe
-      return Promise.all(ids.map(id => DeliveryDataSource.getRepartidorById(id, token)));
-    }),
+    // Una sola llamada POST /batch por tick en lugar de una por repartidor
+    repartidorLoader: new DataLoader(
+      async (ids: readonly string[]) => (await DeliveryDataSource.getRepartidoresByIds(ids, token)) ?? [],
+      { maxBatchSize: MAXIMO_IDS_POR_LOTE }
+    ),
+    pedidoLoader: new DataLoader(
+      async (ids: readonly string[]) => (await DeliveryDataSource.getPedidosByIds(ids, token)) ?? [],
+      { maxBatchSize: MAXIMO_IDS_POR_LOTE }
+    ),
+    // Indexado por ID de pedido; null si el pedido aún no tiene factura
+    facturaPorPedidoLoader: new DataLoader(
+      async (pedidoIds: readonly string[]) => (await DeliveryDataSource.getFacturasByPedidoIds(pedidoIds, token)) ?? [],
+      { maxBatchSize: MAXIMO_IDS_POR_LOTE }
+    ),
   };
 }
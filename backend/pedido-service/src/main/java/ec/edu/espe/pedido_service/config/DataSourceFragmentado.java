@@ -0,0 +1,30 @@
+package ec.edu.espe.pedido_service.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DataSource que abre cada conexión en el fragmento fijado para el hilo actual
+ * ({@link FragmentosPedidos#usar(String)}); sin fragmento fijado usa el inicial.
+ * Debe envolverse en un LazyConnectionDataSourceProxy para que la conexión física se pida
+ * en la primera sentencia y no al comenzar la transacción, cuando aún no se conoce la zona.
+ */
+public class DataSourceFragmentado extends AbstractRoutingDataSource {
+
+    public DataSourceFragmentado(FragmentosPedidos fragmentos) {
+        Map<Object, Object> destinos = new HashMap<>();
+        fragmentos.fragmentos().forEach(fragmento -> destinos.put(fragmento, fragmentos.dataSource(fragmento)));
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(fragmentos.dataSource(fragmentos.inicial()));
+        //Un fragmento desconocido es un error de programación, no se debe caer en el inicial
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return FragmentosPedidos.actual();
+    }
+}
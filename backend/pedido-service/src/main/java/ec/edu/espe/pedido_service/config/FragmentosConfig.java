@@ -0,0 +1,142 @@
+package ec.edu.espe.pedido_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ec.edu.espe.pedido_service.util.MapaFragmentos;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.flyway.autoconfigure.FlywayMigrationStrategy;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fragmentación de pedidos por zona entre varias bases de PostgreSQL.
+ * Sin pedidos.fragmentos.urls hay un único fragmento sobre el DataSource autoconfigurado.
+ * Con URLs, cada una es un fragmento (fragmento-1, fragmento-2, ... en ese orden; la lista sólo
+ * debe crecer al final) y las zonas se reparten por hashing consistente. Para agregar
+ * fragmentos se amplía la lista, se indica en pedidos.fragmentos.anteriores cuántos había y se
+ * ejecuta el rebalanceo; al terminar se elimina esa propiedad.
+ * Las exportaciones CSV usan pools aparte por fragmento ({@link PoolsExportacion}), de
+ * pedidos.exportacion.concurrentes conexiones cada uno.
+ */
+@Configuration
+public class FragmentosConfig {
+
+    private static final String SIN_FRAGMENTOS = "'${pedidos.fragmentos.urls:}'.isEmpty()";
+    private static final String CON_FRAGMENTOS = "!'${pedidos.fragmentos.urls:}'.isEmpty()";
+
+    private static final String CONCURRENTES = "${pedidos.exportacion.concurrentes:2}";
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnExpression(SIN_FRAGMENTOS)
+    static class FragmentoUnico {
+
+        @Bean
+        public FragmentosPedidos fragmentosPedidos(DataSource dataSource) {
+            return FragmentosPedidos.unico(dataSource);
+        }
+
+        //Contra la base principal aunque haya réplicas: la exportación debe incluir lo recién escrito
+        @Bean
+        public PoolsExportacion poolsExportacion(DataSourceProperties properties, Environment environment,
+                                                 @Value(CONCURRENTES) int concurrentes) {
+            return new PoolsExportacion(Map.of(FragmentosPedidos.FRAGMENTO_UNICO,
+                    poolExportacion(properties, environment, properties.determineUrl(), "pedidos-exportacion", concurrentes)));
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnExpression(CON_FRAGMENTOS)
+    static class Fragmentado {
+
+        @Bean
+        public FragmentosPedidos fragmentosPedidos(
+                DataSourceProperties properties,
+                Environment environment,
+                ObjectProvider<PlatformTransactionManager> transactionManager,
+                @Value("${pedidos.fragmentos.urls}") List<String> urls,
+                @Value("${pedidos.fragmentos.anteriores:0}") int anteriores,
+                @Value("${pedidos.fragmentos.nodos-virtuales:" + MapaFragmentos.NODOS_VIRTUALES_POR_DEFECTO + "}")
+                int nodosVirtuales) {
+            if (environment.containsProperty("pedidos.replicas.urls")) {
+                throw new IllegalStateException("pedidos.fragmentos.urls y pedidos.replicas.urls no se pueden combinar");
+            }
+
+            Map<String, DataSource> pools = new LinkedHashMap<>();
+            List<String> configuradas = configuradas(urls);
+            for (int i = 0; i < configuradas.size(); i++) {
+                String nombre = "fragmento-" + (i + 1);
+                HikariDataSource pool = ReplicasLecturaConfig.crearPool(properties, environment,
+                        configuradas.get(i), "pedidos-" + nombre);
+                pools.put(nombre, pool);
+            }
+            List<String> nombres = List.copyOf(pools.keySet());
+            if (anteriores < 0 || anteriores > nombres.size()) {
+                throw new IllegalStateException("pedidos.fragmentos.anteriores debe estar entre 0 y " + nombres.size());
+            }
+
+            MapaFragmentos mapa = new MapaFragmentos(nombres, nodosVirtuales);
+            MapaFragmentos mapaAnterior = anteriores > 0 && anteriores < nombres.size()
+                    ? new MapaFragmentos(nombres.subList(0, anteriores), nodosVirtuales)
+                    : null;
+            return new FragmentosPedidos(mapa, mapaAnterior, pools, transactionManager);
+        }
+
+        @Bean
+        public PoolsExportacion poolsExportacion(DataSourceProperties properties, Environment environment,
+                                                 @Value("${pedidos.fragmentos.urls}") List<String> urls,
+                                                 @Value(CONCURRENTES) int concurrentes) {
+            Map<String, DataSource> pools = new LinkedHashMap<>();
+            List<String> configuradas = configuradas(urls);
+            for (int i = 0; i < configuradas.size(); i++) {
+                String nombre = "fragmento-" + (i + 1);
+                pools.put(nombre, poolExportacion(properties, environment, configuradas.get(i),
+                        "pedidos-exportacion-" + nombre, concurrentes));
+            }
+            return new PoolsExportacion(pools);
+        }
+
+        //Conexión diferida: el fragmento se decide en la primera sentencia, no al abrir la transacción
+        @Bean
+        @Primary
+        public DataSource dataSource(FragmentosPedidos fragmentosPedidos) {
+            return new LazyConnectionDataSourceProxy(new DataSourceFragmentado(fragmentosPedidos));
+        }
+
+        //Las migraciones se aplican en cada fragmento con la misma configuración de Flyway
+        @Bean
+        public FlywayMigrationStrategy migracionPorFragmento(FragmentosPedidos fragmentosPedidos) {
+            return flyway -> fragmentosPedidos.fragmentos().forEach(fragmento -> Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(fragmentosPedidos.dataSource(fragmento))
+                    .load()
+                    .migrate());
+        }
+    }
+
+    private static List<String> configuradas(List<String> urls) {
+        return urls.stream().filter(StringUtils::hasText).map(String::trim).toList();
+    }
+
+    //Una conexión por exportación en curso; sin conexiones ociosas entre descargas
+    private static HikariDataSource poolExportacion(DataSourceProperties properties, Environment environment,
+                                                    String url, String nombre, int concurrentes) {
+        HikariDataSource pool = ReplicasLecturaConfig.crearPool(properties, environment, url, nombre);
+        pool.setMaximumPoolSize(concurrentes);
+        pool.setMinimumIdle(0);
+        pool.setReadOnly(true);
+        return pool;
+    }
+}
@@ -0,0 +1,205 @@
+package ec.edu.espe.pedido_service.config;
+
+import ec.edu.espe.pedido_service.util.MapaFragmentos;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Fragmentos (bases de datos) entre los que se reparten los pedidos según su zona.
+ * El fragmento de la operación en curso se fija por hilo con {@link #usar(String)} antes de la
+ * primera sentencia; {@link DataSourceFragmentado} lo consulta al abrir la conexión física.
+ * Las consultas que abarcan varias zonas se ejecutan en cada fragmento en paralelo y se reúnen.
+ * Con un único fragmento (configuración por defecto) todo se ejecuta en el hilo y la
+ * transacción del llamador, exactamente como sin fragmentación.
+ */
+public class FragmentosPedidos implements AutoCloseable {
+
+    public static final String FRAGMENTO_UNICO = "principal";
+
+    //Fragmento de la operación en curso en este hilo (null: el inicial)
+    private static final ThreadLocal<String> ACTUAL = new ThreadLocal<>();
+
+    private final MapaFragmentos mapa;
+    private final MapaFragmentos mapaAnterior;
+    private final Map<String, DataSource> dataSources;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final ExecutorService consultas;
+
+    //Restaura el fragmento previo del hilo al cerrarse
+    @FunctionalInterface
+    public interface Ambito extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * @param mapa          reparto vigente de zonas
+     * @param mapaAnterior  reparto previo mientras dura un rebalanceo (null si no hay uno en curso)
+     * @param dataSources   pool de cada fragmento, en el orden del mapa
+     */
+    public FragmentosPedidos(MapaFragmentos mapa, MapaFragmentos mapaAnterior, Map<String, DataSource> dataSources,
+                             ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.mapa = mapa;
+        this.mapaAnterior = mapaAnterior;
+        this.dataSources = new LinkedHashMap<>(dataSources);
+        this.transactionManager = transactionManager;
+        this.consultas = dataSources.size() > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    //Sin fragmentación: un único fragmento sobre el DataSource de la aplicación
+    public static FragmentosPedidos unico(DataSource dataSource) {
+        return new FragmentosPedidos(new MapaFragmentos(List.of(FRAGMENTO_UNICO)), null,
+                Map.of(FRAGMENTO_UNICO, dataSource), null);
+    }
+
+    public boolean esFragmentado() {
+        return dataSources.size() > 1;
+    }
+
+    public boolean rebalanceoEnCurso() {
+        return mapaAnterior != null;
+    }
+
+    public List<String> fragmentos() {
+        return mapa.fragmentos();
+    }
+
+    //Fragmento que guarda la numeración, el outbox sin zona y las sentencias sin fragmento fijado
+    public String inicial() {
+        return mapa.fragmentos().getFirst();
+    }
+
+    public String fragmentoDeZona(String zonaId) {
+        return mapa.fragmentoDe(zonaId);
+    }
+
+    //Fragmentos donde puede haber pedidos de la zona: su dueño y, durante un rebalanceo, el anterior
+    public Set<String> fragmentosDeZona(String zonaId) {
+        Set<String> candidatos = new LinkedHashSet<>();
+        candidatos.add(mapa.fragmentoDe(zonaId));
+        if (mapaAnterior != null) {
+            candidatos.add(mapaAnterior.fragmentoDe(zonaId));
+        }
+        return candidatos;
+    }
+
+    public MapaFragmentos mapa() {
+        return mapa;
+    }
+
+    //Pool propio del fragmento, fuera de la transacción en curso
+    public DataSource dataSource(String fragmento) {
+        DataSource dataSource = dataSources.get(fragmento);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Fragmento desconocido: " + fragmento);
+        }
+        return dataSource;
+    }
+
+    public Ambito usar(String fragmento) {
+        String previo = ACTUAL.get();
+        ACTUAL.set(fragmento);
+        return () -> {
+            if (previo == null) {
+                ACTUAL.remove();
+            } else {
+                ACTUAL.set(previo);
+            }
+        };
+    }
+
+    public Ambito usarZona(String zonaId) {
+        return usar(fragmentoDeZona(zonaId));
+    }
+
+    static String actual() {
+        return ACTUAL.get();
+    }
+
+    //Scatter-gather sobre todos los fragmentos
+    public <T> List<T> reunir(Function<String, ? extends Collection<T>> consulta) {
+        return reunir(fragmentos(), consulta);
+    }
+
+    //Ejecutar la consulta en cada fragmento indicado (en paralelo) y concatenar los resultados
+    public <T> List<T> reunir(Collection<String> fragmentos, Function<String, ? extends Collection<T>> consulta) {
+        if (!esFragmentado()) {
+            return new ArrayList<>(consulta.apply(FRAGMENTO_UNICO));
+        }
+        List<Future<? extends Collection<T>>> parciales = new ArrayList<>(fragmentos.size());
+        for (String fragmento : fragmentos) {
+            parciales.add(consultas.submit(() -> {
+                try (Ambito ambito = usar(fragmento)) {
+                    return consulta.apply(fragmento);
+                }
+            }));
+        }
+        List<T> resultado = new ArrayList<>();
+        for (Future<? extends Collection<T>> parcial : parciales) {
+            resultado.addAll(esperar(parcial));
+        }
+        return resultado;
+    }
+
+    /**
+     * Ejecuta la acción en una transacción propia del fragmento (REQUIRES_NEW), para las operaciones
+     * que recorren varios fragmentos uno tras otro. Con un único fragmento se ejecuta directamente
+     * dentro de la transacción del llamador.
+     */
+    public <T> T enTransaccion(String fragmento, boolean soloLectura, Supplier<T> accion) {
+        if (!esFragmentado()) {
+            return accion.get();
+        }
+        TransactionTemplate plantilla = new TransactionTemplate(transactionManager.getObject());
+        plantilla.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        plantilla.setReadOnly(soloLectura);
+        try (Ambito ambito = usar(fragmento)) {
+            return plantilla.execute(status -> accion.get());
+        }
+    }
+
+    private static <R> R esperar(Future<R> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta a fragmentos interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al consultar un fragmento", e.getCause());
+        }
+    }
+
+    //Con fragmentación los pools son propios; el DataSource del fragmento único pertenece a la aplicación
+    @Override
+    public void close() throws Exception {
+        if (!esFragmentado()) {
+            return;
+        }
+        consultas.shutdownNow();
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ec.edu.espe.pedido_service.config;
+
+import ec.edu.espe.pedido_service.util.GeneradorNumeros;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Configuración del generador de números de pedido basado en una secuencia
+ * de PostgreSQL con incremento por bloques (hi/lo).
+ * La secuencia la crea la migración V2 con el incremento pedidos.numeracion.tamanio-bloque
+ */
+@Configuration
+public class NumeracionConfig {
+
+    public static final String SECUENCIA_NUMERO_PEDIDO = "pedido_numero_seq";
+
+    //La secuencia la crean las migraciones: el bean espera a Flyway aunque no use el JdbcTemplate autoconfigurado
+    @Bean
+    @DependsOnDatabaseInitialization
+    public GeneradorNumeros generadorNumeroPedido(FragmentosPedidos fragmentos) {
+        //Con fragmentación la secuencia vive sólo en el fragmento inicial, así los números siguen siendo únicos
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(fragmentos.dataSource(fragmentos.inicial()));
+
+        //El incremento real de la secuencia define el bloque, así todas las instancias reservan rangos disjuntos
+        Long incremento = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?",
+                Long.class, SECUENCIA_NUMERO_PEDIDO);
+
+        return new GeneradorNumeros("PED", incremento, () -> jdbcTemplate.queryForObject(
+                "SELECT nextval('" + SECUENCIA_NUMERO_PEDIDO + "')", Long.class));
+    }
+}
@@ -0,0 +1,36 @@
+package ec.edu.espe.pedido_service.config;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pools propios de las exportaciones CSV, uno por fragmento con el mismo nombre.
+ * Una exportación retiene una conexión de cada fragmento durante toda la descarga: con pools
+ * aparte, las descargas largas no dejan sin conexiones a las operaciones de la aplicación.
+ */
+public class PoolsExportacion implements AutoCloseable {
+
+    private final Map<String, DataSource> dataSources;
+
+    public PoolsExportacion(Map<String, DataSource> dataSources) {
+        this.dataSources = new LinkedHashMap<>(dataSources);
+    }
+
+    public DataSource dataSource(String fragmento) {
+        DataSource dataSource = dataSources.get(fragmento);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Fragmento sin pool de exportación: " + fragmento);
+        }
+        return dataSource;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+}
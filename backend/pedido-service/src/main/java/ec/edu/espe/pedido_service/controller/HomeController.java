@@ -19,30 +19,40 @@ public class HomeController {
         info.put("descripcion", "Microservicio para gestión de pedidos y seguimiento de entregas");
         info.put("puerto", 8083);
         info.put("endpoints", Map.ofEntries(
-            Map.entry("crear", "POST /api/pedidos"),
-<<<<<<< HEAD
+            Map.entry("crear", "POST /api/pedidos [Idempotency-Key: XXX]"),
+            Map.entry("crearLote", "POST /api/pedidos/lote"),
             Map.entry("listar", "GET /api/pedidos [?zonaId=XXX&estado=XXX]"),
-=======
-            Map.entry("listar", "GET /api/pedidos"),
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
+            Map.entry("listarPaginado", "GET /api/pedidos/pagina?cursor=XXX&limite=50"),
+            Map.entry("listarStream", "GET /api/pedidos/stream (application/x-ndjson)"),
+            Map.entry("exportarCsv", "GET /api/pedidos/export.csv.gz [?desde=ISO&hasta=ISO&estado=XXX&despuesDe={id}] (application/gzip)"),
+            Map.entry("cambiosStream", "GET /api/pedidos/cambios/stream [?zonaId=XXX&estado=XXX&repartidorId=XXX] (text/event-stream, Last-Event-ID)"),
+            Map.entry("cercanos", "GET /api/pedidos/cercanos?lat=XXX&lon=XXX&radioKm=XXX"),
+            Map.entry("area", "GET /api/pedidos/area?latMin=XXX&latMax=XXX&lonMin=XXX&lonMax=XXX"),
+            Map.entry("estadisticas", "GET /api/pedidos/estadisticas"),
+            Map.entry("buscar", "GET /api/pedidos/buscar?q=XXX&pagina=0&tamanio=20"),
+            Map.entry("eta", "GET /api/pedidos/eta?tipoEntrega=XXX[&zonaId=XXX&prioridad=NORMAL]"),
+            Map.entry("fragmentos", "GET /api/pedidos/fragmentos (ADMINISTRADOR)"),
+            Map.entry("rebalanceoFragmentos", "POST /api/pedidos/fragmentos/rebalanceo (ADMINISTRADOR)"),
             Map.entry("obtenerPorId", "GET /api/pedidos/{id}"),
+            Map.entry("obtenerPorIds", "POST /api/pedidos/batch {\"ids\": [...]}"),
             Map.entry("obtenerPorNumero", "GET /api/pedidos/numero/{numeroPedido}"),
             Map.entry("obtenerPorCliente", "GET /api/pedidos/cliente/{clienteId}"),
             Map.entry("obtenerPorRepartidor", "GET /api/pedidos/repartidor/{repartidorId}"),
+            Map.entry("despachoSiguiente", "POST /api/pedidos/despacho/siguiente?zonaId=XXX (pasa a EN_PREPARACION)"),
+            Map.entry("rutaRepartidor", "GET /api/pedidos/repartidor/{repartidorId}/ruta[?lat=XXX&lon=XXX]"),
             Map.entry("obtenerPorEstado", "GET /api/pedidos/estado/{estado}"),
             Map.entry("actualizar", "PUT /api/pedidos/{id}"),
             Map.entry("asignarRepartidor", "PATCH /api/pedidos/{id}/asignar-repartidor"),
             Map.entry("cambiarEstado", "PATCH /api/pedidos/{id}/estado"),
             Map.entry("cancelar", "PATCH /api/pedidos/{id}/cancelar"),
+            Map.entry("transicionLote", "POST /api/pedidos/transiciones {\"ids\": [...] | \"zonaId\", \"estadoOrigen\"; \"estadoDestino\"}"),
             Map.entry("eliminar", "DELETE /api/pedidos/{id}")
         ));
-<<<<<<< HEAD
         info.put("parametrosOpcionales", Map.of(
             "zonaId", "Código postal (ej: 170150 para Quito Norte, 180101 para Ambato)",
-            "estado", "RECIBIDO, EN_PREPARACION, ASIGNADO, EN_RUTA, ENTREGADO, CANCELADO, DEVUELTO"
+            "estado", "RECIBIDO, EN_PREPARACION, ASIGNADO, EN_RUTA, ENTREGADO, CANCELADO, DEVUELTO",
+            "vista", "resumen (proyección liviana en listados)"
         ));
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
         return ResponseEntity.ok(info);
     }
 }
@@ -1,18 +1,58 @@
 package ec.edu.espe.pedido_service.controller;
 
+import ec.edu.espe.pedido_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.pedido_service.dto.BusquedaLoteResponse;
 import ec.edu.espe.pedido_service.dto.CreatePedidoRequest;
+import ec.edu.espe.pedido_service.dto.EstadisticasPedidosResponse;
+import ec.edu.espe.pedido_service.dto.EstimacionEntregaResponse;
+import ec.edu.espe.pedido_service.dto.EstadoFragmentosResponse;
+import ec.edu.espe.pedido_service.dto.MarcaVersion;
+import ec.edu.espe.pedido_service.dto.PedidoBusquedaResponse;
+import ec.edu.espe.pedido_service.dto.PedidoCercanoResponse;
+import ec.edu.espe.pedido_service.dto.PedidoLoteResponse;
+import ec.edu.espe.pedido_service.dto.PedidoPaginaResponse;
 import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.dto.RutaRepartidorResponse;
+import ec.edu.espe.pedido_service.dto.TransicionLoteRequest;
+import ec.edu.espe.pedido_service.dto.TransicionLoteResponse;
 import ec.edu.espe.pedido_service.dto.UpdatePedidoRequest;
+import ec.edu.espe.pedido_service.exception.ConflictoPedidoException;
 import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import ec.edu.espe.pedido_service.service.ColaDespacho;
+import ec.edu.espe.pedido_service.service.EstadisticasPedidos;
+import ec.edu.espe.pedido_service.service.EstimadorEntregas;
+import ec.edu.espe.pedido_service.service.ExportadorPedidos;
+import ec.edu.espe.pedido_service.service.FlujoCambiosPedidos;
+import ec.edu.espe.pedido_service.service.FlujoCambiosPedidos.FiltroCambios;
+import ec.edu.espe.pedido_service.service.IndiceEspacialPedidos;
 import ec.edu.espe.pedido_service.service.PedidoService;
+import ec.edu.espe.pedido_service.service.PlanificadorRutas;
+import ec.edu.espe.pedido_service.service.RebalanceadorFragmentos;
+import ec.edu.espe.pedido_service.service.RegistroIdempotencia;
+import ec.edu.espe.pedido_service.util.Etags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 //Controlador REST para gestión de pedidos
@@ -22,56 +62,271 @@ import java.util.UUID;
 public class PedidoController {
 
     private final PedidoService pedidoService;
+    private final IndiceEspacialPedidos indiceEspacial;
+    private final EstadisticasPedidos estadisticasPedidos;
+    private final EstimadorEntregas estimadorEntregas;
+    private final FlujoCambiosPedidos flujoCambios;
+    private final RebalanceadorFragmentos rebalanceador;
+    private final PlanificadorRutas planificadorRutas;
+    private final RegistroIdempotencia registroIdempotencia;
+    private final ExportadorPedidos exportadorPedidos;
+    private final ColaDespacho colaDespacho;
+    private final ObjectMapper objectMapper;
 
-    //Crear nuevo pedido
+    private static final String VISTA_RESUMEN = "resumen";
+
+    //Retry-After sugerido cuando ya están en curso todas las exportaciones permitidas
+    private static final int SEGUNDOS_REINTENTO_EXPORTACION = 60;
+
+    //Crear nuevo pedido; con Idempotency-Key los reintentos devuelven el pedido ya creado
     @PostMapping
-    public ResponseEntity<PedidoResponse> crearPedido(@Valid @RequestBody CreatePedidoRequest request) {
+    public ResponseEntity<PedidoResponse> crearPedido(
+            @RequestHeader(value = RegistroIdempotencia.CABECERA, required = false) String claveIdempotencia,
+            @Valid @RequestBody CreatePedidoRequest request) {
         try {
-            PedidoResponse pedido = pedidoService.crearPedido(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(pedido);
+            if (claveIdempotencia == null) {
+                PedidoResponse pedido = pedidoService.crearPedido(request);
+                return ResponseEntity.status(HttpStatus.CREATED).body(pedido);
+            }
+            return respuestaIdempotente(registroIdempotencia.ejecutar("crearPedido", claveIdempotencia, request,
+                    PedidoResponse.class, () -> pedidoService.crearPedido(request)));
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Error al crear pedido: " + e.getMessage());
         }
     }
 
-<<<<<<< HEAD
-    //Obtener todos los pedidos (con filtros opcionales: zonaId, estado)
+    //Crear pedidos en lote (resultado individual por elemento: creado o rechazado con motivo)
+    @PostMapping("/lote")
+    public ResponseEntity<PedidoLoteResponse> crearPedidosEnLote(@RequestBody List<CreatePedidoRequest> requests) {
+        try {
+            return ResponseEntity.ok(pedidoService.crearPedidosEnLote(requests));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Obtener todos los pedidos (con filtros opcionales: zonaId, estado; ?vista=resumen para la proyección liviana)
     @GetMapping
-    public ResponseEntity<List<PedidoResponse>> obtenerTodosLosPedidos(
+    public ResponseEntity<List<?>> obtenerTodosLosPedidos(
             @RequestParam(required = false) String zonaId,
-            @RequestParam(required = false) EstadoPedido estado) {
+            @RequestParam(required = false) EstadoPedido estado,
+            @RequestParam(required = false) String vista,
+            WebRequest webRequest) {
         
-        List<PedidoResponse> pedidos;
+        boolean resumen = esVistaResumen(vista);
+        if (noModificado(webRequest, resumen, pedidoService.obtenerMarcaVersion(zonaId, estado))) {
+            return null;
+        }
+        List<?> pedidos;
         
         // Filtro combinado: zonaId + estado
         if (zonaId != null && estado != null) {
-            pedidos = pedidoService.obtenerPedidosPorZonaYEstado(zonaId, estado);
+            pedidos = resumen
+                    ? pedidoService.obtenerResumenPorZonaYEstado(zonaId, estado)
+                    : pedidoService.obtenerPedidosPorZonaYEstado(zonaId, estado);
         }
         // Solo zonaId
         else if (zonaId != null) {
-            pedidos = pedidoService.obtenerPedidosPorZona(zonaId);
+            pedidos = resumen
+                    ? pedidoService.obtenerResumenPorZona(zonaId)
+                    : pedidoService.obtenerPedidosPorZona(zonaId);
         }
         // Solo estado
         else if (estado != null) {
-            pedidos = pedidoService.obtenerPedidosPorEstado(estado);
+            pedidos = resumen
+                    ? pedidoService.obtenerResumenPorEstado(estado)
+                    : pedidoService.obtenerPedidosPorEstado(estado);
         }
         // Sin filtros
         else {
-            pedidos = pedidoService.obtenerTodosLosPedidos();
+            pedidos = resumen
+                    ? pedidoService.obtenerResumenDePedidos()
+                    : pedidoService.obtenerTodosLosPedidos();
         }
         
-=======
-    //Obtener todos los pedidos
-    @GetMapping
-    public ResponseEntity<List<PedidoResponse>> obtenerTodosLosPedidos() {
-        List<PedidoResponse> pedidos = pedidoService.obtenerTodosLosPedidos();
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
         return ResponseEntity.ok(pedidos);
     }
 
+    //Resolver varios pedidos por ID en una sola llamada (resultado por ID, null si no existe)
+    @PostMapping("/batch")
+    public ResponseEntity<BusquedaLoteResponse<PedidoResponse>> obtenerPedidosPorIds(
+            @Valid @RequestBody BusquedaLoteRequest request) {
+        try {
+            return ResponseEntity.ok(pedidoService.obtenerPedidosPorIds(request.getIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Flujo SSE de cambios (filtros opcionales: zonaId, estado, repartidorId); reanuda desde Last-Event-ID
+    @GetMapping(value = "/cambios/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCambios(
+            @RequestParam(required = false) String zonaId,
+            @RequestParam(required = false) EstadoPedido estado,
+            @RequestParam(required = false) UUID repartidorId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoId) {
+        try {
+            SseEmitter emitter = flujoCambios.suscribir(new FiltroCambios(zonaId, estado, repartidorId), ultimoId);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    //Evita que un proxy intermedio acumule los eventos antes de reenviarlos
+                    .header("X-Accel-Buffering", "no")
+                    .body(emitter);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    //Conteos de pedidos activos por estado, zona, tipo de entrega y prioridad (desde memoria)
+    @GetMapping("/estadisticas")
+    public ResponseEntity<EstadisticasPedidosResponse> obtenerEstadisticas() {
+        return ResponseEntity.ok(estadisticasPedidos.obtener());
+    }
+
+    //Fragmentos por zona: pedidos activos en cada uno y resultado del último rebalanceo (sólo administradores)
+    @GetMapping("/fragmentos")
+    public ResponseEntity<EstadoFragmentosResponse> obtenerEstadoFragmentos() {
+        return ResponseEntity.ok(rebalanceador.estado());
+    }
+
+    //Mover en segundo plano las zonas que quedaron fuera de su fragmento; 409 si ya hay uno en ejecución
+    @PostMapping("/fragmentos/rebalanceo")
+    public ResponseEntity<EstadoFragmentosResponse> rebalancearFragmentos() {
+        try {
+            if (!rebalanceador.iniciar()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(rebalanceador.estado());
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(rebalanceador.estado());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Obtener pedidos activos paginados por cursor (keyset sobre fechaCreacion, id)
+    @GetMapping("/pagina")
+    public ResponseEntity<PedidoPaginaResponse> obtenerPaginaDePedidos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        try {
+            return ResponseEntity.ok(pedidoService.obtenerPaginaDePedidos(cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Buscar pedidos activos por cliente, dirección de destino, paquete u observaciones (prefijos, sin acentos)
+    @GetMapping("/buscar")
+    public ResponseEntity<PedidoBusquedaResponse> buscarPedidos(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamanio) {
+        try {
+            return ResponseEntity.ok(pedidoService.buscarPedidos(q, pagina, tamanio));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Duración de entrega observada (p50/p90/p95) para una zona, tipo de entrega y prioridad
+    @GetMapping("/eta")
+    public ResponseEntity<EstimacionEntregaResponse> obtenerEstimacionEntrega(
+            @RequestParam(required = false) String zonaId,
+            @RequestParam TipoEntrega tipoEntrega,
+            @RequestParam(defaultValue = "NORMAL") PrioridadPedido prioridad) {
+        return estimadorEntregas.obtenerEstimacion(zonaId, tipoEntrega, prioridad)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    //Obtener todos los pedidos activos en streaming NDJSON (un pedido JSON por línea)
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPedidos() {
+        StreamingResponseBody body = outputStream -> pedidoService.recorrerPedidosActivos(pedido -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(pedido));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    //Exportar el historial de pedidos (incluido el archivo) como CSV gzip en streaming, en orden de creación.
+    //Si la descarga se corta, se reanuda con despuesDe = id de la última fila completa recibida.
+    //Con el máximo de exportaciones en curso responde 429
+    @GetMapping("/export.csv.gz")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) EstadoPedido estado,
+            @RequestParam(required = false) UUID despuesDe) {
+        ExportadorPedidos.Turno turno = exportadorPedidos.reservarTurno();
+        if (turno == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(SEGUNDOS_REINTENTO_EXPORTACION))
+                    .build();
+        }
+        ExportadorPedidos.Filtro filtro;
+        try {
+            filtro = exportadorPedidos.preparar(desde, hasta, estado, despuesDe);
+        } catch (IllegalArgumentException e) {
+            turno.close();
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            turno.close();
+            throw e;
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (turno) {
+                exportadorPedidos.exportar(filtro, outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("pedidos.csv.gz").build().toString())
+                .body(body);
+    }
+
+    //Obtener pedidos pendientes cuyo destino está dentro de un radio (índice espacial en memoria)
+    @GetMapping("/cercanos")
+    public ResponseEntity<List<PedidoCercanoResponse>> obtenerPedidosCercanos(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam double radioKm,
+            @RequestParam(defaultValue = "100") int limite) {
+        try {
+            return ResponseEntity.ok(indiceEspacial.buscarCercanos(lat, lon, radioKm, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Obtener pedidos pendientes cuyo destino está dentro de un rectángulo (índice espacial en memoria)
+    @GetMapping("/area")
+    public ResponseEntity<List<PedidoCercanoResponse>> obtenerPedidosEnArea(
+            @RequestParam double latMin,
+            @RequestParam double latMax,
+            @RequestParam double lonMin,
+            @RequestParam double lonMax,
+            @RequestParam(defaultValue = "500") int limite) {
+        try {
+            return ResponseEntity.ok(indiceEspacial.buscarEnArea(latMin, latMax, lonMin, lonMax, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //Obtener pedido por ID
     @GetMapping("/{id}")
-    public ResponseEntity<PedidoResponse> obtenerPedidoPorId(@PathVariable UUID id) {
+    public ResponseEntity<PedidoResponse> obtenerPedidoPorId(@PathVariable UUID id, WebRequest webRequest) {
+        //GET condicional: si el cliente ya tiene esta versión se responde 304 sin cargar el pedido
+        if (noModificado(webRequest, pedidoService.obtenerFechaActualizacion(id))) {
+            return null;
+        }
         try {
             PedidoResponse pedido = pedidoService.obtenerPedidoPorId(id);
             return ResponseEntity.ok(pedido);
@@ -82,7 +337,11 @@ public class PedidoController {
 
     //Obtener pedido por número
     @GetMapping("/numero/{numeroPedido}")
-    public ResponseEntity<PedidoResponse> obtenerPedidoPorNumero(@PathVariable String numeroPedido) {
+    public ResponseEntity<PedidoResponse> obtenerPedidoPorNumero(@PathVariable String numeroPedido,
+                                                                 WebRequest webRequest) {
+        if (noModificado(webRequest, pedidoService.obtenerFechaActualizacionPorNumero(numeroPedido))) {
+            return null;
+        }
         try {
             PedidoResponse pedido = pedidoService.obtenerPedidoPorNumero(numeroPedido);
             return ResponseEntity.ok(pedido);
@@ -93,22 +352,71 @@ public class PedidoController {
 
     //Obtener pedidos por cliente
     @GetMapping("/cliente/{clienteId}")
-    public ResponseEntity<List<PedidoResponse>> obtenerPedidosPorCliente(@PathVariable UUID clienteId) {
-        List<PedidoResponse> pedidos = pedidoService.obtenerPedidosPorCliente(clienteId);
+    public ResponseEntity<List<?>> obtenerPedidosPorCliente(
+            @PathVariable UUID clienteId,
+            @RequestParam(required = false) String vista,
+            WebRequest webRequest) {
+        if (noModificado(webRequest, esVistaResumen(vista), pedidoService.obtenerMarcaVersionPorCliente(clienteId))) {
+            return null;
+        }
+        List<?> pedidos = esVistaResumen(vista)
+                ? pedidoService.obtenerResumenPorCliente(clienteId)
+                : pedidoService.obtenerPedidosPorCliente(clienteId);
         return ResponseEntity.ok(pedidos);
     }
 
     //Obtener pedidos por repartidor
     @GetMapping("/repartidor/{repartidorId}")
-    public ResponseEntity<List<PedidoResponse>> obtenerPedidosPorRepartidor(@PathVariable UUID repartidorId) {
-        List<PedidoResponse> pedidos = pedidoService.obtenerPedidosPorRepartidor(repartidorId);
+    public ResponseEntity<List<?>> obtenerPedidosPorRepartidor(
+            @PathVariable UUID repartidorId,
+            @RequestParam(required = false) String vista,
+            WebRequest webRequest) {
+        if (noModificado(webRequest, esVistaResumen(vista), pedidoService.obtenerMarcaVersionPorRepartidor(repartidorId))) {
+            return null;
+        }
+        List<?> pedidos = esVistaResumen(vista)
+                ? pedidoService.obtenerResumenPorRepartidor(repartidorId)
+                : pedidoService.obtenerPedidosPorRepartidor(repartidorId);
         return ResponseEntity.ok(pedidos);
     }
 
+    //Reclamar el siguiente pedido por despachar de la zona (prioridad y fecha estimada); 204 si no hay pendientes
+    @PostMapping("/despacho/siguiente")
+    public ResponseEntity<PedidoResponse> reclamarSiguientePedido(@RequestParam String zonaId) {
+        try {
+            return colaDespacho.reclamarSiguiente(zonaId)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.noContent().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //Orden de entrega sugerido para los pedidos pendientes del repartidor (lat/lon: posición actual, opcional)
+    @GetMapping("/repartidor/{repartidorId}/ruta")
+    public ResponseEntity<RutaRepartidorResponse> planificarRuta(
+            @PathVariable UUID repartidorId,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon) {
+        try {
+            return ResponseEntity.ok(planificadorRutas.planificar(repartidorId, lat, lon));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //Obtener pedidos por estado
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<PedidoResponse>> obtenerPedidosPorEstado(@PathVariable EstadoPedido estado) {
-        List<PedidoResponse> pedidos = pedidoService.obtenerPedidosPorEstado(estado);
+    public ResponseEntity<List<?>> obtenerPedidosPorEstado(
+            @PathVariable EstadoPedido estado,
+            @RequestParam(required = false) String vista,
+            WebRequest webRequest) {
+        if (noModificado(webRequest, esVistaResumen(vista), pedidoService.obtenerMarcaVersion(null, estado))) {
+            return null;
+        }
+        List<?> pedidos = esVistaResumen(vista)
+                ? pedidoService.obtenerResumenPorEstado(estado)
+                : pedidoService.obtenerPedidosPorEstado(estado);
         return ResponseEntity.ok(pedidos);
     }
 
@@ -122,6 +430,8 @@ public class PedidoController {
             return ResponseEntity.ok(pedido);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
+        } catch (ConflictoPedidoException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
     }
 
@@ -137,6 +447,8 @@ public class PedidoController {
             return ResponseEntity.ok(pedido);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
+        } catch (ConflictoPedidoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
     }
 
@@ -151,6 +463,8 @@ public class PedidoController {
             return ResponseEntity.ok(pedido);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
+        } catch (ConflictoPedidoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
     }
 
@@ -165,7 +479,17 @@ public class PedidoController {
             return ResponseEntity.ok(pedido);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
-        } catch (IllegalStateException e) {
+        } catch (ConflictoPedidoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    //Transición de estado en lote por lista de IDs o por zona y estado de origen
+    @PostMapping("/transiciones")
+    public ResponseEntity<TransicionLoteResponse> transicionarEnLote(@Valid @RequestBody TransicionLoteRequest request) {
+        try {
+            return ResponseEntity.ok(pedidoService.transicionarEnLote(request));
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
@@ -180,4 +504,33 @@ public class PedidoController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    //La vista "resumen" devuelve la proyección PedidoResumen en lugar del PedidoResponse completo
+    private boolean esVistaResumen(String vista) {
+        return VISTA_RESUMEN.equalsIgnoreCase(vista);
+    }
+
+    //ETag débil del listado (varía con la vista); true si el cliente ya tiene esta versión y se respondió 304
+    private boolean noModificado(WebRequest webRequest, boolean resumen, MarcaVersion marca) {
+        return webRequest.checkNotModified(Etags.debil(resumen ? VISTA_RESUMEN : "completa", marca));
+    }
+
+    //GET condicional de un recurso individual: ETag fuerte y Last-Modified de su fechaActualizacion
+    private static boolean noModificado(WebRequest webRequest, Optional<LocalDateTime> fechaActualizacion) {
+        return fechaActualizacion.isPresent() && webRequest.checkNotModified(
+                Etags.fuerte(fechaActualizacion.get()), Etags.milisegundos(fechaActualizacion.get()));
+    }
+
+    //201 con el recurso creado (marcado si es una repetición), 409 si otra solicitud con la clave sigue en curso
+    //y 422 si la clave se usó con otro cuerpo
+    private static <T> ResponseEntity<T> respuestaIdempotente(RegistroIdempotencia.Resultado<T> resultado) {
+        return switch (resultado.estado()) {
+            case EJECUTADA -> ResponseEntity.status(HttpStatus.CREATED).body(resultado.cuerpo());
+            case REPETIDA -> ResponseEntity.status(HttpStatus.CREATED)
+                    .header(RegistroIdempotencia.CABECERA_REPETIDA, "true")
+                    .body(resultado.cuerpo());
+            case EN_CURSO -> ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").build();
+            case CLAVE_REUTILIZADA -> ResponseEntity.status(HttpStatus.UNPROCESSABLE_CONTENT).build();
+        };
+    }
 }
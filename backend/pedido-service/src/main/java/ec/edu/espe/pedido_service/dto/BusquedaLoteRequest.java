@@ -0,0 +1,35 @@
+package ec.edu.espe.pedido_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+//DTO de solicitud para resolver varios IDs en una sola llamada (DataLoaders del gateway)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusquedaLoteRequest {
+
+    public static final int MAXIMO_IDS = 500;
+
+    @NotEmpty(message = "Debe indicar al menos un ID")
+    @Size(max = MAXIMO_IDS, message = "Máximo " + MAXIMO_IDS + " IDs por solicitud")
+    private List<UUID> ids;
+
+    //IDs sin repetidos ni nulos, dentro del máximo permitido por solicitud
+    public static List<UUID> idsUnicos(List<UUID> ids) {
+        List<UUID> unicos = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (unicos.isEmpty() || unicos.size() > MAXIMO_IDS) {
+            throw new IllegalArgumentException("Se deben indicar entre 1 y " + MAXIMO_IDS + " IDs");
+        }
+        return unicos;
+    }
+}
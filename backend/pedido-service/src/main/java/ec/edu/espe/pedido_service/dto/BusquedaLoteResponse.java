@@ -0,0 +1,39 @@
+package ec.edu.espe.pedido_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+//DTO de respuesta de una búsqueda por lote: un resultado por ID solicitado (null si no existe)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusquedaLoteResponse<T> {
+
+    //En el orden de la solicitud; los IDs inexistentes aparecen con valor null
+    private Map<UUID, T> resultados;
+
+    //IDs sin resultado, para no tener que inspeccionar los null
+    private List<UUID> noEncontrados;
+
+    public static <T> BusquedaLoteResponse<T> de(List<UUID> ids, Map<UUID, T> encontrados) {
+        Map<UUID, T> resultados = new LinkedHashMap<>();
+        List<UUID> noEncontrados = new ArrayList<>();
+        for (UUID id : ids) {
+            T valor = encontrados.get(id);
+            if (valor == null) {
+                noEncontrados.add(id);
+            }
+            resultados.put(id, valor);
+        }
+        return new BusquedaLoteResponse<>(resultados, noEncontrados);
+    }
+}
@@ -0,0 +1,30 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Registro compacto de un cambio de pedido enviado por el flujo SSE
+ * (GET /api/pedidos/cambios/stream). Lleva sólo lo necesario para que una consola
+ * actualice su listado; el detalle completo se obtiene con GET /api/pedidos/{id}.
+ *
+ * @param secuencia número creciente del cambio dentro de esta instancia del servicio
+ */
+public record CambioPedido(
+        long secuencia,
+        TipoCambio tipo,
+        UUID pedidoId,
+        String numeroPedido,
+        EstadoPedido estado,
+        EstadoPedido estadoAnterior,
+        String zonaId,
+        UUID repartidorId,
+        UUID repartidorAnteriorId,
+        Boolean activo,
+        Long version,
+        LocalDateTime fecha
+) {
+}
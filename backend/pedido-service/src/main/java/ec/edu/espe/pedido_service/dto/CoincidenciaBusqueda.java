@@ -0,0 +1,14 @@
+package ec.edu.espe.pedido_service.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+//Coincidencia de la búsqueda de texto: sólo lo necesario para ordenar y combinar fragmentos
+public interface CoincidenciaBusqueda {
+
+    UUID getId();
+
+    Double getRango();
+
+    LocalDateTime getFechaCreacion();
+}
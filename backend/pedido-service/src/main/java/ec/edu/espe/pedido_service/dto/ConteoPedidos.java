@@ -0,0 +1,15 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+
+//Fila de la consulta agregada de pedidos activos (una por combinación de dimensiones)
+public record ConteoPedidos(
+        EstadoPedido estado,
+        String zonaId,
+        TipoEntrega tipoEntrega,
+        PrioridadPedido prioridad,
+        long cantidad
+) {
+}
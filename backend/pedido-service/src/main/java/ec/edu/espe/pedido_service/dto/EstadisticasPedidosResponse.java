@@ -0,0 +1,36 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+//DTO de respuesta con los conteos de pedidos activos por dimensión
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasPedidosResponse {
+
+    private Long total;
+
+    private Map<EstadoPedido, Long> porEstado;
+
+    private Map<String, Long> porZona;
+
+    private Map<TipoEntrega, Long> porTipoEntrega;
+
+    private Map<PrioridadPedido, Long> porPrioridad;
+
+    //Última comparación de los contadores contra la base de datos
+    private LocalDateTime ultimaReconciliacion;
+
+    //Diferencia absoluta total encontrada en esa reconciliación (0 = sin desviación)
+    private Long desviacionUltimaReconciliacion;
+}
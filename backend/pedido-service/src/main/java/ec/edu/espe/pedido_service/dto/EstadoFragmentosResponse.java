@@ -0,0 +1,43 @@
+package ec.edu.espe.pedido_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+//Estado de la fragmentación por zona y del último rebalanceo ejecutado por esta instancia
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadoFragmentosResponse {
+
+    private boolean fragmentado;
+
+    //Hay un reparto anterior configurado: las lecturas por zona consultan ambos dueños
+    private boolean rebalanceoEnCurso;
+
+    private boolean rebalanceoEjecutando;
+
+    //Pedidos activos por fragmento
+    private Map<String, Long> pedidosPorFragmento;
+
+    private Rebalanceo ultimoRebalanceo;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rebalanceo {
+        private LocalDateTime inicio;
+        private LocalDateTime fin;
+        private int zonasMovidas;
+        private long filasMovidas;
+        //Filas bloqueadas por escritores durante el recorrido; se mueven en la próxima ejecución
+        private long filasPendientes;
+        private String error;
+    }
+}
@@ -0,0 +1,33 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Duración de entrega observada para una combinación de zona, tipo de entrega y prioridad
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstimacionEntregaResponse {
+
+    private String zonaId;
+
+    private TipoEntrega tipoEntrega;
+
+    private PrioridadPedido prioridad;
+
+    //ZONA si la zona tiene historial suficiente; GLOBAL si se usó el de todas las zonas
+    private String alcance;
+
+    private Long muestras;
+
+    private Long p50Minutos;
+
+    private Long p90Minutos;
+
+    private Long p95Minutos;
+}
@@ -0,0 +1,28 @@
+package ec.edu.espe.pedido_service.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Cantidad y última modificación de un listado; base de su ETag débil sin cargar las entidades
+public record MarcaVersion(
+        long cantidad,
+        LocalDateTime ultimaActualizacion
+) {
+
+    //Marca de un listado repartido en varios fragmentos: suma de cantidades y la modificación más reciente
+    public static MarcaVersion combinar(List<MarcaVersion> parciales) {
+        if (parciales.size() == 1) {
+            return parciales.getFirst();
+        }
+        long cantidad = 0;
+        LocalDateTime ultimaActualizacion = null;
+        for (MarcaVersion parcial : parciales) {
+            cantidad += parcial.cantidad();
+            if (parcial.ultimaActualizacion() != null && (ultimaActualizacion == null
+                    || parcial.ultimaActualizacion().isAfter(ultimaActualizacion))) {
+                ultimaActualizacion = parcial.ultimaActualizacion();
+            }
+        }
+        return new MarcaVersion(cantidad, ultimaActualizacion);
+    }
+}
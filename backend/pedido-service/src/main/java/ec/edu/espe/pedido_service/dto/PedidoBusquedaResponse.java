@@ -0,0 +1,24 @@
+package ec.edu.espe.pedido_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//DTO de respuesta para una página de resultados de búsqueda, ordenados por relevancia
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoBusquedaResponse {
+
+    private List<PedidoResponse> contenido;
+
+    private Integer pagina;
+
+    private Boolean hayMas;
+
+    private Integer tamanio;
+}
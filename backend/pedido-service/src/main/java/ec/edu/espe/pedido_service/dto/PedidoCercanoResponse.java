@@ -0,0 +1,30 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+//DTO de respuesta para consultas espaciales de pedidos (servidas desde el índice en memoria)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoCercanoResponse {
+
+    private UUID id;
+    private String numeroPedido;
+    private EstadoPedido estado;
+    private PrioridadPedido prioridad;
+    private String zonaId;
+
+    private Double latitudDestino;
+    private Double longitudDestino;
+
+    //Distancia al punto consultado (null en consultas por área)
+    private Double distanciaKm;
+}
@@ -0,0 +1,39 @@
+package ec.edu.espe.pedido_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//DTO de respuesta para la creación de pedidos en lote (resultado por elemento)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoLoteResponse {
+
+    private Integer total;
+    private Integer creados;
+    private Integer rechazados;
+
+    private List<Resultado> resultados;
+
+    //Resultado individual de un elemento del lote, en el mismo orden de la solicitud
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Resultado {
+
+        private Integer indice;
+
+        //CREADO o RECHAZADO
+        private String estado;
+
+        private PedidoResponse pedido;
+
+        private String motivo;
+    }
+}
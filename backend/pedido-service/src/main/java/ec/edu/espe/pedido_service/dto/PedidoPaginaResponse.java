@@ -0,0 +1,25 @@
+package ec.edu.espe.pedido_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//DTO de respuesta para una página de pedidos con cursor de continuación
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoPaginaResponse {
+
+    private List<PedidoResponse> contenido;
+
+    //Token opaco para solicitar la siguiente página (null si no hay más)
+    private String siguienteCursor;
+
+    private Boolean hayMas;
+
+    private Integer tamanio;
+}
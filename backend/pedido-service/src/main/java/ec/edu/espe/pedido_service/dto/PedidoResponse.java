@@ -14,7 +14,7 @@ import java.util.UUID;
 
 //DTO de respuesta para pedidos
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PedidoResponse {
@@ -40,11 +40,8 @@ public class PedidoResponse {
     private Double latitudDestino;
     private Double longitudDestino;
 
-<<<<<<< HEAD
     private String zonaId;
 
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
     private String descripcionPaquete;
     private BigDecimal pesoKg;
     private String dimensiones;
@@ -61,4 +58,7 @@ public class PedidoResponse {
 
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaActualizacion;
+
+    //Versión optimista; enviarla en la actualización evita pisar cambios concurrentes
+    private Long version;
 }
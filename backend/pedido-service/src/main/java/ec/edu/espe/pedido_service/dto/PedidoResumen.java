@@ -0,0 +1,26 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección liviana de Pedido para listados (?vista=resumen).
+ * Spring Data la construye con una expresión de constructor, por lo que sólo
+ * se leen estas columnas y se omiten los textos largos de la entidad.
+ */
+public record PedidoResumen(
+        UUID id,
+        String numeroPedido,
+        EstadoPedido estado,
+        PrioridadPedido prioridad,
+        String zonaId,
+        Double latitudDestino,
+        Double longitudDestino,
+        LocalDateTime fechaEstimadaEntrega,
+        LocalDateTime fechaCreacion,
+        LocalDateTime fechaActualizacion
+) {
+}
@@ -0,0 +1,51 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+//Orden de entrega sugerido para los pedidos pendientes de un repartidor
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RutaRepartidorResponse {
+
+    private UUID repartidorId;
+
+    private List<Parada> paradas;
+
+    //Pedidos pendientes sin coordenadas de destino; no se incluyen en la ruta
+    private List<UUID> sinCoordenadas;
+
+    private Double distanciaTotalKm;
+
+    //Distancia de la ruta por vecino más cercano, antes de las mejoras 2-opt/Or-opt
+    private Double distanciaInicialKm;
+
+    private Long tiempoCalculoMs;
+
+    //La mejora se cortó por el presupuesto de tiempo antes de llegar a un óptimo local
+    private boolean presupuestoAgotado;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Parada {
+        private int orden;
+        private UUID pedidoId;
+        private String numeroPedido;
+        private EstadoPedido estado;
+        private String direccionDestino;
+        private Double latitud;
+        private Double longitud;
+        //Desde la parada anterior (o desde el punto de partida, si se indicó)
+        private Double distanciaKm;
+    }
+}
@@ -0,0 +1,36 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+//DTO de solicitud para transicionar varios pedidos a la vez: por lista de IDs o por (zonaId, estadoOrigen)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicionLoteRequest {
+
+    public static final int MAXIMO_PEDIDOS = 500;
+
+    @Size(max = MAXIMO_PEDIDOS, message = "Máximo " + MAXIMO_PEDIDOS + " pedidos por solicitud")
+    private List<UUID> ids;
+
+    private String zonaId;
+
+    private EstadoPedido estadoOrigen;
+
+    @NotNull(message = "El estado destino es obligatorio")
+    private EstadoPedido estadoDestino;
+
+    //Texto opcional que se anexa a las observaciones de cada pedido
+    @Size(max = 200, message = "La nota no puede exceder 200 caracteres")
+    private String nota;
+}
@@ -0,0 +1,48 @@
+package ec.edu.espe.pedido_service.dto;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+//DTO de respuesta de una transición en lote (resultado compacto por pedido)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicionLoteResponse {
+
+    private EstadoPedido estadoDestino;
+    private Integer transicionados;
+    private Integer rechazados;
+
+    //Con selector por zona: true si quedaron pedidos sin procesar por el tope del lote
+    private Boolean limiteAlcanzado;
+
+    private List<Resultado> resultados;
+
+    //Resultado individual; con lista de IDs, en el mismo orden de la solicitud
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Resultado {
+
+        private UUID pedidoId;
+
+        private String numeroPedido;
+
+        //TRANSICIONADO o RECHAZADO
+        private String estado;
+
+        private EstadoPedido estadoAnterior;
+
+        private Long version;
+
+        private String motivo;
+    }
+}
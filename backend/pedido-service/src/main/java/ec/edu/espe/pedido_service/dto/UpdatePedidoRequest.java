@@ -40,4 +40,7 @@ public class UpdatePedidoRequest {
     private String observaciones;
 
     private Boolean activo;
+
+    //Versión esperada (opcional); si no coincide con la actual se responde 409
+    private Long version;
 }
@@ -0,0 +1,26 @@
+package ec.edu.espe.pedido_service.event;
+
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+
+/**
+ * Evento de dominio publicado por PedidoService después de cada mutación.
+ * Los componentes en memoria (índices, contadores, cachés) lo consumen con
+ * {@code @TransactionalEventListener} para reaccionar sólo a cambios confirmados.
+ *
+ * @param tipo     tipo de mutación realizada
+ * @param anterior estado del pedido antes del cambio (null en creación)
+ * @param actual   estado del pedido después del cambio (en ARCHIVADO, la fila tal como salió de pedidos)
+ */
+public record PedidoCambiadoEvent(TipoCambio tipo, PedidoResponse anterior, PedidoResponse actual) {
+
+    public enum TipoCambio {
+        CREADO,
+        ACTUALIZADO,
+        ASIGNADO,
+        ESTADO_CAMBIADO,
+        CANCELADO,
+        ELIMINADO,
+        //Movido a pedidos_historico por ArchivadorPedidos; deja de contar como pedido en curso
+        ARCHIVADO
+    }
+}
@@ -0,0 +1,18 @@
+package ec.edu.espe.pedido_service.exception;
+
+import java.util.UUID;
+
+//El pedido cambió (estado o versión) respecto de lo que la operación esperaba; se responde 409
+public class ConflictoPedidoException extends RuntimeException {
+
+    private final UUID pedidoId;
+
+    public ConflictoPedidoException(UUID pedidoId, String message) {
+        super(message);
+        this.pedidoId = pedidoId;
+    }
+
+    public UUID getPedidoId() {
+        return pedidoId;
+    }
+}
@@ -1,5 +1,11 @@
 package ec.edu.espe.pedido_service.model;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 //Estados del pedido en su ciclo de vida
 public enum EstadoPedido {
     RECIBIDO,           //Pedido recibido en el sistema
@@ -8,5 +14,46 @@ public enum EstadoPedido {
     EN_RUTA,            //Repartidor en camino
     ENTREGADO,          //Pedido entregado exitosamente
     CANCELADO,          //Pedido cancelado
-    DEVUELTO            //Pedido devuelto
+    DEVUELTO;           //Pedido devuelto
+
+    //Tabla de transiciones permitidas: estado actual -> estados destino
+    private static final Map<EstadoPedido, Set<EstadoPedido>> TRANSICIONES = new EnumMap<>(EstadoPedido.class);
+
+    //Tabla inversa: estado destino -> estados desde los que se puede llegar
+    private static final Map<EstadoPedido, Set<EstadoPedido>> ORIGENES = new EnumMap<>(EstadoPedido.class);
+
+    static {
+        TRANSICIONES.put(RECIBIDO, EnumSet.of(EN_PREPARACION, ASIGNADO, CANCELADO));
+        TRANSICIONES.put(EN_PREPARACION, EnumSet.of(ASIGNADO, CANCELADO));
+        //Reasignar a otro repartidor mantiene el estado ASIGNADO
+        TRANSICIONES.put(ASIGNADO, EnumSet.of(ASIGNADO, EN_RUTA, CANCELADO));
+        TRANSICIONES.put(EN_RUTA, EnumSet.of(ENTREGADO, DEVUELTO, CANCELADO));
+        TRANSICIONES.put(ENTREGADO, EnumSet.of(DEVUELTO));
+        TRANSICIONES.put(CANCELADO, EnumSet.noneOf(EstadoPedido.class));
+        TRANSICIONES.put(DEVUELTO, EnumSet.noneOf(EstadoPedido.class));
+
+        for (EstadoPedido destino : values()) {
+            ORIGENES.put(destino, EnumSet.noneOf(EstadoPedido.class));
+        }
+        TRANSICIONES.forEach((origen, destinos) -> destinos.forEach(destino -> ORIGENES.get(destino).add(origen)));
+        TRANSICIONES.replaceAll((estado, destinos) -> Collections.unmodifiableSet(destinos));
+        ORIGENES.replaceAll((estado, origenes) -> Collections.unmodifiableSet(origenes));
+    }
+
+    public boolean puedeTransicionarA(EstadoPedido destino) {
+        return TRANSICIONES.get(this).contains(destino);
+    }
+
+    public Set<EstadoPedido> siguientes() {
+        return TRANSICIONES.get(this);
+    }
+
+    //Estados desde los que se puede llegar a este (condición del UPDATE condicional)
+    public Set<EstadoPedido> origenes() {
+        return ORIGENES.get(this);
+    }
+
+    public boolean esTerminal() {
+        return TRANSICIONES.get(this).isEmpty();
+    }
 }
@@ -0,0 +1,44 @@
+package ec.edu.espe.pedido_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+//Evento pendiente de publicar a RabbitMQ (patrón transactional outbox)
+@Entity
+@Table(name = "outbox_eventos")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventoOutbox {
+
+    @Id
+    @IdUuidV7
+    private UUID id;
+
+    @Column(nullable = false, length = 100)
+    private String exchange;
+
+    @Column(nullable = false, length = 100)
+    private String routingKey;
+
+    //Acción del evento (CREATED, UPDATED, ...) para trazabilidad
+    @Column(nullable = false, length = 30)
+    private String accion;
+
+    @Column(length = 100)
+    private String entityId;
+
+    //Evento serializado en JSON, tal como se enviará al broker
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+}
@@ -1,5 +1,6 @@
 package ec.edu.espe.pedido_service.model;
 
+import ec.edu.espe.pedido_service.util.GeoUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -11,7 +12,13 @@ import java.util.UUID;
 
 //Entidad Pedido para gestión de entregas
 @Entity
+//Índices parciales (WHERE activo) por camino de acceso: db/migration/V3__indices_parciales_pedidos.sql
 @Table(name = "pedidos")
+//Resultado del UPDATE condicional de transición: fila nueva + estado previo
+@SqlResultSetMapping(
+        name = Pedido.MAPEO_TRANSICION,
+        entities = @EntityResult(entityClass = Pedido.class),
+        columns = @ColumnResult(name = "estado_anterior", type = String.class))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,11 +26,12 @@ import java.util.UUID;
 @Builder
 public class Pedido {
 
+    public static final String MAPEO_TRANSICION = "Pedido.transicion";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @IdUuidV7
     @Column(columnDefinition = "UUID DEFAULT gen_random_uuid()")
-    @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id;
 
     @Column(nullable = false, unique = true, length = 50)
     private String numeroPedido;
@@ -70,13 +78,10 @@ public class Pedido {
 
     private Double longitudDestino;
 
-<<<<<<< HEAD
     //Zona geográfica (código postal del destino para agrupación)
     @Column(nullable = false, length = 10)
     private String zonaId;
 
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
     //Detalles del paquete
     @Column(nullable = false, length = 500)
     private String descripcionPaquete;
@@ -114,6 +119,11 @@ public class Pedido {
     @Column(nullable = false)
     private LocalDateTime fechaActualizacion;
 
+    //Control optimista para la ruta general de actualización (las transiciones la incrementan en el UPDATE)
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     //Validación de cobertura geográfica según tipo de entrega
     public boolean validarCobertura() {
         if (latitudOrigen == null || longitudOrigen == null || 
@@ -133,13 +143,6 @@ public class Pedido {
 
     //Cálculo de distancia usando fórmula de Haversine
     private double calcularDistancia(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; //Radio de la Tierra en km
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+        return GeoUtil.distanciaKm(lat1, lon1, lat2, lon2);
     }
 }
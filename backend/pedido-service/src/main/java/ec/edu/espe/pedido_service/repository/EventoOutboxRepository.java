@@ -0,0 +1,20 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.model.EventoOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+//Repositorio de eventos pendientes del outbox
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, UUID> {
+
+    //Lote más antiguo, bloqueado para esta instancia; otras instancias saltan las filas tomadas
+    @Query(value = "SELECT * FROM outbox_eventos ORDER BY fecha_creacion LIMIT :limite FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<EventoOutbox> findLoteParaPublicar(@Param("limite") int limite);
+}
@@ -1,21 +1,88 @@
 package ec.edu.espe.pedido_service.repository;
 
+import ec.edu.espe.pedido_service.dto.CoincidenciaBusqueda;
+import ec.edu.espe.pedido_service.dto.ConteoPedidos;
+import ec.edu.espe.pedido_service.dto.MarcaVersion;
+import ec.edu.espe.pedido_service.dto.PedidoResumen;
 import ec.edu.espe.pedido_service.model.EstadoPedido;
 import ec.edu.espe.pedido_service.model.Pedido;
 import ec.edu.espe.pedido_service.model.TipoEntrega;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 //Repositorio para gestionar pedidos
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, UUID> {
+public interface PedidoRepository extends JpaRepository<Pedido, UUID>, PedidoTransicionRepository {
 
     Optional<Pedido> findByNumeroPedido(String numeroPedido);
 
+    //Resolver sólo el ID a partir del número (sin hidratar la entidad)
+    @Query("SELECT p.id FROM Pedido p WHERE p.numeroPedido = :numeroPedido")
+    Optional<UUID> findIdByNumeroPedido(@Param("numeroPedido") String numeroPedido);
+
+    //Estado actual de un pedido activo (diagnóstico cuando una transición no aplica)
+    @Query("SELECT p.estado FROM Pedido p WHERE p.id = :id AND p.activo = true")
+    Optional<EstadoPedido> findEstadoActivoById(@Param("id") UUID id);
+
+    //Respaldo en el archivo (pedidos_historico) para pedidos terminales ya movidos; sólo lectura
+    @Query(value = "SELECT * FROM pedidos_historico WHERE id = :id", nativeQuery = true)
+    Optional<Pedido> findArchivadoById(@Param("id") UUID id);
+
+    @Query(value = "SELECT * FROM pedidos_historico WHERE id IN (:ids)", nativeQuery = true)
+    List<Pedido> findArchivadosByIdIn(@Param("ids") Collection<UUID> ids);
+
+    //Versiones para GET condicionales: sólo la columna necesaria, sin hidratar la entidad
+    @Query("SELECT p.fechaActualizacion FROM Pedido p WHERE p.id = :id")
+    Optional<LocalDateTime> findFechaActualizacionById(@Param("id") UUID id);
+
+    @Query(value = "SELECT fecha_actualizacion FROM pedidos_historico WHERE id = :id", nativeQuery = true)
+    Optional<LocalDateTime> findFechaActualizacionArchivadoById(@Param("id") UUID id);
+
+    //Fragmentación: si el pedido (activo o archivado) está en la base de la conexión en curso
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM pedidos WHERE id = :id) " +
+                   "OR EXISTS (SELECT 1 FROM pedidos_historico WHERE id = :id)", nativeQuery = true)
+    boolean existeEnFragmento(@Param("id") UUID id);
+
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.MarcaVersion(COUNT(p), MAX(p.fechaActualizacion)) " +
+           "FROM Pedido p WHERE p.activo = true")
+    MarcaVersion marcaVersionActivos();
+
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.MarcaVersion(COUNT(p), MAX(p.fechaActualizacion)) " +
+           "FROM Pedido p WHERE p.activo = true AND p.zonaId = :zonaId")
+    MarcaVersion marcaVersionPorZona(@Param("zonaId") String zonaId);
+
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.MarcaVersion(COUNT(p), MAX(p.fechaActualizacion)) " +
+           "FROM Pedido p WHERE p.activo = true AND p.estado = :estado")
+    MarcaVersion marcaVersionPorEstado(@Param("estado") EstadoPedido estado);
+
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.MarcaVersion(COUNT(p), MAX(p.fechaActualizacion)) " +
+           "FROM Pedido p WHERE p.activo = true AND p.zonaId = :zonaId AND p.estado = :estado")
+    MarcaVersion marcaVersionPorZonaYEstado(@Param("zonaId") String zonaId, @Param("estado") EstadoPedido estado);
+
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.MarcaVersion(COUNT(p), MAX(p.fechaActualizacion)) " +
+           "FROM Pedido p WHERE p.activo = true AND p.clienteId = :clienteId")
+    MarcaVersion marcaVersionPorCliente(@Param("clienteId") UUID clienteId);
+
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.MarcaVersion(COUNT(p), MAX(p.fechaActualizacion)) " +
+           "FROM Pedido p WHERE p.activo = true AND p.repartidorId = :repartidorId")
+    MarcaVersion marcaVersionPorRepartidor(@Param("repartidorId") UUID repartidorId);
+
+    @Query(value = "SELECT id FROM pedidos_historico WHERE numero_pedido = :numeroPedido LIMIT 1", nativeQuery = true)
+    Optional<UUID> findIdArchivadoByNumeroPedido(@Param("numeroPedido") String numeroPedido);
+
     List<Pedido> findByClienteIdAndActivoTrue(UUID clienteId);
 
     List<Pedido> findByRepartidorIdAndActivoTrue(UUID repartidorId);
@@ -24,14 +91,67 @@ public interface PedidoRepository extends JpaRepository<Pedido, UUID> {
 
     List<Pedido> findByTipoEntregaAndActivoTrue(TipoEntrega tipoEntrega);
 
-<<<<<<< HEAD
     List<Pedido> findByZonaIdAndActivoTrue(String zonaId);
 
     List<Pedido> findByZonaIdAndEstadoAndActivoTrue(String zonaId, EstadoPedido estado);
 
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
     List<Pedido> findByActivoTrue();
 
+    //Proyecciones livianas para listados (?vista=resumen)
+    List<PedidoResumen> findResumenByActivoTrue();
+
+    List<PedidoResumen> findResumenByClienteIdAndActivoTrue(UUID clienteId);
+
+    List<PedidoResumen> findResumenByRepartidorIdAndActivoTrue(UUID repartidorId);
+
+    List<PedidoResumen> findResumenByEstadoAndActivoTrue(EstadoPedido estado);
+
+    List<PedidoResumen> findResumenByZonaIdAndActivoTrue(String zonaId);
+
+    List<PedidoResumen> findResumenByZonaIdAndEstadoAndActivoTrue(String zonaId, EstadoPedido estado);
+
+    List<PedidoResumen> findResumenByIdInAndActivoTrue(Collection<UUID> ids);
+
+    //Búsqueda de texto completo sobre la columna busqueda (índice GIN parcial), por relevancia.
+    //Sólo se rankean las primeras :candidatos coincidencias: ts_rank_cd lee el tsvector de cada una
+    @Query(value = "SELECT id, CAST(ts_rank_cd(busqueda, consulta) AS double precision) AS rango, " +
+                   "fecha_creacion AS \"fechaCreacion\" " +
+                   "FROM (SELECT id, busqueda, fecha_creacion FROM pedidos " +
+                   "      WHERE activo AND busqueda @@ to_tsquery('es_sin_acentos', :consulta) " +
+                   "      LIMIT :candidatos) candidatos, " +
+                   "     to_tsquery('es_sin_acentos', :consulta) consulta " +
+                   "ORDER BY rango DESC, fecha_creacion DESC, id " +
+                   "LIMIT :limite OFFSET :desde", nativeQuery = true)
+    List<CoincidenciaBusqueda> buscarPorTexto(@Param("consulta") String consulta,
+                                              @Param("candidatos") int candidatos,
+                                              @Param("limite") int limite,
+                                              @Param("desde") int desde);
+
+    //Primera página del listado por keyset (fechaCreacion, id)
+    List<Pedido> findByActivoTrueOrderByFechaCreacionAscIdAsc(Pageable pageable);
+
+    //Páginas siguientes: filas estrictamente posteriores al cursor
+    @Query("SELECT p FROM Pedido p WHERE p.activo = true " +
+           "AND (p.fechaCreacion > :fechaCreacion OR (p.fechaCreacion = :fechaCreacion AND p.id > :id)) " +
+           "ORDER BY p.fechaCreacion ASC, p.id ASC")
+    List<Pedido> findPaginaDespuesDe(@Param("fechaCreacion") LocalDateTime fechaCreacion,
+                                     @Param("id") UUID id,
+                                     Pageable pageable);
+
+    //Cursor JDBC con fetch size acotado para streaming (requiere transacción abierta)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Pedido p WHERE p.activo = true ORDER BY p.fechaCreacion ASC, p.id ASC")
+    Stream<Pedido> streamByActivoTrue();
+
     Boolean existsByNumeroPedido(String numeroPedido);
+
+    //Conteo de pedidos activos agrupado por todas las dimensiones de estadísticas (una sola pasada)
+    @Query("SELECT new ec.edu.espe.pedido_service.dto.ConteoPedidos(p.estado, p.zonaId, p.tipoEntrega, p.prioridad, COUNT(p)) " +
+           "FROM Pedido p WHERE p.activo = true " +
+           "GROUP BY p.estado, p.zonaId, p.tipoEntrega, p.prioridad")
+    List<ConteoPedidos> contarActivosAgrupados();
 }
@@ -0,0 +1,45 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.Pedido;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+//Transiciones de estado como compare-and-set en una sola sentencia
+public interface PedidoTransicionRepository {
+
+    /**
+     * Ejecuta la transición hacia nuevoEstado sólo si el pedido está activo y su
+     * estado actual es uno de los orígenes permitidos por la tabla de transiciones.
+     * Incrementa la versión y devuelve la fila resultante junto con el estado previo;
+     * vacío si el pedido no existe o su estado ya no lo permite.
+     *
+     * @param repartidorId     nuevo repartidor (null conserva el actual)
+     * @param repartidorNombre nombre del nuevo repartidor (null conserva el actual)
+     * @param nota             texto a anexar a observaciones (null no las modifica)
+     */
+    Optional<TransicionPedido> transicionar(UUID id, EstadoPedido nuevoEstado, UUID repartidorId,
+                                            String repartidorNombre, String nota, LocalDateTime ahora);
+
+    /**
+     * Transición en bloque con la misma semántica que {@link #transicionar}, en una única sentencia.
+     * Sólo cambian los pedidos activos del selector cuyo estado actual es un origen permitido;
+     * el resto se omite. Las filas se bloquean en orden de ID para que dos lotes concurrentes
+     * sobre pedidos comunes no entren en deadlock.
+     *
+     * @param ids          pedidos a transicionar (excluyente con zonaId/estadoOrigen)
+     * @param zonaId       zona de los pedidos a transicionar (junto con estadoOrigen)
+     * @param estadoOrigen estado actual de los pedidos de la zona
+     * @param maximo       tope de filas afectadas por la sentencia
+     */
+    List<TransicionPedido> transicionarEnLote(Collection<UUID> ids, String zonaId, EstadoPedido estadoOrigen,
+                                              EstadoPedido nuevoEstado, String nota, LocalDateTime ahora, int maximo);
+
+    //Fila tras la transición y estado que tenía antes de aplicarla
+    record TransicionPedido(Pedido pedido, EstadoPedido estadoAnterior) {
+    }
+}
@@ -0,0 +1,134 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.Pedido;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+//Implementación con UPDATE ... RETURNING de PostgreSQL: un único viaje a la base por transición
+@RequiredArgsConstructor
+public class PedidoTransicionRepositoryImpl implements PedidoTransicionRepository {
+
+    //Actualización común a las transiciones individuales y en bloque sobre las filas bloqueadas por la CTE "actual"
+    private static final String SQL_ACTUALIZACION = """
+            UPDATE pedidos p SET
+                estado = CAST(:nuevoEstado AS varchar),
+                repartidor_id = COALESCE(CAST(:repartidorId AS uuid), p.repartidor_id),
+                repartidor_nombre = COALESCE(CAST(:repartidorNombre AS varchar), p.repartidor_nombre),
+                observaciones = CASE WHEN CAST(:nota AS varchar) IS NULL THEN p.observaciones
+                    ELSE LEFT(COALESCE(p.observaciones || ' | ', '') || CAST(:nota AS varchar), 1000) END,
+                fecha_entrega_real = CASE WHEN CAST(:nuevoEstado AS varchar) = 'ENTREGADO'
+                    THEN COALESCE(p.fecha_entrega_real, CAST(:ahora AS timestamp)) ELSE p.fecha_entrega_real END,
+                fecha_actualizacion = CAST(:ahora AS timestamp),
+                version = p.version + 1
+            FROM actual
+            WHERE p.id = actual.id
+            RETURNING p.*, actual.estado AS estado_anterior
+            """;
+
+    //La CTE bloquea la fila sólo si cumple la condición; ante escrituras concurrentes PostgreSQL
+    //vuelve a evaluar el estado sobre la versión confirmada, así que el perdedor no actualiza nada
+    private static final String SQL_TRANSICION = """
+            WITH actual AS (
+                SELECT id, estado FROM pedidos
+                WHERE id = :id AND activo AND estado IN (:origenes)
+                FOR UPDATE
+            )
+            """ + SQL_ACTUALIZACION;
+
+    //En bloque, el orden por id fija el orden de bloqueo entre lotes concurrentes
+    private static final String SQL_TRANSICION_POR_IDS = """
+            WITH actual AS (
+                SELECT id, estado FROM pedidos
+                WHERE id IN (:ids) AND activo AND estado IN (:origenes)
+                ORDER BY id
+                LIMIT :maximo
+                FOR UPDATE
+            )
+            """ + SQL_ACTUALIZACION;
+
+    private static final String SQL_TRANSICION_POR_ZONA = """
+            WITH actual AS (
+                SELECT id, estado FROM pedidos
+                WHERE zona_id = :zonaId AND estado = CAST(:estadoOrigen AS varchar) AND activo
+                    AND estado IN (:origenes)
+                ORDER BY id
+                LIMIT :maximo
+                FOR UPDATE
+            )
+            """ + SQL_ACTUALIZACION;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<TransicionPedido> transicionar(UUID id, EstadoPedido nuevoEstado, UUID repartidorId,
+                                                   String repartidorNombre, String nota, LocalDateTime ahora) {
+        List<String> origenes = nuevoEstado.origenes().stream().map(Enum::name).toList();
+        if (origenes.isEmpty()) {
+            return Optional.empty();
+        }
+
+        //Parámetros tipados: los null sin tipo llegan como bytea y el CAST a uuid fallaría
+        @SuppressWarnings("unchecked")
+        NativeQuery<Object[]> query = entityManager
+                .createNativeQuery(SQL_TRANSICION, Pedido.MAPEO_TRANSICION)
+                .unwrap(NativeQuery.class);
+        List<Object[]> filas = query
+                .setParameter("id", id, UUID.class)
+                .setParameterList("origenes", origenes, String.class)
+                .setParameter("nuevoEstado", nuevoEstado.name(), String.class)
+                .setParameter("repartidorId", repartidorId, UUID.class)
+                .setParameter("repartidorNombre", repartidorNombre, String.class)
+                .setParameter("nota", nota, String.class)
+                .setParameter("ahora", ahora, LocalDateTime.class)
+                .getResultList();
+
+        return filas.stream()
+                .findFirst()
+                .map(PedidoTransicionRepositoryImpl::aTransicion);
+    }
+
+    @Override
+    public List<TransicionPedido> transicionarEnLote(Collection<UUID> ids, String zonaId, EstadoPedido estadoOrigen,
+                                                     EstadoPedido nuevoEstado, String nota, LocalDateTime ahora,
+                                                     int maximo) {
+        List<String> origenes = nuevoEstado.origenes().stream().map(Enum::name).toList();
+        if (origenes.isEmpty()) {
+            return List.of();
+        }
+
+        boolean porIds = ids != null;
+        @SuppressWarnings("unchecked")
+        NativeQuery<Object[]> query = entityManager
+                .createNativeQuery(porIds ? SQL_TRANSICION_POR_IDS : SQL_TRANSICION_POR_ZONA, Pedido.MAPEO_TRANSICION)
+                .unwrap(NativeQuery.class);
+        if (porIds) {
+            query.setParameterList("ids", ids, UUID.class);
+        } else {
+            query.setParameter("zonaId", zonaId, String.class)
+                    .setParameter("estadoOrigen", estadoOrigen.name(), String.class);
+        }
+        List<Object[]> filas = query
+                .setParameterList("origenes", origenes, String.class)
+                .setParameter("maximo", maximo, Integer.class)
+                .setParameter("nuevoEstado", nuevoEstado.name(), String.class)
+                .setParameter("repartidorId", null, UUID.class)
+                .setParameter("repartidorNombre", null, String.class)
+                .setParameter("nota", nota, String.class)
+                .setParameter("ahora", ahora, LocalDateTime.class)
+                .getResultList();
+
+        return filas.stream().map(PedidoTransicionRepositoryImpl::aTransicion).toList();
+    }
+
+    private static TransicionPedido aTransicion(Object[] fila) {
+        return new TransicionPedido((Pedido) fila[0], EstadoPedido.valueOf((String) fila[1]));
+    }
+}
@@ -0,0 +1,213 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Archivador de pedidos terminales: mueve los ENTREGADO y CANCELADO cuya última
+ * modificación supera la antigüedad configurada desde pedidos hacia pedidos_historico,
+ * particionada por mes de creación.
+ * Cada lote va en su propia transacción corta: toma las filas con SKIP LOCKED (no espera a
+ * escritores ni a otras instancias), crea las particiones de los meses de esas mismas filas y
+ * las mueve con un único DELETE ... RETURNING + INSERT.
+ * Por cada pedido movido publica un {@link PedidoCambiadoEvent} de tipo ARCHIVADO.
+ * Con fragmentación cada fragmento archiva en su propio pedidos_historico.
+ */
+@Component
+@Slf4j
+public class ArchivadorPedidos {
+
+    //Columnas comunes a pedidos y pedidos_historico (fecha_archivado toma su valor por defecto;
+    //busqueda es generada y sólo existe en pedidos)
+    static final String COLUMNAS = """
+            id, numero_pedido, cliente_id, cliente_nombre, repartidor_id, repartidor_nombre, tipo_entrega,
+            estado, prioridad, direccion_origen, latitud_origen, longitud_origen, direccion_destino,
+            latitud_destino, longitud_destino, zona_id, descripcion_paquete, peso_kg, dimensiones,
+            tarifa_base, tarifa_total, fecha_estimada_entrega, fecha_entrega_real, observaciones, activo,
+            fecha_creacion, fecha_actualizacion, version""";
+
+    //Lote a mover con el mes de su partición; las filas quedan bloqueadas hasta el fin de la transacción
+    private static final String SQL_TOMAR_LOTE = """
+            SELECT id, CAST(date_trunc('month', fecha_creacion) AS date) AS mes FROM pedidos
+            WHERE estado IN ('ENTREGADO', 'CANCELADO') AND fecha_actualizacion < ?
+            ORDER BY fecha_actualizacion
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED""";
+
+    private static final String SQL_MOVER_LOTE = """
+            WITH movidos AS (
+                DELETE FROM pedidos
+                WHERE id = ANY(?)
+                RETURNING %1$s)
+            INSERT INTO pedidos_historico (%1$s)
+            SELECT %1$s FROM movidos
+            RETURNING id, numero_pedido, estado, prioridad, tipo_entrega, zona_id, activo""".formatted(COLUMNAS);
+
+    private static final DateTimeFormatter FORMATO_PARTICION = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FragmentosPedidos fragmentos;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final int antiguedadDias;
+    private final int tamanioLote;
+    private final long pausaEntreLotesMs;
+
+    private final Counter pedidosArchivados;
+    private final Counter erroresArchivo;
+    private final Timer tiempoCiclo;
+
+    public ArchivadorPedidos(JdbcTemplate jdbcTemplate,
+                             FragmentosPedidos fragmentos,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${pedidos.archivo.habilitado:true}") boolean habilitado,
+                             @Value("${pedidos.archivo.antiguedad-dias:90}") int antiguedadDias,
+                             @Value("${pedidos.archivo.tamanio-lote:500}") int tamanioLote,
+                             @Value("${pedidos.archivo.pausa-entre-lotes-ms:100}") long pausaEntreLotesMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fragmentos = fragmentos;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.antiguedadDias = antiguedadDias;
+        this.tamanioLote = tamanioLote;
+        this.pausaEntreLotesMs = pausaEntreLotesMs;
+
+        this.pedidosArchivados = Counter.builder("pedidos.archivo.movidos")
+                .description("Pedidos terminales movidos a pedidos_historico")
+                .register(meterRegistry);
+        this.erroresArchivo = Counter.builder("pedidos.archivo.errores")
+                .description("Ciclos del archivador interrumpidos por error")
+                .register(meterRegistry);
+        this.tiempoCiclo = Timer.builder("pedidos.archivo.ciclo")
+                .description("Duración de un ciclo completo del archivador")
+                .register(meterRegistry);
+    }
+
+    //Ciclo periódico: mueve lotes mientras vengan completos
+    @Scheduled(fixedDelayString = "${pedidos.archivo.intervalo-ms:600000}",
+               initialDelayString = "${pedidos.archivo.intervalo-ms:600000}")
+    public void archivar() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            tiempoCiclo.record(() -> archivarAnterioresA(LocalDateTime.now().minusDays(antiguedadDias)));
+        } catch (Exception e) {
+            //Lo no movido sigue en pedidos y se reintenta en el próximo ciclo
+            erroresArchivo.increment();
+            log.error("Error al archivar pedidos: {}", e.getMessage());
+        }
+    }
+
+    //Archivar los pedidos terminales modificados antes del límite; devuelve cuántos se movieron
+    public long archivarAnterioresA(LocalDateTime limite) {
+        Timestamp corte = Timestamp.valueOf(limite);
+        long total = 0;
+        for (String fragmento : fragmentos.fragmentos()) {
+            //El JdbcTemplate y las transacciones toman la conexión del fragmento fijado
+            try (FragmentosPedidos.Ambito ambito = fragmentos.usar(fragmento)) {
+                total += archivarEnFragmento(fragmento, corte);
+            }
+        }
+
+        if (total > 0) {
+            log.info("Archivador: {} pedidos terminales movidos a pedidos_historico", total);
+        }
+        return total;
+    }
+
+    private long archivarEnFragmento(String fragmento, Timestamp corte) {
+        long total = 0;
+        int movidos;
+        do {
+            movidos = transactionTemplate.execute(status -> moverLote(corte));
+            total += movidos;
+            pedidosArchivados.increment(movidos);
+            if (movidos == tamanioLote) {
+                pausar();
+            }
+        } while (movidos == tamanioLote);
+        return total;
+    }
+
+    //Mover un lote y avisar a los componentes en memoria (se entrega al confirmar la transacción)
+    private int moverLote(Timestamp corte) {
+        Map<UUID, LocalDate> lote = new LinkedHashMap<>();
+        jdbcTemplate.query(SQL_TOMAR_LOTE, rs -> {
+            lote.put(rs.getObject("id", UUID.class), rs.getObject("mes", LocalDate.class));
+        }, corte, tamanioLote);
+        if (lote.isEmpty()) {
+            return 0;
+        }
+
+        //Particiones de los meses de justo estas filas, en la misma transacción, así ninguna falta al insertar.
+        //Si ya existe no bloquea nada; crearla bloquea pedidos_historico hasta el commit (una vez al mes)
+        new TreeSet<>(lote.values()).forEach(mes -> jdbcTemplate.execute(sqlCrearParticion(mes)));
+
+        List<PedidoResponse> movidos = jdbcTemplate.query(conexion -> {
+            PreparedStatement sentencia = conexion.prepareStatement(SQL_MOVER_LOTE);
+            sentencia.setArray(1, conexion.createArrayOf("uuid", lote.keySet().toArray()));
+            return sentencia;
+        }, (rs, fila) -> PedidoResponse.builder()
+                .id(rs.getObject("id", UUID.class))
+                .numeroPedido(rs.getString("numero_pedido"))
+                .estado(EstadoPedido.valueOf(rs.getString("estado")))
+                .prioridad(PrioridadPedido.valueOf(rs.getString("prioridad")))
+                .tipoEntrega(TipoEntrega.valueOf(rs.getString("tipo_entrega")))
+                .zonaId(rs.getString("zona_id"))
+                .activo(rs.getBoolean("activo"))
+                .build());
+        movidos.forEach(pedido -> eventPublisher.publishEvent(
+                new PedidoCambiadoEvent(TipoCambio.ARCHIVADO, pedido, pedido)));
+        return movidos.size();
+    }
+
+    //DDL idempotente de la partición mensual de pedidos_historico (también la usa el rebalanceo de fragmentos)
+    public static String sqlCrearParticion(LocalDate mes) {
+        return "CREATE TABLE IF NOT EXISTS pedidos_historico_" + mes.format(FORMATO_PARTICION)
+                + " PARTITION OF pedidos_historico FOR VALUES FROM ('" + mes + "') TO ('" + mes.plusMonths(1) + "')";
+    }
+
+    //Pausa breve entre lotes para ceder I/O y bloqueos a la carga transaccional
+    private void pausar() {
+        if (pausaEntreLotesMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pausaEntreLotesMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
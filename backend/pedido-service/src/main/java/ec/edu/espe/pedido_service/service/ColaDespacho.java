@@ -0,0 +1,239 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.exception.ConflictoPedidoException;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.util.HeapIndexado;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cola de despacho en memoria: por zona, los pedidos RECIBIDO sin repartidor en un montículo
+ * indexado, primero por prioridad (URGENTE primero), luego por fecha estimada de entrega y por
+ * antigüedad. Se reconstruye desde la base de datos al iniciar y se mantiene al día con los
+ * eventos {@link PedidoCambiadoEvent} confirmados (un cambio de prioridad o de fecha reubica el
+ * pedido en O(log n)).
+ * Reclamar extrae la cima bajo el candado de la zona y la pasa a EN_PREPARACION con la transición
+ * condicional de PedidoService: si otra instancia o un cambio aún no notificado ya la movió, el
+ * UPDATE no aplica y se descarta para intentar con la siguiente, así dos despachadores nunca
+ * reciben el mismo pedido.
+ */
+@Component
+@Slf4j
+public class ColaDespacho {
+
+    private static final Comparator<Entrada> ORDEN = Comparator
+            .comparing(Entrada::prioridad, Comparator.reverseOrder())
+            .thenComparing(Entrada::fechaEstimadaEntrega, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entrada::fechaCreacion, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entrada::id);
+
+    private final PedidoService pedidoService;
+    private final Timer tiempoReconstruccion;
+    private final Counter reclamados;
+    private final Counter descartados;
+
+    //Zona -> pedidos pendientes de despacho; cada montículo se usa bajo su propio candado
+    private final Map<String, HeapIndexado<UUID, Entrada>> colas = new ConcurrentHashMap<>();
+
+    //Id -> zona en cuya cola está el pedido (para moverlo si cambia de zona)
+    private final Map<UUID, String> zonas = new ConcurrentHashMap<>();
+
+    public ColaDespacho(PedidoService pedidoService, MeterRegistry meterRegistry) {
+        this.pedidoService = pedidoService;
+        this.tiempoReconstruccion = Timer.builder("pedidos.despacho.reconstruccion")
+                .description("Tiempo de reconstrucción de la cola de despacho desde la base de datos")
+                .register(meterRegistry);
+        this.reclamados = Counter.builder("pedidos.despacho.reclamados")
+                .description("Pedidos entregados a un despachador desde la cola")
+                .register(meterRegistry);
+        this.descartados = Counter.builder("pedidos.despacho.descartados")
+                .description("Entradas de la cola descartadas al reclamar porque el pedido ya no estaba pendiente")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.despacho.pendientes", zonas, Map::size)
+                .description("Pedidos pendientes de despacho en todas las zonas")
+                .register(meterRegistry);
+    }
+
+    //Datos mínimos para ordenar la cola
+    private record Entrada(UUID id, PrioridadPedido prioridad, LocalDateTime fechaEstimadaEntrega,
+                           LocalDateTime fechaCreacion) {
+    }
+
+    //Reconstruir todas las colas al iniciar la aplicación
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        tiempoReconstruccion.record(() -> {
+            zonas.clear();
+            colas.values().forEach(cola -> {
+                synchronized (cola) {
+                    cola.vaciar();
+                }
+            });
+            pedidoService.recorrerPedidosActivos(this::encolar);
+        });
+        log.info("Cola de despacho reconstruida: {} pedidos pendientes en {} zonas", zonas.size(), colas.size());
+    }
+
+    //Mantener la cola al día con los cambios confirmados en PedidoService
+    @TransactionalEventListener
+    public void alCambiarPedido(PedidoCambiadoEvent evento) {
+        if (evento.tipo() == TipoCambio.ARCHIVADO || evento.tipo() == TipoCambio.ELIMINADO) {
+            retirar(evento.actual().getId());
+            return;
+        }
+        encolar(evento.actual());
+    }
+
+    //Insertar, reubicar o retirar un pedido según su estado actual
+    public void encolar(PedidoResponse pedido) {
+        if (!esDespachable(pedido)) {
+            retirar(pedido.getId());
+            return;
+        }
+        Entrada entrada = new Entrada(pedido.getId(), pedido.getPrioridad(), pedido.getFechaEstimadaEntrega(),
+                pedido.getFechaCreacion());
+        //compute serializa los cambios del mismo pedido; el candado de la cola protege el montículo
+        zonas.compute(pedido.getId(), (id, zonaAnterior) -> {
+            if (zonaAnterior != null && !zonaAnterior.equals(pedido.getZonaId())) {
+                HeapIndexado<UUID, Entrada> anterior = cola(zonaAnterior);
+                synchronized (anterior) {
+                    anterior.retirar(id);
+                }
+            }
+            HeapIndexado<UUID, Entrada> cola = cola(pedido.getZonaId());
+            synchronized (cola) {
+                cola.encolar(entrada);
+            }
+            return pedido.getZonaId();
+        });
+    }
+
+    public void retirar(UUID pedidoId) {
+        zonas.computeIfPresent(pedidoId, (id, zona) -> {
+            HeapIndexado<UUID, Entrada> cola = cola(zona);
+            synchronized (cola) {
+                cola.retirar(id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reclamar el siguiente pedido de la zona: queda EN_PREPARACION y fuera de la cola.
+     *
+     * @return el pedido reclamado, o vacío si la zona no tiene pedidos pendientes
+     */
+    public Optional<PedidoResponse> reclamarSiguiente(String zonaId) {
+        if (zonaId == null || zonaId.isBlank()) {
+            throw new IllegalArgumentException("La zona es obligatoria");
+        }
+        HeapIndexado<UUID, Entrada> cola = colas.get(zonaId);
+        if (cola == null) {
+            return Optional.empty();
+        }
+
+        while (true) {
+            Entrada cima = extraerCima(cola, zonaId);
+            if (cima == null) {
+                return Optional.empty();
+            }
+
+            try {
+                PedidoResponse reclamado = pedidoService.cambiarEstado(cima.id(), EstadoPedido.EN_PREPARACION);
+                reclamados.increment();
+                return Optional.of(reclamado);
+            } catch (ConflictoPedidoException | IllegalArgumentException e) {
+                //Ya no estaba RECIBIDO (o fue eliminado): la entrada era obsoleta
+                descartados.increment();
+                log.debug("Entrada obsoleta descartada de la cola de despacho {}: {}", zonaId, e.getMessage());
+            } catch (RuntimeException e) {
+                //Fallo de la base: el pedido sigue pendiente y vuelve a su lugar (salvo que un evento ya lo reubicara)
+                zonas.compute(cima.id(), (id, zona) -> {
+                    if (zona != null) {
+                        return zona;
+                    }
+                    synchronized (cola) {
+                        cola.encolar(cima);
+                    }
+                    return zonaId;
+                });
+                throw e;
+            }
+        }
+    }
+
+    //Sacar la cima de la cola y su registro en zonas en un mismo paso: se mira la cima bajo el
+    //candado de la cola y se retira dentro del compute de zonas (mismo orden de candados que encolar),
+    //así un encolar concurrente del mismo pedido no deja una entrada en el montículo sin registrar
+    private Entrada extraerCima(HeapIndexado<UUID, Entrada> cola, String zonaId) {
+        while (true) {
+            Entrada candidata;
+            synchronized (cola) {
+                candidata = cola.cima();
+            }
+            if (candidata == null) {
+                return null;
+            }
+            Entrada[] extraida = new Entrada[1];
+            zonas.compute(candidata.id(), (id, zona) -> {
+                if (zona != null && !zona.equals(zonaId)) {
+                    //Se movió de zona: encolar ya la retiró de esta cola
+                    return zona;
+                }
+                synchronized (cola) {
+                    Entrada actual = cola.retirar(id);
+                    extraida[0] = zona != null ? actual : null;
+                }
+                return null;
+            });
+            if (extraida[0] != null) {
+                return extraida[0];
+            }
+        }
+    }
+
+    //Pedidos pendientes de despacho en la zona
+    public int tamanio(String zonaId) {
+        HeapIndexado<UUID, Entrada> cola = colas.get(zonaId);
+        if (cola == null) {
+            return 0;
+        }
+        synchronized (cola) {
+            return cola.tamanio();
+        }
+    }
+
+    public int tamanio() {
+        return zonas.size();
+    }
+
+    private HeapIndexado<UUID, Entrada> cola(String zonaId) {
+        return colas.computeIfAbsent(zonaId, zona -> new HeapIndexado<>(ORDEN, Entrada::id));
+    }
+
+    //Sólo esperan despacho los pedidos activos recibidos y aún sin repartidor
+    private static boolean esDespachable(PedidoResponse pedido) {
+        return Boolean.TRUE.equals(pedido.getActivo())
+                && pedido.getEstado() == EstadoPedido.RECIBIDO
+                && pedido.getRepartidorId() == null
+                && pedido.getZonaId() != null;
+    }
+}
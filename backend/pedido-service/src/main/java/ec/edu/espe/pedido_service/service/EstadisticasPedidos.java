@@ -0,0 +1,213 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.ConteoPedidos;
+import ec.edu.espe.pedido_service.dto.EstadisticasPedidosResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Contadores en memoria de pedidos activos por estado, zona, tipo de entrega y prioridad.
+ * Se cargan con una única consulta agregada al iniciar, se mantienen con los
+ * {@link PedidoCambiadoEvent} confirmados (restando el estado anterior y sumando el actual)
+ * y se reconcilian periódicamente contra la base de datos, registrando la desviación encontrada.
+ */
+@Component
+@Slf4j
+public class EstadisticasPedidos {
+
+    private final PedidoService pedidoService;
+    private final Timer tiempoReconciliacion;
+
+    private final Dimension<EstadoPedido> porEstado = new Dimension<>(PedidoResponse::getEstado);
+    private final Dimension<String> porZona = new Dimension<>(PedidoResponse::getZonaId);
+    private final Dimension<TipoEntrega> porTipoEntrega = new Dimension<>(PedidoResponse::getTipoEntrega);
+    private final Dimension<PrioridadPedido> porPrioridad = new Dimension<>(PedidoResponse::getPrioridad);
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong desviacion = new AtomicLong();
+    private volatile LocalDateTime ultimaReconciliacion;
+
+    public EstadisticasPedidos(PedidoService pedidoService, MeterRegistry meterRegistry) {
+        this.pedidoService = pedidoService;
+        this.tiempoReconciliacion = Timer.builder("pedidos.estadisticas.reconciliacion")
+                .description("Tiempo de la consulta agregada de reconciliación de estadísticas")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.estadisticas.desviacion", desviacion, AtomicLong::get)
+                .description("Diferencia absoluta entre contadores en memoria y base en la última reconciliación")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.estadisticas.total", total, AtomicLong::get)
+                .description("Pedidos activos según los contadores en memoria")
+                .register(meterRegistry);
+    }
+
+    //Contadores de una dimensión; las claves sin pedidos se omiten en la respuesta
+    private static final class Dimension<K> {
+        private final Function<PedidoResponse, K> clave;
+        private final Map<K, AtomicLong> contadores = new ConcurrentHashMap<>();
+
+        private Dimension(Function<PedidoResponse, K> clave) {
+            this.clave = clave;
+        }
+
+        private void sumar(K valor, long delta) {
+            if (valor != null) {
+                contadores.computeIfAbsent(valor, k -> new AtomicLong()).addAndGet(delta);
+            }
+        }
+
+        private void sumar(PedidoResponse pedido, long delta) {
+            sumar(clave.apply(pedido), delta);
+        }
+
+        //Ajusta cada contador al valor de la base y devuelve la desviación absoluta encontrada
+        private long reconciliar(Map<K, Long> esperado) {
+            long diferencia = 0;
+            for (K valor : union(esperado)) {
+                long enMemoria = obtener(valor);
+                long delta = esperado.getOrDefault(valor, 0L) - enMemoria;
+                if (delta != 0) {
+                    diferencia += Math.abs(delta);
+                    sumar(valor, delta);
+                }
+            }
+            return diferencia;
+        }
+
+        private List<K> union(Map<K, Long> esperado) {
+            List<K> claves = new ArrayList<>(contadores.keySet());
+            esperado.keySet().stream().filter(k -> !contadores.containsKey(k)).forEach(claves::add);
+            return claves;
+        }
+
+        private long obtener(K valor) {
+            AtomicLong contador = contadores.get(valor);
+            return contador == null ? 0 : contador.get();
+        }
+
+        private <M extends Map<K, Long>> M copiar(M destino) {
+            contadores.forEach((valor, contador) -> {
+                long cantidad = contador.get();
+                if (cantidad != 0) {
+                    destino.put(valor, cantidad);
+                }
+            });
+            return destino;
+        }
+    }
+
+    //Carga inicial desde la consulta agregada
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        //La carga inicial parte de contadores vacíos: lo cargado no es desviación
+        long diferencia = sincronizar();
+        desviacion.set(0);
+        ultimaReconciliacion = LocalDateTime.now();
+        log.info("Estadísticas de pedidos inicializadas: {} pedidos activos (ajuste {})", total.get(), diferencia);
+    }
+
+    //Aplicar cada cambio confirmado: el estado anterior deja de contar y el actual pasa a contar
+    @TransactionalEventListener
+    public void alCambiarPedido(PedidoCambiadoEvent evento) {
+        aplicar(evento.anterior(), -1);
+        if (evento.tipo() != TipoCambio.ARCHIVADO) {
+            aplicar(evento.actual(), 1);
+        }
+    }
+
+    //Comparar con la base, corregir los contadores y reportar la desviación
+    @Scheduled(fixedDelayString = "${pedidos.estadisticas.reconciliacion-ms:300000}",
+               initialDelayString = "${pedidos.estadisticas.reconciliacion-ms:300000}")
+    public void reconciliacionPeriodica() {
+        try {
+            long diferencia = reconciliar();
+            if (diferencia > 0) {
+                //Puede incluir cambios confirmados durante la consulta cuyo evento aún no se aplicaba
+                log.warn("Estadísticas de pedidos: desviación de {} respecto a la base de datos, contadores corregidos",
+                        diferencia);
+            }
+        } catch (Exception e) {
+            log.error("Error al reconciliar estadísticas de pedidos: {}", e.getMessage());
+        }
+    }
+
+    //Vista actual de los contadores (no consulta la base de datos)
+    public EstadisticasPedidosResponse obtener() {
+        return EstadisticasPedidosResponse.builder()
+                .total(total.get())
+                .porEstado(porEstado.copiar(new EnumMap<>(EstadoPedido.class)))
+                .porZona(porZona.copiar(new LinkedHashMap<>()))
+                .porTipoEntrega(porTipoEntrega.copiar(new EnumMap<>(TipoEntrega.class)))
+                .porPrioridad(porPrioridad.copiar(new EnumMap<>(PrioridadPedido.class)))
+                .ultimaReconciliacion(ultimaReconciliacion)
+                .desviacionUltimaReconciliacion(desviacion.get())
+                .build();
+    }
+
+    long reconciliar() {
+        long diferencia = sincronizar();
+        desviacion.set(diferencia);
+        ultimaReconciliacion = LocalDateTime.now();
+        return diferencia;
+    }
+
+    //Llevar los contadores a los conteos de la base y devolver cuánto se corrigió
+    private long sincronizar() {
+        List<ConteoPedidos> conteos = tiempoReconciliacion.record(pedidoService::contarPedidosActivos);
+
+        Map<EstadoPedido, Long> estados = new EnumMap<>(EstadoPedido.class);
+        Map<String, Long> zonas = new HashMap<>();
+        Map<TipoEntrega, Long> tipos = new EnumMap<>(TipoEntrega.class);
+        Map<PrioridadPedido, Long> prioridades = new EnumMap<>(PrioridadPedido.class);
+        long esperadoTotal = 0;
+        for (ConteoPedidos conteo : conteos) {
+            estados.merge(conteo.estado(), conteo.cantidad(), Long::sum);
+            zonas.merge(conteo.zonaId(), conteo.cantidad(), Long::sum);
+            tipos.merge(conteo.tipoEntrega(), conteo.cantidad(), Long::sum);
+            prioridades.merge(conteo.prioridad(), conteo.cantidad(), Long::sum);
+            esperadoTotal += conteo.cantidad();
+        }
+
+        long totalEnMemoria = total.get();
+        total.addAndGet(esperadoTotal - totalEnMemoria);
+        return Math.abs(esperadoTotal - totalEnMemoria)
+                + porEstado.reconciliar(estados)
+                + porZona.reconciliar(zonas)
+                + porTipoEntrega.reconciliar(tipos)
+                + porPrioridad.reconciliar(prioridades);
+    }
+
+    private void aplicar(PedidoResponse pedido, long delta) {
+        if (pedido == null || !Boolean.TRUE.equals(pedido.getActivo())) {
+            return;
+        }
+        total.addAndGet(delta);
+        porEstado.sumar(pedido, delta);
+        porZona.sumar(pedido, delta);
+        porTipoEntrega.sumar(pedido, delta);
+        porPrioridad.sumar(pedido, delta);
+    }
+}
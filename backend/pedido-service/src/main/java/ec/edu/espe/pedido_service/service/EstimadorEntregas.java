@@ -0,0 +1,260 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.dto.EstimacionEntregaResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import ec.edu.espe.pedido_service.util.SketchCuantiles;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimación de la fecha de entrega a partir del historial: mantiene un {@link SketchCuantiles}
+ * de la duración fechaCreacion → fechaEntregaReal por (zona, tipo de entrega, prioridad) y otro por
+ * (tipo de entrega, prioridad) para todas las zonas, actualizados con cada pedido que llega a ENTREGADO.
+ * Los incrementos se suman periódicamente a duraciones_entrega y se vuelve a leer el total, que así
+ * incluye lo registrado por las demás instancias; al iniciar se carga desde esa tabla.
+ * Estimar es tiempo y memoria constantes: una búsqueda en el mapa y un recorrido de cubetas.
+ */
+@Component
+@Slf4j
+public class EstimadorEntregas {
+
+    static final String TODAS_LAS_ZONAS = "*";
+
+    private static final String SQL_SUMAR = """
+            INSERT INTO duraciones_entrega (zona_id, tipo_entrega, prioridad, cubeta, cantidad)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (zona_id, tipo_entrega, prioridad, cubeta)
+            DO UPDATE SET cantidad = duraciones_entrega.cantidad + EXCLUDED.cantidad""";
+
+    private static final String SQL_CARGAR =
+            "SELECT zona_id, tipo_entrega, prioridad, cubeta, cantidad FROM duraciones_entrega";
+
+    private final FragmentosPedidos fragmentos;
+    private final long muestrasMinimas;
+    private final double percentil;
+    private final double percentilMinimo;
+
+    private final Map<Clave, Historial> historiales = new ConcurrentHashMap<>();
+
+    private final Counter estimadas;
+    private final Counter corregidas;
+
+    private record Clave(String zonaId, TipoEntrega tipoEntrega, PrioridadPedido prioridad) {
+    }
+
+    //Total conocido (para estimar) e incrementos aún no sumados a la base
+    private static final class Historial {
+        private final SketchCuantiles total = new SketchCuantiles();
+        private final SketchCuantiles pendiente = new SketchCuantiles();
+    }
+
+    public EstimadorEntregas(FragmentosPedidos fragmentos,
+                             MeterRegistry meterRegistry,
+                             @Value("${pedidos.eta.muestras-minimas:30}") long muestrasMinimas,
+                             @Value("${pedidos.eta.percentil:0.9}") double percentil,
+                             @Value("${pedidos.eta.percentil-minimo:0.05}") double percentilMinimo) {
+        this.fragmentos = fragmentos;
+        this.muestrasMinimas = muestrasMinimas;
+        this.percentil = percentil;
+        this.percentilMinimo = percentilMinimo;
+
+        this.estimadas = Counter.builder("pedidos.eta.estimadas")
+                .description("Pedidos creados sin fecha estimada a los que se asignó la del historial")
+                .register(meterRegistry);
+        this.corregidas = Counter.builder("pedidos.eta.corregidas")
+                .description("Fechas estimadas solicitadas más optimistas que el historial, llevadas al mínimo plausible")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.eta.combinaciones", historiales, Map::size)
+                .description("Combinaciones de zona, tipo de entrega y prioridad con historial en memoria")
+                .register(meterRegistry);
+    }
+
+    //Carga inicial desde duraciones_entrega
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        cargar();
+        log.info("Estimador de entregas inicializado: {} combinaciones con historial", historiales.size());
+    }
+
+    //Registrar la duración de cada pedido que pasa a ENTREGADO (una vez por pedido)
+    @TransactionalEventListener
+    public void alCambiarPedido(PedidoCambiadoEvent evento) {
+        PedidoResponse actual = evento.actual();
+        PedidoResponse anterior = evento.anterior();
+        if (actual == null || actual.getEstado() != EstadoPedido.ENTREGADO
+                || anterior != null && anterior.getEstado() == EstadoPedido.ENTREGADO
+                || actual.getFechaCreacion() == null || actual.getFechaEntregaReal() == null) {
+            return;
+        }
+        registrar(actual.getZonaId(), actual.getTipoEntrega(), actual.getPrioridad(),
+                Duration.between(actual.getFechaCreacion(), actual.getFechaEntregaReal()));
+    }
+
+    public void registrar(String zonaId, TipoEntrega tipoEntrega, PrioridadPedido prioridad, Duration duracion) {
+        if (tipoEntrega == null || prioridad == null || duracion.isNegative()) {
+            return;
+        }
+        long segundos = duracion.toSeconds();
+        if (zonaId != null) {
+            agregar(new Clave(zonaId, tipoEntrega, prioridad), segundos);
+        }
+        agregar(new Clave(TODAS_LAS_ZONAS, tipoEntrega, prioridad), segundos);
+    }
+
+    private void agregar(Clave clave, long segundos) {
+        Historial historial = historiales.computeIfAbsent(clave, c -> new Historial());
+        historial.total.agregar(segundos);
+        historial.pendiente.agregar(segundos);
+    }
+
+    /**
+     * Fecha estimada de un pedido creado en el instante indicado. Sin fecha solicitada se usa el
+     * percentil configurado del historial; con una fecha anterior al percentil mínimo (más rápida que
+     * casi todas las entregas observadas) se lleva a ese mínimo. Sin historial suficiente se deja
+     * la fecha solicitada tal cual.
+     */
+    public LocalDateTime estimar(String zonaId, TipoEntrega tipoEntrega, PrioridadPedido prioridad,
+                                 LocalDateTime desde, LocalDateTime solicitada) {
+        SketchCuantiles historial = historialSuficiente(zonaId, tipoEntrega, prioridad);
+        if (historial == null) {
+            return solicitada;
+        }
+        if (solicitada == null) {
+            estimadas.increment();
+            return desde.plusSeconds(historial.cuantil(percentil));
+        }
+        LocalDateTime minima = desde.plusSeconds(historial.cuantil(percentilMinimo));
+        if (solicitada.isBefore(minima)) {
+            corregidas.increment();
+            return minima;
+        }
+        return solicitada;
+    }
+
+    public Optional<EstimacionEntregaResponse> obtenerEstimacion(String zonaId, TipoEntrega tipoEntrega,
+                                                                 PrioridadPedido prioridad) {
+        Historial deZona = zonaId != null ? historiales.get(new Clave(zonaId, tipoEntrega, prioridad)) : null;
+        boolean usaZona = deZona != null && deZona.total.cantidad() >= muestrasMinimas;
+        SketchCuantiles historial = historialSuficiente(zonaId, tipoEntrega, prioridad);
+        if (historial == null) {
+            return Optional.empty();
+        }
+        return Optional.of(EstimacionEntregaResponse.builder()
+                .zonaId(zonaId)
+                .tipoEntrega(tipoEntrega)
+                .prioridad(prioridad)
+                .alcance(usaZona ? "ZONA" : "GLOBAL")
+                .muestras(historial.cantidad())
+                .p50Minutos(historial.cuantil(0.5) / 60)
+                .p90Minutos(historial.cuantil(0.9) / 60)
+                .p95Minutos(historial.cuantil(0.95) / 60)
+                .build());
+    }
+
+    //Historial de la zona si tiene muestras suficientes; si no, el de todas las zonas
+    private SketchCuantiles historialSuficiente(String zonaId, TipoEntrega tipoEntrega, PrioridadPedido prioridad) {
+        if (tipoEntrega == null || prioridad == null) {
+            return null;
+        }
+        for (String zona : new String[]{zonaId, TODAS_LAS_ZONAS}) {
+            Historial historial = zona != null ? historiales.get(new Clave(zona, tipoEntrega, prioridad)) : null;
+            if (historial != null && historial.total.cantidad() >= muestrasMinimas) {
+                return historial.total;
+            }
+        }
+        return null;
+    }
+
+    //Sumar los incrementos a la base en una transacción y recargar el total combinado de todas las instancias
+    @Scheduled(fixedDelayString = "${pedidos.eta.persistencia-ms:60000}",
+               initialDelayString = "${pedidos.eta.persistencia-ms:60000}")
+    public void persistir() {
+        Map<Clave, long[]> enviados = new HashMap<>();
+        List<Object[]> filas = new ArrayList<>();
+        historiales.forEach((clave, historial) -> {
+            long[] incrementos = historial.pendiente.extraer();
+            if (incrementos == null) {
+                return;
+            }
+            enviados.put(clave, incrementos);
+            for (int cubeta = 0; cubeta < incrementos.length; cubeta++) {
+                if (incrementos[cubeta] > 0) {
+                    filas.add(new Object[]{clave.zonaId(), clave.tipoEntrega().name(), clave.prioridad().name(),
+                            cubeta, incrementos[cubeta]});
+                }
+            }
+        });
+
+        if (!filas.isEmpty()) {
+            try {
+                DataSource dataSource = dataSource();
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(
+                        status -> new JdbcTemplate(dataSource).batchUpdate(SQL_SUMAR, filas));
+            } catch (RuntimeException e) {
+                //La transacción no se confirmó: los incrementos vuelven a quedar pendientes para el próximo ciclo
+                enviados.forEach((clave, incrementos) -> historiales.get(clave).pendiente.sumar(incrementos));
+                log.error("Error al persistir el historial de entregas: {}", e.getMessage());
+                return;
+            }
+        }
+
+        //Fuera del bloque anterior: los incrementos ya están confirmados y no deben devolverse a pendiente
+        try {
+            cargar();
+        } catch (RuntimeException e) {
+            log.error("Error al recargar el historial de entregas: {}", e.getMessage());
+        }
+    }
+
+    //Total de la base más lo que esta instancia registró y aún no sumó
+    private void cargar() {
+        Map<Clave, long[]> enBase = new HashMap<>();
+        new JdbcTemplate(dataSource()).query(SQL_CARGAR, rs -> {
+            Clave clave = new Clave(rs.getString("zona_id"), TipoEntrega.valueOf(rs.getString("tipo_entrega")),
+                    PrioridadPedido.valueOf(rs.getString("prioridad")));
+            int cubeta = rs.getInt("cubeta");
+            if (cubeta < SketchCuantiles.CUBETAS) {
+                enBase.computeIfAbsent(clave, c -> new long[SketchCuantiles.CUBETAS])[cubeta] = rs.getLong("cantidad");
+            }
+        });
+        enBase.forEach((clave, conteos) -> {
+            Historial historial = historiales.computeIfAbsent(clave, c -> new Historial());
+            long[] pendientes = historial.pendiente.conteos();
+            for (int i = 0; i < conteos.length; i++) {
+                conteos[i] += pendientes[i];
+            }
+            historial.total.reemplazar(conteos);
+        });
+    }
+
+    //El historial vive en el fragmento inicial, como la numeración
+    private DataSource dataSource() {
+        return fragmentos.dataSource(fragmentos.inicial());
+    }
+}
@@ -0,0 +1,335 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.config.PoolsExportacion;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.util.EscritorCsv;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación del historial completo de pedidos (pedidos y pedidos_historico) como CSV comprimido con gzip.
+ * Cada fragmento se lee con un cursor del servidor (autocommit desactivado + fetchSize), de modo que la
+ * memoria usada no depende de la cantidad de filas; con varios fragmentos los cursores se mezclan en orden
+ * (fecha_creacion, id). Ese orden permite reanudar una exportación cortada desde el último pedido recibido.
+ * Cada bloque de filas se vacía con SYNC_FLUSH: lo recibido antes de un corte se puede descomprimir.
+ * Como cada exportación retiene una conexión por fragmento hasta terminar la descarga, los cursores
+ * se abren en {@link PoolsExportacion} y sólo puede haber pedidos.exportacion.concurrentes en curso:
+ * quien no obtiene turno recibe 429 y reintenta más tarde.
+ */
+@Component
+@Slf4j
+public class ExportadorPedidos {
+
+    //Columnas exportadas; archivado indica si la fila viene de pedidos_historico
+    static final String[] ENCABEZADO = {
+            "id", "numero_pedido", "cliente_id", "cliente_nombre", "repartidor_id", "repartidor_nombre",
+            "tipo_entrega", "estado", "prioridad", "direccion_origen", "latitud_origen", "longitud_origen",
+            "direccion_destino", "latitud_destino", "longitud_destino", "zona_id", "descripcion_paquete",
+            "peso_kg", "dimensiones", "tarifa_base", "tarifa_total", "fecha_estimada_entrega",
+            "fecha_entrega_real", "observaciones", "fecha_creacion", "fecha_actualizacion", "archivado"};
+
+    private static final String COLUMNAS = String.join(", ", List.of(ENCABEZADO).subList(0, ENCABEZADO.length - 1));
+
+    //Se loguea el avance cada tantas filas
+    private static final long FILAS_POR_AVANCE = 1_000_000;
+
+    private static final Comparator<Cursor> ORDEN = Comparator
+            .comparing((Cursor cursor) -> cursor.fechaCreacion)
+            //PostgreSQL ordena los UUID por bytes sin signo: igual que su texto en hexadecimal
+            .thenComparing(cursor -> cursor.id);
+
+    private final FragmentosPedidos fragmentos;
+    private final PoolsExportacion pools;
+    private final Semaphore turnos;
+    private final int tamanioFetch;
+    private final int filasPorBloque;
+
+    private final Counter filasExportadas;
+    private final Counter rechazadas;
+    private final Timer duracion;
+
+    /**
+     * Filtro ya validado de una exportación; despuesDeFecha/despuesDeId son la clave del último
+     * pedido recibido cuando se reanuda (null en una exportación nueva).
+     */
+    public record Filtro(LocalDateTime desde, LocalDateTime hasta, EstadoPedido estado,
+                         LocalDateTime despuesDeFecha, UUID despuesDeId) {
+    }
+
+    //Turno de una exportación en curso: se libera una sola vez al cerrarse
+    public static final class Turno implements AutoCloseable {
+        private final Semaphore turnos;
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        private Turno(Semaphore turnos) {
+            this.turnos = turnos;
+        }
+
+        @Override
+        public void close() {
+            if (liberado.compareAndSet(false, true)) {
+                turnos.release();
+            }
+        }
+    }
+
+    public record Resumen(long filas, Duration duracion) {
+        public double filasPorSegundo() {
+            return duracion.isZero() ? filas : filas * 1_000_000_000d / duracion.toNanos();
+        }
+    }
+
+    public ExportadorPedidos(FragmentosPedidos fragmentos,
+                             PoolsExportacion pools,
+                             MeterRegistry meterRegistry,
+                             @Value("${pedidos.exportacion.tamanio-fetch:1000}") int tamanioFetch,
+                             @Value("${pedidos.exportacion.filas-por-bloque:10000}") int filasPorBloque,
+                             @Value("${pedidos.exportacion.concurrentes:2}") int concurrentes) {
+        this.fragmentos = fragmentos;
+        this.pools = pools;
+        this.turnos = new Semaphore(concurrentes);
+        this.tamanioFetch = tamanioFetch;
+        this.filasPorBloque = filasPorBloque;
+
+        this.filasExportadas = Counter.builder("pedidos.exportacion.filas")
+                .description("Filas escritas en exportaciones CSV (su tasa son las filas por segundo)")
+                .register(meterRegistry);
+        this.rechazadas = Counter.builder("pedidos.exportacion.rechazadas")
+                .description("Exportaciones rechazadas con 429 por haber ya el máximo en curso")
+                .register(meterRegistry);
+        this.duracion = Timer.builder("pedidos.exportacion.duracion")
+                .description("Duración de una exportación CSV completa")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.exportacion.en-curso", turnos, disponibles -> concurrentes - disponibles.availablePermits())
+                .description("Exportaciones CSV en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserva el turno de una exportación; se cierra al terminar la descarga (o si no llega a empezar).
+     *
+     * @return el turno, o null si ya hay pedidos.exportacion.concurrentes exportaciones en curso
+     */
+    public Turno reservarTurno() {
+        if (!turnos.tryAcquire()) {
+            rechazadas.increment();
+            return null;
+        }
+        return new Turno(turnos);
+    }
+
+    /**
+     * Valida los parámetros antes de empezar a responder (luego ya no se puede devolver un error).
+     *
+     * @param despuesDe id del último pedido recibido de una exportación cortada (null si es nueva)
+     */
+    public Filtro preparar(LocalDateTime desde, LocalDateTime hasta, EstadoPedido estado, UUID despuesDe) {
+        if (desde != null && hasta != null && !desde.isBefore(hasta)) {
+            throw new IllegalArgumentException("desde debe ser anterior a hasta");
+        }
+        if (despuesDe == null) {
+            return new Filtro(desde, hasta, estado, null, null);
+        }
+        //El pedido puede haberse archivado o estar en cualquier fragmento desde que se exportó
+        List<LocalDateTime> fechas = fragmentos.reunir(fragmento ->
+                new JdbcTemplate(fragmentos.dataSource(fragmento)).queryForList("""
+                        SELECT fecha_creacion FROM pedidos WHERE id = ?
+                        UNION ALL
+                        SELECT fecha_creacion FROM pedidos_historico WHERE id = ?""",
+                        LocalDateTime.class, despuesDe, despuesDe));
+        if (fechas.isEmpty()) {
+            throw new IllegalArgumentException("Pedido no encontrado para reanudar la exportación: " + despuesDe);
+        }
+        return new Filtro(desde, hasta, estado, fechas.getFirst(), despuesDe);
+    }
+
+    //Escribe el CSV comprimido completo en la salida; no la cierra
+    public Resumen exportar(Filtro filtro, OutputStream salida) {
+        long inicio = System.nanoTime();
+        List<Cursor> cursores = new ArrayList<>();
+        long filas = 0;
+        try {
+            GZIPOutputStream gzip = new GZIPOutputStream(salida, 64 * 1024, true);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+            EscritorCsv csv = new EscritorCsv(writer);
+            csv.fila(ENCABEZADO);
+
+            PriorityQueue<Cursor> pendientes = new PriorityQueue<>(ORDEN);
+            for (String fragmento : fragmentos.fragmentos()) {
+                Cursor cursor = abrir(fragmento, filtro);
+                cursores.add(cursor);
+                if (cursor.avanzar()) {
+                    pendientes.add(cursor);
+                }
+            }
+
+            String ultimoId = null;
+            while (!pendientes.isEmpty()) {
+                Cursor cursor = pendientes.poll();
+                //Durante un rebalanceo un pedido puede estar en dos fragmentos: llega dos veces seguidas
+                if (!cursor.id.equals(ultimoId)) {
+                    escribirFila(csv, cursor.filas);
+                    ultimoId = cursor.id;
+                    filas++;
+                    if (filas % filasPorBloque == 0) {
+                        writer.flush();
+                        filasExportadas.increment(filasPorBloque);
+                    }
+                    if (filas % FILAS_POR_AVANCE == 0) {
+                        log.info("Exportación de pedidos en curso: {} filas ({} filas/s)",
+                                filas, Math.round(new Resumen(filas, Duration.ofNanos(System.nanoTime() - inicio)).filasPorSegundo()));
+                    }
+                }
+                if (cursor.avanzar()) {
+                    pendientes.add(cursor);
+                }
+            }
+
+            writer.flush();
+            gzip.finish();
+            filasExportadas.increment(filas % filasPorBloque);
+        } catch (IOException e) {
+            //El cliente cortó la descarga: la reanuda con el último id recibido
+            log.warn("Exportación de pedidos interrumpida tras {} filas: {}", filas, e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            log.error("Error al leer pedidos para exportar tras {} filas: {}", filas, e.getMessage());
+            throw new IllegalStateException("Error al exportar pedidos", e);
+        } finally {
+            cursores.forEach(Cursor::close);
+        }
+
+        Resumen resumen = new Resumen(filas, Duration.ofNanos(System.nanoTime() - inicio));
+        duracion.record(resumen.duracion());
+        log.info("Exportación de pedidos completada: {} filas en {} ms ({} filas/s)",
+                filas, resumen.duracion().toMillis(), Math.round(resumen.filasPorSegundo()));
+        return resumen;
+    }
+
+    private static void escribirFila(EscritorCsv csv, ResultSet filas) throws SQLException, IOException {
+        //Todas las columnas como texto de PostgreSQL: números sin pérdida y fechas ISO (con espacio)
+        for (int columna = 1; columna <= ENCABEZADO.length; columna++) {
+            csv.campo(filas.getString(columna));
+        }
+        csv.finFila();
+    }
+
+    private Cursor abrir(String fragmento, Filtro filtro) throws SQLException {
+        List<Object> parametros = new ArrayList<>();
+        String condiciones = condiciones(filtro, parametros);
+        String sql = """
+                SELECT %1$s, 'false' AS archivado FROM pedidos WHERE %2$s
+                UNION ALL
+                SELECT %1$s, 'true' FROM pedidos_historico WHERE %2$s
+                ORDER BY fecha_creacion, id""".formatted(COLUMNAS, condiciones);
+
+        Connection conexion = pools.dataSource(fragmento).getConnection();
+        Cursor cursor = new Cursor(conexion);
+        try {
+            //El driver de PostgreSQL sólo usa un cursor del servidor dentro de una transacción
+            conexion.setAutoCommit(false);
+            conexion.setReadOnly(true);
+            cursor.sentencia = conexion.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cursor.sentencia.setFetchSize(tamanioFetch);
+            int indice = 1;
+            //Las condiciones se repiten en las dos ramas del UNION
+            for (int rama = 0; rama < 2; rama++) {
+                for (Object parametro : parametros) {
+                    cursor.sentencia.setObject(indice++, parametro);
+                }
+            }
+            cursor.filas = cursor.sentencia.executeQuery();
+            return cursor;
+        } catch (SQLException | RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    //Sólo pedidos activos, como el resto de las lecturas; el rango de fechas poda las particiones del archivo
+    private static String condiciones(Filtro filtro, List<Object> parametros) {
+        StringBuilder condiciones = new StringBuilder("activo");
+        if (filtro.desde() != null) {
+            condiciones.append(" AND fecha_creacion >= ?");
+            parametros.add(filtro.desde());
+        }
+        if (filtro.hasta() != null) {
+            condiciones.append(" AND fecha_creacion < ?");
+            parametros.add(filtro.hasta());
+        }
+        if (filtro.estado() != null) {
+            condiciones.append(" AND estado = ?");
+            parametros.add(filtro.estado().name());
+        }
+        if (filtro.despuesDeId() != null) {
+            condiciones.append(" AND (fecha_creacion, id) > (?, ?)");
+            parametros.add(filtro.despuesDeFecha());
+            parametros.add(filtro.despuesDeId());
+        }
+        return condiciones.toString();
+    }
+
+    //Cursor abierto sobre un fragmento y la clave de su fila actual
+    private static final class Cursor implements AutoCloseable {
+        private final Connection conexion;
+        private PreparedStatement sentencia;
+        private ResultSet filas;
+        private LocalDateTime fechaCreacion;
+        private String id;
+
+        private Cursor(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        private boolean avanzar() throws SQLException {
+            if (!filas.next()) {
+                return false;
+            }
+            id = filas.getString("id");
+            fechaCreacion = filas.getObject("fecha_creacion", LocalDateTime.class);
+            return true;
+        }
+
+        //Sólo lectura: se deshace la transacción y la conexión vuelve al pool
+        @Override
+        public void close() {
+            try (conexion) {
+                if (sentencia != null) {
+                    sentencia.close();
+                }
+                conexion.rollback();
+            } catch (SQLException e) {
+                log.warn("Error al cerrar el cursor de exportación: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.CambioPedido;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Flujo de cambios de pedidos por Server-Sent Events para consolas de despacho y el gateway.
+ * Cada {@link PedidoCambiadoEvent} confirmado se convierte en un {@link CambioPedido} con número
+ * de secuencia y se guarda en un historial circular acotado, desde el cual un cliente que se
+ * reconecta con Last-Event-ID recibe lo que se perdió. Cada suscriptor tiene una cola acotada
+ * que se drena en un hilo virtual; si un cliente lento la llena se le desconecta, y al
+ * reconectarse retoma desde su último ID mientras siga dentro del historial.
+ */
+@Component
+@Slf4j
+public class FlujoCambiosPedidos {
+
+    //Nombre del evento SSE con cada cambio
+    public static final String EVENTO_CAMBIO = "cambio";
+
+    //Evento que indica al cliente que no se puede reanudar y debe recargar su listado
+    public static final String EVENTO_REINICIO = "reinicio";
+
+    //Los IDs de evento llevan el arranque de la instancia: un ID de otra instancia no es reanudable
+    private final String instancia = Long.toString(System.currentTimeMillis(), 36);
+
+    private final CambioPedido[] historial;
+    private final int capacidadCola;
+    private final int maximoSuscriptores;
+    private final long timeoutMs;
+
+    //Protegido por this junto con el historial: secuencia, historial y registro de suscriptores avanzan juntos
+    private long siguienteSecuencia = 1;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ExecutorService enviadores = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter desconexionesPorLentitud;
+    private final Counter reinicios;
+
+    public FlujoCambiosPedidos(MeterRegistry meterRegistry,
+                               @Value("${pedidos.cambios.capacidad-historial:4096}") int capacidadHistorial,
+                               @Value("${pedidos.cambios.capacidad-cola-cliente:256}") int capacidadCola,
+                               @Value("${pedidos.cambios.maximo-suscriptores:500}") int maximoSuscriptores,
+                               @Value("${pedidos.cambios.timeout-ms:1800000}") long timeoutMs) {
+        this.historial = new CambioPedido[capacidadHistorial];
+        this.capacidadCola = capacidadCola;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.timeoutMs = timeoutMs;
+
+        Gauge.builder("pedidos.cambios.suscriptores", suscriptores, Set::size)
+                .description("Clientes conectados al flujo SSE de cambios de pedidos")
+                .register(meterRegistry);
+        this.desconexionesPorLentitud = Counter.builder("pedidos.cambios.desconexiones")
+                .description("Clientes desconectados por no consumir el flujo a tiempo")
+                .tag("motivo", "lento")
+                .register(meterRegistry);
+        this.reinicios = Counter.builder("pedidos.cambios.reinicios")
+                .description("Reconexiones cuyo Last-Event-ID ya no estaba en el historial")
+                .register(meterRegistry);
+    }
+
+    //Filtros opcionales de una suscripción; un cambio coincide si el pedido entra o sale del filtro
+    public record FiltroCambios(String zonaId, EstadoPedido estado, UUID repartidorId) {
+
+        boolean acepta(CambioPedido cambio) {
+            return (zonaId == null || zonaId.equals(cambio.zonaId()))
+                    && (estado == null || estado == cambio.estado() || estado == cambio.estadoAnterior())
+                    && (repartidorId == null || repartidorId.equals(cambio.repartidorId())
+                        || repartidorId.equals(cambio.repartidorAnteriorId()));
+        }
+    }
+
+    //Registrar cada cambio confirmado; el archivado no es un cambio visible para las consolas
+    @TransactionalEventListener
+    public void alCambiarPedido(PedidoCambiadoEvent evento) {
+        if (evento.tipo() != TipoCambio.ARCHIVADO) {
+            publicar(evento);
+        }
+    }
+
+    synchronized CambioPedido publicar(PedidoCambiadoEvent evento) {
+        CambioPedido cambio = aCambio(siguienteSecuencia++, evento);
+        historial[indice(cambio.secuencia())] = cambio;
+        //encolar no bloquea: los envíos ocurren en el hilo de cada suscriptor
+        suscriptores.forEach(suscriptor -> suscriptor.encolar(cambio));
+        return cambio;
+    }
+
+    //Nueva suscripción; con Last-Event-ID se reenvían primero los cambios posteriores a ese ID
+    public SseEmitter suscribir(FiltroCambios filtro, String ultimoId) {
+        if (suscriptores.size() >= maximoSuscriptores) {
+            throw new IllegalStateException("Se alcanzó el máximo de " + maximoSuscriptores + " suscriptores");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emitter, filtro);
+        emitter.onCompletion(suscriptor::cerrar);
+        emitter.onTimeout(suscriptor::cerrar);
+        emitter.onError(error -> suscriptor.cerrar());
+
+        synchronized (this) {
+            if (ultimoId != null && !ultimoId.isBlank()) {
+                reanudar(suscriptor, ultimoId);
+            }
+            suscriptores.add(suscriptor);
+        }
+        suscriptor.programarEnvio();
+        return emitter;
+    }
+
+    //Latido periódico: mantiene abiertas las conexiones ante proxies y detecta clientes caídos
+    @Scheduled(fixedDelayString = "${pedidos.cambios.latido-ms:15000}")
+    public void latido() {
+        suscriptores.forEach(Suscriptor::latido);
+    }
+
+    @PreDestroy
+    public void finalizar() {
+        suscriptores.forEach(suscriptor -> suscriptor.emitter.complete());
+        enviadores.shutdownNow();
+    }
+
+    //Cambios posteriores a un ID de evento, o vacío si ya no es posible reanudar desde él
+    synchronized Optional<List<CambioPedido>> cambiosDesde(String ultimoId) {
+        long ultimaSecuencia = secuenciaDe(ultimoId);
+        long masAntigua = Math.max(1, siguienteSecuencia - historial.length);
+        if (ultimaSecuencia < masAntigua - 1 || ultimaSecuencia >= siguienteSecuencia) {
+            return Optional.empty();
+        }
+        List<CambioPedido> pendientes = new ArrayList<>();
+        for (long secuencia = ultimaSecuencia + 1; secuencia < siguienteSecuencia; secuencia++) {
+            pendientes.add(historial[indice(secuencia)]);
+        }
+        return Optional.of(pendientes);
+    }
+
+    String idDeEvento(CambioPedido cambio) {
+        return instancia + "-" + cambio.secuencia();
+    }
+
+    int suscriptoresActivos() {
+        return suscriptores.size();
+    }
+
+    private void reanudar(Suscriptor suscriptor, String ultimoId) {
+        Optional<List<CambioPedido>> pendientes = cambiosDesde(ultimoId);
+        if (pendientes.isEmpty() || pendientes.get().size() > capacidadCola) {
+            reinicios.increment();
+            suscriptor.cola.offer(SseEmitter.event().name(EVENTO_REINICIO).data(Map.of()));
+            return;
+        }
+        pendientes.get().forEach(suscriptor::encolar);
+    }
+
+    //-1 si el ID no pertenece a esta instancia o no tiene el formato esperado
+    private long secuenciaDe(String ultimoId) {
+        int separador = ultimoId.lastIndexOf('-');
+        if (separador < 0 || !instancia.equals(ultimoId.substring(0, separador))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(ultimoId.substring(separador + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int indice(long secuencia) {
+        return (int) (secuencia % historial.length);
+    }
+
+    private CambioPedido aCambio(long secuencia, PedidoCambiadoEvent evento) {
+        PedidoResponse actual = evento.actual();
+        PedidoResponse anterior = evento.anterior();
+        EstadoPedido estadoAnterior = anterior != null ? anterior.getEstado() : null;
+        UUID repartidorAnterior = anterior != null ? anterior.getRepartidorId() : null;
+        return new CambioPedido(
+                secuencia,
+                evento.tipo(),
+                actual.getId(),
+                actual.getNumeroPedido(),
+                actual.getEstado(),
+                estadoAnterior != actual.getEstado() ? estadoAnterior : null,
+                actual.getZonaId(),
+                actual.getRepartidorId(),
+                Objects.equals(repartidorAnterior, actual.getRepartidorId()) ? null : repartidorAnterior,
+                actual.getActivo(),
+                actual.getVersion(),
+                LocalDateTime.now()
+        );
+    }
+
+    //Conexión SSE con su cola acotada; como máximo un hilo envía a la vez por suscriptor
+    private final class Suscriptor {
+        private final SseEmitter emitter;
+        private final FiltroCambios filtro;
+        private final BlockingQueue<SseEventBuilder> cola;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private volatile boolean cerrado;
+
+        private Suscriptor(SseEmitter emitter, FiltroCambios filtro) {
+            this.emitter = emitter;
+            this.filtro = filtro;
+            this.cola = new ArrayBlockingQueue<>(capacidadCola);
+        }
+
+        private void encolar(CambioPedido cambio) {
+            if (cerrado || !filtro.acepta(cambio)) {
+                return;
+            }
+            SseEventBuilder evento = SseEmitter.event()
+                    .id(idDeEvento(cambio))
+                    .name(EVENTO_CAMBIO)
+                    .data(cambio, MediaType.APPLICATION_JSON);
+            if (!cola.offer(evento)) {
+                //Cliente lento: se corta y reanudará con su Last-Event-ID
+                desconexionesPorLentitud.increment();
+                log.debug("Flujo de cambios: cliente desconectado por cola llena ({} eventos)", capacidadCola);
+                cerrar();
+                emitter.complete();
+                return;
+            }
+            programarEnvio();
+        }
+
+        private void latido() {
+            //Si la cola tiene eventos pendientes el propio envío ya mantiene viva la conexión
+            if (!cerrado && cola.isEmpty() && cola.offer(SseEmitter.event().comment("latido"))) {
+                programarEnvio();
+            }
+        }
+
+        private void programarEnvio() {
+            if (!cerrado && !cola.isEmpty() && enviando.compareAndSet(false, true)) {
+                enviadores.execute(this::drenar);
+            }
+        }
+
+        private void drenar() {
+            try {
+                do {
+                    SseEventBuilder evento;
+                    while (!cerrado && (evento = cola.poll()) != null) {
+                        emitter.send(evento);
+                    }
+                    enviando.set(false);
+                    //Un evento encolado justo después del último poll se envía en esta misma pasada
+                } while (!cerrado && !cola.isEmpty() && enviando.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                cerrar();
+            }
+        }
+
+        private void cerrar() {
+            cerrado = true;
+            cola.clear();
+            suscriptores.remove(this);
+        }
+    }
+}
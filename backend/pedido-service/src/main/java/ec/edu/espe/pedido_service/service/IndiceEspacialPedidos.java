@@ -0,0 +1,250 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoCercanoResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.util.GeoUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Índice espacial en memoria (grilla regular de latitud/longitud) de los pedidos
+ * activos y pendientes, indexados por su coordenada de destino.
+ * Se reconstruye desde la base de datos al iniciar y se mantiene actualizado con
+ * los eventos {@link PedidoCambiadoEvent} confirmados.
+ */
+@Component
+@Slf4j
+public class IndiceEspacialPedidos {
+
+    private final PedidoService pedidoService;
+    private final Timer tiempoReconstruccion;
+
+    //Tamaño de cada celda de la grilla en grados (0.05° ≈ 5.5 km en el ecuador)
+    private final double tamanioCelda;
+
+    //Celda -> ids de pedidos contenidos
+    private final Map<Long, Set<UUID>> celdas = new ConcurrentHashMap<>();
+
+    //Id -> entrada indexada
+    private final Map<UUID, Entrada> entradas = new ConcurrentHashMap<>();
+
+    public IndiceEspacialPedidos(PedidoService pedidoService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${pedidos.indice-espacial.tamanio-celda-grados:0.05}") double tamanioCelda) {
+        this.pedidoService = pedidoService;
+        this.tamanioCelda = tamanioCelda;
+        this.tiempoReconstruccion = Timer.builder("pedidos.indice.espacial.reconstruccion")
+                .description("Tiempo de reconstrucción del índice espacial desde la base de datos")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.indice.espacial.tamanio", entradas, Map::size)
+                .description("Pedidos activos presentes en el índice espacial")
+                .register(meterRegistry);
+        Gauge.builder("pedidos.indice.espacial.celdas", celdas, Map::size)
+                .description("Celdas ocupadas de la grilla espacial")
+                .register(meterRegistry);
+    }
+
+    //Entrada mínima necesaria para responder consultas sin ir a la base de datos
+    private record Entrada(UUID id, String numeroPedido, EstadoPedido estado, PrioridadPedido prioridad,
+                           String zonaId, double latitud, double longitud, long celda) {
+    }
+
+    //Reconstruir el índice completo al iniciar la aplicación
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        tiempoReconstruccion.record(() -> {
+            celdas.clear();
+            entradas.clear();
+            pedidoService.recorrerPedidosActivos(this::indexar);
+        });
+        log.info("Índice espacial reconstruido: {} pedidos en {} celdas", entradas.size(), celdas.size());
+    }
+
+    //Mantener el índice al día con los cambios confirmados en PedidoService
+    @TransactionalEventListener
+    public void alCambiarPedido(PedidoCambiadoEvent evento) {
+        indexar(evento.actual());
+    }
+
+    //Insertar, mover o retirar un pedido del índice según su estado actual
+    public void indexar(PedidoResponse pedido) {
+        if (!esIndexable(pedido)) {
+            retirar(pedido.getId());
+            return;
+        }
+
+        double latitud = pedido.getLatitudDestino();
+        double longitud = pedido.getLongitudDestino();
+        long celda = claveCelda(indiceLatitud(latitud), indiceLongitud(longitud));
+
+        Entrada anterior = entradas.put(pedido.getId(), new Entrada(pedido.getId(), pedido.getNumeroPedido(),
+                pedido.getEstado(), pedido.getPrioridad(), pedido.getZonaId(), latitud, longitud, celda));
+        if (anterior != null && anterior.celda() != celda) {
+            quitarDeCelda(anterior.celda(), pedido.getId());
+        }
+        //El alta va dentro del compute de la celda: si se agregara después, un quitarDeCelda concurrente
+        //podría eliminar el conjunto vacío en medio y el id quedaría en un conjunto huérfano
+        celdas.compute(celda, (c, ids) -> {
+            Set<UUID> conjunto = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            conjunto.add(pedido.getId());
+            return conjunto;
+        });
+    }
+
+    //Retirar un pedido del índice
+    public void retirar(UUID pedidoId) {
+        Entrada anterior = entradas.remove(pedidoId);
+        if (anterior != null) {
+            quitarDeCelda(anterior.celda(), pedidoId);
+        }
+    }
+
+    //Pedidos cuyo destino está dentro del radio indicado, ordenados por distancia
+    public List<PedidoCercanoResponse> buscarCercanos(double latitud, double longitud, double radioKm, int limite) {
+        if (radioKm <= 0) {
+            throw new IllegalArgumentException("El radio debe ser mayor a 0");
+        }
+        validarCoordenadas(latitud, longitud);
+
+        double deltaLatitud = radioKm / GeoUtil.KM_POR_GRADO_LATITUD;
+        double cosLatitud = Math.max(Math.cos(Math.toRadians(latitud)), 1e-6);
+        double deltaLongitud = Math.min(radioKm / (GeoUtil.KM_POR_GRADO_LATITUD * cosLatitud), 180);
+
+        List<PedidoCercanoResponse> resultado = new ArrayList<>();
+        recorrerArea(latitud - deltaLatitud, latitud + deltaLatitud,
+                longitud - deltaLongitud, longitud + deltaLongitud, entrada -> {
+            double distancia = GeoUtil.distanciaKm(latitud, longitud, entrada.latitud(), entrada.longitud());
+            if (distancia <= radioKm) {
+                resultado.add(aRespuesta(entrada, distancia));
+            }
+        });
+
+        resultado.sort(Comparator.comparingDouble(PedidoCercanoResponse::getDistanciaKm));
+        return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+    }
+
+    //Pedidos cuyo destino está dentro del rectángulo indicado
+    public List<PedidoCercanoResponse> buscarEnArea(double latitudMin, double latitudMax,
+                                                    double longitudMin, double longitudMax, int limite) {
+        if (latitudMin > latitudMax || longitudMin > longitudMax) {
+            throw new IllegalArgumentException("Los límites del área son inválidos");
+        }
+        validarCoordenadas(latitudMin, longitudMin);
+        validarCoordenadas(latitudMax, longitudMax);
+
+        List<PedidoCercanoResponse> resultado = new ArrayList<>();
+        recorrerArea(latitudMin, latitudMax, longitudMin, longitudMax, entrada -> {
+            if (resultado.size() < limite) {
+                resultado.add(aRespuesta(entrada, null));
+            }
+        });
+        return resultado;
+    }
+
+    public int tamanio() {
+        return entradas.size();
+    }
+
+    //Visitar las entradas dentro del rectángulo recorriendo sólo las celdas que lo cubren
+    private void recorrerArea(double latitudMin, double latitudMax, double longitudMin, double longitudMax,
+                              Consumer<Entrada> visitante) {
+        long filaMin = indiceLatitud(latitudMin);
+        long filaMax = indiceLatitud(latitudMax);
+        long columnaMin = indiceLongitud(longitudMin);
+        long columnaMax = indiceLongitud(longitudMax);
+        long celdasArea = (filaMax - filaMin + 1) * (columnaMax - columnaMin + 1);
+
+        //Si el área cubre más celdas que pedidos indexados, un recorrido lineal es más barato
+        if (celdasArea > entradas.size()) {
+            entradas.values().stream()
+                    .filter(e -> e.latitud() >= latitudMin && e.latitud() <= latitudMax
+                            && e.longitud() >= longitudMin && e.longitud() <= longitudMax)
+                    .forEach(visitante);
+            return;
+        }
+
+        for (long fila = filaMin; fila <= filaMax; fila++) {
+            for (long columna = columnaMin; columna <= columnaMax; columna++) {
+                Set<UUID> ids = celdas.get(claveCelda(fila, columna));
+                if (ids == null) {
+                    continue;
+                }
+                for (UUID id : ids) {
+                    Entrada entrada = entradas.get(id);
+                    if (entrada != null
+                            && entrada.latitud() >= latitudMin && entrada.latitud() <= latitudMax
+                            && entrada.longitud() >= longitudMin && entrada.longitud() <= longitudMax) {
+                        visitante.accept(entrada);
+                    }
+                }
+            }
+        }
+    }
+
+    private void quitarDeCelda(long celda, UUID pedidoId) {
+        celdas.computeIfPresent(celda, (c, ids) -> {
+            ids.remove(pedidoId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    //Sólo se indexan pedidos activos, con destino georreferenciado y aún pendientes de entrega
+    private boolean esIndexable(PedidoResponse pedido) {
+        return Boolean.TRUE.equals(pedido.getActivo())
+                && pedido.getLatitudDestino() != null
+                && pedido.getLongitudDestino() != null
+                && pedido.getEstado() != EstadoPedido.ENTREGADO
+                && pedido.getEstado() != EstadoPedido.CANCELADO
+                && pedido.getEstado() != EstadoPedido.DEVUELTO;
+    }
+
+    private long indiceLatitud(double latitud) {
+        return (long) Math.floor((latitud + 90) / tamanioCelda);
+    }
+
+    private long indiceLongitud(double longitud) {
+        return (long) Math.floor((longitud + 180) / tamanioCelda);
+    }
+
+    private static long claveCelda(long fila, long columna) {
+        return (fila << 32) | (columna & 0xFFFFFFFFL);
+    }
+
+    private static void validarCoordenadas(double latitud, double longitud) {
+        if (latitud < -90 || latitud > 90 || longitud < -180 || longitud > 180) {
+            throw new IllegalArgumentException("Coordenadas fuera de rango");
+        }
+    }
+
+    private static PedidoCercanoResponse aRespuesta(Entrada entrada, Double distanciaKm) {
+        return PedidoCercanoResponse.builder()
+                .id(entrada.id())
+                .numeroPedido(entrada.numeroPedido())
+                .estado(entrada.estado())
+                .prioridad(entrada.prioridad())
+                .zonaId(entrada.zonaId())
+                .latitudDestino(entrada.latitud())
+                .longitudDestino(entrada.longitud())
+                .distanciaKm(distanciaKm)
+                .build();
+    }
+}
@@ -2,45 +2,51 @@ package ec.edu.espe.pedido_service.service;
 
 import ec.edu.espe.pedido_service.config.RabbitMQConfig;
 import ec.edu.espe.pedido_service.dto.NotificationEventDTO;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.EventoOutbox;
+import ec.edu.espe.pedido_service.repository.EventoOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 /**
- * Servicio productor de notificaciones a RabbitMQ
+ * Servicio productor de notificaciones a RabbitMQ.
+ * Los eventos se registran en la tabla outbox dentro de la transacción del llamador
+ * y {@link OutboxRelay} los publica de forma asíncrona, sin bloquear la petición HTTP.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationProducer {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ObjectMapper objectMapper;
     
     private static final String MICROSERVICE_NAME = "pedido-service";
     private static final String SEVERITY_INFO = "INFO";
     private static final String SEVERITY_WARN = "WARN";
     
     /**
-     * Publica un evento genérico de notificación
+     * Registra un evento genérico de notificación en el outbox (misma transacción que el cambio)
      */
     public void publishEvent(NotificationEventDTO event) {
-        try {
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.NOTIFICATIONS_EXCHANGE,
-                RabbitMQConfig.NOTIFICATIONS_ROUTING_KEY,
-                event
-            );
-            log.info("Evento publicado: {} - {} [{}]", 
-                event.getAction(), event.getEntityType(), event.getEntityId());
-        } catch (Exception e) {
-            log.error("Error al publicar evento a RabbitMQ: {}", e.getMessage(), e);
-        }
+        EventoOutbox evento = EventoOutbox.builder()
+            .exchange(RabbitMQConfig.NOTIFICATIONS_EXCHANGE)
+            .routingKey(RabbitMQConfig.NOTIFICATIONS_ROUTING_KEY)
+            .accion(event.getAction())
+            .entityId(event.getEntityId())
+            .payload(objectMapper.writeValueAsString(event))
+            .build();
+        eventoOutboxRepository.save(evento);
+        log.debug("Evento registrado en outbox: {} - {} [{}]",
+            event.getAction(), event.getEntityType(), event.getEntityId());
     }
     
     /**
@@ -67,6 +73,29 @@ public class NotificationProducer {
         publishEvent(event);
     }
     
+    /**
+     * Publica un único evento agregado para un lote de pedidos creados
+     */
+    public void publishPedidosCreadosEnLote(List<Map<String, Object>> pedidos) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("cantidad", pedidos.size());
+        data.put("pedidos", pedidos);
+
+        NotificationEventDTO event = NotificationEventDTO.builder()
+            .eventId(UUID.randomUUID().toString())
+            .microservice(MICROSERVICE_NAME)
+            .action("BATCH_CREATED")
+            .entityType("PEDIDO")
+            .entityId("LOTE-" + UUID.randomUUID())
+            .message(String.format("Lote de %d pedidos creado exitosamente", pedidos.size()))
+            .eventTimestamp(LocalDateTime.now().toString())
+            .severity(SEVERITY_INFO)
+            .data(data)
+            .build();
+
+        publishEvent(event);
+    }
+    
     /**
      * Publica evento de pedido actualizado
      */
@@ -93,6 +122,30 @@ public class NotificationProducer {
         publishEvent(event);
     }
     
+    /**
+     * Publica un único evento agregado para un lote de pedidos que cambiaron de estado
+     */
+    public void publishPedidosEstadoActualizadoEnLote(String estadoNuevo, List<Map<String, Object>> pedidos) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("estadoNuevo", estadoNuevo);
+        data.put("cantidad", pedidos.size());
+        data.put("pedidos", pedidos);
+
+        NotificationEventDTO event = NotificationEventDTO.builder()
+            .eventId(UUID.randomUUID().toString())
+            .microservice(MICROSERVICE_NAME)
+            .action("BATCH_UPDATED")
+            .entityType("PEDIDO")
+            .entityId("LOTE-" + UUID.randomUUID())
+            .message(String.format("Lote de %d pedidos actualizado a %s", pedidos.size(), estadoNuevo))
+            .eventTimestamp(LocalDateTime.now().toString())
+            .severity(EstadoPedido.CANCELADO.name().equals(estadoNuevo) ? SEVERITY_WARN : SEVERITY_INFO)
+            .data(data)
+            .build();
+
+        publishEvent(event);
+    }
+
     /**
      * Publica evento de pedido cancelado
      */
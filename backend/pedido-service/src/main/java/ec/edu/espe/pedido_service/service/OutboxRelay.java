@@ -0,0 +1,126 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.model.EventoOutbox;
+import ec.edu.espe.pedido_service.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay del outbox: drena la tabla outbox_eventos por lotes y publica a RabbitMQ
+ * con publisher confirms. Las filas sólo se eliminan cuando el broker confirma el
+ * lote completo, por lo que la entrega es al menos una vez (at-least-once).
+ * Con fragmentación cada fragmento tiene su propio outbox y se drenan uno tras otro.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final FragmentosPedidos fragmentos;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanioLote;
+    private final long timeoutConfirmacionMs;
+
+    private final AtomicLong lagMs = new AtomicLong();
+    private final DistributionSummary tamanioLotes;
+    private final Counter eventosPublicados;
+    private final Counter erroresPublicacion;
+
+    public OutboxRelay(EventoOutboxRepository eventoOutboxRepository,
+                       RabbitTemplate rabbitTemplate,
+                       FragmentosPedidos fragmentos,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${pedidos.outbox.tamanio-lote:200}") int tamanioLote,
+                       @Value("${pedidos.outbox.timeout-confirmacion-ms:10000}") long timeoutConfirmacionMs) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.fragmentos = fragmentos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanioLote = tamanioLote;
+        this.timeoutConfirmacionMs = timeoutConfirmacionMs;
+
+        Gauge.builder("pedidos.outbox.lag", lagMs, AtomicLong::get)
+                .description("Antigüedad del evento pendiente más antiguo en el último ciclo del relay")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.tamanioLotes = DistributionSummary.builder("pedidos.outbox.lote")
+                .description("Eventos publicados por lote")
+                .register(meterRegistry);
+        this.eventosPublicados = Counter.builder("pedidos.outbox.publicados")
+                .description("Eventos del outbox confirmados por el broker")
+                .register(meterRegistry);
+        this.erroresPublicacion = Counter.builder("pedidos.outbox.errores")
+                .description("Lotes del outbox que fallaron y se reintentarán")
+                .register(meterRegistry);
+    }
+
+    //Drenar el outbox de cada fragmento: procesa lotes mientras vengan completos
+    @Scheduled(fixedDelayString = "${pedidos.outbox.intervalo-ms:500}")
+    public void drenar() {
+        for (String fragmento : fragmentos.fragmentos()) {
+            try (FragmentosPedidos.Ambito ambito = fragmentos.usar(fragmento)) {
+                int publicados;
+                do {
+                    publicados = transactionTemplate.execute(status -> publicarLote());
+                } while (publicados == tamanioLote);
+            } catch (Exception e) {
+                //Las filas no confirmadas permanecen en el outbox y se reintentan en el próximo ciclo
+                erroresPublicacion.increment();
+                log.error("Error al publicar lote del outbox ({}): {}", fragmento, e.getMessage());
+            }
+        }
+    }
+
+    //Publicar un lote bloqueado con SKIP LOCKED y eliminarlo sólo tras la confirmación del broker
+    private int publicarLote() {
+        List<EventoOutbox> lote = eventoOutboxRepository.findLoteParaPublicar(tamanioLote);
+        if (lote.isEmpty()) {
+            lagMs.set(0);
+            return 0;
+        }
+        lagMs.set(Duration.between(lote.get(0).getFechaCreacion(), LocalDateTime.now()).toMillis());
+
+        rabbitTemplate.invoke(operaciones -> {
+            for (EventoOutbox evento : lote) {
+                operaciones.send(evento.getExchange(), evento.getRoutingKey(), aMensaje(evento));
+            }
+            operaciones.waitForConfirmsOrDie(timeoutConfirmacionMs);
+            return null;
+        });
+
+        eventoOutboxRepository.deleteAllInBatch(lote);
+        tamanioLotes.record(lote.size());
+        eventosPublicados.increment(lote.size());
+        log.debug("Outbox: {} eventos publicados y confirmados", lote.size());
+        return lote.size();
+    }
+
+    private Message aMensaje(EventoOutbox evento) {
+        return MessageBuilder.withBody(evento.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(evento.getId().toString())
+                .build();
+    }
+}
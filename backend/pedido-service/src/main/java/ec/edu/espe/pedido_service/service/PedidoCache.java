@@ -0,0 +1,113 @@
+package ec.edu.espe.pedido_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Caché read-through de PedidoResponse para las consultas por ID y por número.
+ * Acotada por peso aproximado en bytes y con expulsión por frecuencia (W-TinyLFU de Caffeine).
+ * Cada mutación confirmada en PedidoService invalida exactamente la entrada del pedido afectado;
+ * además cada entrada expira tras un tiempo fijo, por si algún cambio no pasó por PedidoService.
+ * PedidoResponse es mutable, así que cada lector recibe su propia copia y nunca la instancia cacheada.
+ */
+@Component
+public class PedidoCache {
+
+    //Costo fijo estimado de un PedidoResponse sin contar el contenido de sus cadenas
+    private static final int PESO_BASE_BYTES = 512;
+
+    private final Cache<UUID, PedidoResponse> porId;
+
+    //numeroPedido es inmutable, por lo que su ID asociado nunca necesita invalidarse
+    private final Cache<String, UUID> idPorNumero;
+
+    public PedidoCache(MeterRegistry meterRegistry,
+                       @Value("${pedidos.cache.peso-maximo-bytes:67108864}") long pesoMaximoBytes,
+                       @Value("${pedidos.cache.numeros-maximos:200000}") long numerosMaximos,
+                       @Value("${pedidos.cache.expiracion-ms:300000}") long expiracionMs) {
+        this.porId = Caffeine.newBuilder()
+                .maximumWeight(pesoMaximoBytes)
+                .expireAfterWrite(Duration.ofMillis(expiracionMs))
+                .weigher((UUID id, PedidoResponse pedido) -> pesoEstimado(pedido))
+                .recordStats()
+                .build();
+        this.idPorNumero = Caffeine.newBuilder()
+                .maximumSize(numerosMaximos)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, porId, "pedidos.porId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idPorNumero, "pedidos.idPorNumero");
+    }
+
+    //Obtener por ID; en caso de fallo se carga una sola vez aunque haya lectores concurrentes
+    public PedidoResponse obtenerPorId(UUID id, Function<UUID, PedidoResponse> cargador) {
+        return copia(porId.get(id, cargador));
+    }
+
+    //Entrada ya cargada, sin ir a la base si no está (null en ese caso)
+    public PedidoResponse obtenerSiPresente(UUID id) {
+        return copia(porId.getIfPresent(id));
+    }
+
+    //Obtener por número resolviendo primero su ID (consulta liviana sólo la primera vez)
+    public PedidoResponse obtenerPorNumero(String numeroPedido,
+                                           Function<String, UUID> resolverId,
+                                           Function<UUID, PedidoResponse> cargador) {
+        UUID id = idPorNumero.get(numeroPedido, resolverId);
+        return copia(porId.get(id, cargador));
+    }
+
+    //ID de un número de pedido (null si el resolvedor no lo encuentra; ese caso no se guarda)
+    public UUID obtenerIdPorNumero(String numeroPedido, Function<String, UUID> resolverId) {
+        return idPorNumero.get(numeroPedido, resolverId);
+    }
+
+    //Invalidar la entrada del pedido modificado una vez confirmada la transacción
+    @TransactionalEventListener
+    public void alCambiarPedido(PedidoCambiadoEvent evento) {
+        invalidar(evento.actual().getId());
+    }
+
+    public void invalidar(UUID id) {
+        porId.invalidate(id);
+    }
+
+    public long tamanio() {
+        return porId.estimatedSize();
+    }
+
+    //Copia superficial: todos los campos de PedidoResponse son inmutables
+    private static PedidoResponse copia(PedidoResponse pedido) {
+        return pedido != null ? pedido.toBuilder().build() : null;
+    }
+
+    private static int pesoEstimado(PedidoResponse pedido) {
+        //Las cadenas Java ocupan como máximo 2 bytes por carácter
+        long caracteres = longitud(pedido.getNumeroPedido())
+                + longitud(pedido.getClienteNombre())
+                + longitud(pedido.getRepartidorNombre())
+                + longitud(pedido.getDireccionOrigen())
+                + longitud(pedido.getDireccionDestino())
+                + longitud(pedido.getZonaId())
+                + longitud(pedido.getDescripcionPaquete())
+                + longitud(pedido.getDimensiones())
+                + longitud(pedido.getObservaciones());
+        return (int) Math.min(Integer.MAX_VALUE, PESO_BASE_BYTES + 2 * caracteres);
+    }
+
+    private static int longitud(String valor) {
+        return valor != null ? valor.length() : 0;
+    }
+}
@@ -1,28 +1,64 @@
 package ec.edu.espe.pedido_service.service;
 
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.config.ReplicasLectura;
+import ec.edu.espe.pedido_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.pedido_service.dto.BusquedaLoteResponse;
+import ec.edu.espe.pedido_service.dto.CoincidenciaBusqueda;
+import ec.edu.espe.pedido_service.dto.ConteoPedidos;
 import ec.edu.espe.pedido_service.dto.CreatePedidoRequest;
+import ec.edu.espe.pedido_service.dto.MarcaVersion;
+import ec.edu.espe.pedido_service.dto.PedidoBusquedaResponse;
+import ec.edu.espe.pedido_service.dto.PedidoLoteResponse;
+import ec.edu.espe.pedido_service.dto.PedidoPaginaResponse;
 import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResumen;
+import ec.edu.espe.pedido_service.dto.TransicionLoteRequest;
+import ec.edu.espe.pedido_service.dto.TransicionLoteResponse;
 import ec.edu.espe.pedido_service.dto.UpdatePedidoRequest;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.exception.ConflictoPedidoException;
 import ec.edu.espe.pedido_service.model.EstadoPedido;
 import ec.edu.espe.pedido_service.model.Pedido;
 import ec.edu.espe.pedido_service.model.PrioridadPedido;
 import ec.edu.espe.pedido_service.repository.PedidoRepository;
+import ec.edu.espe.pedido_service.repository.PedidoTransicionRepository.TransicionPedido;
+import ec.edu.espe.pedido_service.util.GeneradorNumeros;
+import ec.edu.espe.pedido_service.util.GeoUtil;
+import ec.edu.espe.pedido_service.util.PedidoCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-<<<<<<< HEAD
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-=======
-import java.util.List;
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 //Servicio de negocio para gestión de pedidos
 @Service
@@ -30,111 +66,404 @@ import java.util.stream.Collectors;
 public class PedidoService {
 
     private final PedidoRepository pedidoRepository;
-<<<<<<< HEAD
     private final NotificationProducer notificationProducer;
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Validator validator;
+    private final GeneradorNumeros generadorNumeroPedido;
+    private final PedidoCache pedidoCache;
+    private final FragmentosPedidos fragmentos;
+    private final EstimadorEntregas estimadorEntregas;
+
+    //Tamaño máximo de página para el listado paginado por cursor
+    public static final int LIMITE_MAXIMO_PAGINA = 500;
+
+    //Máximo de pedidos por solicitud de lote
+    public static final int TAMANIO_MAXIMO_LOTE = 5000;
+
+    //Pedidos por flush; debe coincidir con hibernate.jdbc.batch_size
+    private static final int TAMANIO_BLOQUE_LOTE = 100;
+
+    private static final String RESULTADO_CREADO = "CREADO";
+    private static final String RESULTADO_RECHAZADO = "RECHAZADO";
+    private static final String RESULTADO_TRANSICIONADO = "TRANSICIONADO";
+
+    //Máximo de pedidos afectados por una transición en lote
+    public static final int MAXIMO_TRANSICIONES_LOTE = TransicionLoteRequest.MAXIMO_PEDIDOS;
+
+    //Resultados de búsqueda por solicitud y máximo navegable: más allá conviene refinar la búsqueda
+    public static final int TAMANIO_MAXIMO_BUSQUEDA = 100;
+    public static final int MAXIMO_RESULTADOS_BUSQUEDA = 1000;
+
+    private static final int MAXIMO_TERMINOS_BUSQUEDA = 8;
+
+    //Un prefijo más corto coincide con buena parte del índice: esos términos se buscan como palabra completa
+    private static final int LARGO_MINIMO_PREFIJO = 3;
+
+    //Coincidencias rankeadas por fragmento; una búsqueda más amplia debe refinarse
+    private static final int MAXIMO_CANDIDATOS_BUSQUEDA = 5 * MAXIMO_RESULTADOS_BUSQUEDA;
+
+    //Relevancia descendente y, a igual relevancia, los más recientes primero (mismo orden que la consulta)
+    private static final Comparator<CoincidenciaBusqueda> ORDEN_RELEVANCIA = Comparator
+            .comparing(CoincidenciaBusqueda::getRango, Comparator.reverseOrder())
+            .thenComparing(CoincidenciaBusqueda::getFechaCreacion, Comparator.reverseOrder())
+            .thenComparing(coincidencia -> coincidencia.getId().toString());
+
+    //Orden del keyset al combinar fragmentos; el UUID se compara como texto porque así ordena PostgreSQL
+    private static final Comparator<Pedido> ORDEN_KEYSET = Comparator.comparing(Pedido::getFechaCreacion)
+            .thenComparing(pedido -> pedido.getId().toString());
+
+    //Resultado de la validación de un elemento del lote
+    private record ItemLote(int indice, Pedido pedido, String motivo) {
+    }
 
     //Crear nuevo pedido con validación de cobertura
     @Transactional
     public PedidoResponse crearPedido(CreatePedidoRequest request) {
         //Validar coordenadas
-        if (request.getLatitudOrigen() == null || request.getLongitudOrigen() == null ||
-            request.getLatitudDestino() == null || request.getLongitudDestino() == null) {
-            throw new IllegalArgumentException("Las coordenadas de origen y destino son obligatorias");
-        }
+        validarCoordenadas(request);
 
-        //Generar número de pedido único
-        String numeroPedido = generarNumeroPedido();
+        //Generar número de pedido único (sin consultar la base de datos)
+        String numeroPedido = generadorNumeroPedido.siguiente();
 
-        //Crear entidad - Usar constructor new() en lugar de builder para evitar @Builder.Default
-        Pedido pedido = new Pedido();
-        pedido.setId(null);  // Forzar estado transient
-        pedido.setNumeroPedido(numeroPedido);
-        pedido.setClienteId(request.getClienteId());
-        pedido.setClienteNombre(request.getClienteNombre());
-        pedido.setTipoEntrega(request.getTipoEntrega());
-        pedido.setEstado(EstadoPedido.RECIBIDO);
-        pedido.setPrioridad(request.getPrioridad() != null ? request.getPrioridad() : PrioridadPedido.NORMAL);
-        pedido.setDireccionOrigen(request.getDireccionOrigen());
-        pedido.setLatitudOrigen(request.getLatitudOrigen());
-        pedido.setLongitudOrigen(request.getLongitudOrigen());
-        pedido.setDireccionDestino(request.getDireccionDestino());
-        pedido.setLatitudDestino(request.getLatitudDestino());
-        pedido.setLongitudDestino(request.getLongitudDestino());
-<<<<<<< HEAD
-        pedido.setZonaId(request.getZonaId());
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        pedido.setDescripcionPaquete(request.getDescripcionPaquete());
-        pedido.setPesoKg(request.getPesoKg());
-        pedido.setDimensiones(request.getDimensiones());
-        pedido.setTarifaBase(BigDecimal.ZERO);
-        pedido.setTarifaTotal(BigDecimal.ZERO);
-        pedido.setFechaEstimadaEntrega(request.getFechaEstimadaEntrega());
-        pedido.setObservaciones(request.getObservaciones());
-        pedido.setActivo(true);
+        //Crear entidad
+        Pedido pedido = construirPedido(request, numeroPedido);
 
         //Validar cobertura antes de guardar
         if (!pedido.validarCobertura()) {
-            throw new IllegalArgumentException(
-                "La distancia entre origen y destino excede el límite para el tipo de entrega: " + 
-                request.getTipoEntrega().name()
-            );
+            throw new IllegalArgumentException(mensajeCoberturaExcedida(request));
         }
 
-        // Guardar la entidad (persist - una sola vez)
-        Pedido savedPedido = pedidoRepository.save(pedido);
-        
-<<<<<<< HEAD
-        // Publicar evento de pedido creado
-        try {
-            Map<String, Object> eventData = new HashMap<>();
-            eventData.put("numeroPedido", savedPedido.getNumeroPedido());
-            eventData.put("clienteNombre", savedPedido.getClienteNombre());
-            eventData.put("tipoEntrega", savedPedido.getTipoEntrega().name());
-            eventData.put("prioridad", savedPedido.getPrioridad().name());
-            eventData.put("direccionDestino", savedPedido.getDireccionDestino());
-            
-            notificationProducer.publishPedidoCreado(savedPedido.getId().toString(), eventData);
-        } catch (Exception e) {
-            // No fallar la transacción si falla el evento, solo loguear
-            System.err.println("Error al publicar evento pedido.creado: " + e.getMessage());
+        // Guardar la entidad (persist - una sola vez) en el fragmento de su zona
+        Pedido savedPedido;
+        try (FragmentosPedidos.Ambito ambito = fragmentos.usarZona(request.getZonaId())) {
+            savedPedido = pedidoRepository.save(pedido);
+
+            //Evento al outbox en la misma transacción: si no se puede registrar, el pedido tampoco se confirma
+            notificationProducer.publishPedidoCreado(savedPedido.getId().toString(), datosEventoCreacion(savedPedido));
+
+            //El INSERT se envía con el fragmento fijado: ahí se obtiene la conexión de la transacción
+            entityManager.flush();
+        }
+
+        return publicarCambio(TipoCambio.CREADO, null, savedPedido);
+    }
+
+    //Crear pedidos en lote: validación en paralelo, inserción con batching JDBC y un evento agregado por fragmento
+    @Transactional
+    public PedidoLoteResponse crearPedidosEnLote(List<CreatePedidoRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("El lote de pedidos está vacío");
+        }
+        if (requests.size() > TAMANIO_MAXIMO_LOTE) {
+            throw new IllegalArgumentException("El lote excede el máximo de " + TAMANIO_MAXIMO_LOTE + " pedidos");
+        }
+
+        //Validar datos y cobertura de cada elemento en paralelo (no requiere acceso a base de datos)
+        List<ItemLote> items = IntStream.range(0, requests.size())
+                .parallel()
+                .mapToObj(i -> validarItemLote(i, requests.get(i)))
+                .toList();
+
+        List<Pedido> aceptados = items.stream()
+                .map(ItemLote::pedido)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        aceptados.forEach(pedido -> pedido.setNumeroPedido(generadorNumeroPedido.siguiente()));
+
+        //Con fragmentación cada fragmento confirma su parte en su propia transacción, junto con el evento
+        //agregado de esa parte en su outbox: si falla un fragmento posterior, lo ya confirmado queda notificado
+        Map<String, List<Pedido>> porFragmento = aceptados.stream()
+                .collect(Collectors.groupingBy(pedido -> fragmentos.fragmentoDeZona(pedido.getZonaId()),
+                        LinkedHashMap::new, Collectors.toList()));
+        Map<Pedido, PedidoResponse> creados = new IdentityHashMap<>();
+        porFragmento.forEach((fragmento, pedidos) -> fragmentos.enTransaccion(fragmento, false, () -> {
+            List<Map<String, Object>> datosEventos = new ArrayList<>(pedidos.size());
+            insertarEnBloques(pedidos, creados, datosEventos);
+            notificationProducer.publishPedidosCreadosEnLote(datosEventos);
+            return null;
+        }));
+
+        List<PedidoLoteResponse.Resultado> resultados = items.stream()
+                .map(item -> item.pedido() != null
+                        ? PedidoLoteResponse.Resultado.builder()
+                                .indice(item.indice())
+                                .estado(RESULTADO_CREADO)
+                                .pedido(creados.get(item.pedido()))
+                                .build()
+                        : PedidoLoteResponse.Resultado.builder()
+                                .indice(item.indice())
+                                .estado(RESULTADO_RECHAZADO)
+                                .motivo(item.motivo())
+                                .build())
+                .collect(Collectors.toList());
+
+        return PedidoLoteResponse.builder()
+                .total(requests.size())
+                .creados(creados.size())
+                .rechazados(requests.size() - creados.size())
+                .resultados(resultados)
+                .build();
+    }
+
+    //Insertar en bloques del tamaño del batch JDBC, liberando el contexto de persistencia entre bloques
+    private void insertarEnBloques(List<Pedido> pedidos, Map<Pedido, PedidoResponse> creados,
+                                   List<Map<String, Object>> datosEventos) {
+        for (int inicio = 0; inicio < pedidos.size(); inicio += TAMANIO_BLOQUE_LOTE) {
+            List<Pedido> bloque = pedidos.subList(inicio, Math.min(inicio + TAMANIO_BLOQUE_LOTE, pedidos.size()));
+            pedidoRepository.saveAll(bloque);
+            pedidoRepository.flush();
+            for (Pedido guardado : bloque) {
+                PedidoResponse response = publicarCambio(TipoCambio.CREADO, null, guardado);
+                creados.put(guardado, response);
+                Map<String, Object> datos = datosEventoCreacion(guardado);
+                datos.put("pedidoId", guardado.getId().toString());
+                datosEventos.add(datos);
+            }
+            entityManager.clear();
         }
-        
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        return convertirAResponse(savedPedido);
     }
 
-    //Obtener todos los pedidos activos
+    //Obtener todos los pedidos activos (de todos los fragmentos)
     @Transactional(readOnly = true)
     public List<PedidoResponse> obtenerTodosLosPedidos() {
-        return pedidoRepository.findByActivoTrue().stream()
+        return fragmentos.reunir(fragmento -> pedidoRepository.findByActivoTrue()).stream()
                 .map(this::convertirAResponse)
                 .collect(Collectors.toList());
     }
 
-    //Obtener pedido por ID
+    //Obtener una página de pedidos activos usando keyset (fechaCreacion, id) y cursor opaco
+    @Transactional(readOnly = true)
+    public PedidoPaginaResponse obtenerPaginaDePedidos(String cursor, int limite) {
+        int tamanio = Math.min(Math.max(limite, 1), LIMITE_MAXIMO_PAGINA);
+
+        //Se solicita una fila adicional para saber si existe otra página sin ejecutar COUNT
+        Pageable pageable = PageRequest.of(0, tamanio + 1);
+        PedidoCursor desde = cursor == null || cursor.isBlank() ? null : PedidoCursor.decodificar(cursor);
+        List<Pedido> pedidos = fragmentos.reunir(fragmento -> desde == null
+                ? pedidoRepository.findByActivoTrueOrderByFechaCreacionAscIdAsc(pageable)
+                : pedidoRepository.findPaginaDespuesDe(desde.fechaCreacion(), desde.id(), pageable));
+        if (fragmentos.esFragmentado()) {
+            //Cada fragmento aporta hasta tamanio + 1 filas; se intercalan y se conservan las primeras
+            pedidos.sort(ORDEN_KEYSET);
+            pedidos = pedidos.subList(0, Math.min(pedidos.size(), tamanio + 1));
+        }
+
+        boolean hayMas = pedidos.size() > tamanio;
+        List<Pedido> pagina = hayMas ? pedidos.subList(0, tamanio) : pedidos;
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Pedido ultimo = pagina.get(pagina.size() - 1);
+            siguienteCursor = new PedidoCursor(ultimo.getFechaCreacion(), ultimo.getId()).codificar();
+        }
+
+        return PedidoPaginaResponse.builder()
+                .contenido(pagina.stream()
+                        .map(this::convertirAResponse)
+                        .collect(Collectors.toList()))
+                .siguienteCursor(siguienteCursor)
+                .hayMas(hayMas)
+                .tamanio(pagina.size())
+                .build();
+    }
+
+    //Búsqueda de texto completo por prefijos, sin acentos y con stemming en español; resultados por relevancia
     @Transactional(readOnly = true)
+    public PedidoBusquedaResponse buscarPedidos(String texto, int pagina, int tamanio) {
+        String consulta = consultaPorPrefijos(texto);
+        int tamanioPagina = Math.min(Math.max(tamanio, 1), TAMANIO_MAXIMO_BUSQUEDA);
+        int desde = Math.max(pagina, 0) * tamanioPagina;
+        if (desde + tamanioPagina > MAXIMO_RESULTADOS_BUSQUEDA) {
+            throw new IllegalArgumentException("Sólo se pueden recorrer los primeros " + MAXIMO_RESULTADOS_BUSQUEDA
+                    + " resultados; refine la búsqueda");
+        }
+
+        //Una fila adicional indica si hay otra página; con fragmentos cada uno aporta su ranking hasta esta página
+        List<CoincidenciaBusqueda> coincidencias;
+        if (fragmentos.esFragmentado()) {
+            coincidencias = fragmentos.reunir(fragmento ->
+                    pedidoRepository.buscarPorTexto(consulta, MAXIMO_CANDIDATOS_BUSQUEDA, desde + tamanioPagina + 1, 0));
+            coincidencias.sort(ORDEN_RELEVANCIA);
+            coincidencias = coincidencias.subList(Math.min(desde, coincidencias.size()),
+                    Math.min(desde + tamanioPagina + 1, coincidencias.size()));
+        } else {
+            coincidencias = pedidoRepository.buscarPorTexto(consulta, MAXIMO_CANDIDATOS_BUSQUEDA, tamanioPagina + 1, desde);
+        }
+
+        boolean hayMas = coincidencias.size() > tamanioPagina;
+        List<UUID> ids = coincidencias.stream().limit(tamanioPagina).map(CoincidenciaBusqueda::getId).toList();
+
+        //Se cargan sólo los pedidos de la página, por clave primaria, y se devuelven en el orden del ranking
+        Map<UUID, PedidoResponse> porId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            fragmentos.reunir(fragmento -> pedidoRepository.findAllById(ids))
+                    .forEach(pedido -> porId.put(pedido.getId(), convertirAResponse(pedido)));
+        }
+        List<PedidoResponse> contenido = ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+
+        return PedidoBusquedaResponse.builder()
+                .contenido(contenido)
+                .pagina(Math.max(pagina, 0))
+                .hayMas(hayMas)
+                .tamanio(contenido.size())
+                .build();
+    }
+
+    //Texto libre a tsquery: cada término desde LARGO_MINIMO_PREFIJO letras como prefijo (quit → quit:*),
+    //los más cortos como palabra completa, y todos obligatorios.
+    //Sólo se conservan letras y dígitos, así el texto no puede inyectar operadores de tsquery
+    private static String consultaPorPrefijos(String texto) {
+        List<String> terminos = texto == null ? List.of() : Arrays.stream(texto.toLowerCase(Locale.ROOT)
+                        .split("[^\\p{L}\\p{N}]+"))
+                .filter(termino -> !termino.isEmpty())
+                .distinct()
+                .limit(MAXIMO_TERMINOS_BUSQUEDA)
+                .toList();
+        if (terminos.isEmpty()) {
+            throw new IllegalArgumentException("Indique al menos un término de búsqueda");
+        }
+        return terminos.stream()
+                .map(termino -> termino.length() >= LARGO_MINIMO_PREFIJO ? termino + ":*" : termino)
+                .collect(Collectors.joining(" & "));
+    }
+
+    //Recorrer todos los pedidos activos con un cursor JDBC, liberando cada entidad tras procesarla
+    @Transactional(readOnly = true)
+    public void recorrerPedidosActivos(Consumer<PedidoResponse> consumidor) {
+        //Los fragmentos se recorren uno tras otro, cada uno con su propio cursor
+        for (String fragmento : fragmentos.fragmentos()) {
+            fragmentos.enTransaccion(fragmento, true, () -> {
+                try (Stream<Pedido> pedidos = pedidoRepository.streamByActivoTrue()) {
+                    pedidos.forEach(pedido -> {
+                        consumidor.accept(convertirAResponse(pedido));
+                        //Evitar que el contexto de persistencia crezca con cada fila leída
+                        entityManager.detach(pedido);
+                    });
+                }
+                return null;
+            });
+        }
+    }
+
+    //Conteos de pedidos activos agrupados por estado, zona, tipo de entrega y prioridad
+    @Transactional(readOnly = true)
+    public List<ConteoPedidos> contarPedidosActivos() {
+        //Una zona en rebalanceo puede aportar filas desde dos fragmentos; los consumidores suman por dimensión
+        return fragmentos.reunir(fragmento -> pedidoRepository.contarActivosAgrupados());
+    }
+
+    //Obtener pedido por ID (caché read-through: los aciertos no abren transacción ni consultan la base).
+    //Si ya fue archivado se responde desde pedidos_historico de forma transparente
     public PedidoResponse obtenerPedidoPorId(UUID id) {
-        Pedido pedido = pedidoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
-        return convertirAResponse(pedido);
+        return pedidoCache.obtenerPorId(id, this::cargarPedidoPorId);
+    }
+
+    //Versión de un pedido para GET condicionales: desde la caché si ya está cargado,
+    //si no con una consulta de una sola columna (incluido el archivo)
+    public Optional<LocalDateTime> obtenerFechaActualizacion(UUID id) {
+        PedidoResponse enCache = pedidoCache.obtenerSiPresente(id);
+        if (enCache != null) {
+            return Optional.ofNullable(enCache.getFechaActualizacion());
+        }
+        return fragmentos.reunir(fragmento -> pedidoRepository.findFechaActualizacionById(id)
+                        .or(() -> pedidoRepository.findFechaActualizacionArchivadoById(id))
+                        .stream().toList())
+                .stream().findFirst();
+    }
+
+    //Versión por número: el ID sale de la caché de números (inmutables) y la fecha como en obtenerFechaActualizacion
+    public Optional<LocalDateTime> obtenerFechaActualizacionPorNumero(String numeroPedido) {
+        return Optional.ofNullable(pedidoCache.obtenerIdPorNumero(numeroPedido, this::buscarIdPorNumero))
+                .flatMap(this::obtenerFechaActualizacion);
+    }
+
+    //Cantidad y última modificación de los listados (base de sus ETags débiles)
+    @Transactional(readOnly = true)
+    public MarcaVersion obtenerMarcaVersion(String zonaId, EstadoPedido estado) {
+        if (zonaId != null && estado != null) {
+            return marcaVersion(fragmentos.fragmentosDeZona(zonaId),
+                    () -> pedidoRepository.marcaVersionPorZonaYEstado(zonaId, estado));
+        } else if (zonaId != null) {
+            return marcaVersion(fragmentos.fragmentosDeZona(zonaId), () -> pedidoRepository.marcaVersionPorZona(zonaId));
+        } else if (estado != null) {
+            return marcaVersion(fragmentos.fragmentos(), () -> pedidoRepository.marcaVersionPorEstado(estado));
+        }
+        return marcaVersion(fragmentos.fragmentos(), pedidoRepository::marcaVersionActivos);
+    }
+
+    @Transactional(readOnly = true)
+    public MarcaVersion obtenerMarcaVersionPorCliente(UUID clienteId) {
+        return marcaVersion(fragmentos.fragmentos(), () -> pedidoRepository.marcaVersionPorCliente(clienteId));
     }
 
-    //Obtener pedido por número
     @Transactional(readOnly = true)
+    public MarcaVersion obtenerMarcaVersionPorRepartidor(UUID repartidorId) {
+        return marcaVersion(fragmentos.fragmentos(), () -> pedidoRepository.marcaVersionPorRepartidor(repartidorId));
+    }
+
+    //Marca de un listado: con fragmentación se combinan las marcas parciales de cada fragmento
+    private MarcaVersion marcaVersion(Collection<String> enFragmentos, Supplier<MarcaVersion> consulta) {
+        if (!fragmentos.esFragmentado()) {
+            return consulta.get();
+        }
+        return MarcaVersion.combinar(fragmentos.reunir(enFragmentos, fragmento -> List.of(consulta.get())));
+    }
+
+    //Resolver varios pedidos con una sola consulta IN (más una al archivo para los que falten)
+    @Transactional(readOnly = true)
+    public BusquedaLoteResponse<PedidoResponse> obtenerPedidosPorIds(List<UUID> ids) {
+        List<UUID> unicos = BusquedaLoteRequest.idsUnicos(ids);
+
+        Map<UUID, PedidoResponse> encontrados = new HashMap<>();
+        fragmentos.reunir(fragmento -> buscarPorIds(unicos))
+                .forEach(pedido -> encontrados.putIfAbsent(pedido.getId(), pedido));
+        return BusquedaLoteResponse.de(unicos, encontrados);
+    }
+
+    //Búsqueda por IDs dentro de un fragmento: activos y, para los que falten, el archivo
+    private List<PedidoResponse> buscarPorIds(List<UUID> ids) {
+        Map<UUID, PedidoResponse> encontrados = new HashMap<>();
+        pedidoRepository.findAllById(ids)
+                .forEach(pedido -> encontrados.put(pedido.getId(), convertirAResponse(pedido)));
+
+        List<UUID> faltantes = ids.stream().filter(id -> !encontrados.containsKey(id)).toList();
+        if (!faltantes.isEmpty()) {
+            pedidoRepository.findArchivadosByIdIn(faltantes)
+                    .forEach(pedido -> encontrados.put(pedido.getId(), convertirAResponse(pedido)));
+        }
+        return List.copyOf(encontrados.values());
+    }
+
+    //Obtener pedido por número (caché read-through)
     public PedidoResponse obtenerPedidoPorNumero(String numeroPedido) {
-        Pedido pedido = pedidoRepository.findByNumeroPedido(numeroPedido)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con número: " + numeroPedido));
-        return convertirAResponse(pedido);
+        return pedidoCache.obtenerPorNumero(
+                numeroPedido,
+                numero -> {
+                    UUID id = buscarIdPorNumero(numero);
+                    if (id == null) {
+                        throw new IllegalArgumentException("Pedido no encontrado con número: " + numero);
+                    }
+                    return id;
+                },
+                this::cargarPedidoPorId
+        );
+    }
+
+    //ID del pedido (activo o archivado) con ese número en cualquier fragmento; null si no existe
+    private UUID buscarIdPorNumero(String numeroPedido) {
+        return fragmentos.reunir(fragmento -> pedidoRepository.findIdByNumeroPedido(numeroPedido)
+                        .or(() -> pedidoRepository.findIdArchivadoByNumeroPedido(numeroPedido))
+                        .stream().toList())
+                .stream().findFirst()
+                .orElse(null);
     }
 
     //Obtener pedidos de un cliente
     @Transactional(readOnly = true)
     public List<PedidoResponse> obtenerPedidosPorCliente(UUID clienteId) {
-        return pedidoRepository.findByClienteIdAndActivoTrue(clienteId).stream()
+        return fragmentos.reunir(fragmento -> pedidoRepository.findByClienteIdAndActivoTrue(clienteId)).stream()
                 .map(this::convertirAResponse)
                 .collect(Collectors.toList());
     }
@@ -142,7 +471,7 @@ public class PedidoService {
     //Obtener pedidos de un repartidor
     @Transactional(readOnly = true)
     public List<PedidoResponse> obtenerPedidosPorRepartidor(UUID repartidorId) {
-        return pedidoRepository.findByRepartidorIdAndActivoTrue(repartidorId).stream()
+        return fragmentos.reunir(fragmento -> pedidoRepository.findByRepartidorIdAndActivoTrue(repartidorId)).stream()
                 .map(this::convertirAResponse)
                 .collect(Collectors.toList());
     }
@@ -150,16 +479,16 @@ public class PedidoService {
     //Obtener pedidos por estado
     @Transactional(readOnly = true)
     public List<PedidoResponse> obtenerPedidosPorEstado(EstadoPedido estado) {
-        return pedidoRepository.findByEstadoAndActivoTrue(estado).stream()
+        return fragmentos.reunir(fragmento -> pedidoRepository.findByEstadoAndActivoTrue(estado)).stream()
                 .map(this::convertirAResponse)
                 .collect(Collectors.toList());
     }
 
-<<<<<<< HEAD
     //Obtener pedidos por zona
     @Transactional(readOnly = true)
     public List<PedidoResponse> obtenerPedidosPorZona(String zonaId) {
-        return pedidoRepository.findByZonaIdAndActivoTrue(zonaId).stream()
+        return fragmentos.reunir(fragmentos.fragmentosDeZona(zonaId),
+                        fragmento -> pedidoRepository.findByZonaIdAndActivoTrue(zonaId)).stream()
                 .map(this::convertirAResponse)
                 .collect(Collectors.toList());
     }
@@ -167,25 +496,63 @@ public class PedidoService {
     //Obtener pedidos por zona y estado
     @Transactional(readOnly = true)
     public List<PedidoResponse> obtenerPedidosPorZonaYEstado(String zonaId, EstadoPedido estado) {
-        return pedidoRepository.findByZonaIdAndEstadoAndActivoTrue(zonaId, estado).stream()
+        return fragmentos.reunir(fragmentos.fragmentosDeZona(zonaId),
+                        fragmento -> pedidoRepository.findByZonaIdAndEstadoAndActivoTrue(zonaId, estado)).stream()
                 .map(this::convertirAResponse)
                 .collect(Collectors.toList());
     }
 
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-    //Actualizar pedido
+    //Resúmenes (proyección PedidoResumen): sólo se leen las columnas necesarias para listados
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> obtenerResumenDePedidos() {
+        return fragmentos.reunir(fragmento -> pedidoRepository.findResumenByActivoTrue());
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> obtenerResumenPorCliente(UUID clienteId) {
+        return fragmentos.reunir(fragmento -> pedidoRepository.findResumenByClienteIdAndActivoTrue(clienteId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> obtenerResumenPorRepartidor(UUID repartidorId) {
+        return fragmentos.reunir(fragmento -> pedidoRepository.findResumenByRepartidorIdAndActivoTrue(repartidorId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> obtenerResumenPorEstado(EstadoPedido estado) {
+        return fragmentos.reunir(fragmento -> pedidoRepository.findResumenByEstadoAndActivoTrue(estado));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> obtenerResumenPorZona(String zonaId) {
+        return fragmentos.reunir(fragmentos.fragmentosDeZona(zonaId),
+                fragmento -> pedidoRepository.findResumenByZonaIdAndActivoTrue(zonaId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PedidoResumen> obtenerResumenPorZonaYEstado(String zonaId, EstadoPedido estado) {
+        return fragmentos.reunir(fragmentos.fragmentosDeZona(zonaId),
+                fragmento -> pedidoRepository.findResumenByZonaIdAndEstadoAndActivoTrue(zonaId, estado));
+    }
+
+    //Actualizar pedido (ruta general: lectura + escritura protegida por @Version)
     @Transactional
     public PedidoResponse actualizarPedido(UUID id, UpdatePedidoRequest request) {
-        Pedido pedido = pedidoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
+        Pedido pedido = buscarParaEscritura(id);
+        PedidoResponse anterior = convertirAResponse(pedido);
+
+        //Versión esperada por el cliente: si otro escritor la cambió, no se pisa su trabajo
+        if (request.getVersion() != null && !request.getVersion().equals(pedido.getVersion())) {
+            throw new ConflictoPedidoException(id, "El pedido fue modificado: versión actual " +
+                    pedido.getVersion() + ", esperada " + request.getVersion());
+        }
 
-<<<<<<< HEAD
         EstadoPedido estadoAnterior = pedido.getEstado();
 
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        if (request.getEstado() != null) {
+        if (request.getEstado() != null && request.getEstado() != estadoAnterior) {
+            if (!estadoAnterior.puedeTransicionarA(request.getEstado())) {
+                throw transicionNoPermitida(id, estadoAnterior, request.getEstado());
+            }
             pedido.setEstado(request.getEstado());
             //Si se marca como ENTREGADO, registrar fecha de entrega real
             if (request.getEstado() == EstadoPedido.ENTREGADO && request.getFechaEntregaReal() == null) {
@@ -227,169 +594,398 @@ public class PedidoService {
         }
 
         Pedido updatedPedido = pedidoRepository.save(pedido);
-<<<<<<< HEAD
         
         // Publicar evento si cambió el estado
         if (request.getEstado() != null && !estadoAnterior.equals(request.getEstado())) {
-            try {
-                Map<String, Object> eventData = new HashMap<>();
-                eventData.put("numeroPedido", updatedPedido.getNumeroPedido());
-                eventData.put("clienteNombre", updatedPedido.getClienteNombre());
-                eventData.put("repartidorNombre", updatedPedido.getRepartidorNombre());
-                
-                notificationProducer.publishPedidoEstadoActualizado(
-                    updatedPedido.getId().toString(),
-                    estadoAnterior.name(),
-                    updatedPedido.getEstado().name(),
-                    eventData
-                );
-            } catch (Exception e) {
-                System.err.println("Error al publicar evento pedido.estado.actualizado: " + e.getMessage());
-            }
-        }
-        
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        return convertirAResponse(updatedPedido);
-    }
-
-    //Asignar repartidor a pedido
-    @Transactional
-    public PedidoResponse asignarRepartidor(UUID pedidoId, UUID repartidorId, String repartidorNombre) {
-        Pedido pedido = pedidoRepository.findById(pedidoId)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + pedidoId));
-
-<<<<<<< HEAD
-        EstadoPedido estadoAnterior = pedido.getEstado();
-        
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        pedido.setRepartidorId(repartidorId);
-        pedido.setRepartidorNombre(repartidorNombre);
-        pedido.setEstado(EstadoPedido.ASIGNADO);
-
-        Pedido updatedPedido = pedidoRepository.save(pedido);
-<<<<<<< HEAD
-        
-        // Publicar evento de estado actualizado
-        try {
             Map<String, Object> eventData = new HashMap<>();
             eventData.put("numeroPedido", updatedPedido.getNumeroPedido());
             eventData.put("clienteNombre", updatedPedido.getClienteNombre());
-            eventData.put("repartidorId", repartidorId.toString());
-            eventData.put("repartidorNombre", repartidorNombre);
+            eventData.put("repartidorNombre", updatedPedido.getRepartidorNombre());
+            if (updatedPedido.getEstado() == EstadoPedido.ENTREGADO) {
+                agregarDatosFacturacion(eventData, updatedPedido);
+            }
             
             notificationProducer.publishPedidoEstadoActualizado(
                 updatedPedido.getId().toString(),
                 estadoAnterior.name(),
-                EstadoPedido.ASIGNADO.name(),
+                updatedPedido.getEstado().name(),
                 eventData
             );
-        } catch (Exception e) {
-            System.err.println("Error al publicar evento de asignación: " + e.getMessage());
         }
         
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        return convertirAResponse(updatedPedido);
+        return publicarCambio(TipoCambio.ACTUALIZADO, anterior, updatedPedido);
     }
 
-    //Cambiar estado del pedido
+    //Asignar repartidor a pedido (también reasigna un pedido ya ASIGNADO)
     @Transactional
-    public PedidoResponse cambiarEstado(UUID pedidoId, EstadoPedido nuevoEstado) {
-        Pedido pedido = pedidoRepository.findById(pedidoId)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + pedidoId));
-
-<<<<<<< HEAD
-        EstadoPedido estadoAnterior = pedido.getEstado();
+    public PedidoResponse asignarRepartidor(UUID pedidoId, UUID repartidorId, String repartidorNombre) {
+        TransicionPedido transicion = aplicarTransicion(pedidoId, EstadoPedido.ASIGNADO,
+                repartidorId, repartidorNombre, null);
+        Pedido updatedPedido = transicion.pedido();
+        EstadoPedido estadoAnterior = transicion.estadoAnterior();
         
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        pedido.setEstado(nuevoEstado);
-
-        //Si se marca como ENTREGADO, registrar fecha de entrega real
-        if (nuevoEstado == EstadoPedido.ENTREGADO && pedido.getFechaEntregaReal() == null) {
-            pedido.setFechaEntregaReal(LocalDateTime.now());
-        }
+        // Publicar evento de estado actualizado
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("numeroPedido", updatedPedido.getNumeroPedido());
+        eventData.put("clienteNombre", updatedPedido.getClienteNombre());
+        eventData.put("repartidorId", repartidorId.toString());
+        eventData.put("repartidorNombre", repartidorNombre);
+        
+        notificationProducer.publishPedidoEstadoActualizado(
+            updatedPedido.getId().toString(),
+            estadoAnterior.name(),
+            EstadoPedido.ASIGNADO.name(),
+            eventData
+        );
+        
+        return publicarCambio(TipoCambio.ASIGNADO, respuestaAnterior(transicion), updatedPedido);
+    }
 
-        Pedido updatedPedido = pedidoRepository.save(pedido);
-<<<<<<< HEAD
+    //Cambiar estado del pedido
+    @Transactional
+    public PedidoResponse cambiarEstado(UUID pedidoId, EstadoPedido nuevoEstado) {
+        //Si pasa a ENTREGADO, el mismo UPDATE registra la fecha de entrega real
+        TransicionPedido transicion = aplicarTransicion(pedidoId, nuevoEstado, null, null, null);
+        Pedido updatedPedido = transicion.pedido();
+        EstadoPedido estadoAnterior = transicion.estadoAnterior();
         
         // Publicar evento de estado actualizado
-        try {
-            Map<String, Object> eventData = new HashMap<>();
-            eventData.put("numeroPedido", updatedPedido.getNumeroPedido());
-            eventData.put("clienteNombre", updatedPedido.getClienteNombre());
-            eventData.put("repartidorNombre", updatedPedido.getRepartidorNombre());
-            
-            notificationProducer.publishPedidoEstadoActualizado(
-                updatedPedido.getId().toString(),
-                estadoAnterior.name(),
-                nuevoEstado.name(),
-                eventData
-            );
-        } catch (Exception e) {
-            System.err.println("Error al publicar evento cambio de estado: " + e.getMessage());
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("numeroPedido", updatedPedido.getNumeroPedido());
+        eventData.put("clienteNombre", updatedPedido.getClienteNombre());
+        eventData.put("repartidorNombre", updatedPedido.getRepartidorNombre());
+        if (nuevoEstado == EstadoPedido.ENTREGADO) {
+            agregarDatosFacturacion(eventData, updatedPedido);
         }
         
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        return convertirAResponse(updatedPedido);
+        notificationProducer.publishPedidoEstadoActualizado(
+            updatedPedido.getId().toString(),
+            estadoAnterior.name(),
+            nuevoEstado.name(),
+            eventData
+        );
+        
+        return publicarCambio(TipoCambio.ESTADO_CAMBIADO, respuestaAnterior(transicion), updatedPedido);
     }
 
-    //Cancelar pedido
+    //Cancelar pedido (no aplica a pedidos entregados, cancelados o devueltos)
     @Transactional
     public PedidoResponse cancelarPedido(UUID pedidoId, String motivo) {
-        Pedido pedido = pedidoRepository.findById(pedidoId)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + pedidoId));
+        TransicionPedido transicion = aplicarTransicion(pedidoId, EstadoPedido.CANCELADO,
+                null, null, "CANCELADO: " + motivo);
+        Pedido updatedPedido = transicion.pedido();
+        
+        // Publicar evento de pedido cancelado
+        notificationProducer.publishPedidoCancelado(updatedPedido.getId().toString(), motivo);
+        
+        return publicarCambio(TipoCambio.CANCELADO, respuestaAnterior(transicion), updatedPedido);
+    }
 
-        if (pedido.getEstado() == EstadoPedido.ENTREGADO) {
-            throw new IllegalStateException("No se puede cancelar un pedido que ya fue entregado");
+    //Transición en lote por lista de IDs o por (zona, estado origen): una sentencia y un evento agregado por fragmento
+    @Transactional
+    public TransicionLoteResponse transicionarEnLote(TransicionLoteRequest request) {
+        EstadoPedido destino = request.getEstadoDestino();
+        boolean porIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean porZona = request.getZonaId() != null || request.getEstadoOrigen() != null;
+        if (porIds == porZona) {
+            throw new IllegalArgumentException("Indique una lista de IDs o bien zonaId y estadoOrigen");
+        }
+        if (destino == EstadoPedido.ASIGNADO) {
+            //La asignación requiere un repartidor por pedido
+            throw new IllegalArgumentException("La asignación no se admite en lote; use PATCH /api/pedidos/{id}/asignar-repartidor");
         }
 
-        pedido.setEstado(EstadoPedido.CANCELADO);
-        pedido.setObservaciones(
-            (pedido.getObservaciones() != null ? pedido.getObservaciones() + " | " : "") +
-            "CANCELADO: " + motivo
-        );
+        List<UUID> ids = porIds ? request.getIds().stream().filter(Objects::nonNull).distinct().toList() : null;
+        if (!porIds) {
+            if (request.getZonaId() == null || request.getEstadoOrigen() == null) {
+                throw new IllegalArgumentException("El selector por zona requiere zonaId y estadoOrigen");
+            }
+            if (!request.getEstadoOrigen().puedeTransicionarA(destino)) {
+                throw new IllegalArgumentException("Transición no permitida de " + request.getEstadoOrigen()
+                        + " a " + destino + " (permitidas: " + request.getEstadoOrigen().siguientes() + ")");
+            }
+        }
 
-        Pedido updatedPedido = pedidoRepository.save(pedido);
-<<<<<<< HEAD
-        
-        // Publicar evento de pedido cancelado
-        try {
-            notificationProducer.publishPedidoCancelado(updatedPedido.getId().toString(), motivo);
-        } catch (Exception e) {
-            System.err.println("Error al publicar evento pedido.cancelado: " + e.getMessage());
+        //Una sentencia por fragmento candidato, cada una con el cupo que dejaron las anteriores.
+        //Los eventos de cada fragmento se registran en su misma transacción (ver crearPedidosEnLote)
+        Collection<String> candidatos = porIds ? fragmentos.fragmentos() : fragmentos.fragmentosDeZona(request.getZonaId());
+        LocalDateTime ahora = LocalDateTime.now();
+        List<TransicionPedido> transiciones = new ArrayList<>();
+        for (String fragmento : candidatos) {
+            int cupo = MAXIMO_TRANSICIONES_LOTE - transiciones.size();
+            if (cupo == 0) {
+                break;
+            }
+            transiciones.addAll(fragmentos.enTransaccion(fragmento, false, () -> {
+                List<TransicionPedido> parciales = pedidoRepository.transicionarEnLote(
+                        ids, request.getZonaId(), request.getEstadoOrigen(), destino, request.getNota(), ahora, cupo);
+                publicarTransicionesEnLote(parciales, destino);
+                return parciales;
+            }));
+        }
+
+        Map<UUID, TransicionPedido> porId = new HashMap<>();
+        transiciones.forEach(transicion -> porId.put(transicion.pedido().getId(), transicion));
+
+        List<TransicionLoteResponse.Resultado> resultados = porIds
+                ? resultadosPorIds(ids, porId, destino)
+                : transiciones.stream().map(PedidoService::resultadoTransicionado).toList();
+
+        return TransicionLoteResponse.builder()
+                .estadoDestino(destino)
+                .transicionados(transiciones.size())
+                .rechazados(resultados.size() - transiciones.size())
+                .limiteAlcanzado(!porIds && transiciones.size() == MAXIMO_TRANSICIONES_LOTE)
+                .resultados(resultados)
+                .build();
+    }
+
+    //Eventos internos por pedido (caché, índices y flujo de cambios) y un evento de notificación agregado
+    private void publicarTransicionesEnLote(List<TransicionPedido> transiciones, EstadoPedido destino) {
+        if (transiciones.isEmpty()) {
+            return;
+        }
+        TipoCambio tipo = destino == EstadoPedido.CANCELADO ? TipoCambio.CANCELADO : TipoCambio.ESTADO_CAMBIADO;
+        List<Map<String, Object>> datosEvento = new ArrayList<>(transiciones.size());
+        for (TransicionPedido transicion : transiciones) {
+            Pedido pedido = transicion.pedido();
+            publicarCambio(tipo, respuestaAnterior(transicion), pedido);
+
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("pedidoId", pedido.getId().toString());
+            datos.put("numeroPedido", pedido.getNumeroPedido());
+            datos.put("estadoAnterior", transicion.estadoAnterior().name());
+            datos.put("clienteNombre", pedido.getClienteNombre());
+            if (destino == EstadoPedido.ENTREGADO) {
+                agregarDatosFacturacion(datos, pedido);
+            }
+            datosEvento.add(datos);
+        }
+        notificationProducer.publishPedidosEstadoActualizadoEnLote(destino.name(), datosEvento);
+    }
+
+    //Resultado en el orden de la solicitud; sólo los rechazados requieren una consulta adicional
+    private List<TransicionLoteResponse.Resultado> resultadosPorIds(List<UUID> ids, Map<UUID, TransicionPedido> porId,
+                                                                    EstadoPedido destino) {
+        List<UUID> rechazados = ids.stream().filter(id -> !porId.containsKey(id)).toList();
+        Map<UUID, EstadoPedido> estadosActuales = rechazados.isEmpty() ? Map.of()
+                : fragmentos.reunir(fragmento -> pedidoRepository.findResumenByIdInAndActivoTrue(rechazados)).stream()
+                        .collect(Collectors.toMap(PedidoResumen::id, PedidoResumen::estado, (primero, otro) -> primero));
+
+        return ids.stream().map(id -> {
+            TransicionPedido transicion = porId.get(id);
+            if (transicion != null) {
+                return resultadoTransicionado(transicion);
+            }
+            EstadoPedido actual = estadosActuales.get(id);
+            return TransicionLoteResponse.Resultado.builder()
+                    .pedidoId(id)
+                    .estado(RESULTADO_RECHAZADO)
+                    .estadoAnterior(actual)
+                    .motivo(actual == null ? "Pedido no encontrado con ID: " + id
+                            : transicionNoPermitida(id, actual, destino).getMessage())
+                    .build();
+        }).toList();
+    }
+
+    private static TransicionLoteResponse.Resultado resultadoTransicionado(TransicionPedido transicion) {
+        Pedido pedido = transicion.pedido();
+        return TransicionLoteResponse.Resultado.builder()
+                .pedidoId(pedido.getId())
+                .numeroPedido(pedido.getNumeroPedido())
+                .estado(RESULTADO_TRANSICIONADO)
+                .estadoAnterior(transicion.estadoAnterior())
+                .version(pedido.getVersion())
+                .build();
+    }
+
+    //Datos con los que billing-service factura la entrega al consumir el evento, sin consultar a este servicio
+    private static void agregarDatosFacturacion(Map<String, Object> datos, Pedido pedido) {
+        datos.put("pedidoId", pedido.getId().toString());
+        datos.put("numeroPedido", pedido.getNumeroPedido());
+        datos.put("clienteId", pedido.getClienteId().toString());
+        datos.put("clienteNombre", pedido.getClienteNombre());
+        datos.put("tipoEntrega", pedido.getTipoEntrega().name());
+        datos.put("prioridad", pedido.getPrioridad().name());
+        if (pedido.getPesoKg() != null) {
+            datos.put("pesoKg", pedido.getPesoKg());
+        }
+        if (pedido.getLatitudOrigen() != null && pedido.getLongitudOrigen() != null
+                && pedido.getLatitudDestino() != null && pedido.getLongitudDestino() != null) {
+            datos.put("distanciaKm", BigDecimal.valueOf(GeoUtil.distanciaKm(pedido.getLatitudOrigen(),
+                    pedido.getLongitudOrigen(), pedido.getLatitudDestino(), pedido.getLongitudDestino()))
+                    .setScale(2, RoundingMode.HALF_UP));
         }
-        
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
-        return convertirAResponse(updatedPedido);
     }
 
     //Eliminación lógica
     @Transactional
     public void eliminarPedido(UUID id) {
-        Pedido pedido = pedidoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
+        Pedido pedido = buscarParaEscritura(id);
+        PedidoResponse anterior = convertirAResponse(pedido);
         pedido.setActivo(false);
-        pedidoRepository.save(pedido);
+        Pedido eliminado = pedidoRepository.save(pedido);
+        publicarCambio(TipoCambio.ELIMINADO, anterior, eliminado);
     }
 
-    //Generar número de pedido único (formato: PED-YYYYMMDD-HHMMSS-XXXX)
-    private String generarNumeroPedido() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-        String random = String.format("%04d", (int)(Math.random() * 10000));
-        String numero = "PED-" + timestamp + "-" + random;
+    //Cargar un pedido desde la base de datos (usado por la caché en caso de fallo); el archivo es el respaldo.
+    //Se lee de la principal: lo cargado queda en caché hasta la próxima escritura, y una réplica atrasada
+    //dejaría allí (y en los ETags) una versión vieja. Réplicas y fragmentos no se combinan, así que
+    //con réplicas reunir consulta en este mismo hilo
+    private PedidoResponse cargarPedidoPorId(UUID id) {
+        return ReplicasLectura.enPrincipal(() -> fragmentos.reunir(fragmento -> pedidoRepository.findById(id)
+                        .or(() -> pedidoRepository.findArchivadoById(id))
+                        .map(this::convertirAResponse)
+                        .stream().toList())
+                .stream().findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id)));
+    }
 
-        //Verificar unicidad
-        while (pedidoRepository.existsByNumeroPedido(numero)) {
-            random = String.format("%04d", (int)(Math.random() * 10000));
-            numero = "PED-" + timestamp + "-" + random;
+    //Cargar el pedido a modificar: la primera sentencia fija la conexión de la transacción a su fragmento
+    private Pedido buscarParaEscritura(UUID id) {
+        try (FragmentosPedidos.Ambito ambito = fragmentos.usar(fragmentoDePedido(id))) {
+            return pedidoRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
         }
+    }
+
+    //Fragmento que guarda el pedido; si la caché conoce su zona sólo se consultan sus candidatos
+    private String fragmentoDePedido(UUID id) {
+        if (!fragmentos.esFragmentado()) {
+            return FragmentosPedidos.FRAGMENTO_UNICO;
+        }
+        PedidoResponse enCache = pedidoCache.obtenerSiPresente(id);
+        Collection<String> candidatos = enCache != null
+                ? fragmentos.fragmentosDeZona(enCache.getZonaId())
+                : fragmentos.fragmentos();
+        //Durante un rebalanceo puede estar en ambos; los candidatos empiezan por el dueño vigente
+        return fragmentos.reunir(candidatos, fragmento -> pedidoRepository.existeEnFragmento(id)
+                        ? List.of(fragmento) : List.<String>of())
+                .stream().findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
+    }
+
+    //Transición como compare-and-set: un único UPDATE condicionado al estado de origen
+    private TransicionPedido aplicarTransicion(UUID pedidoId, EstadoPedido nuevoEstado, UUID repartidorId,
+                                               String repartidorNombre, String nota) {
+        try (FragmentosPedidos.Ambito ambito = fragmentos.usar(fragmentoDePedido(pedidoId))) {
+            return pedidoRepository.transicionar(pedidoId, nuevoEstado, repartidorId, repartidorNombre, nota,
+                            LocalDateTime.now())
+                    .orElseThrow(() -> {
+                        //Sólo en el camino de fallo se consulta el estado para distinguir 404 de 409
+                        EstadoPedido actual = pedidoRepository.findEstadoActivoById(pedidoId)
+                                .orElseThrow(() -> pedidoNoEncontrado(pedidoId));
+                        return transicionNoPermitida(pedidoId, actual, nuevoEstado);
+                    });
+        }
+    }
+
+    //Si el rebalanceo lo movió entre la ubicación y el UPDATE, el reintento lo encuentra en su nuevo fragmento
+    private RuntimeException pedidoNoEncontrado(UUID pedidoId) {
+        if (fragmentos.rebalanceoEnCurso()) {
+            return new ConflictoPedidoException(pedidoId, "El pedido cambió de fragmento durante un rebalanceo; reintente");
+        }
+        return new IllegalArgumentException("Pedido no encontrado con ID: " + pedidoId);
+    }
+
+    private ConflictoPedidoException transicionNoPermitida(UUID pedidoId, EstadoPedido actual, EstadoPedido nuevo) {
+        return new ConflictoPedidoException(pedidoId,
+                "Transición no permitida de " + actual + " a " + nuevo + " (permitidas: " + actual.siguientes() + ")");
+    }
+
+    //El UPDATE sólo devuelve la fila nueva; el estado previo viene de la transición
+    private PedidoResponse respuestaAnterior(TransicionPedido transicion) {
+        PedidoResponse anterior = convertirAResponse(transicion.pedido());
+        anterior.setEstado(transicion.estadoAnterior());
+        return anterior;
+    }
+
+    //Validar que la solicitud incluya coordenadas de origen y destino
+    private void validarCoordenadas(CreatePedidoRequest request) {
+        if (request.getLatitudOrigen() == null || request.getLongitudOrigen() == null ||
+            request.getLatitudDestino() == null || request.getLongitudDestino() == null) {
+            throw new IllegalArgumentException("Las coordenadas de origen y destino son obligatorias");
+        }
+    }
+
+    private String mensajeCoberturaExcedida(CreatePedidoRequest request) {
+        return "La distancia entre origen y destino excede el límite para el tipo de entrega: " +
+                request.getTipoEntrega().name();
+    }
+
+    //Crear entidad - Usar constructor new() en lugar de builder para evitar @Builder.Default
+    private Pedido construirPedido(CreatePedidoRequest request, String numeroPedido) {
+        Pedido pedido = new Pedido();
+        pedido.setId(null);  // Forzar estado transient
+        pedido.setNumeroPedido(numeroPedido);
+        pedido.setClienteId(request.getClienteId());
+        pedido.setClienteNombre(request.getClienteNombre());
+        pedido.setTipoEntrega(request.getTipoEntrega());
+        pedido.setEstado(EstadoPedido.RECIBIDO);
+        pedido.setPrioridad(request.getPrioridad() != null ? request.getPrioridad() : PrioridadPedido.NORMAL);
+        pedido.setDireccionOrigen(request.getDireccionOrigen());
+        pedido.setLatitudOrigen(request.getLatitudOrigen());
+        pedido.setLongitudOrigen(request.getLongitudOrigen());
+        pedido.setDireccionDestino(request.getDireccionDestino());
+        pedido.setLatitudDestino(request.getLatitudDestino());
+        pedido.setLongitudDestino(request.getLongitudDestino());
+        pedido.setZonaId(request.getZonaId());
+        pedido.setDescripcionPaquete(request.getDescripcionPaquete());
+        pedido.setPesoKg(request.getPesoKg());
+        pedido.setDimensiones(request.getDimensiones());
+        pedido.setTarifaBase(BigDecimal.ZERO);
+        pedido.setTarifaTotal(BigDecimal.ZERO);
+        //Fecha estimada del historial de entregas si no viene, o ajustada si es más optimista que lo observado
+        pedido.setFechaEstimadaEntrega(estimadorEntregas.estimar(request.getZonaId(), request.getTipoEntrega(),
+                pedido.getPrioridad(), LocalDateTime.now(), request.getFechaEstimadaEntrega()));
+        pedido.setObservaciones(request.getObservaciones());
+        pedido.setActivo(true);
+        return pedido;
+    }
+
+    //Datos del evento de creación publicados a RabbitMQ
+    private Map<String, Object> datosEventoCreacion(Pedido pedido) {
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("numeroPedido", pedido.getNumeroPedido());
+        eventData.put("clienteNombre", pedido.getClienteNombre());
+        eventData.put("tipoEntrega", pedido.getTipoEntrega().name());
+        eventData.put("prioridad", pedido.getPrioridad().name());
+        eventData.put("direccionDestino", pedido.getDireccionDestino());
+        return eventData;
+    }
+
+    //Validar un elemento del lote sin lanzar excepciones: devuelve la entidad o el motivo del rechazo
+    private ItemLote validarItemLote(int indice, CreatePedidoRequest request) {
+        if (request == null) {
+            return new ItemLote(indice, null, "El pedido es nulo");
+        }
+
+        Set<ConstraintViolation<CreatePedidoRequest>> violaciones = validator.validate(request);
+        if (!violaciones.isEmpty()) {
+            String motivo = violaciones.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new ItemLote(indice, null, motivo);
+        }
+
+        try {
+            validarCoordenadas(request);
+            Pedido pedido = construirPedido(request, null);
+            if (!pedido.validarCobertura()) {
+                return new ItemLote(indice, null, mensajeCoberturaExcedida(request));
+            }
+            return new ItemLote(indice, pedido, null);
+        } catch (IllegalArgumentException e) {
+            return new ItemLote(indice, null, e.getMessage());
+        }
+    }
 
-        return numero;
+    //Publicar el cambio para los componentes en memoria y devolver la respuesta
+    private PedidoResponse publicarCambio(TipoCambio tipo, PedidoResponse anterior, Pedido pedido) {
+        PedidoResponse actual = convertirAResponse(pedido);
+        eventPublisher.publishEvent(new PedidoCambiadoEvent(tipo, anterior, actual));
+        return actual;
     }
 
     //Convertir entidad a DTO
@@ -410,10 +1006,7 @@ public class PedidoService {
                 .direccionDestino(pedido.getDireccionDestino())
                 .latitudDestino(pedido.getLatitudDestino())
                 .longitudDestino(pedido.getLongitudDestino())
-<<<<<<< HEAD
                 .zonaId(pedido.getZonaId())
-=======
->>>>>>> 9e74cc4ddb0f03faf66297a7ffe73dc4a3b2a29a
                 .descripcionPaquete(pedido.getDescripcionPaquete())
                 .pesoKg(pedido.getPesoKg())
                 .dimensiones(pedido.getDimensiones())
@@ -425,6 +1018,7 @@ public class PedidoService {
                 .activo(pedido.getActivo())
                 .fechaCreacion(pedido.getFechaCreacion())
                 .fechaActualizacion(pedido.getFechaActualizacion())
+                .version(pedido.getVersion())
                 .build();
     }
 }
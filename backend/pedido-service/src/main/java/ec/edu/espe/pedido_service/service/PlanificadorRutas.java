@@ -0,0 +1,108 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.dto.RutaRepartidorResponse;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.util.GeoUtil;
+import ec.edu.espe.pedido_service.util.OptimizadorRuta;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+//Orden de entrega de los pedidos pendientes de un repartidor según sus coordenadas de destino
+@Service
+public class PlanificadorRutas {
+
+    //Estados en los que el pedido aún debe entregarse
+    private static final Set<EstadoPedido> PENDIENTES = Set.of(EstadoPedido.ASIGNADO, EstadoPedido.EN_RUTA);
+
+    //La matriz de distancias crece con el cuadrado de las paradas
+    public static final int MAXIMO_PARADAS = 500;
+
+    private final PedidoService pedidoService;
+    private final Duration presupuesto;
+    private final Timer tiempoPlanificacion;
+
+    public PlanificadorRutas(PedidoService pedidoService,
+                             MeterRegistry meterRegistry,
+                             @Value("${pedidos.rutas.presupuesto-ms:200}") long presupuestoMs) {
+        this.pedidoService = pedidoService;
+        this.presupuesto = Duration.ofMillis(presupuestoMs);
+        this.tiempoPlanificacion = Timer.builder("pedidos.rutas.planificacion")
+                .description("Tiempo de cálculo de la ruta de un repartidor")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param latitud  posición actual del repartidor (junto con longitud; ambas opcionales)
+     * @param longitud posición actual del repartidor
+     */
+    public RutaRepartidorResponse planificar(UUID repartidorId, Double latitud, Double longitud) {
+        if ((latitud == null) != (longitud == null)) {
+            throw new IllegalArgumentException("Indique latitud y longitud del punto de partida, o ninguna");
+        }
+
+        List<PedidoResponse> conCoordenadas = new ArrayList<>();
+        List<UUID> sinCoordenadas = new ArrayList<>();
+        for (PedidoResponse pedido : pedidoService.obtenerPedidosPorRepartidor(repartidorId)) {
+            if (!PENDIENTES.contains(pedido.getEstado())) {
+                continue;
+            }
+            if (pedido.getLatitudDestino() == null || pedido.getLongitudDestino() == null) {
+                sinCoordenadas.add(pedido.getId());
+            } else {
+                conCoordenadas.add(pedido);
+            }
+        }
+        if (conCoordenadas.size() > MAXIMO_PARADAS) {
+            throw new IllegalArgumentException("El repartidor tiene más de " + MAXIMO_PARADAS + " paradas pendientes");
+        }
+        //Orden de entrada estable: el mismo conjunto de pedidos produce la misma ruta
+        conCoordenadas.sort(Comparator.comparing(PedidoResponse::getId));
+
+        long inicio = System.nanoTime();
+        double[] latitudes = conCoordenadas.stream().mapToDouble(PedidoResponse::getLatitudDestino).toArray();
+        double[] longitudes = conCoordenadas.stream().mapToDouble(PedidoResponse::getLongitudDestino).toArray();
+        OptimizadorRuta.Plan plan = OptimizadorRuta.planificar(latitudes, longitudes, latitud, longitud, presupuesto);
+        long nanos = System.nanoTime() - inicio;
+        tiempoPlanificacion.record(Duration.ofNanos(nanos));
+
+        List<RutaRepartidorResponse.Parada> paradas = new ArrayList<>(plan.orden().length);
+        Double latAnterior = latitud;
+        Double lonAnterior = longitud;
+        for (int indice : plan.orden()) {
+            PedidoResponse pedido = conCoordenadas.get(indice);
+            paradas.add(RutaRepartidorResponse.Parada.builder()
+                    .orden(paradas.size() + 1)
+                    .pedidoId(pedido.getId())
+                    .numeroPedido(pedido.getNumeroPedido())
+                    .estado(pedido.getEstado())
+                    .direccionDestino(pedido.getDireccionDestino())
+                    .latitud(pedido.getLatitudDestino())
+                    .longitud(pedido.getLongitudDestino())
+                    .distanciaKm(latAnterior == null ? 0.0 : GeoUtil.distanciaKm(
+                            latAnterior, lonAnterior, pedido.getLatitudDestino(), pedido.getLongitudDestino()))
+                    .build());
+            latAnterior = pedido.getLatitudDestino();
+            lonAnterior = pedido.getLongitudDestino();
+        }
+
+        return RutaRepartidorResponse.builder()
+                .repartidorId(repartidorId)
+                .paradas(paradas)
+                .sinCoordenadas(sinCoordenadas)
+                .distanciaTotalKm(plan.distanciaKm())
+                .distanciaInicialKm(plan.distanciaInicialKm())
+                .tiempoCalculoMs(Duration.ofNanos(nanos).toMillis())
+                .presupuestoAgotado(plan.presupuestoAgotado())
+                .build();
+    }
+}
@@ -0,0 +1,240 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.dto.EstadoFragmentosResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Rebalanceo en línea de los pedidos entre fragmentos: recorre las zonas presentes en cada
+ * fragmento y mueve las que, según el mapa vigente, pertenecen a otro.
+ * Cada lote se toma con FOR UPDATE SKIP LOCKED en el origen (no espera a los escritores),
+ * se copia e inserta en el destino, se confirma allí y recién entonces se borra del origen.
+ * Mientras tanto las lecturas por zona consultan al dueño anterior y al nuevo
+ * (pedidos.fragmentos.anteriores), así que los pedidos siguen visibles durante todo el proceso.
+ * Copiar es idempotente y no pisa lo que el destino ya tiene: si el proceso se interrumpe entre
+ * ambas confirmaciones, la próxima ejecución sólo inserta las filas que faltan y actualiza las que
+ * el destino tenga con una versión anterior; las que allí ya se modificaron o archivaron se conservan.
+ */
+@Component
+@Slf4j
+public class RebalanceadorFragmentos {
+
+    //pedidos_historico primero: sus particiones se crean antes de insertar.
+    //Columnas explícitas: las generadas (busqueda) no admiten valores en el INSERT
+    private static final List<String> TABLAS = List.of("pedidos_historico", "pedidos");
+
+    private static final String SQL_ZONAS = "SELECT zona_id FROM pedidos UNION SELECT zona_id FROM pedidos_historico";
+
+    //Filas del lote como un único arreglo JSON: se reinsertan en el destino con json_populate_recordset
+    private static final String SQL_TOMAR_LOTE = """
+            SELECT json_agg(l) FROM (
+                SELECT * FROM %s WHERE zona_id = ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) l""";
+
+    private static final String SQL_BORRAR_LOTE =
+            "DELETE FROM %1$s WHERE id IN (SELECT id FROM json_populate_recordset(NULL::%1$s, ?::json))";
+
+    //Copia sin pisar el destino: filas ausentes en ambas tablas, o más nuevas (version) que las suyas
+    private static final String SQL_COPIAR_LOTE = """
+            INSERT INTO %1$s (%2$s)
+            SELECT %2$s FROM json_populate_recordset(NULL::%1$s, ?::json) l
+            WHERE NOT EXISTS (SELECT 1 FROM %3$s o WHERE o.id = l.id)
+            ON CONFLICT (%4$s) DO UPDATE SET %5$s
+            WHERE %1$s.version < EXCLUDED.version""";
+
+    private static final String SQL_MESES_LOTE = """
+            SELECT DISTINCT CAST(date_trunc('month', fecha_creacion) AS date)
+            FROM json_populate_recordset(NULL::pedidos_historico, ?::json)""";
+
+    private final FragmentosPedidos fragmentos;
+    private final int tamanioLote;
+
+    private final AtomicBoolean ejecutando = new AtomicBoolean();
+    private volatile EstadoFragmentosResponse.Rebalanceo ultimo;
+
+    private final Counter filasMovidas;
+
+    public RebalanceadorFragmentos(FragmentosPedidos fragmentos,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${pedidos.fragmentos.tamanio-lote-rebalanceo:500}") int tamanioLote) {
+        this.fragmentos = fragmentos;
+        this.tamanioLote = tamanioLote;
+        this.filasMovidas = Counter.builder("pedidos.fragmentos.rebalanceo.movidos")
+                .description("Filas de pedidos movidas entre fragmentos por el rebalanceo")
+                .register(meterRegistry);
+    }
+
+    //Lanzar el rebalanceo en segundo plano; false si ya hay uno en ejecución en esta instancia
+    public boolean iniciar() {
+        if (!fragmentos.esFragmentado()) {
+            throw new IllegalArgumentException("El servicio no está fragmentado (pedidos.fragmentos.urls)");
+        }
+        if (!ejecutando.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofVirtual().name("rebalanceo-fragmentos").start(() -> {
+            try {
+                rebalancear();
+            } finally {
+                ejecutando.set(false);
+            }
+        });
+        return true;
+    }
+
+    public EstadoFragmentosResponse estado() {
+        Map<String, Long> pedidosPorFragmento = new LinkedHashMap<>();
+        for (String fragmento : fragmentos.fragmentos()) {
+            pedidosPorFragmento.put(fragmento, new JdbcTemplate(fragmentos.dataSource(fragmento))
+                    .queryForObject("SELECT count(*) FROM pedidos WHERE activo", Long.class));
+        }
+        return EstadoFragmentosResponse.builder()
+                .fragmentado(fragmentos.esFragmentado())
+                .rebalanceoEnCurso(fragmentos.rebalanceoEnCurso())
+                .rebalanceoEjecutando(ejecutando.get())
+                .pedidosPorFragmento(pedidosPorFragmento)
+                .ultimoRebalanceo(ultimo)
+                .build();
+    }
+
+    //Mover a su dueño vigente cada zona que quedó en otro fragmento
+    EstadoFragmentosResponse.Rebalanceo rebalancear() {
+        EstadoFragmentosResponse.Rebalanceo resultado = EstadoFragmentosResponse.Rebalanceo.builder()
+                .inicio(LocalDateTime.now())
+                .build();
+        ultimo = resultado;
+        try {
+            for (String origen : fragmentos.fragmentos()) {
+                List<String> zonas = new JdbcTemplate(fragmentos.dataSource(origen)).queryForList(SQL_ZONAS, String.class);
+                for (String zona : zonas) {
+                    String destino = fragmentos.fragmentoDeZona(zona);
+                    if (destino.equals(origen)) {
+                        continue;
+                    }
+                    for (String tabla : TABLAS) {
+                        resultado.setFilasMovidas(resultado.getFilasMovidas() + moverZona(tabla, zona, origen, destino));
+                    }
+                    resultado.setFilasPendientes(resultado.getFilasPendientes() + pendientes(zona, origen));
+                    resultado.setZonasMovidas(resultado.getZonasMovidas() + 1);
+                    log.info("Rebalanceo: zona {} movida de {} a {}", zona, origen, destino);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            //Lo ya confirmado queda en el destino; lo restante se mueve en la próxima ejecución
+            resultado.setError(e.getMessage());
+            log.error("Error en el rebalanceo de fragmentos: {}", e.getMessage());
+        }
+        resultado.setFin(LocalDateTime.now());
+        log.info("Rebalanceo terminado: {} zonas, {} filas movidas, {} pendientes",
+                resultado.getZonasMovidas(), resultado.getFilasMovidas(), resultado.getFilasPendientes());
+        return resultado;
+    }
+
+    //Mover una zona de una tabla por lotes hasta que el origen no entregue más filas libres
+    private long moverZona(String tabla, String zona, String origen, String destino) throws SQLException {
+        long total = 0;
+        try (Connection conexionOrigen = fragmentos.dataSource(origen).getConnection();
+             Connection conexionDestino = fragmentos.dataSource(destino).getConnection()) {
+            conexionOrigen.setAutoCommit(false);
+            conexionDestino.setAutoCommit(false);
+            try {
+                int movidas;
+                do {
+                    movidas = moverLote(tabla, zona, conexionOrigen, conexionDestino, destino);
+                    total += movidas;
+                    filasMovidas.increment(movidas);
+                } while (movidas == tamanioLote);
+            } catch (SQLException | RuntimeException e) {
+                conexionDestino.rollback();
+                conexionOrigen.rollback();
+                throw e;
+            }
+        }
+        return total;
+    }
+
+    private int moverLote(String tabla, String zona, Connection origen, Connection destino,
+                          String fragmentoDestino) throws SQLException {
+        String lote;
+        try (PreparedStatement tomar = origen.prepareStatement(SQL_TOMAR_LOTE.formatted(tabla))) {
+            tomar.setString(1, zona);
+            tomar.setInt(2, tamanioLote);
+            try (ResultSet resultado = tomar.executeQuery()) {
+                resultado.next();
+                lote = resultado.getString(1);
+            }
+        }
+        if (lote == null) {
+            origen.rollback();
+            return 0;
+        }
+
+        if (tabla.equals("pedidos_historico")) {
+            asegurarParticiones(fragmentoDestino, lote);
+        }
+        ejecutar(destino, sqlCopiarLote(tabla), lote);
+        destino.commit();
+
+        //Recién con la copia confirmada se libera el origen (sus filas siguen bloqueadas hasta aquí).
+        //Se cuentan las filas tomadas del origen: las que el destino conservó también dejan el origen
+        int filas = ejecutar(origen, SQL_BORRAR_LOTE.formatted(tabla), lote);
+        origen.commit();
+        return filas;
+    }
+
+    private static String sqlCopiarLote(String tabla) {
+        boolean historico = tabla.equals("pedidos_historico");
+        //La clave de pedidos_historico incluye la columna de partición
+        List<String> clave = historico ? List.of("id", "fecha_creacion") : List.of("id");
+        String columnas = columnas(tabla);
+        String asignaciones = Arrays.stream(columnas.split(","))
+                .map(String::strip)
+                .filter(columna -> !clave.contains(columna))
+                .map(columna -> columna + " = EXCLUDED." + columna)
+                .collect(Collectors.joining(", "));
+        return SQL_COPIAR_LOTE.formatted(tabla, columnas, historico ? "pedidos" : "pedidos_historico",
+                String.join(", ", clave), asignaciones);
+    }
+
+    //Particiones mensuales del destino, fuera de la transacción del lote (como en el archivador)
+    private void asegurarParticiones(String fragmento, String lote) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(fragmentos.dataSource(fragmento));
+        for (LocalDate mes : jdbcTemplate.queryForList(SQL_MESES_LOTE, LocalDate.class, lote)) {
+            jdbcTemplate.execute(ArchivadorPedidos.sqlCrearParticion(mes));
+        }
+    }
+
+    private static String columnas(String tabla) {
+        return tabla.equals("pedidos_historico") ? ArchivadorPedidos.COLUMNAS + ", fecha_archivado" : ArchivadorPedidos.COLUMNAS;
+    }
+
+    private long pendientes(String zona, String origen) {
+        return new JdbcTemplate(fragmentos.dataSource(origen)).queryForObject(
+                "SELECT (SELECT count(*) FROM pedidos WHERE zona_id = ?) + (SELECT count(*) FROM pedidos_historico WHERE zona_id = ?)",
+                Long.class, zona, zona);
+    }
+
+    private static int ejecutar(Connection conexion, String sql, String lote) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            sentencia.setString(1, lote);
+            return sentencia.executeUpdate();
+        }
+    }
+}
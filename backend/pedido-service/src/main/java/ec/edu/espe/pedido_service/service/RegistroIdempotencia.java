@@ -0,0 +1,341 @@
+package ec.edu.espe.pedido_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Claves de idempotencia (cabecera Idempotency-Key) para las operaciones de creación.
+ * La primera solicitud con una clave reserva la clave en claves_idempotencia, ejecuta la operación
+ * y guarda la respuesta; las repeticiones devuelven esa respuesta sin volver a ejecutarla ni tocar
+ * las tablas de pedidos. Las repeticiones concurrentes en la misma instancia esperan el resultado de
+ * la ejecución en curso; las de otras instancias lo encuentran en la tabla. Las respuestas recientes
+ * se conservan además en memoria (acotada y con expiración) para no consultar la base.
+ * La clave se asocia al usuario autenticado y a una huella del cuerpo: reutilizarla con otro
+ * cuerpo es un error del cliente.
+ * La respuesta se guarda en la misma transacción que la operación y sólo si la reserva sigue siendo
+ * la propia: si venció y otra solicitud la tomó, esta ejecución se deshace en lugar de duplicarse.
+ * Con fragmentación la confirmación queda en el fragmento donde escribió la operación (las
+ * repeticiones, con el mismo cuerpo, van al mismo fragmento) y se copia luego al fragmento inicial.
+ */
+@Component
+@Slf4j
+public class RegistroIdempotencia {
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    public static final int LONGITUD_MAXIMA_CLAVE = 255;
+
+    //Una reserva vencida (p. ej. la instancia cayó a mitad de la operación) se puede volver a tomar
+    private static final String SQL_RESERVAR = """
+            INSERT INTO claves_idempotencia (clave, huella, estado, fecha_creacion, fecha_expiracion)
+            VALUES (?, ?, 'EN_CURSO', ?, ?)
+            ON CONFLICT (clave) DO UPDATE
+                SET huella = EXCLUDED.huella, estado = 'EN_CURSO', respuesta = NULL,
+                    fecha_creacion = EXCLUDED.fecha_creacion, fecha_expiracion = EXCLUDED.fecha_expiracion
+                WHERE claves_idempotencia.fecha_expiracion < EXCLUDED.fecha_creacion""";
+
+    //La fecha de creación identifica la reserva: sólo la vigente, aún EN_CURSO, se completa
+    private static final String SQL_COMPLETAR = """
+            INSERT INTO claves_idempotencia (clave, huella, estado, respuesta, fecha_creacion, fecha_expiracion)
+            VALUES (?, ?, 'COMPLETADA', ?, ?, ?)
+            ON CONFLICT (clave) DO UPDATE
+                SET estado = 'COMPLETADA', respuesta = EXCLUDED.respuesta, fecha_expiracion = EXCLUDED.fecha_expiracion
+                WHERE claves_idempotencia.estado = 'EN_CURSO'
+                  AND claves_idempotencia.fecha_creacion = EXCLUDED.fecha_creacion""";
+
+    private static final String SQL_LIBERAR =
+            "DELETE FROM claves_idempotencia WHERE clave = ? AND estado = 'EN_CURSO' AND fecha_creacion = ?";
+
+    private static final String SQL_LEER = "SELECT huella, respuesta FROM claves_idempotencia WHERE clave = ?";
+
+    private final FragmentosPedidos fragmentos;
+    private final JdbcTemplate jdbcTemplate;
+    //Conexión de la transacción en curso (la de la operación) y la transacción que la envuelve
+    private final JdbcTemplate enTransaccion;
+    private final TransactionTemplate transaccion;
+    private final ObjectMapper objectMapper;
+    private final Duration vigencia;
+    private final Duration esperaMaxima;
+
+    //Ejecuciones en curso y respuestas recientes de esta instancia
+    private final Cache<String, CompletableFuture<Guardada>> recientes;
+
+    private final Counter repeticiones;
+    private final Counter esperas;
+
+    public enum Estado {
+        //Primera solicitud con la clave: la operación se ejecutó
+        EJECUTADA,
+        //Repetición: respuesta guardada de la primera ejecución
+        REPETIDA,
+        //Otra solicitud con la clave sigue en curso pasado el tiempo de espera
+        EN_CURSO,
+        //La clave ya se usó con un cuerpo distinto
+        CLAVE_REUTILIZADA
+    }
+
+    public record Resultado<T>(Estado estado, T cuerpo) {
+    }
+
+    //Respuesta guardada (null mientras la operación está en curso) y huella del cuerpo que la originó
+    private record Guardada(String huella, String respuesta) {
+    }
+
+    private record Ejecucion<T>(T cuerpo, String respuesta) {
+    }
+
+    //Otra solicitud tomó la reserva vencida o ya la completó: deshace la transacción de esta ejecución
+    private static class ReservaPerdida extends RuntimeException {
+        private final transient Guardada guardada;
+
+        ReservaPerdida(Guardada guardada) {
+            super(null, null, false, false);
+            this.guardada = guardada;
+        }
+    }
+
+    public RegistroIdempotencia(FragmentosPedidos fragmentos,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${pedidos.idempotencia.vigencia-horas:24}") long vigenciaHoras,
+                                @Value("${pedidos.idempotencia.maximo-en-memoria:10000}") long maximoEnMemoria,
+                                @Value("${pedidos.idempotencia.espera-maxima-ms:10000}") long esperaMaximaMs) {
+        //Las claves viven en el fragmento inicial, como la numeración
+        this.fragmentos = fragmentos;
+        this.jdbcTemplate = new JdbcTemplate(fragmentos.dataSource(fragmentos.inicial()));
+        this.enTransaccion = new JdbcTemplate(dataSource);
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.vigencia = Duration.ofHours(vigenciaHoras);
+        this.esperaMaxima = Duration.ofMillis(esperaMaximaMs);
+        this.recientes = Caffeine.newBuilder()
+                .maximumSize(maximoEnMemoria)
+                .expireAfterWrite(vigencia)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, recientes, "pedidos.idempotencia");
+        this.repeticiones = Counter.builder("pedidos.idempotencia.repeticiones")
+                .description("Solicitudes repetidas respondidas con la respuesta guardada")
+                .register(meterRegistry);
+        this.esperas = Counter.builder("pedidos.idempotencia.esperas")
+                .description("Solicitudes repetidas que esperaron a la ejecución en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave.
+     *
+     * @param operacion nombre de la operación (la misma clave en otra operación es independiente)
+     * @param solicitud cuerpo de la solicitud; su huella se compara en las repeticiones
+     * @param tipo      tipo de la respuesta, para reconstruir la guardada
+     */
+    public <T> Resultado<T> ejecutar(String operacion, String clave, Object solicitud, Class<T> tipo,
+                                     Supplier<T> accion) {
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new IllegalArgumentException("La cabecera " + CABECERA + " debe tener entre 1 y "
+                    + LONGITUD_MAXIMA_CLAVE + " caracteres");
+        }
+        String id = operacion + ":" + usuarioActual() + ":" + clave;
+        String huella = huella(solicitud);
+        long limite = System.nanoTime() + esperaMaxima.toNanos();
+
+        while (true) {
+            CompletableFuture<Guardada> propia = new CompletableFuture<>();
+            CompletableFuture<Guardada> existente = recientes.asMap().putIfAbsent(id, propia);
+            if (existente == null) {
+                return ejecutarPropia(id, huella, tipo, accion, propia, limite);
+            }
+            if (!existente.isDone()) {
+                esperas.increment();
+            }
+            try {
+                return repetir(existente.get(Math.max(limite - System.nanoTime(), 0), TimeUnit.NANOSECONDS),
+                        huella, tipo);
+            } catch (TimeoutException e) {
+                return new Resultado<>(Estado.EN_CURSO, null);
+            } catch (ExecutionException e) {
+                //La ejecución en curso falló y liberó la clave: esta solicitud la intenta de nuevo
+                recientes.asMap().remove(id, existente);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Espera de la solicitud idempotente interrumpida", e);
+            }
+        }
+    }
+
+    private <T> Resultado<T> ejecutarPropia(String id, String huella, Class<T> tipo, Supplier<T> accion,
+                                            CompletableFuture<Guardada> propia, long limite) {
+        try {
+            LocalDateTime reservada;
+            while ((reservada = reservar(id, huella)) == null) {
+                //Otra instancia la reservó (o ya la completó): no se ejecuta aquí
+                Guardada guardada = esperarEnBase(id, limite);
+                if (guardada == null) {
+                    //La liberó sin completarla: se intenta reservar de nuevo
+                    continue;
+                }
+                if (guardada.respuesta() == null) {
+                    recientes.asMap().remove(id, propia);
+                }
+                propia.complete(guardada);
+                return repetir(guardada, huella, tipo);
+            }
+
+            LocalDateTime reserva = reservada;
+            Ejecucion<T> ejecucion;
+            try {
+                ejecucion = transaccion.execute(status -> {
+                    T cuerpo = accion.get();
+                    String respuesta = objectMapper.writeValueAsString(cuerpo);
+                    if (enTransaccion.update(SQL_COMPLETAR, id, huella, respuesta, reserva,
+                            LocalDateTime.now().plus(vigencia)) == 0) {
+                        throw new ReservaPerdida(leer(enTransaccion, id));
+                    }
+                    return new Ejecucion<>(cuerpo, respuesta);
+                });
+            } catch (ReservaPerdida e) {
+                Guardada guardada = e.guardada != null ? e.guardada : new Guardada(huella, null);
+                if (guardada.respuesta() == null) {
+                    recientes.asMap().remove(id, propia);
+                } else {
+                    completarEnInicial(id, guardada.huella(), reserva, guardada.respuesta());
+                }
+                propia.complete(guardada);
+                return repetir(guardada, huella, tipo);
+            } catch (RuntimeException e) {
+                //Sin respuesta que guardar: la reserva propia se libera para que el cliente reintente
+                jdbcTemplate.update(SQL_LIBERAR, id, reserva);
+                throw e;
+            }
+
+            completarEnInicial(id, huella, reserva, ejecucion.respuesta());
+            propia.complete(new Guardada(huella, ejecucion.respuesta()));
+            return new Resultado<>(Estado.EJECUTADA, ejecucion.cuerpo());
+        } catch (RuntimeException e) {
+            recientes.asMap().remove(id, propia);
+            propia.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    //La reserva en curso vence con la espera máxima: si esta instancia cae, la clave no queda tomada.
+    //Devuelve la fecha que identifica la reserva (en microsegundos, como la guarda PostgreSQL) o null
+    private LocalDateTime reservar(String id, String huella) {
+        LocalDateTime ahora = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        return jdbcTemplate.update(SQL_RESERVAR, id, huella, ahora, ahora.plus(esperaMaxima).plusMinutes(1)) > 0
+                ? ahora : null;
+    }
+
+    //Con fragmentación la confirmación quedó en el fragmento de la operación; el inicial, donde se
+    //reserva, se actualiza después. Si falla, la reserva vence y el reintento encuentra la confirmación
+    private void completarEnInicial(String id, String huella, LocalDateTime reserva, String respuesta) {
+        if (!fragmentos.esFragmentado()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(SQL_COMPLETAR, id, huella, respuesta, reserva, LocalDateTime.now().plus(vigencia));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo completar la clave de idempotencia en el fragmento inicial: {}", e.getMessage());
+        }
+    }
+
+    private static Guardada leer(JdbcTemplate jdbcTemplate, String id) {
+        List<Guardada> filas = jdbcTemplate.query(SQL_LEER,
+                (rs, i) -> new Guardada(rs.getString("huella"), rs.getString("respuesta")), id);
+        return filas.isEmpty() ? null : filas.getFirst();
+    }
+
+    //Consultar la clave hasta que la otra instancia la complete o se acabe la espera; null si la liberó
+    private Guardada esperarEnBase(String id, long limite) {
+        while (true) {
+            Guardada guardada = leer(jdbcTemplate, id);
+            if (guardada == null) {
+                return null;
+            }
+            if (guardada.respuesta() != null || System.nanoTime() - limite >= 0) {
+                return guardada;
+            }
+            esperas.increment();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Espera de la solicitud idempotente interrumpida", e);
+            }
+        }
+    }
+
+    private <T> Resultado<T> repetir(Guardada guardada, String huella, Class<T> tipo) {
+        if (!guardada.huella().equals(huella)) {
+            return new Resultado<>(Estado.CLAVE_REUTILIZADA, null);
+        }
+        if (guardada.respuesta() == null) {
+            return new Resultado<>(Estado.EN_CURSO, null);
+        }
+        repeticiones.increment();
+        return new Resultado<>(Estado.REPETIDA, objectMapper.readValue(guardada.respuesta(), tipo));
+    }
+
+    //Las claves vencidas no se consultan más; se borran en segundo plano en cada fragmento
+    @Scheduled(fixedDelayString = "${pedidos.idempotencia.depuracion-ms:600000}")
+    public void depurar() {
+        for (String fragmento : fragmentos.fragmentos()) {
+            try {
+                int borradas = new JdbcTemplate(fragmentos.dataSource(fragmento))
+                        .update("DELETE FROM claves_idempotencia WHERE fecha_expiracion < ?", LocalDateTime.now());
+                if (borradas > 0) {
+                    log.debug("Claves de idempotencia vencidas eliminadas en {}: {}", fragmento, borradas);
+                }
+            } catch (RuntimeException e) {
+                log.error("Error al depurar claves de idempotencia en {}: {}", fragmento, e.getMessage());
+            }
+        }
+    }
+
+    //Las claves de distintos usuarios no colisionan
+    private static String usuarioActual() {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        return autenticacion != null ? autenticacion.getName() : "anonimo";
+    }
+
+    private String huella(Object solicitud) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(solicitud));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
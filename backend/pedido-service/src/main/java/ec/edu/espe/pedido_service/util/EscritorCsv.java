@@ -0,0 +1,65 @@
+package ec.edu.espe.pedido_service.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escritor CSV (RFC 4180) de una fila a la vez sobre un Writer, sin acumular filas en memoria.
+ * Los campos con coma, comillas o saltos de línea se encierran entre comillas duplicando las internas;
+ * null se escribe como campo vacío.
+ */
+public final class EscritorCsv {
+
+    private final Writer salida;
+    private boolean inicioFila = true;
+
+    public EscritorCsv(Writer salida) {
+        this.salida = salida;
+    }
+
+    public EscritorCsv campo(String valor) throws IOException {
+        if (!inicioFila) {
+            salida.write(',');
+        }
+        inicioFila = false;
+        if (valor == null) {
+            return this;
+        }
+        if (!requiereComillas(valor)) {
+            salida.write(valor);
+            return this;
+        }
+        salida.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                salida.write('"');
+            }
+            salida.write(c);
+        }
+        salida.write('"');
+        return this;
+    }
+
+    public void finFila() throws IOException {
+        salida.write("\r\n");
+        inicioFila = true;
+    }
+
+    public void fila(String... valores) throws IOException {
+        for (String valor : valores) {
+            campo(valor);
+        }
+        finFila();
+    }
+
+    private static boolean requiereComillas(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package ec.edu.espe.pedido_service.util;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de números legibles con formato PREFIJO-yyyyMMdd-HHmmss-NNNN que no
+ * consulta la base de datos por cada número.
+ * Reserva bloques de valores de una secuencia (estrategia hi/lo) y los reparte
+ * sin bloqueo entre hilos; sólo al agotarse un bloque se pide el siguiente.
+ * Como cada bloque es exclusivo de una instancia, el sufijo NNNN (mínimo 4 dígitos)
+ * es único entre hilos e instancias y el prefijo temporal mantiene el orden aproximado.
+ */
+public class GeneradorNumeros {
+
+    //Origen de bloques: devuelve el primer valor de un bloque recién reservado
+    @FunctionalInterface
+    public interface FuenteBloques {
+        long reservarBloque();
+    }
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final String prefijo;
+    private final long tamanioBloque;
+    private final FuenteBloques fuente;
+    private final Clock reloj;
+
+    private volatile Bloque bloqueActual;
+
+    //Rango [siguiente, fin) reservado para esta instancia
+    private record Bloque(AtomicLong siguiente, long fin) {
+    }
+
+    public GeneradorNumeros(String prefijo, long tamanioBloque, FuenteBloques fuente) {
+        this(prefijo, tamanioBloque, fuente, Clock.systemDefaultZone());
+    }
+
+    public GeneradorNumeros(String prefijo, long tamanioBloque, FuenteBloques fuente, Clock reloj) {
+        if (tamanioBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser mayor a 0");
+        }
+        this.prefijo = prefijo;
+        this.tamanioBloque = tamanioBloque;
+        this.fuente = fuente;
+        this.reloj = reloj;
+    }
+
+    //Siguiente número único (ej: PED-20240116-103000-0042)
+    public String siguiente() {
+        long valor = siguienteValor();
+        return prefijo + "-" + LocalDateTime.now(reloj).format(FORMATO_FECHA) + "-" + String.format("%04d", valor);
+    }
+
+    //Siguiente valor del bloque actual; sólo se sincroniza al renovar el bloque
+    long siguienteValor() {
+        while (true) {
+            Bloque bloque = bloqueActual;
+            if (bloque != null) {
+                long valor = bloque.siguiente().getAndIncrement();
+                if (valor < bloque.fin()) {
+                    return valor;
+                }
+            }
+            renovarBloque(bloque);
+        }
+    }
+
+    private synchronized void renovarBloque(Bloque agotado) {
+        //Otro hilo pudo haber renovado el bloque mientras se esperaba el monitor
+        if (bloqueActual == agotado) {
+            long inicio = fuente.reservarBloque();
+            bloqueActual = new Bloque(new AtomicLong(inicio), inicio + tamanioBloque);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ec.edu.espe.pedido_service.util;
+
+//Utilidades geográficas compartidas (distancias sobre la esfera terrestre)
+public final class GeoUtil {
+
+    //Radio medio de la Tierra en km
+    public static final double RADIO_TIERRA_KM = 6371;
+
+    //Kilómetros por grado de latitud (aproximación esférica)
+    public static final double KM_POR_GRADO_LATITUD = 111.32;
+
+    private GeoUtil() {
+    }
+
+    //Cálculo de distancia usando fórmula de Haversine
+    public static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return RADIO_TIERRA_KM * c;
+    }
+}
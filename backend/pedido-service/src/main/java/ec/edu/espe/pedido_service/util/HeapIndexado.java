@@ -0,0 +1,145 @@
+package ec.edu.espe.pedido_service.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Montículo binario indexado por clave: además de la cima, permite cambiar la prioridad de un
+ * elemento (subir o bajar la clave) y retirarlo en O(log n), porque guarda la posición de cada
+ * clave en el arreglo. La cima es el menor elemento según el comparador.
+ * No es seguro para hilos; quien lo comparte debe sincronizar el acceso.
+ *
+ * @param <K> clave única de cada elemento
+ * @param <E> elemento ordenado por el comparador
+ */
+public class HeapIndexado<K, E> {
+
+    private final Comparator<? super E> comparador;
+    private final Function<? super E, ? extends K> clave;
+
+    private final List<E> elementos = new ArrayList<>();
+
+    //Clave -> posición del elemento en elementos
+    private final Map<K, Integer> posiciones = new HashMap<>();
+
+    public HeapIndexado(Comparator<? super E> comparador, Function<? super E, ? extends K> clave) {
+        this.comparador = comparador;
+        this.clave = clave;
+    }
+
+    //Insertar el elemento o reemplazar el de la misma clave reubicándolo; true si la clave era nueva
+    public boolean encolar(E elemento) {
+        K k = clave.apply(elemento);
+        Integer posicion = posiciones.get(k);
+        if (posicion == null) {
+            elementos.add(elemento);
+            posiciones.put(k, elementos.size() - 1);
+            subir(elementos.size() - 1);
+            return true;
+        }
+        elementos.set(posicion, elemento);
+        reubicar(posicion);
+        return false;
+    }
+
+    //Retirar el elemento de la clave; null si no estaba
+    public E retirar(K k) {
+        Integer posicion = posiciones.get(k);
+        return posicion == null ? null : quitarEn(posicion);
+    }
+
+    //Menor elemento sin retirarlo; null si está vacío
+    public E cima() {
+        return elementos.isEmpty() ? null : elementos.get(0);
+    }
+
+    //Retirar y devolver el menor elemento; null si está vacío
+    public E extraerCima() {
+        return elementos.isEmpty() ? null : quitarEn(0);
+    }
+
+    public E obtener(K k) {
+        Integer posicion = posiciones.get(k);
+        return posicion == null ? null : elementos.get(posicion);
+    }
+
+    public boolean contiene(K k) {
+        return posiciones.containsKey(k);
+    }
+
+    public int tamanio() {
+        return elementos.size();
+    }
+
+    public boolean estaVacio() {
+        return elementos.isEmpty();
+    }
+
+    public void vaciar() {
+        elementos.clear();
+        posiciones.clear();
+    }
+
+    //El último elemento ocupa el hueco y se reubica hacia donde corresponda
+    private E quitarEn(int posicion) {
+        E quitado = elementos.get(posicion);
+        posiciones.remove(clave.apply(quitado));
+        E ultimo = elementos.remove(elementos.size() - 1);
+        if (posicion < elementos.size()) {
+            elementos.set(posicion, ultimo);
+            posiciones.put(clave.apply(ultimo), posicion);
+            reubicar(posicion);
+        }
+        return quitado;
+    }
+
+    private void reubicar(int posicion) {
+        if (subir(posicion) == posicion) {
+            bajar(posicion);
+        }
+    }
+
+    //Devuelve la posición final del elemento
+    private int subir(int posicion) {
+        E elemento = elementos.get(posicion);
+        while (posicion > 0) {
+            int padre = (posicion - 1) >>> 1;
+            E elementoPadre = elementos.get(padre);
+            if (comparador.compare(elemento, elementoPadre) >= 0) {
+                break;
+            }
+            colocar(posicion, elementoPadre);
+            posicion = padre;
+        }
+        colocar(posicion, elemento);
+        return posicion;
+    }
+
+    private void bajar(int posicion) {
+        E elemento = elementos.get(posicion);
+        int mitad = elementos.size() >>> 1;
+        while (posicion < mitad) {
+            int hijo = 2 * posicion + 1;
+            int derecho = hijo + 1;
+            if (derecho < elementos.size() && comparador.compare(elementos.get(derecho), elementos.get(hijo)) < 0) {
+                hijo = derecho;
+            }
+            E elementoHijo = elementos.get(hijo);
+            if (comparador.compare(elemento, elementoHijo) <= 0) {
+                break;
+            }
+            colocar(posicion, elementoHijo);
+            posicion = hijo;
+        }
+        colocar(posicion, elemento);
+    }
+
+    private void colocar(int posicion, E elemento) {
+        elementos.set(posicion, elemento);
+        posiciones.put(clave.apply(elemento), posicion);
+    }
+}
@@ -0,0 +1,76 @@
+package ec.edu.espe.pedido_service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapa de fragmentos por hashing consistente: cada fragmento ocupa varios puntos (nodos
+ * virtuales) en un anillo de 64 bits y una zona pertenece al primer punto igual o posterior
+ * a su hash. Al agregar un fragmento sólo cambian de dueño las zonas que caen en sus
+ * nuevos tramos (alrededor de 1/N), el resto conserva su ubicación.
+ * El hash es estable entre instancias y reinicios, así que todas coinciden en el dueño de cada zona.
+ */
+public class MapaFragmentos {
+
+    public static final int NODOS_VIRTUALES_POR_DEFECTO = 128;
+
+    private final List<String> fragmentos;
+    private final NavigableMap<Long, String> anillo = new TreeMap<>();
+
+    //Las zonas son pocas (códigos postales); se recuerda el dueño para no recalcular el hash
+    private final Map<String, String> duenioPorZona = new ConcurrentHashMap<>();
+
+    public MapaFragmentos(List<String> fragmentos) {
+        this(fragmentos, NODOS_VIRTUALES_POR_DEFECTO);
+    }
+
+    public MapaFragmentos(List<String> fragmentos, int nodosVirtuales) {
+        if (fragmentos.isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un fragmento");
+        }
+        if (nodosVirtuales < 1) {
+            throw new IllegalArgumentException("Se requiere al menos un nodo virtual por fragmento");
+        }
+        this.fragmentos = List.copyOf(fragmentos);
+        for (String fragmento : this.fragmentos) {
+            for (int i = 0; i < nodosVirtuales; i++) {
+                anillo.put(hash(fragmento + "#" + i), fragmento);
+            }
+        }
+    }
+
+    //Fragmento dueño de la zona
+    public String fragmentoDe(String zonaId) {
+        if (fragmentos.size() == 1) {
+            return fragmentos.getFirst();
+        }
+        return duenioPorZona.computeIfAbsent(zonaId != null ? zonaId : "", zona -> {
+            Map.Entry<Long, String> punto = anillo.ceilingEntry(hash(zona));
+            return punto != null ? punto.getValue() : anillo.firstEntry().getValue();
+        });
+    }
+
+    public List<String> fragmentos() {
+        return fragmentos;
+    }
+
+    //Primeros 8 bytes del MD5: distribución uniforme y mismo valor en cualquier JVM
+    private static long hash(String clave) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(clave.getBytes(StandardCharsets.UTF_8));
+            long valor = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                valor = (valor << 8) | (digest[i] & 0xFF);
+            }
+            return valor;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 no disponible", e);
+        }
+    }
+}
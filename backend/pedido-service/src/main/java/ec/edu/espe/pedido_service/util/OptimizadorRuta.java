@@ -0,0 +1,274 @@
+package ec.edu.espe.pedido_service.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Orden de visita corto para un conjunto de paradas (recorrido abierto: no vuelve al inicio).
+ * Construye la ruta por vecino más cercano y la mejora con 2-opt (invertir un tramo) y
+ * Or-opt (mover un tramo de 1 a 3 paradas a otra posición) hasta un óptimo local, sobre una
+ * matriz de distancias Haversine precalculada. Con el tiempo que sobre repite la construcción
+ * empezando por otra de las primeras paradas más cercanas y se queda con la ruta más corta.
+ * La posición 0 es el punto de partida: la ubicación del repartidor o, si no se conoce,
+ * un punto virtual a distancia cero de todas las paradas (la ruta empieza donde convenga).
+ */
+public final class OptimizadorRuta {
+
+    //Las mejoras menores a esto (km) se descartan para no iterar por errores de redondeo
+    private static final double EPSILON = 1e-9;
+
+    private static final int LONGITUD_MAXIMA_TRAMO_OR_OPT = 3;
+
+    //Primeras paradas distintas con las que se reconstruye la ruta
+    private static final int MAXIMO_INICIOS = 8;
+
+    private final int nodos;
+    private final double[] distancias;
+    private final int[] ruta;
+    private final long limite;
+
+    private boolean presupuestoAgotado;
+
+    /**
+     * @param orden              índices de las paradas en orden de visita
+     * @param distanciaKm        longitud de la ruta mejorada
+     * @param distanciaInicialKm longitud de la ruta por vecino más cercano, antes de mejorarla
+     * @param presupuestoAgotado la búsqueda se cortó por tiempo antes de probar todos los inicios
+     */
+    public record Plan(int[] orden, double distanciaKm, double distanciaInicialKm, boolean presupuestoAgotado) {
+    }
+
+    private OptimizadorRuta(double[] distancias, int nodos, long limite) {
+        this.nodos = nodos;
+        this.distancias = distancias;
+        this.ruta = new int[nodos];
+        this.limite = limite;
+    }
+
+    /**
+     * @param latitudes   latitud de cada parada
+     * @param longitudes  longitud de cada parada
+     * @param latInicio   latitud del punto de partida (null si no se conoce)
+     * @param lonInicio   longitud del punto de partida (null si no se conoce)
+     * @param presupuesto tiempo máximo de búsqueda; la primera ruta por vecino más cercano se construye siempre
+     */
+    public static Plan planificar(double[] latitudes, double[] longitudes, Double latInicio, Double lonInicio,
+                                  Duration presupuesto) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Se requiere latitud y longitud para cada parada");
+        }
+        if (latitudes.length == 0) {
+            return new Plan(new int[0], 0, 0, false);
+        }
+        long limite = System.nanoTime() + presupuesto.toNanos();
+        int nodos = latitudes.length + 1;
+        OptimizadorRuta optimizador = new OptimizadorRuta(
+                matrizDistancias(latitudes, longitudes, latInicio, lonInicio), nodos, limite);
+
+        optimizador.vecinoMasCercano(optimizador.primeraParada(0));
+        double inicial = optimizador.longitud();
+        optimizador.mejorar();
+        int[] mejor = optimizador.ruta.clone();
+        double mejorLongitud = optimizador.longitud();
+        for (int intento = 1; intento < Math.min(MAXIMO_INICIOS, nodos - 1) && !optimizador.tiempoAgotado(); intento++) {
+            optimizador.vecinoMasCercano(optimizador.primeraParada(intento));
+            optimizador.mejorar();
+            if (optimizador.longitud() < mejorLongitud - EPSILON) {
+                mejor = optimizador.ruta.clone();
+                mejorLongitud = optimizador.longitud();
+            }
+        }
+
+        int[] orden = new int[nodos - 1];
+        for (int i = 1; i < nodos; i++) {
+            orden[i - 1] = mejor[i] - 1;
+        }
+        return new Plan(orden, mejorLongitud, inicial, optimizador.presupuestoAgotado);
+    }
+
+    //Matriz (n+1)x(n+1) en un arreglo plano; fila y columna 0 son el punto de partida
+    static double[] matrizDistancias(double[] latitudes, double[] longitudes, Double latInicio, Double lonInicio) {
+        int nodos = latitudes.length + 1;
+        double[] distancias = new double[nodos * nodos];
+        for (int i = 1; i < nodos; i++) {
+            for (int j = i + 1; j < nodos; j++) {
+                double distancia = GeoUtil.distanciaKm(latitudes[i - 1], longitudes[i - 1], latitudes[j - 1], longitudes[j - 1]);
+                distancias[i * nodos + j] = distancia;
+                distancias[j * nodos + i] = distancia;
+            }
+            if (latInicio != null && lonInicio != null) {
+                double distancia = GeoUtil.distanciaKm(latInicio, lonInicio, latitudes[i - 1], longitudes[i - 1]);
+                distancias[i] = distancia;
+                distancias[i * nodos] = distancia;
+            }
+        }
+        return distancias;
+    }
+
+    private double d(int a, int b) {
+        return distancias[a * nodos + b];
+    }
+
+    private double longitud() {
+        double total = 0;
+        for (int i = 0; i + 1 < nodos; i++) {
+            total += d(ruta[i], ruta[i + 1]);
+        }
+        return total;
+    }
+
+    //Parada en la posición indicada al ordenarlas por distancia al punto de partida
+    private int primeraParada(int posicion) {
+        Integer[] paradas = new Integer[nodos - 1];
+        for (int i = 1; i < nodos; i++) {
+            paradas[i - 1] = i;
+        }
+        Arrays.sort(paradas, Comparator.comparingDouble(parada -> d(0, parada)));
+        return paradas[posicion];
+    }
+
+    private void vecinoMasCercano(int primera) {
+        boolean[] visitado = new boolean[nodos];
+        visitado[0] = true;
+        visitado[primera] = true;
+        ruta[1] = primera;
+        int actual = primera;
+        for (int posicion = 2; posicion < nodos; posicion++) {
+            int siguiente = -1;
+            for (int candidato = 1; candidato < nodos; candidato++) {
+                if (!visitado[candidato] && (siguiente < 0 || d(actual, candidato) < d(actual, siguiente))) {
+                    siguiente = candidato;
+                }
+            }
+            visitado[siguiente] = true;
+            ruta[posicion] = siguiente;
+            actual = siguiente;
+        }
+    }
+
+    //Alternar ambas vecindades hasta que ninguna mejore o se agote el tiempo
+    private void mejorar() {
+        boolean mejoro = true;
+        while (mejoro && !presupuestoAgotado) {
+            mejoro = dosOpt();
+            mejoro |= orOpt();
+        }
+    }
+
+    private boolean tiempoAgotado() {
+        if (System.nanoTime() - limite >= 0) {
+            presupuestoAgotado = true;
+        }
+        return presupuestoAgotado;
+    }
+
+    //Reemplazar las aristas (i, i+1) y (j, j+1) por (i, j) y (i+1, j+1) invirtiendo el tramo intermedio
+    private boolean dosOpt() {
+        boolean mejoro = false;
+        for (int i = 0; i < nodos - 2; i++) {
+            if (tiempoAgotado()) {
+                return mejoro;
+            }
+            int a = ruta[i];
+            int b = ruta[i + 1];
+            for (int j = i + 2; j < nodos; j++) {
+                int c = ruta[j];
+                //Sin arista (j, j+1) cuando j es la última parada del recorrido abierto
+                double delta = d(a, c) - d(a, b);
+                if (j + 1 < nodos) {
+                    int e = ruta[j + 1];
+                    delta += d(b, e) - d(c, e);
+                }
+                if (delta < -EPSILON) {
+                    invertir(i + 1, j);
+                    b = ruta[i + 1];
+                    mejoro = true;
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    //Mover el tramo [i, i+largo) entre otras dos paradas consecutivas (o al final), en cualquier sentido
+    private boolean orOpt() {
+        boolean mejoro = false;
+        for (int largo = 1; largo <= LONGITUD_MAXIMA_TRAMO_OR_OPT; largo++) {
+            for (int i = 1; i + largo <= nodos; i++) {
+                if (tiempoAgotado()) {
+                    return mejoro;
+                }
+                if (moverTramo(i, largo)) {
+                    mejoro = true;
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    private boolean moverTramo(int i, int largo) {
+        int fin = i + largo - 1;
+        int previo = ruta[i - 1];
+        int primero = ruta[i];
+        int ultimo = ruta[fin];
+        boolean hayPosterior = fin + 1 < nodos;
+        int posterior = hayPosterior ? ruta[fin + 1] : -1;
+
+        //Ahorro de quitar el tramo y unir previo con posterior
+        double ahorro = d(previo, primero);
+        if (hayPosterior) {
+            ahorro += d(ultimo, posterior) - d(previo, posterior);
+        }
+
+        int mejorPosicion = -1;
+        boolean mejorInvertido = false;
+        double mejorCosto = ahorro - EPSILON;
+        for (int k = 0; k < nodos; k++) {
+            //Insertar entre ruta[k] y ruta[k+1]; k fuera del tramo y distinto de su posición actual
+            if (k >= i - 1 && k <= fin) {
+                continue;
+            }
+            int x = ruta[k];
+            boolean alFinal = k + 1 >= nodos;
+            int y = alFinal ? -1 : ruta[k + 1];
+            double directo = d(x, primero) + (alFinal ? 0 : d(ultimo, y) - d(x, y));
+            double invertido = d(x, ultimo) + (alFinal ? 0 : d(primero, y) - d(x, y));
+            if (directo < mejorCosto) {
+                mejorCosto = directo;
+                mejorPosicion = k;
+                mejorInvertido = false;
+            }
+            if (invertido < mejorCosto) {
+                mejorCosto = invertido;
+                mejorPosicion = k;
+                mejorInvertido = true;
+            }
+        }
+        if (mejorPosicion < 0) {
+            return false;
+        }
+
+        int[] tramo = new int[largo];
+        for (int t = 0; t < largo; t++) {
+            tramo[t] = ruta[mejorInvertido ? fin - t : i + t];
+        }
+        if (mejorPosicion < i) {
+            //Desplazar a la derecha lo que hay entre la inserción y el tramo
+            System.arraycopy(ruta, mejorPosicion + 1, ruta, mejorPosicion + 1 + largo, i - mejorPosicion - 1);
+            System.arraycopy(tramo, 0, ruta, mejorPosicion + 1, largo);
+        } else {
+            //Desplazar a la izquierda lo que hay entre el tramo y la inserción
+            System.arraycopy(ruta, fin + 1, ruta, i, mejorPosicion - fin);
+            System.arraycopy(tramo, 0, ruta, mejorPosicion - largo + 1, largo);
+        }
+        return true;
+    }
+
+    private void invertir(int desde, int hasta) {
+        while (desde < hasta) {
+            int temporal = ruta[desde];
+            ruta[desde++] = ruta[hasta];
+            ruta[hasta--] = temporal;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ec.edu.espe.pedido_service.util;
+
+import java.util.Arrays;
+
+/**
+ * Sketch de cuantiles de duraciones con error relativo acotado (cubetas logarítmicas, como DDSketch).
+ * Una duración x cae en la cubeta i tal que MINIMO·γ^i ≤ x < MINIMO·γ^(i+1) y el cuantil se responde
+ * con el punto medio relativo de su cubeta, a menos de ERROR_RELATIVO del valor exacto.
+ * La memoria es fija (CUBETAS contadores) sin importar cuántas entregas se registren, y dos
+ * sketches se combinan sumando sus cubetas, por lo que cada instancia puede aportar sus incrementos.
+ */
+public class SketchCuantiles {
+
+    public static final double ERROR_RELATIVO = 0.02;
+    public static final long MINIMO_SEGUNDOS = 60;
+    public static final long MAXIMO_SEGUNDOS = 60L * 24 * 3600;
+
+    private static final double GAMMA = (1 + ERROR_RELATIVO) / (1 - ERROR_RELATIVO);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    //Las duraciones menores al mínimo o mayores al máximo se acumulan en la primera o la última cubeta
+    public static final int CUBETAS =
+            (int) Math.ceil(Math.log((double) MAXIMO_SEGUNDOS / MINIMO_SEGUNDOS) / LOG_GAMMA) + 1;
+
+    private final long[] conteos = new long[CUBETAS];
+    private long cantidad;
+
+    public synchronized void agregar(long segundos) {
+        conteos[cubeta(segundos)]++;
+        cantidad++;
+    }
+
+    //Sumar las cubetas de otro sketch (mismo esquema de cubetas)
+    public synchronized void sumar(long[] otros) {
+        for (int i = 0; i < CUBETAS; i++) {
+            conteos[i] += otros[i];
+            cantidad += otros[i];
+        }
+    }
+
+    public synchronized void reemplazar(long[] nuevos) {
+        Arrays.fill(conteos, 0);
+        cantidad = 0;
+        sumar(nuevos);
+    }
+
+    //Copia de las cubetas y vaciado del sketch; null si no tenía muestras
+    public synchronized long[] extraer() {
+        if (cantidad == 0) {
+            return null;
+        }
+        long[] copia = conteos.clone();
+        Arrays.fill(conteos, 0);
+        cantidad = 0;
+        return copia;
+    }
+
+    public synchronized long[] conteos() {
+        return conteos.clone();
+    }
+
+    public synchronized long cantidad() {
+        return cantidad;
+    }
+
+    //Duración en segundos del cuantil q (0..1); recorre un número fijo de cubetas
+    public synchronized long cuantil(double q) {
+        if (cantidad == 0) {
+            throw new IllegalStateException("El sketch no tiene muestras");
+        }
+        long rango = (long) Math.floor(Math.min(Math.max(q, 0), 1) * (cantidad - 1));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += conteos[i];
+            if (acumulado > rango) {
+                return valor(i);
+            }
+        }
+        return valor(CUBETAS - 1);
+    }
+
+    static int cubeta(long segundos) {
+        if (segundos <= MINIMO_SEGUNDOS) {
+            return 0;
+        }
+        int indice = (int) Math.floor(Math.log((double) segundos / MINIMO_SEGUNDOS) / LOG_GAMMA);
+        return Math.min(indice, CUBETAS - 1);
+    }
+
+    //Punto de la cubeta con error relativo simétrico respecto de sus dos extremos
+    static long valor(int cubeta) {
+        return Math.round(MINIMO_SEGUNDOS * Math.pow(GAMMA, cubeta) * 2 * GAMMA / (1 + GAMMA));
+    }
+}
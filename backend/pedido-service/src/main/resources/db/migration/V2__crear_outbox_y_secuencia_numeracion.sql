@@ -0,0 +1,18 @@
+-- Tabla del transactional outbox (antes creada por ddl-auto: update)
+CREATE TABLE IF NOT EXISTS outbox_eventos (
+    id             UUID          NOT NULL,
+    exchange       VARCHAR(100)  NOT NULL,
+    routing_key    VARCHAR(100)  NOT NULL,
+    accion         VARCHAR(30)   NOT NULL,
+    entity_id      VARCHAR(100),
+    payload        TEXT          NOT NULL,
+    fecha_creacion TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT pk_outbox_eventos PRIMARY KEY (id)
+);
+
+-- El relay drena siempre por antigüedad
+CREATE INDEX IF NOT EXISTS idx_outbox_eventos_fecha_creacion
+    ON outbox_eventos (fecha_creacion);
+
+-- Secuencia hi/lo de números de pedido: cada nextval reserva un bloque completo
+CREATE SEQUENCE IF NOT EXISTS pedido_numero_seq INCREMENT BY ${tamanio_bloque_numeracion};
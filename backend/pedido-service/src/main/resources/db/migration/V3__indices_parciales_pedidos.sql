@@ -0,0 +1,27 @@
+-- Índices parciales por cada camino de acceso del repositorio.
+-- Todas las consultas filtran activo = true, así que los pedidos eliminados
+-- lógicamente quedan fuera del índice y éste se mantiene compacto.
+
+-- findByClienteIdAndActivoTrue
+CREATE INDEX IF NOT EXISTS idx_pedidos_cliente_activo
+    ON pedidos (cliente_id, fecha_creacion) WHERE activo;
+
+-- findByRepartidorIdAndActivoTrue
+CREATE INDEX IF NOT EXISTS idx_pedidos_repartidor_activo
+    ON pedidos (repartidor_id, estado) WHERE activo AND repartidor_id IS NOT NULL;
+
+-- findByEstadoAndActivoTrue
+CREATE INDEX IF NOT EXISTS idx_pedidos_estado_activo
+    ON pedidos (estado, fecha_creacion) WHERE activo;
+
+-- findByTipoEntregaAndActivoTrue
+CREATE INDEX IF NOT EXISTS idx_pedidos_tipo_entrega_activo
+    ON pedidos (tipo_entrega) WHERE activo;
+
+-- findByZonaIdAndActivoTrue y findByZonaIdAndEstadoAndActivoTrue (prefijo zona_id)
+CREATE INDEX IF NOT EXISTS idx_pedidos_zona_estado_activo
+    ON pedidos (zona_id, estado) WHERE activo;
+
+-- findByActivoTrue, paginación por keyset (fechaCreacion, id) y streaming
+CREATE INDEX IF NOT EXISTS idx_pedidos_keyset_activo
+    ON pedidos (fecha_creacion, id) WHERE activo;
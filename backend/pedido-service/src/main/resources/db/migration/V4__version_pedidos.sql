@@ -0,0 +1,2 @@
+-- Columna de control optimista (@Version) para actualizaciones concurrentes
+ALTER TABLE pedidos ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,42 @@
+-- Archivo de pedidos terminales (ENTREGADO / CANCELADO), particionado por mes de creación.
+-- Las particiones mensuales las crea ArchivadorPedidos antes de mover cada lote.
+CREATE TABLE IF NOT EXISTS pedidos_historico (
+    id                     UUID         NOT NULL,
+    numero_pedido          VARCHAR(50)  NOT NULL,
+    cliente_id             UUID         NOT NULL,
+    cliente_nombre         VARCHAR(200) NOT NULL,
+    repartidor_id          UUID,
+    repartidor_nombre      VARCHAR(255),
+    tipo_entrega           VARCHAR(30)  NOT NULL,
+    estado                 VARCHAR(30)  NOT NULL,
+    prioridad              VARCHAR(20)  NOT NULL,
+    direccion_origen       VARCHAR(500) NOT NULL,
+    latitud_origen         FLOAT(53),
+    longitud_origen        FLOAT(53),
+    direccion_destino      VARCHAR(500) NOT NULL,
+    latitud_destino        FLOAT(53),
+    longitud_destino       FLOAT(53),
+    zona_id                VARCHAR(10)  NOT NULL,
+    descripcion_paquete    VARCHAR(500) NOT NULL,
+    peso_kg                NUMERIC(10, 2),
+    dimensiones            VARCHAR(100),
+    tarifa_base            NUMERIC(10, 2),
+    tarifa_total           NUMERIC(10, 2),
+    fecha_estimada_entrega TIMESTAMP(6),
+    fecha_entrega_real     TIMESTAMP(6),
+    observaciones          VARCHAR(1000),
+    activo                 BOOLEAN      NOT NULL,
+    fecha_creacion         TIMESTAMP(6) NOT NULL,
+    fecha_actualizacion    TIMESTAMP(6) NOT NULL,
+    version                BIGINT       NOT NULL,
+    fecha_archivado        TIMESTAMP(6) NOT NULL DEFAULT now(),
+    CONSTRAINT pk_pedidos_historico PRIMARY KEY (id, fecha_creacion)
+) PARTITION BY RANGE (fecha_creacion);
+
+-- Consultas de respaldo por ID (cubierta por la PK) y por número
+CREATE INDEX IF NOT EXISTS idx_pedidos_historico_numero
+    ON pedidos_historico (numero_pedido);
+
+-- Candidatos a archivar: terminales ordenados por su última modificación
+CREATE INDEX IF NOT EXISTS idx_pedidos_archivables
+    ON pedidos (fecha_actualizacion) WHERE estado IN ('ENTREGADO', 'CANCELADO');
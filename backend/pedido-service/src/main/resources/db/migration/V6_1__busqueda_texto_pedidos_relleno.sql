@@ -0,0 +1,22 @@
+-- Completa busqueda en los pedidos anteriores a V6, por lotes de la clave primaria y confirmando
+-- cada uno (se ejecuta fuera de una transacción, ver el .conf): cada lote bloquea sólo sus filas
+-- y por poco tiempo. Las filas modificadas mientras tanto ya las calculó el trigger.
+DO $$
+DECLARE
+    ultimo UUID := '00000000-0000-0000-0000-000000000000';
+    hasta  UUID;
+BEGIN
+    LOOP
+        SELECT max(id) INTO hasta
+        FROM (SELECT id FROM pedidos WHERE id > ultimo ORDER BY id LIMIT 5000) lote;
+        EXIT WHEN hasta IS NULL;
+
+        UPDATE pedidos
+        SET busqueda = pedidos_busqueda(cliente_nombre, descripcion_paquete, direccion_destino, observaciones)
+        WHERE id > ultimo AND id <= hasta AND busqueda IS NULL;
+
+        ultimo := hasta;
+        COMMIT;
+    END LOOP;
+END
+$$;
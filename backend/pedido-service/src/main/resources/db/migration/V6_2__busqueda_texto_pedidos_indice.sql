@@ -0,0 +1,6 @@
+-- buscarPorTexto: sólo pedidos activos, como el resto de los listados.
+-- CONCURRENTLY no bloquea las escrituras mientras se construye (Flyway lo ejecuta fuera de una
+-- transacción). Si falla, queda un índice INVALID que IF NOT EXISTS no reemplaza: eliminarlo con
+-- DROP INDEX CONCURRENTLY idx_pedidos_busqueda_activo antes de reintentar la migración.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_busqueda_activo
+    ON pedidos USING GIN (busqueda) WHERE activo;
@@ -0,0 +1,49 @@
+-- Búsqueda de texto completo de pedidos (GET /api/pedidos/buscar).
+-- Configuración en español sin acentos: unaccent antes del stemming de snowball,
+-- así "envío", "envio" y "ENVÍOS" comparten lexema.
+-- Se aplica en tres pasos que no bloquean la tabla mientras dura el trabajo pesado:
+-- V6 agrega la columna (sólo catálogo) y el trigger que la mantiene, V6_1 completa las filas
+-- existentes por lotes y V6_2 crea el índice GIN con CONCURRENTLY.
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_ts_config WHERE cfgname = 'es_sin_acentos') THEN
+        CREATE TEXT SEARCH CONFIGURATION es_sin_acentos (COPY = spanish);
+        ALTER TEXT SEARCH CONFIGURATION es_sin_acentos
+            ALTER MAPPING FOR hword, hword_part, word WITH unaccent, spanish_stem;
+    END IF;
+END
+$$;
+
+-- Pesos para el ranking: cliente (A), paquete (B), dirección de destino (C), observaciones (D)
+CREATE OR REPLACE FUNCTION pedidos_busqueda(cliente_nombre TEXT, descripcion_paquete TEXT,
+                                            direccion_destino TEXT, observaciones TEXT)
+    RETURNS tsvector LANGUAGE sql STABLE AS
+$$
+SELECT setweight(to_tsvector('es_sin_acentos', coalesce(cliente_nombre, '')), 'A') ||
+       setweight(to_tsvector('es_sin_acentos', coalesce(descripcion_paquete, '')), 'B') ||
+       setweight(to_tsvector('es_sin_acentos', coalesce(direccion_destino, '')), 'C') ||
+       setweight(to_tsvector('es_sin_acentos', coalesce(observaciones, '')), 'D')
+$$;
+
+-- Sin valor por defecto: agregar la columna no reescribe la tabla. Si hay transacciones largas
+-- sobre pedidos, se desiste en lugar de encolar detrás de ellas a todas las demás
+SET LOCAL lock_timeout = '5s';
+ALTER TABLE pedidos ADD COLUMN IF NOT EXISTS busqueda tsvector;
+
+-- PostgreSQL la mantiene en cada INSERT/UPDATE de los campos indexados, la aplicación no la escribe
+CREATE OR REPLACE FUNCTION pedidos_actualizar_busqueda() RETURNS trigger LANGUAGE plpgsql AS
+$$
+BEGIN
+    NEW.busqueda := pedidos_busqueda(NEW.cliente_nombre, NEW.descripcion_paquete,
+                                     NEW.direccion_destino, NEW.observaciones);
+    RETURN NEW;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_pedidos_busqueda ON pedidos;
+CREATE TRIGGER trg_pedidos_busqueda
+    BEFORE INSERT OR UPDATE OF cliente_nombre, descripcion_paquete, direccion_destino, observaciones
+    ON pedidos
+    FOR EACH ROW EXECUTE FUNCTION pedidos_actualizar_busqueda();
@@ -0,0 +1,12 @@
+-- Sketches de duración de entrega (fechaCreacion -> fechaEntregaReal) de EstimadorEntregas,
+-- por zona, tipo de entrega y prioridad. zona_id '*' agrega todas las zonas.
+-- Una fila por cubeta no vacía: cada instancia suma sus incrementos con ON CONFLICT,
+-- así que el tamaño de la tabla no depende de la cantidad de entregas.
+CREATE TABLE IF NOT EXISTS duraciones_entrega (
+    zona_id      VARCHAR(10) NOT NULL,
+    tipo_entrega VARCHAR(30) NOT NULL,
+    prioridad    VARCHAR(20) NOT NULL,
+    cubeta       SMALLINT    NOT NULL,
+    cantidad     BIGINT      NOT NULL,
+    PRIMARY KEY (zona_id, tipo_entrega, prioridad, cubeta)
+);
@@ -0,0 +1,13 @@
+-- Claves de idempotencia (cabecera Idempotency-Key) de las operaciones de creación.
+-- clave = operación:usuario:valor de la cabecera; respuesta es el JSON devuelto la primera vez
+-- (NULL mientras la operación está EN_CURSO). Las filas vencidas se reutilizan o se depuran.
+CREATE TABLE IF NOT EXISTS claves_idempotencia (
+    clave            VARCHAR(400) PRIMARY KEY,
+    huella           CHAR(64)     NOT NULL,
+    estado           VARCHAR(15)  NOT NULL,
+    respuesta        TEXT,
+    fecha_creacion   TIMESTAMP    NOT NULL,
+    fecha_expiracion TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_claves_idempotencia_expiracion ON claves_idempotencia (fecha_expiracion);
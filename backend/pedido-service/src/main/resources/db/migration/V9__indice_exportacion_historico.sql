@@ -0,0 +1,5 @@
+-- Exportación CSV (GET /api/pedidos/export.csv.gz): pedidos y pedidos_historico se recorren
+-- en orden (fecha_creacion, id), reanudable desde un pedido. En pedidos ese orden lo cubre
+-- idx_pedidos_keyset_activo; en el archivo la PK empieza por id y no sirve para recorrerlo.
+CREATE INDEX IF NOT EXISTS idx_pedidos_historico_keyset_activo
+    ON pedidos_historico (fecha_creacion, id) WHERE activo;
@@ -0,0 +1,154 @@
+package ec.edu.espe.pedido_service.config;
+
+import ec.edu.espe.pedido_service.util.MapaFragmentos;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class FragmentosPedidosTest {
+
+    private static final MapaFragmentos ANTERIOR = new MapaFragmentos(List.of("fragmento-1", "fragmento-2"));
+    private static final MapaFragmentos MAPA = new MapaFragmentos(List.of("fragmento-1", "fragmento-2", "fragmento-3"));
+
+    private final Map<String, Connection> conexiones = Map.of(
+            "fragmento-1", mock(Connection.class),
+            "fragmento-2", mock(Connection.class),
+            "fragmento-3", mock(Connection.class));
+
+    private PlatformTransactionManager transactionManager;
+    private FragmentosPedidos fragmentos;
+    private DataSourceFragmentado enrutador;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (String fragmento : MAPA.fragmentos()) {
+            DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(conexiones.get(fragmento));
+            dataSources.put(fragmento, dataSource);
+        }
+        transactionManager = mock(PlatformTransactionManager.class);
+        ObjectProvider<PlatformTransactionManager> proveedor = mock(ObjectProvider.class);
+        when(proveedor.getObject()).thenReturn(transactionManager);
+        fragmentos = new FragmentosPedidos(MAPA, ANTERIOR, dataSources, proveedor);
+        enrutador = new DataSourceFragmentado(fragmentos);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fragmentos.close();
+    }
+
+    //Zona que el fragmento nuevo tomó de uno de los anteriores
+    private static String zonaMovida() {
+        return IntStream.range(0, 2000)
+                .mapToObj(i -> String.valueOf(170000 + i))
+                .filter(zona -> MAPA.fragmentoDe(zona).equals("fragmento-3"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void usar_DebeAbrirLaConexionEnElFragmentoFijadoYRestaurarElPrevio() throws Exception {
+        // Sin fragmento fijado: el inicial
+        assertSame(conexiones.get("fragmento-1"), enrutador.getConnection());
+
+        try (FragmentosPedidos.Ambito externo = fragmentos.usar("fragmento-2")) {
+            assertSame(conexiones.get("fragmento-2"), enrutador.getConnection());
+            try (FragmentosPedidos.Ambito interno = fragmentos.usarZona(zonaMovida())) {
+                assertSame(conexiones.get("fragmento-3"), enrutador.getConnection());
+            }
+            assertSame(conexiones.get("fragmento-2"), enrutador.getConnection());
+        }
+        assertSame(conexiones.get("fragmento-1"), enrutador.getConnection());
+    }
+
+    @Test
+    void usar_FragmentoDesconocido_NoDebeCaerEnElInicial() {
+        try (FragmentosPedidos.Ambito ambito = fragmentos.usar("fragmento-9")) {
+            assertThrows(IllegalStateException.class, () -> enrutador.getConnection());
+        }
+        assertThrows(IllegalArgumentException.class, () -> fragmentos.dataSource("fragmento-9"));
+    }
+
+    @Test
+    void fragmentosDeZona_DuranteUnRebalanceo_DebeIncluirAlDuenioAnterior() {
+        String zona = zonaMovida();
+
+        assertTrue(fragmentos.rebalanceoEnCurso());
+        assertEquals(Set.of("fragmento-3", ANTERIOR.fragmentoDe(zona)), fragmentos.fragmentosDeZona(zona));
+        assertEquals("fragmento-3", fragmentos.fragmentosDeZona(zona).iterator().next());
+    }
+
+    @Test
+    void reunir_DebeConsultarCadaFragmentoEnSuPropiaConexion() {
+        // Act: cada consulta abre la conexión con el fragmento fijado en su hilo
+        List<String> resultado = fragmentos.reunir(fragmento -> {
+            try (Connection conexion = enrutador.getConnection()) {
+                return List.of(fragmento + "=" + (conexion == conexiones.get(fragmento)));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Assert: en el orden del mapa
+        assertEquals(List.of("fragmento-1=true", "fragmento-2=true", "fragmento-3=true"), resultado);
+    }
+
+    @Test
+    void reunir_FalloEnUnFragmento_DebePropagarLaExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> fragmentos.reunir(fragmento -> {
+            if (fragmento.equals("fragmento-2")) {
+                throw new IllegalArgumentException("Fragmento caído");
+            }
+            return List.of(fragmento);
+        }));
+    }
+
+    @Test
+    void enTransaccion_DebeAbrirUnaTransaccionPropiaEnElFragmento() throws Exception {
+        // Act
+        Connection usada = fragmentos.enTransaccion("fragmento-2", true, () -> {
+            try {
+                return enrutador.getConnection();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Assert
+        assertSame(conexiones.get("fragmento-2"), usada);
+        verify(transactionManager).getTransaction(argThat(definicion ->
+                definicion.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                        && definicion.isReadOnly()));
+        verify(transactionManager).commit(any());
+        assertSame(conexiones.get("fragmento-1"), enrutador.getConnection());
+    }
+
+    @Test
+    void unico_DebeEjecutarEnLaTransaccionDelLlamador() {
+        FragmentosPedidos unico = FragmentosPedidos.unico(mock(DataSource.class));
+
+        assertFalse(unico.esFragmentado());
+        assertEquals("principal", unico.fragmentoDeZona("170150"));
+        assertEquals("ok", unico.enTransaccion("principal", false, () -> "ok"));
+        assertEquals(List.of("principal"), unico.reunir(fragmento -> List.of(fragmento)));
+    }
+}
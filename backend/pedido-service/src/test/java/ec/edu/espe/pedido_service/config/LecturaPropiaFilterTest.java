@@ -0,0 +1,84 @@
+package ec.edu.espe.pedido_service.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LecturaPropiaFilterTest {
+
+    private final Connection conexionPrincipal = mock(Connection.class);
+    private final Connection conexionReplica = mock(Connection.class);
+
+    private ReplicasLectura replicasLectura;
+    private LecturaPropiaFilter filtro;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource principal = mock(DataSource.class);
+        when(principal.getConnection()).thenReturn(conexionPrincipal);
+
+        //Réplica al día
+        DataSource replica = mock(DataSource.class);
+        Statement sentencia = mock(Statement.class);
+        ResultSet resultado = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(conexionReplica);
+        when(conexionReplica.createStatement()).thenReturn(sentencia);
+        when(sentencia.executeQuery(ReplicasLectura.SQL_RETRASO)).thenReturn(resultado);
+        when(resultado.next()).thenReturn(true);
+        when(resultado.getDouble(1)).thenReturn(0d);
+
+        replicasLectura = new ReplicasLectura(principal, Map.of("replica-1", replica), 1000, 5000);
+        replicasLectura.verificar();
+        filtro = new LecturaPropiaFilter(replicasLectura);
+    }
+
+    //Conexión que obtendría la petición mientras recorre la cadena de filtros
+    private Connection conexionDurante(String metodo, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, "/api/pedidos");
+        request.setRemoteAddr(ip);
+        AtomicReference<Connection> conexion = new AtomicReference<>();
+        filtro.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            try {
+                conexion.set(replicasLectura.getConnection());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return conexion.get();
+    }
+
+    @Test
+    void doFilter_LecturaSinEscriturasPrevias_DebeIrALaReplica() throws Exception {
+        assertSame(conexionReplica, conexionDurante("GET", "10.0.0.1"));
+    }
+
+    @Test
+    void doFilter_Escritura_DebeIrALaPrincipalYMarcarAlCliente() throws Exception {
+        // Act & Assert: la escritura y las lecturas siguientes del mismo cliente van a la principal
+        assertSame(conexionPrincipal, conexionDurante("POST", "10.0.0.1"));
+        assertSame(conexionPrincipal, conexionDurante("GET", "10.0.0.1"));
+
+        //Otro cliente sigue leyendo de la réplica
+        assertSame(conexionReplica, conexionDurante("GET", "10.0.0.2"));
+    }
+
+    @Test
+    void doFilter_AlTerminar_DebeLimpiarLaMarcaDelHilo() throws Exception {
+        conexionDurante("POST", "10.0.0.1");
+
+        //Fuera de una petición el hilo vuelve a usar las réplicas
+        assertSame(conexionReplica, replicasLectura.getConnection());
+    }
+}
@@ -0,0 +1,133 @@
+package ec.edu.espe.pedido_service.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicasLecturaTest {
+
+    private static final long RETRASO_MAXIMO_MS = 1000;
+
+    private final Connection conexionPrincipal = mock(Connection.class);
+    private final DataSource principal = dataSource(conexionPrincipal);
+
+    @AfterEach
+    void tearDown() {
+        ReplicasLectura.limpiar();
+    }
+
+    //DataSource cuya conexión responde la consulta de retraso con el valor indicado
+    private static DataSource replica(Connection conexion, double retrasoMs) throws SQLException {
+        Statement sentencia = mock(Statement.class);
+        ResultSet resultado = mock(ResultSet.class);
+        when(conexion.createStatement()).thenReturn(sentencia);
+        when(sentencia.executeQuery(ReplicasLectura.SQL_RETRASO)).thenReturn(resultado);
+        when(resultado.next()).thenReturn(true);
+        when(resultado.getDouble(1)).thenReturn(retrasoMs);
+        return dataSource(conexion);
+    }
+
+    private static DataSource dataSource(Connection conexion) {
+        DataSource dataSource = mock(DataSource.class);
+        try {
+            when(dataSource.getConnection()).thenReturn(conexion);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return dataSource;
+    }
+
+    private ReplicasLectura replicasLectura(DataSource... replicas) {
+        Map<String, DataSource> porNombre = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.length; i++) {
+            porNombre.put("replica-" + (i + 1), replicas[i]);
+        }
+        ReplicasLectura replicasLectura = new ReplicasLectura(principal, porNombre, RETRASO_MAXIMO_MS, 5000);
+        replicasLectura.verificar();
+        return replicasLectura;
+    }
+
+    @Test
+    void getConnection_DebeAlternarEntreReplicasDisponibles() throws SQLException {
+        // Arrange
+        Connection primera = mock(Connection.class);
+        Connection segunda = mock(Connection.class);
+        ReplicasLectura replicasLectura = replicasLectura(replica(primera, 0), replica(segunda, 200));
+
+        // Act & Assert
+        assertEquals(2, replicasLectura.replicasDisponibles());
+        assertSame(primera, replicasLectura.getConnection());
+        assertSame(segunda, replicasLectura.getConnection());
+        assertSame(primera, replicasLectura.getConnection());
+    }
+
+    @Test
+    void getConnection_ConReplicaAtrasada_DebeOmitirlaYRecurrirALaPrincipal() throws SQLException {
+        // Arrange
+        Connection atrasada = mock(Connection.class);
+        ReplicasLectura replicasLectura = replicasLectura(replica(atrasada, RETRASO_MAXIMO_MS + 1));
+
+        // Act & Assert
+        assertEquals(0, replicasLectura.replicasDisponibles());
+        assertSame(conexionPrincipal, replicasLectura.getConnection());
+    }
+
+    @Test
+    void getConnection_ConReplicaCaida_DebeDeshabilitarlaHastaLaSiguienteVerificacion() throws SQLException {
+        // Arrange
+        Connection sana = mock(Connection.class);
+        DataSource caida = replica(mock(Connection.class), 0);
+        ReplicasLectura replicasLectura = replicasLectura(caida, replica(sana, 0));
+        when(caida.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        // Act & Assert
+        assertSame(sana, replicasLectura.getConnection());
+        assertEquals(1, replicasLectura.replicasDisponibles());
+        assertSame(sana, replicasLectura.getConnection());
+    }
+
+    @Test
+    void getConnection_TrasEscrituraDelCliente_DebeLeerDeLaPrincipal() throws SQLException {
+        // Arrange
+        Connection conexionReplica = mock(Connection.class);
+        ReplicasLectura replicasLectura = replicasLectura(replica(conexionReplica, 0));
+        replicasLectura.registrarEscritura("usuario:ana");
+
+        // Act
+        ReplicasLectura.leerDePrincipal(replicasLectura.escribioRecientemente("usuario:ana"));
+
+        // Assert
+        assertSame(conexionPrincipal, replicasLectura.getConnection());
+        assertFalse(replicasLectura.escribioRecientemente("usuario:luis"));
+    }
+    @Test
+    void enPrincipal_DebeLeerDeLaPrincipalYRestaurarLaMarcaAnterior() throws SQLException {
+        // Arrange
+        Connection conexionReplica = mock(Connection.class);
+        ReplicasLectura replicasLectura = replicasLectura(replica(conexionReplica, 0));
+        ReplicasLectura.leerDePrincipal(false);
+
+        // Act
+        Connection dentro = ReplicasLectura.enPrincipal(() -> {
+            try {
+                return replicasLectura.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Assert
+        assertSame(conexionPrincipal, dentro);
+        assertSame(conexionReplica, replicasLectura.getConnection());
+    }
+}
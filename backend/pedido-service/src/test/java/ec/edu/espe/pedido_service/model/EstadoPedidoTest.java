@@ -0,0 +1,40 @@
+package ec.edu.espe.pedido_service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EstadoPedidoTest {
+
+    @Test
+    void transiciones_DelFlujoNormal_DebenEstarPermitidas() {
+        assertTrue(EstadoPedido.RECIBIDO.puedeTransicionarA(EstadoPedido.ASIGNADO));
+        assertTrue(EstadoPedido.ASIGNADO.puedeTransicionarA(EstadoPedido.EN_RUTA));
+        assertTrue(EstadoPedido.EN_RUTA.puedeTransicionarA(EstadoPedido.ENTREGADO));
+        assertTrue(EstadoPedido.ENTREGADO.puedeTransicionarA(EstadoPedido.DEVUELTO));
+    }
+
+    @Test
+    void estadosTerminales_NoDebenTenerSalidas() {
+        assertTrue(EstadoPedido.CANCELADO.esTerminal());
+        assertTrue(EstadoPedido.DEVUELTO.esTerminal());
+        assertFalse(EstadoPedido.ENTREGADO.puedeTransicionarA(EstadoPedido.CANCELADO));
+        assertFalse(EstadoPedido.CANCELADO.puedeTransicionarA(EstadoPedido.RECIBIDO));
+    }
+
+    @Test
+    void origenes_DebenSerLaInversaDeLaTabla() {
+        assertEquals(EnumSet.of(EstadoPedido.RECIBIDO, EstadoPedido.EN_PREPARACION, EstadoPedido.ASIGNADO,
+                EstadoPedido.EN_RUTA), EstadoPedido.CANCELADO.origenes());
+        assertTrue(EstadoPedido.RECIBIDO.origenes().isEmpty());
+
+        for (EstadoPedido origen : EstadoPedido.values()) {
+            for (EstadoPedido destino : EstadoPedido.values()) {
+                assertEquals(origen.puedeTransicionarA(destino), destino.origenes().contains(origen),
+                        origen + " -> " + destino);
+            }
+        }
+    }
+}
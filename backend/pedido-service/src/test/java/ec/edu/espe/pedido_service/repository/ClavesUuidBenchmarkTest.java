@@ -0,0 +1,93 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.util.UuidV7;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de inserción por clave primaria UUID: v4 (aleatoria) frente a v7 (ordenada por tiempo).
+ * Inserta las mismas filas en dos tablas iguales y compara filas por segundo y tamaño del índice de
+ * la PK. Con v4 cada inserción cae en una hoja cualquiera del B-tree (divisiones de página a medio
+ * llenar); con v7 todas caen en la hoja más a la derecha, que se llena antes de dividirse.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Tag("benchmark")
+@Slf4j
+class ClavesUuidBenchmarkTest {
+
+    private static final int FILAS = 500_000;
+    private static final int TAMANIO_LOTE = 1_000;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Resultado(String nombre, double porSegundo, long bytesIndice) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_claves_v4, bench_claves_v7");
+    }
+
+    @Test
+    void insertarConUuidV7_IndiceMasCompactoQueConV4() {
+        Resultado v4 = medir("bench_claves_v4", UUID::randomUUID);
+        Resultado v7 = medir("bench_claves_v7", UuidV7::generar);
+
+        log.info("Mejora v7: {}x filas/s, índice {}% del tamaño con v4",
+                String.format("%.2f", v7.porSegundo() / v4.porSegundo()), 100 * v7.bytesIndice() / v4.bytesIndice());
+        //Divisiones de página al final del índice: hojas casi llenas en lugar de a medio llenar
+        assertTrue(v7.bytesIndice() < v4.bytesIndice() * 0.85,
+                "Índice v7 " + v7.bytesIndice() + " B no es menor que el v4 " + v4.bytesIndice() + " B");
+    }
+
+    //Inserta FILAS en lotes con la clave del generador; la fila imita el ancho de un evento del outbox
+    private Resultado medir(String tabla, Supplier<UUID> generador) {
+        jdbcTemplate.execute("CREATE TABLE " + tabla
+                + " (id UUID PRIMARY KEY, fecha_creacion TIMESTAMP NOT NULL DEFAULT now(), carga VARCHAR(200))");
+        String sql = "INSERT INTO " + tabla + " (id, carga) VALUES (?, ?)";
+
+        long inicio = System.nanoTime();
+        for (int insertadas = 0; insertadas < FILAS; insertadas += TAMANIO_LOTE) {
+            List<Object[]> lote = new ArrayList<>(TAMANIO_LOTE);
+            for (int i = 0; i < TAMANIO_LOTE; i++) {
+                lote.add(new Object[]{generador.get(), "PED-BENCH-" + (insertadas + i)});
+            }
+            jdbcTemplate.batchUpdate(sql, lote);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+
+        Long bytesIndice = jdbcTemplate.queryForObject(
+                "SELECT pg_relation_size(?::regclass)", Long.class, tabla + "_pkey");
+        Resultado resultado = new Resultado(tabla, FILAS / segundos, bytesIndice);
+        log.info("{} filas={} -> {} inserciones/s, índice PK {} KB",
+                resultado.nombre(), FILAS, Math.round(resultado.porSegundo()), resultado.bytesIndice() / 1024);
+        return resultado;
+    }
+}
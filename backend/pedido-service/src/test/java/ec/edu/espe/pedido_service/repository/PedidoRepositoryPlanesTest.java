@@ -0,0 +1,208 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica contra PostgreSQL real (esquema creado por las migraciones de Flyway)
+ * que cada consulta del repositorio de pedidos usa un índice.
+ * Se captura el SQL que genera Hibernate, se obtiene su plan genérico con
+ * EXPLAIN (GENERIC_PLAN) y se falla si aparece un Seq Scan sobre pedidos.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ec.edu.espe.pedido_service.repository.PedidoRepositoryPlanesTest$CapturadorSql"
+})
+class PedidoRepositoryPlanesTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    //Guarda todas las sentencias que Hibernate envía a la base
+    public static class CapturadorSql implements StatementInspector {
+        static final List<String> SENTENCIAS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SENTENCIAS.add(sql);
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        //Con seqscan deshabilitado el planificador sólo recurre a él si no existe un índice utilizable
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        CapturadorSql.SENTENCIAS.clear();
+    }
+
+    @Test
+    void findByNumeroPedido_UsaIndice() {
+        pedidoRepository.findByNumeroPedido("PED-20240116-103000-0001");
+        assertUsaIndice("findByNumeroPedido");
+    }
+
+    @Test
+    void findIdByNumeroPedido_UsaIndice() {
+        pedidoRepository.findIdByNumeroPedido("PED-20240116-103000-0001");
+        assertUsaIndice("findIdByNumeroPedido");
+    }
+
+    @Test
+    void existsByNumeroPedido_UsaIndice() {
+        pedidoRepository.existsByNumeroPedido("PED-20240116-103000-0001");
+        assertUsaIndice("existsByNumeroPedido");
+    }
+
+    @Test
+    void findByClienteIdAndActivoTrue_UsaIndice() {
+        pedidoRepository.findByClienteIdAndActivoTrue(UUID.randomUUID());
+        assertUsaIndice("findByClienteIdAndActivoTrue");
+    }
+
+    @Test
+    void findByRepartidorIdAndActivoTrue_UsaIndice() {
+        pedidoRepository.findByRepartidorIdAndActivoTrue(UUID.randomUUID());
+        assertUsaIndice("findByRepartidorIdAndActivoTrue");
+    }
+
+    @Test
+    void findByEstadoAndActivoTrue_UsaIndice() {
+        pedidoRepository.findByEstadoAndActivoTrue(EstadoPedido.RECIBIDO);
+        assertUsaIndice("findByEstadoAndActivoTrue");
+    }
+
+    @Test
+    void findByTipoEntregaAndActivoTrue_UsaIndice() {
+        pedidoRepository.findByTipoEntregaAndActivoTrue(TipoEntrega.URBANA_RAPIDA);
+        assertUsaIndice("findByTipoEntregaAndActivoTrue");
+    }
+
+    @Test
+    void findByZonaIdAndActivoTrue_UsaIndice() {
+        pedidoRepository.findByZonaIdAndActivoTrue("170150");
+        assertUsaIndice("findByZonaIdAndActivoTrue");
+    }
+
+    @Test
+    void findByZonaIdAndEstadoAndActivoTrue_UsaIndice() {
+        pedidoRepository.findByZonaIdAndEstadoAndActivoTrue("170150", EstadoPedido.RECIBIDO);
+        assertUsaIndice("findByZonaIdAndEstadoAndActivoTrue");
+    }
+
+    @Test
+    void findByActivoTrue_UsaIndice() {
+        pedidoRepository.findByActivoTrue();
+        assertUsaIndice("findByActivoTrue");
+    }
+
+    @Test
+    void findResumen_UsaIndices() {
+        pedidoRepository.findResumenByActivoTrue();
+        assertUsaIndice("findResumenByActivoTrue");
+        pedidoRepository.findResumenByClienteIdAndActivoTrue(UUID.randomUUID());
+        assertUsaIndice("findResumenByClienteIdAndActivoTrue");
+        pedidoRepository.findResumenByRepartidorIdAndActivoTrue(UUID.randomUUID());
+        assertUsaIndice("findResumenByRepartidorIdAndActivoTrue");
+        pedidoRepository.findResumenByEstadoAndActivoTrue(EstadoPedido.RECIBIDO);
+        assertUsaIndice("findResumenByEstadoAndActivoTrue");
+        pedidoRepository.findResumenByZonaIdAndActivoTrue("170150");
+        assertUsaIndice("findResumenByZonaIdAndActivoTrue");
+        pedidoRepository.findResumenByZonaIdAndEstadoAndActivoTrue("170150", EstadoPedido.RECIBIDO);
+        assertUsaIndice("findResumenByZonaIdAndEstadoAndActivoTrue");
+    }
+
+    @Test
+    void marcaVersion_UsaIndices() {
+        pedidoRepository.marcaVersionPorZonaYEstado("170150", EstadoPedido.RECIBIDO);
+        assertUsaIndice("marcaVersionPorZonaYEstado");
+        pedidoRepository.marcaVersionPorCliente(UUID.randomUUID());
+        assertUsaIndice("marcaVersionPorCliente");
+        pedidoRepository.marcaVersionPorRepartidor(UUID.randomUUID());
+        assertUsaIndice("marcaVersionPorRepartidor");
+        pedidoRepository.findFechaActualizacionById(UUID.randomUUID());
+        assertUsaIndice("findFechaActualizacionById");
+    }
+
+    @Test
+    void paginacionPorKeyset_UsaIndice() {
+        pedidoRepository.findByActivoTrueOrderByFechaCreacionAscIdAsc(PageRequest.of(0, 50));
+        assertUsaIndice("findByActivoTrueOrderByFechaCreacionAscIdAsc");
+        pedidoRepository.findPaginaDespuesDe(LocalDateTime.now(), UUID.randomUUID(), PageRequest.of(0, 50));
+        assertUsaIndice("findPaginaDespuesDe");
+    }
+
+    @Test
+    void buscarPorTexto_UsaIndiceGin() {
+        pedidoRepository.buscarPorTexto("envio:* & quit:*", 5000, 21, 0);
+        assertUsaIndice("buscarPorTexto");
+    }
+
+    @Test
+    void streamByActivoTrue_UsaIndice() {
+        try (Stream<?> stream = pedidoRepository.streamByActivoTrue()) {
+            stream.forEach(p -> { });
+        }
+        assertUsaIndice("streamByActivoTrue");
+    }
+
+    //Toma la última sentencia capturada y revisa su plan genérico
+    private void assertUsaIndice(String metodo) {
+        assertFalse(CapturadorSql.SENTENCIAS.isEmpty(), metodo + " no ejecutó ninguna sentencia");
+        String sql = CapturadorSql.SENTENCIAS.getLast();
+        CapturadorSql.SENTENCIAS.clear();
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN (GENERIC_PLAN) " + conParametrosNumerados(sql), String.class));
+
+        assertFalse(plan.contains("Seq Scan on pedidos"),
+                metodo + " recorre pedidos secuencialmente:\n" + sql + "\n" + plan);
+        assertTrue(plan.contains("Index"), metodo + " no usa ningún índice:\n" + sql + "\n" + plan);
+    }
+
+    //EXPLAIN no acepta marcadores JDBC (?); se reemplazan por $1, $2, ... para el plan genérico
+    private static String conParametrosNumerados(String sql) {
+        StringBuilder resultado = new StringBuilder(sql.length() + 16);
+        int numero = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                resultado.append('$').append(++numero);
+            } else {
+                resultado.append(c);
+            }
+        }
+        return resultado.toString();
+    }
+}
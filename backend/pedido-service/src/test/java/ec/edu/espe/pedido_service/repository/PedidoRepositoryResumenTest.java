@@ -0,0 +1,145 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.dto.PedidoResumen;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.Pedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Proyecciones {@link PedidoResumen} (?vista=resumen) contra PostgreSQL real: cada consulta
+ * respeta sus filtros y omite los pedidos eliminados, los campos llegan al record correcto y
+ * el SQL sólo lee las columnas de la proyección.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ec.edu.espe.pedido_service.repository.PedidoRepositoryPlanesTest$CapturadorSql"
+})
+class PedidoRepositoryResumenTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    private static final String ZONA = "170150";
+    private static final String OTRA_ZONA = "180101";
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    private final UUID clienteId = UUID.randomUUID();
+    private final UUID repartidorId = UUID.randomUUID();
+
+    private Pedido recibido;
+    private Pedido enRuta;
+    private Pedido otraZona;
+
+    @BeforeEach
+    void setUp() {
+        recibido = guardar("PED-RES-1", EstadoPedido.RECIBIDO, ZONA, null, true);
+        enRuta = guardar("PED-RES-2", EstadoPedido.EN_RUTA, ZONA, repartidorId, true);
+        otraZona = guardar("PED-RES-3", EstadoPedido.RECIBIDO, OTRA_ZONA, null, true);
+        //Eliminado lógicamente: ninguna proyección debe devolverlo
+        guardar("PED-RES-4", EstadoPedido.RECIBIDO, ZONA, repartidorId, false);
+        PedidoRepositoryPlanesTest.CapturadorSql.SENTENCIAS.clear();
+    }
+
+    @Test
+    void findResumenByActivoTrue_DebeMapearLosCamposYOmitirEliminados() {
+        // Act
+        List<PedidoResumen> resumenes = pedidoRepository.findResumenByActivoTrue();
+
+        // Assert
+        assertEquals(List.of("PED-RES-1", "PED-RES-2", "PED-RES-3"), numeros(resumenes));
+        PedidoResumen resumen = resumenes.stream()
+                .filter(r -> r.id().equals(enRuta.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("PED-RES-2", resumen.numeroPedido());
+        assertEquals(EstadoPedido.EN_RUTA, resumen.estado());
+        assertEquals(PrioridadPedido.ALTA, resumen.prioridad());
+        assertEquals(ZONA, resumen.zonaId());
+        assertEquals(-0.1807, resumen.latitudDestino());
+        assertEquals(-78.4678, resumen.longitudDestino());
+        assertEquals(enRuta.getFechaEstimadaEntrega().truncatedTo(ChronoUnit.MICROS), resumen.fechaEstimadaEntrega());
+        assertNotNull(resumen.fechaCreacion());
+        assertNotNull(resumen.fechaActualizacion());
+    }
+
+    @Test
+    void findResumen_DebeAplicarCadaFiltro() {
+        assertEquals(List.of("PED-RES-1", "PED-RES-2", "PED-RES-3"),
+                numeros(pedidoRepository.findResumenByClienteIdAndActivoTrue(clienteId)));
+        assertEquals(List.of("PED-RES-2"),
+                numeros(pedidoRepository.findResumenByRepartidorIdAndActivoTrue(repartidorId)));
+        assertEquals(List.of("PED-RES-1", "PED-RES-3"),
+                numeros(pedidoRepository.findResumenByEstadoAndActivoTrue(EstadoPedido.RECIBIDO)));
+        assertEquals(List.of("PED-RES-1", "PED-RES-2"),
+                numeros(pedidoRepository.findResumenByZonaIdAndActivoTrue(ZONA)));
+        assertEquals(List.of("PED-RES-1"),
+                numeros(pedidoRepository.findResumenByZonaIdAndEstadoAndActivoTrue(ZONA, EstadoPedido.RECIBIDO)));
+        assertEquals(List.of("PED-RES-1", "PED-RES-3"),
+                numeros(pedidoRepository.findResumenByIdInAndActivoTrue(List.of(recibido.getId(), otraZona.getId()))));
+        assertTrue(pedidoRepository.findResumenByZonaIdAndActivoTrue("999999").isEmpty());
+    }
+
+    @Test
+    void findResumenByActivoTrue_SoloDebeLeerLasColumnasDeLaProyeccion() {
+        // Act
+        pedidoRepository.findResumenByActivoTrue();
+
+        // Assert: ninguna de las columnas de texto largo del pedido
+        String sql = PedidoRepositoryPlanesTest.CapturadorSql.SENTENCIAS.getLast().toLowerCase();
+        for (String columna : List.of("descripcion_paquete", "observaciones", "direccion_origen",
+                "direccion_destino", "cliente_nombre", "dimensiones")) {
+            assertFalse(sql.contains(columna), "La proyección lee " + columna + ":\n" + sql);
+        }
+        assertTrue(sql.contains("numero_pedido"), sql);
+    }
+
+    private static List<String> numeros(List<PedidoResumen> resumenes) {
+        return resumenes.stream().map(PedidoResumen::numeroPedido).sorted().toList();
+    }
+
+    private Pedido guardar(String numero, EstadoPedido estado, String zona, UUID repartidor, boolean activo) {
+        return pedidoRepository.saveAndFlush(Pedido.builder()
+                .numeroPedido(numero)
+                .clienteId(clienteId)
+                .clienteNombre("Cliente")
+                .repartidorId(repartidor)
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .estado(estado)
+                .prioridad(estado == EstadoPedido.EN_RUTA ? PrioridadPedido.ALTA : PrioridadPedido.NORMAL)
+                .direccionOrigen("Av. Amazonas N24-03")
+                .direccionDestino("Av. 6 de Diciembre N36-15")
+                .latitudDestino(-0.1807)
+                .longitudDestino(-78.4678)
+                .zonaId(zona)
+                .descripcionPaquete("Paquete con documentos")
+                .observaciones("Entregar en recepción")
+                .fechaEstimadaEntrega(LocalDateTime.now().plusDays(1))
+                .activo(activo)
+                .build());
+    }
+}
@@ -0,0 +1,201 @@
+package ec.edu.espe.pedido_service.repository;
+
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.Pedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de contención: 64 escritores concurrentes reasignando repartidor sobre
+ * unas pocas filas "calientes". Compara la transición compare-and-set (un UPDATE
+ * condicional) con la ruta clásica findById + save protegida por @Version.
+ * En ambos casos verifica que no se pierden actualizaciones: la suma de versiones
+ * debe ser igual al número de escrituras exitosas.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=" + TransicionContencionBenchmarkTest.ESCRITORES)
+@Tag("benchmark")
+@Slf4j
+class TransicionContencionBenchmarkTest {
+
+    static final int ESCRITORES = 64;
+    private static final int FILAS_CALIENTES = 8;
+    private static final Duration DURACION = Duration.ofSeconds(5);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private List<UUID> ids;
+
+    private record Resultado(String nombre, long exitos, long conflictos, long errores, Throwable primerError,
+                             double porSegundo) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        ids = tx.execute(status -> pedidoRepository.saveAll(IntStream.range(0, FILAS_CALIENTES)
+                        .mapToObj(this::pedidoAsignado)
+                        .toList()).stream()
+                .map(Pedido::getId)
+                .toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void compareAndSet_Con64Escritores_NoPierdeActualizaciones() throws InterruptedException {
+        Resultado resultado = medir("compare-and-set (UPDATE ... RETURNING)", id -> Boolean.TRUE.equals(
+                tx.execute(status -> pedidoRepository.transicionar(id, EstadoPedido.ASIGNADO, UUID.randomUUID(),
+                        "Repartidor " + Thread.currentThread().threadId(), null, LocalDateTime.now()).isPresent())));
+
+        assertEquals(0, resultado.errores(), () -> "Primer error: " + resultado.primerError());
+        assertTrue(resultado.exitos() > 0);
+        //La reasignación siempre es válida: los escritores se serializan en el bloqueo de fila, sin conflictos
+        assertEquals(0, resultado.conflictos());
+        assertEquals(resultado.exitos(), sumaDeVersiones());
+    }
+
+    @Test
+    void leerModificarEscribir_Con64Escritores_DetectaConflictosPorVersion() throws InterruptedException {
+        Resultado resultado = medir("findById + save con @Version", id -> {
+            try {
+                tx.executeWithoutResult(status -> {
+                    Pedido pedido = pedidoRepository.findById(id).orElseThrow();
+                    pedido.setRepartidorId(UUID.randomUUID());
+                    pedido.setRepartidorNombre("Repartidor " + Thread.currentThread().threadId());
+                    pedidoRepository.save(pedido);
+                });
+                return true;
+            } catch (OptimisticLockingFailureException e) {
+                return false;
+            }
+        });
+
+        assertEquals(0, resultado.errores(), () -> "Primer error: " + resultado.primerError());
+        assertTrue(resultado.exitos() > 0);
+        //Con @Version los escritores que pierden la carrera fallan en lugar de pisar el cambio ajeno
+        assertEquals(resultado.exitos(), sumaDeVersiones());
+    }
+
+    //Ejecuta la operación desde ESCRITORES hilos durante DURACION; true = éxito, false = conflicto
+    private Resultado medir(String nombre, Predicate<UUID> operacion) throws InterruptedException {
+        LongAdder exitos = new LongAdder();
+        LongAdder conflictos = new LongAdder();
+        LongAdder errores = new LongAdder();
+        AtomicReference<Throwable> primerError = new AtomicReference<>();
+        CountDownLatch inicio = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(ESCRITORES);
+        long[] fin = new long[1];
+        for (int i = 0; i < ESCRITORES; i++) {
+            executor.submit(() -> {
+                inicio.await();
+                while (System.nanoTime() < fin[0]) {
+                    UUID id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                    try {
+                        if (operacion.test(id)) {
+                            exitos.increment();
+                        } else {
+                            conflictos.increment();
+                        }
+                    } catch (RuntimeException e) {
+                        errores.increment();
+                        primerError.compareAndSet(null, e);
+                    }
+                }
+                return null;
+            });
+        }
+
+        long comienzo = System.nanoTime();
+        fin[0] = comienzo + DURACION.toNanos();
+        inicio.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(DURACION.toSeconds() + 60, TimeUnit.SECONDS));
+        double segundos = (System.nanoTime() - comienzo) / 1_000_000_000.0;
+
+        Resultado resultado = new Resultado(nombre, exitos.sum(), conflictos.sum(), errores.sum(), primerError.get(),
+                exitos.sum() / segundos);
+        log.info("{} escritores={} filas={} exitos={} conflictos={} errores={} -> {} transiciones/s",
+                resultado.nombre(), ESCRITORES, FILAS_CALIENTES, resultado.exitos(), resultado.conflictos(),
+                resultado.errores(), Math.round(resultado.porSegundo()));
+        return resultado;
+    }
+
+    private long sumaDeVersiones() {
+        return pedidoRepository.findAllById(ids).stream()
+                .mapToLong(Pedido::getVersion)
+                .sum();
+    }
+
+    private Pedido pedidoAsignado(int indice) {
+        return Pedido.builder()
+                .id(null)
+                .numeroPedido("PED-BENCH-" + indice)
+                .clienteId(UUID.randomUUID())
+                .clienteNombre("Cliente " + indice)
+                .repartidorId(UUID.randomUUID())
+                .repartidorNombre("Repartidor inicial")
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .estado(EstadoPedido.ASIGNADO)
+                .prioridad(PrioridadPedido.NORMAL)
+                .direccionOrigen("Av. Amazonas N24-03")
+                .latitudOrigen(-0.1807)
+                .longitudOrigen(-78.4678)
+                .direccionDestino("Av. 6 de Diciembre N36-15")
+                .latitudDestino(-0.1650)
+                .longitudDestino(-78.4822)
+                .zonaId("170150")
+                .descripcionPaquete("Paquete de prueba")
+                .build();
+    }
+}
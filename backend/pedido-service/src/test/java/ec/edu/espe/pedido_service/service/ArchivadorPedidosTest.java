@@ -0,0 +1,140 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.Pedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import ec.edu.espe.pedido_service.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archivador contra PostgreSQL real: mueve sólo los pedidos terminales antiguos,
+ * crea las particiones mensuales necesarias y el repositorio los sigue encontrando.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ArchivadorPedidosTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ArchivadorPedidos archivador;
+
+    @BeforeEach
+    void setUp() {
+        //Lote de 2 para forzar varios lotes en un mismo ciclo
+        archivador = new ArchivadorPedidos(jdbcTemplate, FragmentosPedidos.unico(jdbcTemplate.getDataSource()),
+                evento -> { }, transactionManager, new SimpleMeterRegistry(), true, 90, 2, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM pedidos_historico");
+        pedidoRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void archivar_MueveSoloTerminalesAntiguos() {
+        // Arrange
+        LocalDateTime hace200Dias = LocalDateTime.now().minusDays(200);
+        UUID entregadoAntiguo = guardar("PED-ARCH-1", EstadoPedido.ENTREGADO, hace200Dias, hace200Dias);
+        UUID canceladoAntiguo = guardar("PED-ARCH-2", EstadoPedido.CANCELADO, hace200Dias.minusMonths(1), hace200Dias);
+        UUID entregadoOtroMes = guardar("PED-ARCH-3", EstadoPedido.ENTREGADO, hace200Dias.minusMonths(2), hace200Dias);
+        UUID entregadoReciente = guardar("PED-ARCH-4", EstadoPedido.ENTREGADO, hace200Dias, LocalDateTime.now());
+        UUID enRutaAntiguo = guardar("PED-ARCH-5", EstadoPedido.EN_RUTA, hace200Dias, hace200Dias);
+
+        // Act
+        long movidos = archivador.archivarAnterioresA(LocalDateTime.now().minusDays(90));
+
+        // Assert
+        assertEquals(3, movidos);
+        assertTrue(pedidoRepository.findById(entregadoAntiguo).isEmpty());
+        assertTrue(pedidoRepository.findById(entregadoReciente).isPresent());
+        assertTrue(pedidoRepository.findById(enRutaAntiguo).isPresent());
+
+        assertEquals(EstadoPedido.CANCELADO,
+                pedidoRepository.findArchivadoById(canceladoAntiguo).orElseThrow().getEstado());
+        assertEquals(entregadoOtroMes, pedidoRepository.findIdArchivadoByNumeroPedido("PED-ARCH-3").orElseThrow());
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_inherits WHERE inhparent = 'pedidos_historico'::regclass", Integer.class));
+    }
+
+    @Test
+    void archivar_ParticionEliminadaTrasUnCicloAnterior_DebeVolverACrearla() {
+        // Arrange: un primer ciclo crea la partición del mes y luego se elimina
+        LocalDateTime hace200Dias = LocalDateTime.now().minusDays(200);
+        guardar("PED-ARCH-7", EstadoPedido.ENTREGADO, hace200Dias, hace200Dias);
+        assertEquals(1, archivador.archivarAnterioresA(LocalDateTime.now().minusDays(90)));
+        jdbcTemplate.execute("DELETE FROM pedidos_historico");
+        jdbcTemplate.execute("DROP TABLE pedidos_historico_"
+                + hace200Dias.format(DateTimeFormatter.ofPattern("yyyyMM")));
+        UUID mismoMes = guardar("PED-ARCH-8", EstadoPedido.ENTREGADO, hace200Dias, hace200Dias);
+
+        // Act
+        long movidos = archivador.archivarAnterioresA(LocalDateTime.now().minusDays(90));
+
+        // Assert
+        assertEquals(1, movidos);
+        assertTrue(pedidoRepository.findArchivadoById(mismoMes).isPresent());
+    }
+
+    @Test
+    void archivar_SinCandidatos_NoMueveNada() {
+        guardar("PED-ARCH-6", EstadoPedido.RECIBIDO, LocalDateTime.now(), LocalDateTime.now());
+
+        assertEquals(0, archivador.archivarAnterioresA(LocalDateTime.now().minusDays(90)));
+    }
+
+    //Las fechas se fijan por SQL porque Hibernate las asigna al insertar
+    private UUID guardar(String numero, EstadoPedido estado, LocalDateTime creacion, LocalDateTime actualizacion) {
+        Pedido pedido = pedidoRepository.save(Pedido.builder()
+                .id(null)
+                .numeroPedido(numero)
+                .clienteId(UUID.randomUUID())
+                .clienteNombre("Cliente")
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .estado(estado)
+                .prioridad(PrioridadPedido.NORMAL)
+                .direccionOrigen("Av. Amazonas N24-03")
+                .direccionDestino("Av. 6 de Diciembre N36-15")
+                .zonaId("170150")
+                .descripcionPaquete("Paquete")
+                .build());
+        jdbcTemplate.update("UPDATE pedidos SET fecha_creacion = ?, fecha_actualizacion = ? WHERE id = ?",
+                creacion, actualizacion, pedido.getId());
+        return pedido.getId();
+    }
+}
@@ -0,0 +1,220 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.exception.ConflictoPedidoException;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ColaDespachoTest {
+
+    private static final String ZONA = "170150";
+    private static final LocalDateTime AHORA = LocalDateTime.of(2024, 1, 16, 9, 0);
+
+    private PedidoService pedidoService;
+    private ColaDespacho cola;
+
+    @BeforeEach
+    void setUp() {
+        pedidoService = mock(PedidoService.class);
+        //La transición se confirma devolviendo el pedido ya en preparación
+        when(pedidoService.cambiarEstado(any(UUID.class), eq(EstadoPedido.EN_PREPARACION))).thenAnswer(invocacion ->
+                PedidoResponse.builder().id(invocacion.getArgument(0)).estado(EstadoPedido.EN_PREPARACION).build());
+        cola = new ColaDespacho(pedidoService, new SimpleMeterRegistry());
+    }
+
+    private PedidoResponse pedido(PrioridadPedido prioridad, LocalDateTime fechaEstimada) {
+        return PedidoResponse.builder()
+                .id(UUID.randomUUID())
+                .numeroPedido("PED-TEST")
+                .estado(EstadoPedido.RECIBIDO)
+                .prioridad(prioridad)
+                .zonaId(ZONA)
+                .fechaEstimadaEntrega(fechaEstimada)
+                .fechaCreacion(AHORA)
+                .activo(true)
+                .build();
+    }
+
+    private UUID reclamar() {
+        return cola.reclamarSiguiente(ZONA).map(PedidoResponse::getId).orElse(null);
+    }
+
+    @Test
+    void reclamarSiguiente_DebeRespetarPrioridadYFechaEstimada() {
+        // Arrange
+        PedidoResponse normalTemprano = pedido(PrioridadPedido.NORMAL, AHORA.plusHours(2));
+        PedidoResponse normalTardio = pedido(PrioridadPedido.NORMAL, AHORA.plusHours(8));
+        PedidoResponse urgente = pedido(PrioridadPedido.URGENTE, AHORA.plusDays(1));
+        PedidoResponse baja = pedido(PrioridadPedido.BAJA, AHORA);
+        List.of(normalTardio, baja, urgente, normalTemprano).forEach(cola::encolar);
+
+        // Act & Assert
+        assertEquals(urgente.getId(), reclamar());
+        assertEquals(normalTemprano.getId(), reclamar());
+        assertEquals(normalTardio.getId(), reclamar());
+        assertEquals(baja.getId(), reclamar());
+        assertTrue(cola.reclamarSiguiente(ZONA).isEmpty());
+        verify(pedidoService, times(4)).cambiarEstado(any(UUID.class), eq(EstadoPedido.EN_PREPARACION));
+    }
+
+    @Test
+    void alCambiarPedido_CambioDePrioridadOAsignacion_DebeReubicarORetirar() {
+        // Arrange
+        PedidoResponse primero = pedido(PrioridadPedido.ALTA, AHORA);
+        PedidoResponse segundo = pedido(PrioridadPedido.NORMAL, AHORA);
+        PedidoResponse asignado = pedido(PrioridadPedido.URGENTE, AHORA);
+        List.of(primero, segundo, asignado).forEach(cola::encolar);
+
+        // Act
+        segundo.setPrioridad(PrioridadPedido.URGENTE);
+        cola.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ACTUALIZADO, null, segundo));
+        asignado.setEstado(EstadoPedido.ASIGNADO);
+        asignado.setRepartidorId(UUID.randomUUID());
+        cola.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ASIGNADO, null, asignado));
+
+        // Assert
+        assertEquals(2, cola.tamanio(ZONA));
+        assertEquals(segundo.getId(), reclamar());
+        assertEquals(primero.getId(), reclamar());
+    }
+
+    @Test
+    void encolar_CambioDeZona_DebeMoverElPedidoDeCola() {
+        PedidoResponse pedido = pedido(PrioridadPedido.NORMAL, AHORA);
+        cola.encolar(pedido);
+
+        pedido.setZonaId("180101");
+        cola.encolar(pedido);
+
+        assertEquals(0, cola.tamanio(ZONA));
+        assertEquals(1, cola.tamanio("180101"));
+        assertEquals(1, cola.tamanio());
+    }
+
+    @Test
+    void reclamarSiguiente_EntradaObsoleta_DebeDescartarlaYSeguirConLaSiguiente() {
+        // Arrange: el primero ya no está RECIBIDO en la base
+        PedidoResponse obsoleto = pedido(PrioridadPedido.URGENTE, AHORA);
+        PedidoResponse vigente = pedido(PrioridadPedido.NORMAL, AHORA);
+        cola.encolar(obsoleto);
+        cola.encolar(vigente);
+        when(pedidoService.cambiarEstado(obsoleto.getId(), EstadoPedido.EN_PREPARACION))
+                .thenThrow(new ConflictoPedidoException(obsoleto.getId(), "Transición no permitida"));
+
+        // Act & Assert
+        assertEquals(vigente.getId(), reclamar());
+        assertEquals(0, cola.tamanio(ZONA));
+    }
+
+    @Test
+    void reclamarSiguiente_FalloDeLaBase_DebeDevolverElPedidoALaCola() {
+        PedidoResponse pedido = pedido(PrioridadPedido.NORMAL, AHORA);
+        cola.encolar(pedido);
+        when(pedidoService.cambiarEstado(pedido.getId(), EstadoPedido.EN_PREPARACION))
+                .thenThrow(new IllegalStateException("Conexión rechazada"));
+
+        assertThrows(IllegalStateException.class, () -> cola.reclamarSiguiente(ZONA));
+        assertEquals(1, cola.tamanio(ZONA));
+    }
+
+    @Test
+    void reclamarSiguiente_SinZona_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> cola.reclamarSiguiente(" "));
+        assertEquals(Optional.empty(), cola.reclamarSiguiente("999999"));
+    }
+
+    @Test
+    void reclamarSiguiente_ConEncolarConcurrente_NoDebeDejarEntradasSinRegistrar() throws Exception {
+        // Arrange
+        List<PedidoResponse> pedidos = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            pedidos.add(pedido(PrioridadPedido.values()[i % 4], AHORA.plusMinutes(i)));
+        }
+
+        // Act: un hilo reencola los mismos pedidos (eventos tardíos) mientras otro reclama
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            for (int ronda = 0; ronda < 50; ronda++) {
+                pedidos.forEach(cola::encolar);
+                AtomicBoolean reclamando = new AtomicBoolean(true);
+                Future<?> reencolador = hilos.submit(() -> {
+                    while (reclamando.get()) {
+                        pedidos.forEach(cola::encolar);
+                    }
+                });
+                Future<?> despachador = hilos.submit(() -> {
+                    for (int i = 0; i < pedidos.size(); i++) {
+                        cola.reclamarSiguiente(ZONA);
+                    }
+                    reclamando.set(false);
+                });
+                despachador.get();
+                reencolador.get();
+
+                // Assert: el montículo y el registro de zonas siguen de acuerdo
+                assertEquals(cola.tamanio(), cola.tamanio(ZONA));
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void reclamarSiguiente_DespachadoresConcurrentes_NoDebenRepetirPedidos() throws Exception {
+        // Arrange
+        int pedidos = 2_000;
+        for (int i = 0; i < pedidos; i++) {
+            cola.encolar(pedido(PrioridadPedido.values()[i % 4], AHORA.plusMinutes(i)));
+        }
+        Set<UUID> reclamados = ConcurrentHashMap.newKeySet();
+
+        // Act
+        ExecutorService despachadores = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int d = 0; d < 8; d++) {
+                resultados.add(despachadores.submit(() -> {
+                    int propios = 0;
+                    for (UUID id = reclamar(); id != null; id = reclamar()) {
+                        assertTrue(reclamados.add(id), "Pedido reclamado dos veces: " + id);
+                        propios++;
+                    }
+                    return propios;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> resultado : resultados) {
+                total += resultado.get();
+            }
+
+            // Assert
+            assertEquals(pedidos, total);
+            assertEquals(pedidos, reclamados.size());
+            assertEquals(0, cola.tamanio());
+        } finally {
+            despachadores.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.ConteoPedidos;
+import ec.edu.espe.pedido_service.dto.EstadisticasPedidosResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EstadisticasPedidosTest {
+
+    private PedidoService pedidoService;
+    private EstadisticasPedidos estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        pedidoService = mock(PedidoService.class);
+        estadisticas = new EstadisticasPedidos(pedidoService, new SimpleMeterRegistry());
+    }
+
+    private PedidoResponse pedido(EstadoPedido estado, String zonaId) {
+        return PedidoResponse.builder()
+                .id(UUID.randomUUID())
+                .estado(estado)
+                .zonaId(zonaId)
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .prioridad(PrioridadPedido.NORMAL)
+                .activo(true)
+                .build();
+    }
+
+    private PedidoResponse copia(PedidoResponse pedido, EstadoPedido estado, boolean activo) {
+        PedidoResponse copia = pedido(estado, pedido.getZonaId());
+        copia.setId(pedido.getId());
+        copia.setActivo(activo);
+        return copia;
+    }
+
+    @Test
+    void inicializar_DebeCargarLosConteosDeLaConsultaAgregada() {
+        // Arrange
+        when(pedidoService.contarPedidosActivos()).thenReturn(List.of(
+                new ConteoPedidos(EstadoPedido.RECIBIDO, "170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, 3),
+                new ConteoPedidos(EstadoPedido.EN_RUTA, "180101", TipoEntrega.NACIONAL, PrioridadPedido.ALTA, 2)));
+
+        // Act
+        estadisticas.inicializar();
+        EstadisticasPedidosResponse respuesta = estadisticas.obtener();
+
+        // Assert
+        assertEquals(5, respuesta.getTotal());
+        assertEquals(3, respuesta.getPorEstado().get(EstadoPedido.RECIBIDO));
+        assertEquals(2, respuesta.getPorZona().get("180101"));
+        assertEquals(2, respuesta.getPorTipoEntrega().get(TipoEntrega.NACIONAL));
+        assertEquals(3, respuesta.getPorPrioridad().get(PrioridadPedido.NORMAL));
+        assertEquals(0, respuesta.getDesviacionUltimaReconciliacion());
+    }
+
+    @Test
+    void alCambiarPedido_DebeMoverElConteoEntreEstados() {
+        // Arrange
+        PedidoResponse creado = pedido(EstadoPedido.RECIBIDO, "170150");
+        PedidoResponse asignado = copia(creado, EstadoPedido.ASIGNADO, true);
+
+        // Act
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.CREADO, null, creado));
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ASIGNADO, creado, asignado));
+        EstadisticasPedidosResponse respuesta = estadisticas.obtener();
+
+        // Assert
+        assertEquals(1, respuesta.getTotal());
+        assertNull(respuesta.getPorEstado().get(EstadoPedido.RECIBIDO));
+        assertEquals(1, respuesta.getPorEstado().get(EstadoPedido.ASIGNADO));
+        assertEquals(1, respuesta.getPorZona().get("170150"));
+    }
+
+    @Test
+    void alCambiarPedido_EliminadoOArchivado_DebeDejarDeContar() {
+        // Arrange
+        PedidoResponse uno = pedido(EstadoPedido.RECIBIDO, "170150");
+        PedidoResponse dos = pedido(EstadoPedido.ENTREGADO, "170150");
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.CREADO, null, uno));
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.CREADO, null, dos));
+
+        // Act
+        PedidoResponse eliminado = copia(uno, EstadoPedido.RECIBIDO, false);
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ELIMINADO, uno, eliminado));
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ARCHIVADO, dos, dos));
+
+        // Assert
+        assertEquals(0, estadisticas.obtener().getTotal());
+        assertTrue(estadisticas.obtener().getPorZona().isEmpty());
+    }
+
+    @Test
+    void reconciliar_ConDesviacion_DebeReportarlaYCorregir() {
+        // Arrange: un cambio cuyo evento no llegó deja los contadores desfasados
+        estadisticas.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.CREADO, null,
+                pedido(EstadoPedido.RECIBIDO, "170150")));
+        when(pedidoService.contarPedidosActivos()).thenReturn(List.of(
+                new ConteoPedidos(EstadoPedido.RECIBIDO, "170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, 2)));
+
+        // Act
+        long desviacion = estadisticas.reconciliar();
+
+        // Assert: 1 en total + 1 en cada una de las cuatro dimensiones
+        assertEquals(5, desviacion);
+        assertEquals(2, estadisticas.obtener().getTotal());
+        assertEquals(5, estadisticas.obtener().getDesviacionUltimaReconciliacion());
+        assertEquals(0, estadisticas.reconciliar());
+    }
+}
@@ -0,0 +1,148 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.dto.EstimacionEntregaResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class EstimadorEntregasTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2024, 1, 16, 10, 30);
+
+    private EstimadorEntregas estimador;
+
+    @BeforeEach
+    void setUp() {
+        estimador = new EstimadorEntregas(FragmentosPedidos.unico(mock(DataSource.class)),
+                new SimpleMeterRegistry(), 10, 0.9, 0.05);
+    }
+
+    //Entregas de 1 a 100 horas en la zona indicada
+    private void registrarEntregas(String zonaId) {
+        for (int horas = 1; horas <= 100; horas++) {
+            estimador.registrar(zonaId, TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, Duration.ofHours(horas));
+        }
+    }
+
+    private PedidoResponse pedido(EstadoPedido estado, LocalDateTime fechaEntregaReal) {
+        return PedidoResponse.builder()
+                .id(UUID.randomUUID())
+                .estado(estado)
+                .zonaId("170150")
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .prioridad(PrioridadPedido.NORMAL)
+                .fechaCreacion(AHORA)
+                .fechaEntregaReal(fechaEntregaReal)
+                .build();
+    }
+
+    @Test
+    void estimar_SinFechaSolicitada_DebeUsarElPercentilConfigurado() {
+        registrarEntregas("170150");
+
+        LocalDateTime estimada = estimador.estimar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, AHORA, null);
+
+        long horas = Duration.between(AHORA, estimada).toMinutes() / 60;
+        assertTrue(horas >= 88 && horas <= 92, "p90 esperado cerca de 90 h, obtenido " + horas);
+    }
+
+    @Test
+    void estimar_ConFechaMasOptimistaQueElHistorial_DebeLlevarlaAlMinimo() {
+        registrarEntregas("170150");
+        LocalDateTime solicitada = AHORA.plusMinutes(30);
+        LocalDateTime razonable = AHORA.plusDays(2);
+
+        LocalDateTime corregida = estimador.estimar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, AHORA, solicitada);
+
+        assertTrue(corregida.isAfter(AHORA.plusHours(4)), "p5 esperado cerca de 5 h, obtenido " + corregida);
+        assertEquals(razonable,
+                estimador.estimar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, AHORA, razonable));
+    }
+
+    @Test
+    void estimar_SinHistorialDeLaZona_DebeUsarElDeTodasLasZonas() {
+        registrarEntregas("180101");
+
+        LocalDateTime estimada = estimador.estimar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, AHORA, null);
+        EstimacionEntregaResponse estimacion = estimador.obtenerEstimacion(
+                "170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL).orElseThrow();
+
+        assertNotNull(estimada);
+        assertEquals("GLOBAL", estimacion.getAlcance());
+        assertEquals(100, estimacion.getMuestras());
+    }
+
+    @Test
+    void estimar_SinHistorialSuficiente_DebeConservarLaFechaSolicitada() {
+        estimador.registrar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, Duration.ofHours(5));
+
+        assertNull(estimador.estimar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, AHORA, null));
+        assertEquals(AHORA, estimador.estimar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, AHORA, AHORA));
+        assertTrue(estimador.obtenerEstimacion("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL).isEmpty());
+    }
+
+    @Test
+    void alCambiarPedido_SoloDebeRegistrarLaPrimeraEntrega() {
+        for (int i = 0; i < 10; i++) {
+            PedidoResponse entregado = pedido(EstadoPedido.ENTREGADO, AHORA.plusHours(3));
+            estimador.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ESTADO_CAMBIADO,
+                    pedido(EstadoPedido.EN_RUTA, null), entregado));
+            //Una actualización posterior del pedido ya entregado no es otra entrega
+            estimador.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ACTUALIZADO, entregado, entregado));
+        }
+        estimador.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.CANCELADO,
+                pedido(EstadoPedido.RECIBIDO, null), pedido(EstadoPedido.CANCELADO, null)));
+
+        EstimacionEntregaResponse estimacion = estimador.obtenerEstimacion(
+                "170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL).orElseThrow();
+        assertEquals("ZONA", estimacion.getAlcance());
+        assertEquals(10, estimacion.getMuestras());
+        assertTrue(Math.abs(estimacion.getP50Minutos() - 180) <= 4, "p50 " + estimacion.getP50Minutos());
+    }
+    @Test
+    void persistir_FalloAlRecargarTrasConfirmar_NoDebeReenviarLosIncrementos() throws Exception {
+        // Arrange: la suma se confirma, pero la recarga posterior falla
+        DataSource dataSource = mock(DataSource.class);
+        Connection conexion = mock(Connection.class);
+        PreparedStatement suma = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(conexion);
+        when(conexion.getAutoCommit()).thenReturn(true);
+        when(conexion.prepareStatement(startsWith("INSERT INTO duraciones_entrega"))).thenReturn(suma);
+        when(suma.getConnection()).thenReturn(conexion);
+        DatabaseMetaData metadatos = mock(DatabaseMetaData.class);
+        when(conexion.getMetaData()).thenReturn(metadatos);
+        when(metadatos.supportsBatchUpdates()).thenReturn(true);
+        when(suma.executeBatch()).thenAnswer(invocacion -> new int[]{1});
+        when(conexion.createStatement()).thenThrow(new SQLException("Conexión perdida"));
+        estimador = new EstimadorEntregas(FragmentosPedidos.unico(dataSource), new SimpleMeterRegistry(), 10, 0.9, 0.05);
+        estimador.registrar("170150", TipoEntrega.URBANA_RAPIDA, PrioridadPedido.NORMAL, Duration.ofHours(2));
+
+        // Act
+        estimador.persistir();
+        estimador.persistir();
+
+        // Assert: el segundo ciclo no tiene nada que sumar
+        verify(conexion, times(1)).prepareStatement(startsWith("INSERT INTO duraciones_entrega"));
+        verify(conexion).commit();
+    }
+}
@@ -0,0 +1,222 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.config.PoolsExportacion;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.model.Pedido;
+import ec.edu.espe.pedido_service.model.PrioridadPedido;
+import ec.edu.espe.pedido_service.model.TipoEntrega;
+import ec.edu.espe.pedido_service.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exportación CSV contra PostgreSQL real: incluye pedidos archivados, respeta los filtros,
+ * sale en orden (fecha_creacion, id) y se puede reanudar desde el último id recibido.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportadorPedidosTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private FragmentosPedidos fragmentos;
+    private ExportadorPedidos exportador;
+
+    private static final int OBSERVACIONES = List.of(ExportadorPedidos.ENCABEZADO).indexOf("observaciones");
+    private static final int ARCHIVADO = ExportadorPedidos.ENCABEZADO.length - 1;
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 1, 16, 10, 30);
+
+    @BeforeEach
+    void setUp() {
+        fragmentos = FragmentosPedidos.unico(jdbcTemplate.getDataSource());
+        PoolsExportacion pools = new PoolsExportacion(Map.of(FragmentosPedidos.FRAGMENTO_UNICO, jdbcTemplate.getDataSource()));
+        //Fetch y bloque pequeños para recorrer el cursor en varios viajes; hasta dos exportaciones a la vez
+        exportador = new ExportadorPedidos(fragmentos, pools, new SimpleMeterRegistry(), 2, 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM pedidos_historico");
+        pedidoRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void exportar_IncluyeArchivadosEnOrdenDeCreacion() throws IOException {
+        // Arrange
+        UUID primero = guardar("PED-EXP-1", EstadoPedido.ENTREGADO, base.minusMonths(6), "Av. Amazonas, N24-03");
+        UUID segundo = guardar("PED-EXP-2", EstadoPedido.RECIBIDO, base.minusDays(2), "Paquete \"frágil\"");
+        UUID tercero = guardar("PED-EXP-3", EstadoPedido.EN_RUTA, base.minusDays(1), null);
+        archivar();
+
+        // Act
+        List<String[]> filas = exportar(exportador.preparar(null, null, null, null));
+
+        // Assert
+        assertArrayEquals(ExportadorPedidos.ENCABEZADO, filas.getFirst());
+        assertEquals(List.of(primero.toString(), segundo.toString(), tercero.toString()),
+                filas.stream().skip(1).map(fila -> fila[0]).toList());
+        assertEquals("true", filas.get(1)[ARCHIVADO]);
+        assertEquals("false", filas.get(2)[ARCHIVADO]);
+        assertEquals("Av. Amazonas, N24-03", filas.get(1)[OBSERVACIONES]);
+        assertEquals("Paquete \"frágil\"", filas.get(2)[OBSERVACIONES]);
+    }
+
+    @Test
+    void exportar_FiltraPorFechasYEstadoYOmiteInactivos() throws IOException {
+        guardar("PED-EXP-4", EstadoPedido.RECIBIDO, base.minusDays(10), null);
+        UUID enRango = guardar("PED-EXP-5", EstadoPedido.RECIBIDO, base.minusDays(3), null);
+        guardar("PED-EXP-6", EstadoPedido.EN_RUTA, base.minusDays(3), null);
+        UUID eliminado = guardar("PED-EXP-7", EstadoPedido.RECIBIDO, base.minusDays(2), null);
+        jdbcTemplate.update("UPDATE pedidos SET activo = false WHERE id = ?", eliminado);
+
+        List<String[]> filas = exportar(exportador.preparar(base.minusDays(5), base, EstadoPedido.RECIBIDO, null));
+
+        assertEquals(List.of(enRango.toString()), filas.stream().skip(1).map(fila -> fila[0]).toList());
+    }
+
+    @Test
+    void exportar_Reanudada_ContinuaTrasElUltimoIdRecibido() throws IOException {
+        //Dos pedidos con la misma fecha de creación: el id desempata
+        UUID[] ids = new UUID[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = guardar("PED-EXP-R" + i, EstadoPedido.ENTREGADO, base.minusDays(ids.length - i / 2 * 2), null);
+        }
+        archivar();
+        List<String> completa = exportar(exportador.preparar(null, null, null, null)).stream()
+                .skip(1).map(fila -> fila[0]).toList();
+
+        List<String> reanudada = exportar(exportador.preparar(null, null, null, UUID.fromString(completa.get(1))))
+                .stream().skip(1).map(fila -> fila[0]).toList();
+
+        assertEquals(ids.length, completa.size());
+        assertEquals(completa.subList(2, completa.size()), reanudada);
+    }
+
+    @Test
+    void reservarTurno_ConElMaximoEnCurso_DebeRechazarHastaQueTermineUna() {
+        ExportadorPedidos.Turno primero = exportador.reservarTurno();
+        ExportadorPedidos.Turno segundo = exportador.reservarTurno();
+
+        assertNotNull(primero);
+        assertNotNull(segundo);
+        assertNull(exportador.reservarTurno());
+
+        //Cerrar dos veces el mismo turno no libera uno ajeno
+        primero.close();
+        primero.close();
+        assertNotNull(exportador.reservarTurno());
+        assertNull(exportador.reservarTurno());
+    }
+
+    @Test
+    void preparar_ParametrosInvalidos_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> exportador.preparar(base, base.minusDays(1), null, null));
+        assertThrows(IllegalArgumentException.class, () -> exportador.preparar(null, null, null, UUID.randomUUID()));
+    }
+
+    private List<String[]> exportar(ExportadorPedidos.Filtro filtro) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ExportadorPedidos.Resumen resumen = exportador.exportar(filtro, salida);
+
+        //Campos sin saltos de línea en estos datos: basta separar por comas fuera de comillas
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(salida.toByteArray())), StandardCharsets.UTF_8))) {
+            List<String[]> filas = lector.lines().map(ExportadorPedidosTest::separar).toList();
+            assertEquals(resumen.filas(), filas.size() - 1);
+            return filas;
+        }
+    }
+
+    private static String[] separar(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (c == '"' && entreComillas && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                campo.append('"');
+                i++;
+            } else if (c == '"') {
+                entreComillas = !entreComillas;
+            } else if (c == ',' && !entreComillas) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos.toArray(String[]::new);
+    }
+
+    //Mueve los terminales a pedidos_historico con el archivador real
+    private void archivar() {
+        new ArchivadorPedidos(jdbcTemplate, fragmentos, evento -> { }, transactionManager,
+                new SimpleMeterRegistry(), true, 90, 100, 0)
+                .archivarAnterioresA(LocalDateTime.now().plusDays(1));
+    }
+
+    //Las fechas se fijan por SQL porque Hibernate las asigna al insertar
+    private UUID guardar(String numero, EstadoPedido estado, LocalDateTime creacion, String observaciones) {
+        Pedido pedido = pedidoRepository.save(Pedido.builder()
+                .id(null)
+                .numeroPedido(numero)
+                .clienteId(UUID.randomUUID())
+                .clienteNombre("Cliente")
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .estado(estado)
+                .prioridad(PrioridadPedido.NORMAL)
+                .direccionOrigen("Av. Amazonas N24-03")
+                .direccionDestino("Av. 6 de Diciembre N36-15")
+                .zonaId("170150")
+                .descripcionPaquete("Paquete")
+                .observaciones(observaciones)
+                .build());
+        jdbcTemplate.update("UPDATE pedidos SET fecha_creacion = ?, fecha_actualizacion = ? WHERE id = ?",
+                creacion, creacion, pedido.getId());
+        return pedido.getId();
+    }
+}
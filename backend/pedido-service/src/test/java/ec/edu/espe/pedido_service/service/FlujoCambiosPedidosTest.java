@@ -0,0 +1,144 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.CambioPedido;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent;
+import ec.edu.espe.pedido_service.event.PedidoCambiadoEvent.TipoCambio;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import ec.edu.espe.pedido_service.service.FlujoCambiosPedidos.FiltroCambios;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlujoCambiosPedidosTest {
+
+    private static final int CAPACIDAD_HISTORIAL = 4;
+
+    private FlujoCambiosPedidos flujo;
+
+    @BeforeEach
+    void setUp() {
+        flujo = new FlujoCambiosPedidos(new SimpleMeterRegistry(), CAPACIDAD_HISTORIAL, 16, 2, 60000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        flujo.finalizar();
+    }
+
+    private PedidoResponse pedido(EstadoPedido estado, String zonaId, UUID repartidorId) {
+        return PedidoResponse.builder()
+                .id(UUID.randomUUID())
+                .numeroPedido("PED-20240116-000001")
+                .estado(estado)
+                .zonaId(zonaId)
+                .repartidorId(repartidorId)
+                .activo(true)
+                .version(0L)
+                .build();
+    }
+
+    private CambioPedido publicarCreado() {
+        return flujo.publicar(new PedidoCambiadoEvent(TipoCambio.CREADO, null,
+                pedido(EstadoPedido.RECIBIDO, "170150", null)));
+    }
+
+    @Test
+    void publicar_DebeGenerarRegistroCompactoConEstadoYRepartidorAnteriores() {
+        // Arrange
+        UUID anteriorRepartidor = UUID.randomUUID();
+        UUID nuevoRepartidor = UUID.randomUUID();
+        PedidoResponse anterior = pedido(EstadoPedido.ASIGNADO, "170150", anteriorRepartidor);
+        PedidoResponse actual = pedido(EstadoPedido.ASIGNADO, "170150", nuevoRepartidor);
+        actual.setId(anterior.getId());
+
+        // Act
+        CambioPedido cambio = flujo.publicar(new PedidoCambiadoEvent(TipoCambio.ASIGNADO, anterior, actual));
+
+        // Assert
+        assertEquals(1, cambio.secuencia());
+        assertEquals(anterior.getId(), cambio.pedidoId());
+        assertNull(cambio.estadoAnterior(), "El estado no cambió");
+        assertEquals(nuevoRepartidor, cambio.repartidorId());
+        assertEquals(anteriorRepartidor, cambio.repartidorAnteriorId());
+    }
+
+    @Test
+    void filtro_DebeAceptarPedidosQueEntranOSalenDelEstado() {
+        // Arrange
+        PedidoResponse recibido = pedido(EstadoPedido.RECIBIDO, "170150", null);
+        PedidoResponse enPreparacion = pedido(EstadoPedido.EN_PREPARACION, "170150", null);
+        enPreparacion.setId(recibido.getId());
+        CambioPedido cambio = flujo.publicar(
+                new PedidoCambiadoEvent(TipoCambio.ESTADO_CAMBIADO, recibido, enPreparacion));
+
+        // Assert
+        assertTrue(new FiltroCambios(null, EstadoPedido.RECIBIDO, null).acepta(cambio));
+        assertTrue(new FiltroCambios("170150", EstadoPedido.EN_PREPARACION, null).acepta(cambio));
+        assertFalse(new FiltroCambios("180101", null, null).acepta(cambio));
+        assertFalse(new FiltroCambios(null, EstadoPedido.EN_RUTA, null).acepta(cambio));
+        assertFalse(new FiltroCambios(null, null, UUID.randomUUID()).acepta(cambio));
+    }
+
+    @Test
+    void cambiosDesde_DebeDevolverLosPosterioresAlUltimoId() {
+        // Arrange
+        CambioPedido primero = publicarCreado();
+        CambioPedido segundo = publicarCreado();
+        CambioPedido tercero = publicarCreado();
+
+        // Act
+        Optional<List<CambioPedido>> pendientes = flujo.cambiosDesde(flujo.idDeEvento(primero));
+
+        // Assert
+        assertTrue(pendientes.isPresent());
+        assertEquals(List.of(segundo, tercero), pendientes.get());
+        assertEquals(List.of(), flujo.cambiosDesde(flujo.idDeEvento(tercero)).orElseThrow());
+    }
+
+    @Test
+    void cambiosDesde_FueraDelHistorial_NoDebePermitirReanudar() {
+        // Arrange
+        CambioPedido primero = publicarCreado();
+        for (int i = 0; i <= CAPACIDAD_HISTORIAL; i++) {
+            publicarCreado();
+        }
+
+        // Act & Assert
+        assertTrue(flujo.cambiosDesde(flujo.idDeEvento(primero)).isEmpty(), "El cambio siguiente ya fue sobrescrito");
+        assertTrue(flujo.cambiosDesde("otra-instancia-1").isEmpty());
+        assertTrue(flujo.cambiosDesde("basura").isEmpty());
+    }
+
+    @Test
+    void alCambiarPedido_Archivado_NoDebePublicarse() {
+        // Arrange
+        PedidoResponse entregado = pedido(EstadoPedido.ENTREGADO, "170150", null);
+        CambioPedido previo = publicarCreado();
+
+        // Act
+        flujo.alCambiarPedido(new PedidoCambiadoEvent(TipoCambio.ARCHIVADO, entregado, entregado));
+
+        // Assert
+        assertEquals(List.of(), flujo.cambiosDesde(flujo.idDeEvento(previo)).orElseThrow());
+    }
+
+    @Test
+    void suscribir_SobreElMaximo_DebeRechazar() {
+        // Arrange
+        flujo.suscribir(new FiltroCambios(null, null, null), null);
+        flujo.suscribir(new FiltroCambios("170150", null, null), null);
+
+        // Act & Assert
+        assertEquals(2, flujo.suscriptoresActivos());
+        assertThrows(IllegalStateException.class,
+                () -> flujo.suscribir(new FiltroCambios(null, null, null), null));
+    }
+}
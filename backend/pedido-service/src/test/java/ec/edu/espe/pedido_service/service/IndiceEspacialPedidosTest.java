@@ -0,0 +1,91 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoCercanoResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class IndiceEspacialPedidosTest {
+
+    private IndiceEspacialPedidos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceEspacialPedidos(mock(PedidoService.class), new SimpleMeterRegistry(), 0.05);
+    }
+
+    private PedidoResponse pedido(double lat, double lon, EstadoPedido estado) {
+        return PedidoResponse.builder()
+                .id(UUID.randomUUID())
+                .numeroPedido("PED-TEST")
+                .estado(estado)
+                .latitudDestino(lat)
+                .longitudDestino(lon)
+                .activo(true)
+                .build();
+    }
+
+    @Test
+    void buscarCercanos_DebeRetornarSoloPedidosDentroDelRadioOrdenados() {
+        // Arrange
+        PedidoResponse cercano = pedido(-0.1650, -78.4822, EstadoPedido.RECIBIDO);
+        PedidoResponse medio = pedido(-0.2000, -78.5000, EstadoPedido.ASIGNADO);
+        PedidoResponse lejano = pedido(-1.2491, -78.6168, EstadoPedido.RECIBIDO);
+        indice.indexar(medio);
+        indice.indexar(cercano);
+        indice.indexar(lejano);
+
+        // Act
+        List<PedidoCercanoResponse> resultado = indice.buscarCercanos(-0.1700, -78.4800, 10, 100);
+
+        // Assert
+        assertEquals(2, resultado.size());
+        assertEquals(cercano.getId(), resultado.get(0).getId());
+        assertEquals(medio.getId(), resultado.get(1).getId());
+    }
+
+    @Test
+    void indexar_PedidoCanceladoOEntregado_DebeRetirarloDelIndice() {
+        // Arrange
+        PedidoResponse pedido = pedido(-0.1650, -78.4822, EstadoPedido.RECIBIDO);
+        indice.indexar(pedido);
+        assertEquals(1, indice.tamanio());
+
+        // Act
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        indice.indexar(pedido);
+
+        // Assert
+        assertEquals(0, indice.tamanio());
+        assertTrue(indice.buscarCercanos(-0.1650, -78.4822, 5, 100).isEmpty());
+    }
+
+    @Test
+    void indexar_PedidoMovido_DebeCambiarDeCelda() {
+        // Arrange
+        PedidoResponse pedido = pedido(-0.1650, -78.4822, EstadoPedido.RECIBIDO);
+        indice.indexar(pedido);
+
+        // Act
+        pedido.setLatitudDestino(-2.1700);
+        pedido.setLongitudDestino(-79.9224);
+        indice.indexar(pedido);
+
+        // Assert
+        assertTrue(indice.buscarCercanos(-0.1650, -78.4822, 5, 100).isEmpty());
+        assertEquals(1, indice.buscarEnArea(-2.5, -2.0, -80.0, -79.5, 100).size());
+    }
+
+    @Test
+    void buscarCercanos_ConRadioInvalido_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> indice.buscarCercanos(0, 0, 0, 10));
+    }
+}
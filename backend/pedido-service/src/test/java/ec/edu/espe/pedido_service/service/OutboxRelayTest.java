@@ -0,0 +1,146 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.config.RabbitMQConfig;
+import ec.edu.espe.pedido_service.model.EventoOutbox;
+import ec.edu.espe.pedido_service.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private static final int TAMANIO_LOTE = 3;
+
+    private EventoOutboxRepository eventoOutboxRepository;
+    private RabbitOperations operaciones;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        eventoOutboxRepository = mock(EventoOutboxRepository.class);
+        operaciones = mock(RabbitOperations.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        //El canal dedicado de invoke se sustituye por las operaciones simuladas
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocacion ->
+                invocacion.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operaciones));
+
+        relay = new OutboxRelay(eventoOutboxRepository, rabbitTemplate,
+                FragmentosPedidos.unico(mock(DataSource.class)), mock(PlatformTransactionManager.class),
+                meterRegistry, TAMANIO_LOTE, 1_000);
+    }
+
+    private EventoOutbox evento(String accion, int minutosAtras) {
+        return EventoOutbox.builder()
+                .id(UUID.randomUUID())
+                .exchange(RabbitMQConfig.NOTIFICATIONS_EXCHANGE)
+                .routingKey(RabbitMQConfig.NOTIFICATIONS_ROUTING_KEY)
+                .accion(accion)
+                .entityId(UUID.randomUUID().toString())
+                .payload("{\"action\":\"" + accion + "\"}")
+                .fechaCreacion(LocalDateTime.now().minusMinutes(minutosAtras))
+                .build();
+    }
+
+    private double contador(String nombre) {
+        return meterRegistry.get(nombre).counter().count();
+    }
+
+    @Test
+    void drenar_DebePublicarEnOrdenYEliminarSoloTrasLaConfirmacion() {
+        // Arrange
+        List<EventoOutbox> lote = List.of(evento("CREATED", 3), evento("UPDATED", 2));
+        when(eventoOutboxRepository.findLoteParaPublicar(TAMANIO_LOTE)).thenReturn(lote);
+
+        // Act
+        relay.drenar();
+
+        // Assert: mismo orden que el outbox, confirmación del broker y recién entonces el borrado
+        ArgumentCaptor<Message> mensajes = ArgumentCaptor.forClass(Message.class);
+        InOrder orden = inOrder(operaciones, eventoOutboxRepository);
+        orden.verify(operaciones, times(2)).send(eq(RabbitMQConfig.NOTIFICATIONS_EXCHANGE),
+                eq(RabbitMQConfig.NOTIFICATIONS_ROUTING_KEY), mensajes.capture());
+        orden.verify(operaciones).waitForConfirmsOrDie(1_000);
+        orden.verify(eventoOutboxRepository).deleteAllInBatch(lote);
+
+        assertEquals(lote.get(0).getId().toString(), mensajes.getAllValues().get(0).getMessageProperties().getMessageId());
+        assertEquals(lote.get(1).getId().toString(), mensajes.getAllValues().get(1).getMessageProperties().getMessageId());
+        assertEquals("{\"action\":\"CREATED\"}",
+                new String(mensajes.getAllValues().get(0).getBody(), StandardCharsets.UTF_8));
+        assertEquals(2, contador("pedidos.outbox.publicados"));
+    }
+
+    @Test
+    void drenar_SinConfirmacion_NoDebeEliminarYDebeReintentarEnElSiguienteCiclo() {
+        // Arrange: el broker no confirma el primer intento
+        List<EventoOutbox> lote = List.of(evento("CREATED", 1));
+        when(eventoOutboxRepository.findLoteParaPublicar(TAMANIO_LOTE)).thenReturn(lote);
+        doThrow(new AmqpTimeoutException("sin confirmación")).doNothing()
+                .when(operaciones).waitForConfirmsOrDie(anyLong());
+
+        // Act & Assert: las filas siguen en el outbox tras el fallo
+        relay.drenar();
+        verify(eventoOutboxRepository, never()).deleteAllInBatch(any());
+        assertEquals(1, contador("pedidos.outbox.errores"));
+        assertEquals(0, contador("pedidos.outbox.publicados"));
+
+        // El siguiente ciclo vuelve a publicar el mismo lote y lo elimina
+        relay.drenar();
+        verify(operaciones, times(2)).send(anyString(), anyString(), any(Message.class));
+        verify(eventoOutboxRepository).deleteAllInBatch(lote);
+        assertEquals(1, contador("pedidos.outbox.publicados"));
+    }
+
+    @Test
+    void drenar_LoteCompleto_DebeSeguirHastaVaciarElOutbox() {
+        // Arrange: un lote completo y luego uno parcial
+        List<EventoOutbox> completo = List.of(evento("A", 5), evento("B", 4), evento("C", 3));
+        List<EventoOutbox> parcial = List.of(evento("D", 2));
+        when(eventoOutboxRepository.findLoteParaPublicar(TAMANIO_LOTE)).thenReturn(completo).thenReturn(parcial);
+
+        // Act
+        relay.drenar();
+
+        // Assert
+        InOrder orden = inOrder(eventoOutboxRepository);
+        orden.verify(eventoOutboxRepository).deleteAllInBatch(completo);
+        orden.verify(eventoOutboxRepository).deleteAllInBatch(parcial);
+        verify(eventoOutboxRepository, times(2)).findLoteParaPublicar(TAMANIO_LOTE);
+        assertEquals(4, contador("pedidos.outbox.publicados"));
+    }
+
+    @Test
+    void drenar_OutboxVacio_NoDebePublicar() {
+        when(eventoOutboxRepository.findLoteParaPublicar(TAMANIO_LOTE)).thenReturn(List.of());
+
+        relay.drenar();
+
+        verifyNoInteractions(operaciones);
+        verify(eventoOutboxRepository, never()).deleteAllInBatch(any());
+    }
+}
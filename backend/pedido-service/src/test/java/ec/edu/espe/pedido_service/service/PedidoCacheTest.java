@@ -0,0 +1,54 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoCacheTest {
+
+    private final UUID id = UUID.randomUUID();
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    private final Function<UUID, PedidoResponse> cargador = pedidoId -> {
+        cargas.incrementAndGet();
+        return PedidoResponse.builder()
+                .id(pedidoId)
+                .numeroPedido("PED-TEST")
+                .estado(EstadoPedido.RECIBIDO)
+                .build();
+    };
+
+    @Test
+    void obtenerPorId_ModificarLaRespuesta_NoDebeAlterarLaEntradaCacheada() {
+        PedidoCache cache = new PedidoCache(new SimpleMeterRegistry(), 1_000_000, 1_000, 60_000);
+
+        PedidoResponse primera = cache.obtenerPorId(id, cargador);
+        primera.setEstado(EstadoPedido.CANCELADO);
+        primera.setNumeroPedido("ALTERADO");
+
+        PedidoResponse segunda = cache.obtenerPorId(id, cargador);
+        assertNotSame(primera, segunda);
+        assertEquals(EstadoPedido.RECIBIDO, segunda.getEstado());
+        assertEquals("PED-TEST", cache.obtenerSiPresente(id).getNumeroPedido());
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    void obtenerPorId_EntradaExpirada_DebeRecargarDesdeLaBase() throws InterruptedException {
+        PedidoCache cache = new PedidoCache(new SimpleMeterRegistry(), 1_000_000, 1_000, 50);
+
+        cache.obtenerPorId(id, cargador);
+        Thread.sleep(120);
+
+        assertNull(cache.obtenerSiPresente(id));
+        cache.obtenerPorId(id, cargador);
+        assertEquals(2, cargas.get());
+    }
+}
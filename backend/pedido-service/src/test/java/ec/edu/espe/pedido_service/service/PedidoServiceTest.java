@@ -1,25 +1,62 @@
 package ec.edu.espe.pedido_service.service;
 
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.config.ReplicasLectura;
+import ec.edu.espe.pedido_service.dto.BusquedaLoteRequest;
+import ec.edu.espe.pedido_service.dto.BusquedaLoteResponse;
+import ec.edu.espe.pedido_service.dto.CoincidenciaBusqueda;
 import ec.edu.espe.pedido_service.dto.CreatePedidoRequest;
+import ec.edu.espe.pedido_service.dto.PedidoBusquedaResponse;
+import ec.edu.espe.pedido_service.dto.PedidoLoteResponse;
+import ec.edu.espe.pedido_service.dto.PedidoPaginaResponse;
 import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.dto.PedidoResumen;
+import ec.edu.espe.pedido_service.dto.TransicionLoteRequest;
+import ec.edu.espe.pedido_service.dto.TransicionLoteResponse;
+import ec.edu.espe.pedido_service.dto.UpdatePedidoRequest;
+import ec.edu.espe.pedido_service.exception.ConflictoPedidoException;
 import ec.edu.espe.pedido_service.model.EstadoPedido;
 import ec.edu.espe.pedido_service.model.Pedido;
 import ec.edu.espe.pedido_service.model.PrioridadPedido;
 import ec.edu.espe.pedido_service.model.TipoEntrega;
 import ec.edu.espe.pedido_service.repository.PedidoRepository;
+import ec.edu.espe.pedido_service.repository.PedidoTransicionRepository.TransicionPedido;
+import ec.edu.espe.pedido_service.util.GeneradorNumeros;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.sql.DataSource;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +65,32 @@ class PedidoServiceTest {
     @Mock
     private PedidoRepository pedidoRepository;
 
+    @Mock
+    private NotificationProducer notificationProducer;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private GeneradorNumeros generadorNumeroPedido;
+
+    @Spy
+    private PedidoCache pedidoCache = new PedidoCache(new SimpleMeterRegistry(), 1_000_000, 1_000, 60_000);
+
+    //Un único fragmento: todo se ejecuta en el hilo y la transacción del llamador
+    @Spy
+    private FragmentosPedidos fragmentos = FragmentosPedidos.unico(mock(DataSource.class));
+
+    //Sin historial de entregas: la fecha estimada solicitada se conserva tal cual
+    @Spy
+    private EstimadorEntregas estimadorEntregas = new EstimadorEntregas(fragmentos, new SimpleMeterRegistry(), 30, 0.9, 0.05);
+
     @InjectMocks
     private PedidoService pedidoService;
 
@@ -126,22 +189,31 @@ class PedidoServiceTest {
     void asignarRepartidor_ConRepartidorDisponible_DebeAsignar() {
         // Arrange
         UUID repartidorId = UUID.randomUUID();
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        pedido.setEstado(EstadoPedido.ASIGNADO);
+        pedido.setRepartidorId(repartidorId);
+        when(pedidoRepository.transicionar(eq(pedidoId), eq(EstadoPedido.ASIGNADO), eq(repartidorId),
+                eq("Carlos López"), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new TransicionPedido(pedido, EstadoPedido.RECIBIDO)));
 
         // Act
         PedidoResponse response = pedidoService.asignarRepartidor(pedidoId, repartidorId, "Carlos López");
 
         // Assert
         assertNotNull(response);
-        verify(pedidoRepository, times(1)).save(any(Pedido.class));
+        assertEquals(EstadoPedido.ASIGNADO, response.getEstado());
+        verify(notificationProducer).publishPedidoEstadoActualizado(
+                eq(pedidoId.toString()), eq("RECIBIDO"), eq("ASIGNADO"), anyMap());
+        verify(pedidoRepository, never()).findById(any());
+        verify(pedidoRepository, never()).save(any());
     }
 
     @Test
     void asignarRepartidor_ConPedidoNoExistente_DebeLanzarExcepcion() {
         // Arrange
         UUID repartidorId = UUID.randomUUID();
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.empty());
+        when(pedidoRepository.transicionar(eq(pedidoId), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(pedidoRepository.findEstadoActivoById(pedidoId)).thenReturn(Optional.empty());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(
@@ -152,6 +224,21 @@ class PedidoServiceTest {
         verify(pedidoRepository, never()).save(any());
     }
 
+    @Test
+    void cambiarEstado_FalloAlRegistrarEventoEnOutbox_DebePropagarParaRevertirLaTransaccion() {
+        // Arrange: el INSERT del outbox falla dentro de la transacción del cambio
+        pedido.setEstado(EstadoPedido.EN_PREPARACION);
+        when(pedidoRepository.transicionar(eq(pedidoId), eq(EstadoPedido.EN_PREPARACION), any(), any(), any(), any()))
+                .thenReturn(Optional.of(new TransicionPedido(pedido, EstadoPedido.RECIBIDO)));
+        doThrow(new IllegalStateException("outbox no disponible")).when(notificationProducer)
+                .publishPedidoEstadoActualizado(any(), any(), any(), anyMap());
+
+        // Act & Assert: sin evento no hay cambio confirmado ni aviso a los componentes en memoria
+        assertThrows(IllegalStateException.class,
+                () -> pedidoService.cambiarEstado(pedidoId, EstadoPedido.EN_PREPARACION));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
     @Test
     void obtenerPedidoPorId_ConIdValido_DebeRetornarPedido() {
         // Arrange
@@ -166,6 +253,178 @@ class PedidoServiceTest {
         assertEquals("PED-20240116-000001", response.getNumeroPedido());
     }
 
+    @Test
+    void obtenerPedidoPorId_ConsultasRepetidas_DebeConsultarLaBaseUnaSolaVez() {
+        // Arrange
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // Act
+        pedidoService.obtenerPedidoPorId(pedidoId);
+        PedidoResponse response = pedidoService.obtenerPedidoPorId(pedidoId);
+
+        // Assert
+        assertEquals(pedidoId, response.getId());
+        verify(pedidoRepository, times(1)).findById(pedidoId);
+    }
+
+    @Test
+    void obtenerPedidoPorId_TrasCambioConfirmado_DebeRecargarDesdeLaBase() {
+        // Arrange
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        pedidoService.obtenerPedidoPorId(pedidoId);
+
+        // Act
+        pedidoCache.invalidar(pedidoId);
+        pedidoService.obtenerPedidoPorId(pedidoId);
+
+        // Assert
+        verify(pedidoRepository, times(2)).findById(pedidoId);
+    }
+
+    @Test
+    void obtenerPedidoPorId_ConReplicas_DebeCargarLaCacheDesdeLaPrincipal() throws Exception {
+        // Arrange: una réplica al día que atendería cualquier lectura sin marca
+        Connection conexionPrincipal = mock(Connection.class);
+        DataSource principal = mock(DataSource.class);
+        when(principal.getConnection()).thenReturn(conexionPrincipal);
+        Connection conexionReplica = mock(Connection.class, RETURNS_DEEP_STUBS);
+        DataSource replica = mock(DataSource.class);
+        when(replica.getConnection()).thenReturn(conexionReplica);
+        when(conexionReplica.createStatement().executeQuery(anyString()).next()).thenReturn(true);
+
+        try (ReplicasLectura replicasLectura = new ReplicasLectura(principal, Map.of("replica-1", replica), 1000, 5000)) {
+            replicasLectura.iniciar(60_000);
+            AtomicReference<Connection> usada = new AtomicReference<>();
+            when(pedidoRepository.findById(pedidoId)).thenAnswer(invocacion -> {
+                usada.set(replicasLectura.getConnection());
+                return Optional.of(pedido);
+            });
+
+            // Act
+            pedidoService.obtenerPedidoPorId(pedidoId);
+
+            // Assert
+            assertSame(conexionPrincipal, usada.get());
+        }
+    }
+
+    @Test
+    void obtenerPedidoPorId_Archivado_DebeResponderDesdeElHistorico() {
+        // Arrange
+        pedido.setEstado(EstadoPedido.ENTREGADO);
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.empty());
+        when(pedidoRepository.findArchivadoById(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // Act
+        PedidoResponse response = pedidoService.obtenerPedidoPorId(pedidoId);
+
+        // Assert
+        assertEquals(pedidoId, response.getId());
+        assertEquals(EstadoPedido.ENTREGADO, response.getEstado());
+    }
+
+    @Test
+    void obtenerPedidoPorNumero_Archivado_DebeResolverIdEnElHistorico() {
+        // Arrange
+        when(pedidoRepository.findIdByNumeroPedido("PED-20240116-000001")).thenReturn(Optional.empty());
+        when(pedidoRepository.findIdArchivadoByNumeroPedido("PED-20240116-000001")).thenReturn(Optional.of(pedidoId));
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.empty());
+        when(pedidoRepository.findArchivadoById(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // Act
+        PedidoResponse response = pedidoService.obtenerPedidoPorNumero("PED-20240116-000001");
+
+        // Assert
+        assertEquals(pedidoId, response.getId());
+    }
+
+    @Test
+    void obtenerPedidosPorIds_DebeConsultarHistoricoSoloParaFaltantes() {
+        // Arrange
+        UUID archivadoId = UUID.randomUUID();
+        UUID inexistenteId = UUID.randomUUID();
+        Pedido archivado = Pedido.builder().id(archivadoId).numeroPedido("PED-20240101-000009")
+                .estado(EstadoPedido.ENTREGADO).activo(true).build();
+        when(pedidoRepository.findAllById(List.of(pedidoId, archivadoId, inexistenteId))).thenReturn(List.of(pedido));
+        when(pedidoRepository.findArchivadosByIdIn(List.of(archivadoId, inexistenteId))).thenReturn(List.of(archivado));
+
+        // Act
+        BusquedaLoteResponse<PedidoResponse> response =
+                pedidoService.obtenerPedidosPorIds(List.of(pedidoId, archivadoId, pedidoId, inexistenteId));
+
+        // Assert
+        assertEquals(List.of(pedidoId, archivadoId, inexistenteId), List.copyOf(response.getResultados().keySet()));
+        assertEquals(EstadoPedido.ENTREGADO, response.getResultados().get(archivadoId).getEstado());
+        assertNull(response.getResultados().get(inexistenteId));
+        assertEquals(List.of(inexistenteId), response.getNoEncontrados());
+        verify(pedidoRepository, never()).findById(any());
+    }
+
+    @Test
+    void obtenerPedidosPorIds_ExcedeMaximo_DebeLanzarExcepcion() {
+        List<UUID> ids = Stream.generate(UUID::randomUUID)
+                .limit(BusquedaLoteRequest.MAXIMO_IDS + 1).toList();
+
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.obtenerPedidosPorIds(ids));
+        verifyNoInteractions(pedidoRepository);
+    }
+
+    @Test
+    void obtenerFechaActualizacion_EnCache_NoDebeConsultarLaBase() {
+        // Arrange
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 16, 10, 30);
+        pedido.setFechaActualizacion(fecha);
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        pedidoService.obtenerPedidoPorId(pedidoId);
+
+        // Act
+        Optional<LocalDateTime> resultado = pedidoService.obtenerFechaActualizacion(pedidoId);
+
+        // Assert
+        assertEquals(Optional.of(fecha), resultado);
+        verify(pedidoRepository, never()).findFechaActualizacionById(any());
+    }
+
+    @Test
+    void obtenerFechaActualizacion_FueraDeCache_DebeRecurrirAlHistorico() {
+        // Arrange
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 16, 10, 30);
+        when(pedidoRepository.findFechaActualizacionById(pedidoId)).thenReturn(Optional.empty());
+        when(pedidoRepository.findFechaActualizacionArchivadoById(pedidoId)).thenReturn(Optional.of(fecha));
+
+        // Act & Assert
+        assertEquals(Optional.of(fecha), pedidoService.obtenerFechaActualizacion(pedidoId));
+        verify(pedidoRepository, never()).findById(any());
+    }
+
+    @Test
+    void obtenerFechaActualizacionPorNumero_DebeResolverElIdUnaSolaVezSinCargarElPedido() {
+        // Arrange
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 16, 10, 30);
+        when(pedidoRepository.findIdByNumeroPedido("PED-20240116-000001")).thenReturn(Optional.of(pedidoId));
+        when(pedidoRepository.findFechaActualizacionById(pedidoId)).thenReturn(Optional.of(fecha));
+
+        // Act
+        pedidoService.obtenerFechaActualizacionPorNumero("PED-20240116-000001");
+        Optional<LocalDateTime> resultado = pedidoService.obtenerFechaActualizacionPorNumero("PED-20240116-000001");
+
+        // Assert: el número queda en la caché de IDs y nunca se hidrata la entidad
+        assertEquals(Optional.of(fecha), resultado);
+        verify(pedidoRepository, times(1)).findIdByNumeroPedido("PED-20240116-000001");
+        verify(pedidoRepository, never()).findById(any());
+    }
+
+    @Test
+    void obtenerFechaActualizacionPorNumero_Inexistente_DebeRetornarVacio() {
+        // Arrange
+        when(pedidoRepository.findIdByNumeroPedido("PED-X")).thenReturn(Optional.empty());
+        when(pedidoRepository.findIdArchivadoByNumeroPedido("PED-X")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(pedidoService.obtenerFechaActualizacionPorNumero("PED-X").isEmpty());
+        verify(pedidoRepository, never()).findFechaActualizacionById(any());
+    }
+
     @Test
     void obtenerPedidoPorId_ConIdInvalido_DebeLanzarExcepcion() {
         // Arrange
@@ -181,14 +440,364 @@ class PedidoServiceTest {
     @Test
     void actualizarEstado_ConEstadoValido_DebeActualizar() {
         // Arrange
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        pedido.setEstado(EstadoPedido.EN_RUTA);
+        when(pedidoRepository.transicionar(eq(pedidoId), eq(EstadoPedido.EN_RUTA), isNull(), isNull(), isNull(),
+                any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new TransicionPedido(pedido, EstadoPedido.ASIGNADO)));
 
         // Act
         PedidoResponse response = pedidoService.cambiarEstado(pedidoId, EstadoPedido.EN_RUTA);
 
         // Assert
         assertNotNull(response);
-        verify(pedidoRepository, times(1)).save(any(Pedido.class));
+        assertEquals(EstadoPedido.EN_RUTA, response.getEstado());
+        verify(pedidoRepository, never()).save(any());
+    }
+
+    @Test
+    void cambiarEstado_ConTransicionNoPermitida_DebeLanzarConflicto() {
+        // Arrange: el pedido ya fue entregado por otro escritor
+        when(pedidoRepository.transicionar(eq(pedidoId), eq(EstadoPedido.EN_RUTA), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(pedidoRepository.findEstadoActivoById(pedidoId)).thenReturn(Optional.of(EstadoPedido.ENTREGADO));
+
+        // Act & Assert
+        ConflictoPedidoException exception = assertThrows(
+                ConflictoPedidoException.class,
+                () -> pedidoService.cambiarEstado(pedidoId, EstadoPedido.EN_RUTA)
+        );
+        assertTrue(exception.getMessage().contains("ENTREGADO"));
+        verify(notificationProducer, never()).publishPedidoEstadoActualizado(any(), any(), any(), any());
+    }
+
+    @Test
+    void cancelarPedido_Entregado_DebeLanzarConflicto() {
+        // Arrange
+        when(pedidoRepository.transicionar(eq(pedidoId), eq(EstadoPedido.CANCELADO), isNull(), isNull(),
+                eq("CANCELADO: Cliente ausente"), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(pedidoRepository.findEstadoActivoById(pedidoId)).thenReturn(Optional.of(EstadoPedido.ENTREGADO));
+
+        // Act & Assert
+        assertThrows(
+                ConflictoPedidoException.class,
+                () -> pedidoService.cancelarPedido(pedidoId, "Cliente ausente")
+        );
+        verify(notificationProducer, never()).publishPedidoCancelado(any(), any());
+    }
+
+    @Test
+    void actualizarPedido_ConVersionDesactualizada_DebeLanzarConflicto() {
+        // Arrange
+        pedido.setVersion(3L);
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        UpdatePedidoRequest update = UpdatePedidoRequest.builder()
+                .prioridad(PrioridadPedido.ALTA)
+                .version(2L)
+                .build();
+
+        // Act & Assert
+        assertThrows(
+                ConflictoPedidoException.class,
+                () -> pedidoService.actualizarPedido(pedidoId, update)
+        );
+        verify(pedidoRepository, never()).save(any());
+    }
+
+    @Test
+    void actualizarPedido_ConEstadoFueraDeLaTabla_DebeLanzarConflicto() {
+        // Arrange: RECIBIDO no puede pasar directamente a ENTREGADO
+        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        UpdatePedidoRequest update = UpdatePedidoRequest.builder()
+                .estado(EstadoPedido.ENTREGADO)
+                .build();
+
+        // Act & Assert
+        assertThrows(
+                ConflictoPedidoException.class,
+                () -> pedidoService.actualizarPedido(pedidoId, update)
+        );
+        verify(pedidoRepository, never()).save(any());
+    }
+
+    @Test
+    void obtenerPaginaDePedidos_ConMasFilasQueLimite_DebeRetornarCursor() {
+        // Arrange
+        pedido.setFechaCreacion(LocalDateTime.of(2024, 1, 16, 10, 0));
+        Pedido siguiente = Pedido.builder()
+                .id(UUID.randomUUID())
+                .numeroPedido("PED-20240116-000002")
+                .fechaCreacion(LocalDateTime.of(2024, 1, 16, 10, 5))
+                .build();
+        when(pedidoRepository.findByActivoTrueOrderByFechaCreacionAscIdAsc(any()))
+                .thenReturn(List.of(pedido, siguiente));
+
+        // Act
+        PedidoPaginaResponse pagina = pedidoService.obtenerPaginaDePedidos(null, 1);
+
+        // Assert
+        assertEquals(1, pagina.getContenido().size());
+        assertTrue(pagina.getHayMas());
+        assertNotNull(pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerPaginaDePedidos_ConCursor_DebeContinuarDespuesDelUltimo() {
+        // Arrange
+        pedido.setFechaCreacion(LocalDateTime.of(2024, 1, 16, 10, 0));
+        when(pedidoRepository.findByActivoTrueOrderByFechaCreacionAscIdAsc(any()))
+                .thenReturn(List.of(pedido, pedido));
+        String cursor = pedidoService.obtenerPaginaDePedidos(null, 1).getSiguienteCursor();
+        when(pedidoRepository.findPaginaDespuesDe(eq(pedido.getFechaCreacion()), eq(pedidoId), any()))
+                .thenReturn(List.of());
+
+        // Act
+        PedidoPaginaResponse pagina = pedidoService.obtenerPaginaDePedidos(cursor, 1);
+
+        // Assert
+        assertTrue(pagina.getContenido().isEmpty());
+        assertFalse(pagina.getHayMas());
+        assertNull(pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerPaginaDePedidos_ConCursorInvalido_DebeLanzarExcepcion() {
+        // Act & Assert
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> pedidoService.obtenerPaginaDePedidos("no-es-un-cursor", 10)
+        );
+    }
+
+    @Test
+    void crearPedidosEnLote_ConElementoFueraDeCobertura_DebeRechazarSoloEseElemento() {
+        // Arrange
+        CreatePedidoRequest fueraDeCobertura = CreatePedidoRequest.builder()
+                .clienteId(clienteId)
+                .clienteNombre("Ana Torres")
+                .tipoEntrega(TipoEntrega.URBANA_RAPIDA)
+                .direccionOrigen("Av. Amazonas N24-03")
+                .latitudOrigen(-0.1807)
+                .longitudOrigen(-78.4678)
+                .direccionDestino("Ambato centro")
+                .latitudDestino(-1.2491)
+                .longitudDestino(-78.6168)
+                .descripcionPaquete("Caja mediana")
+                .build();
+        when(generadorNumeroPedido.siguiente()).thenReturn("PED-20240116-103000-0001");
+        when(pedidoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Pedido> bloque = invocation.getArgument(0);
+            bloque.forEach(p -> p.setId(UUID.randomUUID()));
+            return bloque;
+        });
+
+        // Act
+        PedidoLoteResponse response = pedidoService.crearPedidosEnLote(List.of(request, fueraDeCobertura));
+
+        // Assert
+        assertEquals(2, response.getTotal());
+        assertEquals(1, response.getCreados());
+        assertEquals(1, response.getRechazados());
+        assertEquals("CREADO", response.getResultados().get(0).getEstado());
+        assertNotNull(response.getResultados().get(0).getPedido().getNumeroPedido());
+        assertEquals("RECHAZADO", response.getResultados().get(1).getEstado());
+        assertTrue(response.getResultados().get(1).getMotivo().contains("distancia"));
+        verify(notificationProducer, times(1)).publishPedidosCreadosEnLote(anyList());
+    }
+
+    @Test
+    void crearPedidosEnLote_ConLoteVacio_DebeLanzarExcepcion() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> pedidoService.crearPedidosEnLote(List.of())
+        );
+    }
+
+    @Test
+    void transicionarEnLote_PorIds_DebeReportarRechazadosEnOrden() {
+        // Arrange: el primer pedido pasa a EN_RUTA, el segundo ya fue entregado y el tercero no existe
+        UUID entregadoId = UUID.randomUUID();
+        UUID inexistenteId = UUID.randomUUID();
+        pedido.setEstado(EstadoPedido.EN_RUTA);
+        pedido.setVersion(2L);
+        List<UUID> ids = List.of(pedidoId, entregadoId, inexistenteId);
+        when(pedidoRepository.transicionarEnLote(eq(ids), isNull(), isNull(), eq(EstadoPedido.EN_RUTA), isNull(),
+                any(LocalDateTime.class), eq(PedidoService.MAXIMO_TRANSICIONES_LOTE)))
+                .thenReturn(List.of(new TransicionPedido(pedido, EstadoPedido.ASIGNADO)));
+        when(pedidoRepository.findResumenByIdInAndActivoTrue(List.of(entregadoId, inexistenteId)))
+                .thenReturn(List.of(new PedidoResumen(entregadoId, "PED-20240116-000002", EstadoPedido.ENTREGADO,
+                        PrioridadPedido.NORMAL, "170150", -0.1650, -78.4822, null, null, null)));
+        TransicionLoteRequest lote = TransicionLoteRequest.builder()
+                .ids(List.of(pedidoId, entregadoId, pedidoId, inexistenteId))
+                .estadoDestino(EstadoPedido.EN_RUTA)
+                .build();
+
+        // Act
+        TransicionLoteResponse response = pedidoService.transicionarEnLote(lote);
+
+        // Assert
+        assertEquals(1, response.getTransicionados());
+        assertEquals(2, response.getRechazados());
+        assertEquals("TRANSICIONADO", response.getResultados().get(0).getEstado());
+        assertEquals(EstadoPedido.ASIGNADO, response.getResultados().get(0).getEstadoAnterior());
+        assertEquals(2L, response.getResultados().get(0).getVersion());
+        assertEquals("RECHAZADO", response.getResultados().get(1).getEstado());
+        assertTrue(response.getResultados().get(1).getMotivo().contains("ENTREGADO"));
+        assertTrue(response.getResultados().get(2).getMotivo().contains("no encontrado"));
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+        verify(notificationProducer, times(1)).publishPedidosEstadoActualizadoEnLote(eq("EN_RUTA"), anyList());
+    }
+
+    @Test
+    void transicionarEnLote_PorZona_DebeUsarUnaSolaSentencia() {
+        // Arrange
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        when(pedidoRepository.transicionarEnLote(isNull(), eq("170150"), eq(EstadoPedido.RECIBIDO),
+                eq(EstadoPedido.CANCELADO), eq("Cierre de zona"), any(LocalDateTime.class), anyInt()))
+                .thenReturn(List.of(new TransicionPedido(pedido, EstadoPedido.RECIBIDO)));
+        TransicionLoteRequest lote = TransicionLoteRequest.builder()
+                .zonaId("170150")
+                .estadoOrigen(EstadoPedido.RECIBIDO)
+                .estadoDestino(EstadoPedido.CANCELADO)
+                .nota("Cierre de zona")
+                .build();
+
+        // Act
+        TransicionLoteResponse response = pedidoService.transicionarEnLote(lote);
+
+        // Assert
+        assertEquals(1, response.getTransicionados());
+        assertEquals(0, response.getRechazados());
+        assertFalse(response.getLimiteAlcanzado());
+        verify(pedidoRepository, never()).findResumenByIdInAndActivoTrue(any());
+        verify(notificationProducer, times(1)).publishPedidosEstadoActualizadoEnLote(eq("CANCELADO"), anyList());
+    }
+
+    @Test
+    void transicionarEnLote_FalloEnUnFragmentoPosterior_DebeDejarNotificadoLoYaConfirmado() {
+        // Arrange: durante un rebalanceo la zona está en dos fragmentos y el segundo falla
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        doReturn(new LinkedHashSet<>(List.of("fragmento-1", "fragmento-2"))).when(fragmentos).fragmentosDeZona("170150");
+        when(pedidoRepository.transicionarEnLote(isNull(), eq("170150"), eq(EstadoPedido.RECIBIDO),
+                eq(EstadoPedido.CANCELADO), isNull(), any(LocalDateTime.class), anyInt()))
+                .thenReturn(List.of(new TransicionPedido(pedido, EstadoPedido.RECIBIDO)))
+                .thenThrow(new IllegalStateException("Fragmento no disponible"));
+        TransicionLoteRequest lote = TransicionLoteRequest.builder()
+                .zonaId("170150")
+                .estadoOrigen(EstadoPedido.RECIBIDO)
+                .estadoDestino(EstadoPedido.CANCELADO)
+                .build();
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> pedidoService.transicionarEnLote(lote));
+
+        // Assert: el evento del primer fragmento se registró dentro de su propia transacción
+        InOrder orden = inOrder(fragmentos, notificationProducer);
+        orden.verify(fragmentos).enTransaccion(eq("fragmento-1"), eq(false), any());
+        orden.verify(notificationProducer).publishPedidosEstadoActualizadoEnLote(eq("CANCELADO"),
+                argThat(datos -> datos.size() == 1));
+        orden.verify(fragmentos).enTransaccion(eq("fragmento-2"), eq(false), any());
+    }
+
+    @Test
+    void crearPedidosEnLote_FalloEnUnFragmentoPosterior_DebeDejarNotificadoLoYaConfirmado() {
+        // Arrange: cada pedido va a un fragmento distinto y la inserción del segundo falla
+        doReturn("fragmento-1", "fragmento-2").when(fragmentos).fragmentoDeZona(any());
+        when(generadorNumeroPedido.siguiente()).thenReturn("PED-20240116-103000-0001", "PED-20240116-103000-0002");
+        when(pedidoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Pedido> bloque = invocation.getArgument(0);
+            bloque.forEach(p -> p.setId(UUID.randomUUID()));
+            return bloque;
+        }).thenThrow(new IllegalStateException("Fragmento no disponible"));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> pedidoService.crearPedidosEnLote(List.of(request, request)));
+
+        // Assert
+        InOrder orden = inOrder(fragmentos, notificationProducer);
+        orden.verify(fragmentos).enTransaccion(eq("fragmento-1"), eq(false), any());
+        orden.verify(notificationProducer).publishPedidosCreadosEnLote(argThat(datos -> datos.size() == 1));
+        orden.verify(fragmentos).enTransaccion(eq("fragmento-2"), eq(false), any());
+        verifyNoMoreInteractions(notificationProducer);
+    }
+
+    @Test
+    void transicionarEnLote_ConSelectorInvalido_DebeLanzarExcepcion() {
+        TransicionLoteRequest ambos = TransicionLoteRequest.builder()
+                .ids(List.of(pedidoId))
+                .zonaId("170150")
+                .estadoOrigen(EstadoPedido.RECIBIDO)
+                .estadoDestino(EstadoPedido.CANCELADO)
+                .build();
+        TransicionLoteRequest noPermitida = TransicionLoteRequest.builder()
+                .zonaId("170150")
+                .estadoOrigen(EstadoPedido.ENTREGADO)
+                .estadoDestino(EstadoPedido.EN_RUTA)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.transicionarEnLote(ambos));
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.transicionarEnLote(noPermitida));
+        verifyNoInteractions(pedidoRepository);
+    }
+
+    //Los acentos se conservan: los quita la configuración es_sin_acentos de PostgreSQL
+    private static CoincidenciaBusqueda coincidencia(UUID id, double rango) {
+        return new CoincidenciaBusqueda() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public Double getRango() {
+                return rango;
+            }
+
+            @Override
+            public LocalDateTime getFechaCreacion() {
+                return LocalDateTime.now();
+            }
+        };
+    }
+
+    @Test
+    void buscarPedidos_DebeConsultarPorPrefijosYRespetarElRanking() {
+        // Arrange
+        Pedido otro = new Pedido();
+        otro.setId(UUID.randomUUID());
+        otro.setNumeroPedido("PED-20240116-000002");
+        otro.setEstado(EstadoPedido.RECIBIDO);
+        when(pedidoRepository.buscarPorTexto(eq("envío:* & quit:*"), anyInt(), eq(2), eq(0)))
+                .thenReturn(List.of(coincidencia(otro.getId(), 0.9), coincidencia(pedidoId, 0.4)));
+        when(pedidoRepository.findAllById(List.of(otro.getId())))
+                .thenReturn(List.of(otro));
+
+        // Act
+        PedidoBusquedaResponse response = pedidoService.buscarPedidos("  Envío, QUIT ", 0, 1);
+
+        // Assert
+        assertTrue(response.getHayMas());
+        assertEquals(1, response.getContenido().size());
+        assertEquals(otro.getId(), response.getContenido().get(0).getId());
+    }
+
+    @Test
+    void buscarPedidos_TerminosCortos_NoDebenUsarseComoPrefijo() {
+        // Arrange
+        when(pedidoRepository.buscarPorTexto(anyString(), anyInt(), anyInt(), anyInt())).thenReturn(List.of());
+
+        // Act
+        pedidoService.buscarPedidos("Av. 10 de Agosto", 0, 20);
+
+        // Assert: los candidatos a rankear quedan acotados
+        verify(pedidoRepository).buscarPorTexto(eq("av & 10 & de & agosto:*"),
+                intThat(candidatos -> candidatos >= PedidoService.MAXIMO_RESULTADOS_BUSQUEDA), eq(21), eq(0));
+    }
+
+    @Test
+    void buscarPedidos_SinTerminosOFueraDelMaximo_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.buscarPedidos(" -*&! ", 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.buscarPedidos("quito", 50, 100));
+        verifyNoInteractions(pedidoRepository);
     }
 }
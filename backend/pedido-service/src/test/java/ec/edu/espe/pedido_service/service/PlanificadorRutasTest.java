@@ -0,0 +1,68 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.dto.PedidoResponse;
+import ec.edu.espe.pedido_service.dto.RutaRepartidorResponse;
+import ec.edu.espe.pedido_service.model.EstadoPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlanificadorRutasTest {
+
+    private PedidoService pedidoService;
+    private PlanificadorRutas planificador;
+    private UUID repartidorId;
+
+    @BeforeEach
+    void setUp() {
+        pedidoService = mock(PedidoService.class);
+        planificador = new PlanificadorRutas(pedidoService, new SimpleMeterRegistry(), 200);
+        repartidorId = UUID.randomUUID();
+    }
+
+    private PedidoResponse pedido(EstadoPedido estado, Double latitud, Double longitud) {
+        return PedidoResponse.builder()
+                .id(UUID.randomUUID())
+                .estado(estado)
+                .repartidorId(repartidorId)
+                .latitudDestino(latitud)
+                .longitudDestino(longitud)
+                .activo(true)
+                .build();
+    }
+
+    @Test
+    void planificar_DebeOrdenarLasParadasPendientesDesdeLaPosicionDelRepartidor() {
+        // Arrange
+        PedidoResponse lejano = pedido(EstadoPedido.ASIGNADO, -0.18, -78.42);
+        PedidoResponse cercano = pedido(EstadoPedido.EN_RUTA, -0.18, -78.48);
+        PedidoResponse intermedio = pedido(EstadoPedido.ASIGNADO, -0.18, -78.45);
+        PedidoResponse entregado = pedido(EstadoPedido.ENTREGADO, -0.18, -78.49);
+        PedidoResponse sinCoordenadas = pedido(EstadoPedido.ASIGNADO, null, null);
+        when(pedidoService.obtenerPedidosPorRepartidor(repartidorId))
+                .thenReturn(List.of(lejano, entregado, cercano, sinCoordenadas, intermedio));
+
+        // Act
+        RutaRepartidorResponse ruta = planificador.planificar(repartidorId, -0.18, -78.50);
+
+        // Assert
+        assertEquals(List.of(cercano.getId(), intermedio.getId(), lejano.getId()),
+                ruta.getParadas().stream().map(RutaRepartidorResponse.Parada::getPedidoId).toList());
+        assertEquals(List.of(sinCoordenadas.getId()), ruta.getSinCoordenadas());
+        //La distancia total incluye el tramo desde la posición del repartidor hasta la primera parada
+        assertEquals(ruta.getDistanciaTotalKm(),
+                ruta.getParadas().stream().mapToDouble(RutaRepartidorResponse.Parada::getDistanciaKm).sum(), 1e-6);
+    }
+
+    @Test
+    void planificar_ConLatitudSinLongitud_DebeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> planificador.planificar(repartidorId, -0.18, null));
+    }
+}
@@ -0,0 +1,158 @@
+package ec.edu.espe.pedido_service.service;
+
+import ec.edu.espe.pedido_service.config.FragmentosPedidos;
+import ec.edu.espe.pedido_service.dto.EstadoFragmentosResponse;
+import ec.edu.espe.pedido_service.util.MapaFragmentos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rebalanceador contra dos PostgreSQL reales: mueve las zonas que cambiaron de dueño al ampliar
+ * el mapa y, al repetirse tras una interrupción, no pisa lo que el destino ya modificó o archivó.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RebalanceadorFragmentosTest {
+
+    @Container
+    static PostgreSQLContainer primero = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Container
+    static PostgreSQLContainer segundo = new PostgreSQLContainer("postgres:16-alpine");
+
+    private static final MapaFragmentos MAPA = new MapaFragmentos(List.of("fragmento-1", "fragmento-2"));
+
+    //Zona que al ampliar el mapa pasa de fragmento-1 a fragmento-2
+    private static final String ZONA = zonaDe("fragmento-2");
+
+    private JdbcTemplate origen;
+    private JdbcTemplate destino;
+    private RebalanceadorFragmentos rebalanceador;
+
+    @BeforeEach
+    void setUp() {
+        DataSource fragmento1 = migrar(primero);
+        DataSource fragmento2 = migrar(segundo);
+        origen = new JdbcTemplate(fragmento1);
+        destino = new JdbcTemplate(fragmento2);
+        FragmentosPedidos fragmentos = new FragmentosPedidos(MAPA, new MapaFragmentos(List.of("fragmento-1")),
+                Map.of("fragmento-1", fragmento1, "fragmento-2", fragmento2), null);
+        //Lote de 2 para forzar varios lotes por zona
+        rebalanceador = new RebalanceadorFragmentos(fragmentos, new SimpleMeterRegistry(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (JdbcTemplate jdbcTemplate : List.of(origen, destino)) {
+            jdbcTemplate.execute("DELETE FROM pedidos_historico");
+            jdbcTemplate.execute("DELETE FROM pedidos");
+        }
+    }
+
+    private static DataSource migrar(PostgreSQLContainer postgres) {
+        DataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return dataSource;
+    }
+
+    @Test
+    void rebalancear_DebeMoverLaZonaAlNuevoDuenio() {
+        // Arrange
+        List<UUID> ids = IntStream.range(0, 5).mapToObj(i -> insertar(origen, "PED-REB-" + i, "RECIBIDO", 0)).toList();
+        UUID otraZona = insertar(origen, "PED-REB-OTRA", "RECIBIDO", 0, zonaDe("fragmento-1"));
+
+        // Act
+        EstadoFragmentosResponse.Rebalanceo resultado = rebalanceador.rebalancear();
+
+        // Assert
+        assertNull(resultado.getError());
+        assertEquals(5, resultado.getFilasMovidas());
+        assertEquals(0, resultado.getFilasPendientes());
+        assertEquals(0, contar(origen, "pedidos", ZONA));
+        assertEquals(5, contar(destino, "pedidos", ZONA));
+        ids.forEach(id -> assertEquals("RECIBIDO", estado(destino, id)));
+        assertEquals("RECIBIDO", estado(origen, otraZona));
+    }
+
+    @Test
+    void rebalancear_TrasUnaCopiaInterrumpida_NoDebePisarLoQueElDestinoYaTiene() {
+        // Arrange: una ejecución anterior copió al destino sin llegar a borrar del origen, y luego
+        // el destino (dueño vigente) siguió modificando o archivando esas filas
+        UUID modificado = insertar(origen, "PED-REB-MOD", "RECIBIDO", 0);
+        insertar(destino, modificado, "PED-REB-MOD", "EN_RUTA", 3, ZONA);
+        UUID archivado = insertar(origen, "PED-REB-ARCH", "ENTREGADO", 2);
+        insertar(destino, archivado, "PED-REB-ARCH", "ENTREGADO", 2, ZONA);
+        destino.execute(ArchivadorPedidos.sqlCrearParticion(LocalDate.now().withDayOfMonth(1)));
+        destino.update("INSERT INTO pedidos_historico (%1$s, fecha_archivado) SELECT %1$s, now() FROM pedidos WHERE id = ?"
+                .formatted(ArchivadorPedidos.COLUMNAS), archivado);
+        destino.update("DELETE FROM pedidos WHERE id = ?", archivado);
+        UUID atrasado = insertar(origen, "PED-REB-ATR", "ASIGNADO", 4);
+        insertar(destino, atrasado, "PED-REB-ATR", "RECIBIDO", 1, ZONA);
+
+        // Act
+        EstadoFragmentosResponse.Rebalanceo resultado = rebalanceador.rebalancear();
+
+        // Assert: el origen queda vacío y el destino conserva su versión más nueva
+        assertNull(resultado.getError());
+        assertEquals(0, contar(origen, "pedidos", ZONA));
+        assertEquals("EN_RUTA", estado(destino, modificado));
+        assertEquals(3L, destino.queryForObject("SELECT version FROM pedidos WHERE id = ?", Long.class, modificado));
+        assertEquals(0, destino.queryForObject("SELECT count(*) FROM pedidos WHERE id = ?", Integer.class, archivado));
+        assertEquals(1, contar(destino, "pedidos_historico", ZONA));
+        //La copia del destino era más antigua: se actualiza con la del origen
+        assertEquals("ASIGNADO", estado(destino, atrasado));
+    }
+
+    private static String zonaDe(String fragmento) {
+        return IntStream.range(0, 2000)
+                .mapToObj(i -> String.valueOf(170000 + i))
+                .filter(zona -> MAPA.fragmentoDe(zona).equals(fragmento))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private UUID insertar(JdbcTemplate jdbcTemplate, String numero, String estado, long version) {
+        return insertar(jdbcTemplate, numero, estado, version, ZONA);
+    }
+
+    private UUID insertar(JdbcTemplate jdbcTemplate, String numero, String estado, long version, String zona) {
+        UUID id = UUID.randomUUID();
+        insertar(jdbcTemplate, id, numero, estado, version, zona);
+        return id;
+    }
+
+    private static void insertar(JdbcTemplate jdbcTemplate, UUID id, String numero, String estado, long version, String zona) {
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO pedidos (id, numero_pedido, cliente_id, cliente_nombre, tipo_entrega, estado, prioridad,
+                    direccion_origen, direccion_destino, zona_id, descripcion_paquete, activo,
+                    fecha_creacion, fecha_actualizacion, version)
+                VALUES (?, ?, ?, 'Cliente', 'URBANA_RAPIDA', ?, 'NORMAL', 'Origen', 'Destino', ?, 'Caja', true, ?, ?, ?)""",
+                id, numero, UUID.randomUUID(), estado, zona, ahora, ahora, version);
+    }
+
+    private static String estado(JdbcTemplate jdbcTemplate, UUID id) {
+        return jdbcTemplate.queryForObject("SELECT estado FROM pedidos WHERE id = ?", String.class, id);
+    }
+
+    private static long contar(JdbcTemplate jdbcTemplate, String tabla, String zona) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + tabla + " WHERE zona_id = ?", Long.class, zona);
+    }
+}
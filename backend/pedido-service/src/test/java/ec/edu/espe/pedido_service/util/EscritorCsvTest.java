@@ -0,0 +1,32 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritorCsvTest {
+
+    @Test
+    void fila_CamposSimples_SinComillas() throws IOException {
+        StringWriter salida = new StringWriter();
+
+        new EscritorCsv(salida).fila("PED-1", "170150", "12.50");
+
+        assertEquals("PED-1,170150,12.50\r\n", salida.toString());
+    }
+
+    @Test
+    void fila_CamposEspeciales_EntreComillasYNullVacio() throws IOException {
+        StringWriter salida = new StringWriter();
+        EscritorCsv csv = new EscritorCsv(salida);
+
+        csv.fila("Av. Amazonas, N24-03", "Paquete \"frágil\"", null, "línea 1\nlínea 2");
+        csv.fila("a", "b");
+
+        assertEquals("\"Av. Amazonas, N24-03\",\"Paquete \"\"frágil\"\"\",,\"línea 1\nlínea 2\"\r\na,b\r\n",
+                salida.toString());
+    }
+}
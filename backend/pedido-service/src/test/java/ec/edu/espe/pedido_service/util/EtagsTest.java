@@ -0,0 +1,51 @@
+package ec.edu.espe.pedido_service.util;
+
+import ec.edu.espe.pedido_service.dto.MarcaVersion;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EtagsTest {
+
+    private final LocalDateTime fecha = LocalDateTime.of(2024, 1, 16, 10, 30, 0, 123_456_000);
+
+    @Test
+    void fuerte_DebeCambiarConCadaMicrosegundo() {
+        String etag = Etags.fuerte(fecha);
+
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, Etags.fuerte(fecha.withNano(123_456_999)), "Por debajo del microsegundo no cambia");
+        assertNotEquals(etag, Etags.fuerte(fecha.plusNanos(1_000)));
+        assertNotEquals(etag, Etags.fuerte(fecha.plusDays(1)));
+    }
+
+    @Test
+    void milisegundos_DebeInterpretarLaFechaEnLaZonaDeLaJvm() {
+        long esperado = fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        assertEquals(esperado, Etags.milisegundos(fecha));
+        assertEquals(esperado + 1_000, Etags.milisegundos(fecha.plusSeconds(1)));
+    }
+
+    @Test
+    void debil_DebeVariarConVistaCantidadYUltimaActualizacion() {
+        String etag = Etags.debil("completa", new MarcaVersion(3, fecha));
+
+        assertTrue(etag.startsWith("W/\""));
+        assertNotEquals(etag, Etags.debil("resumen", new MarcaVersion(3, fecha)));
+        assertNotEquals(etag, Etags.debil("completa", new MarcaVersion(2, fecha)));
+        assertNotEquals(etag, Etags.debil("completa", new MarcaVersion(3, fecha.plusSeconds(1))));
+        assertEquals(Etags.debil("completa", new MarcaVersion(0, null)), Etags.debil("completa", new MarcaVersion(0, null)));
+    }
+
+    @Test
+    void debil_ListadoVacio_DebeDistinguirseDeUnoConElementos() {
+        String vacio = Etags.debil("completa", new MarcaVersion(0, null));
+
+        assertEquals("W/\"completa-0-0\"", vacio);
+        assertNotEquals(vacio, Etags.debil("completa", new MarcaVersion(1, fecha)));
+    }
+}
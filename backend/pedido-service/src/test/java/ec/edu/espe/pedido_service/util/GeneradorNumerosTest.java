@@ -0,0 +1,91 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneradorNumerosTest {
+
+    private static final long TAMANIO_BLOQUE = 50;
+
+    //Simula una secuencia de PostgreSQL con INCREMENT BY TAMANIO_BLOQUE compartida entre instancias
+    private final AtomicLong secuencia = new AtomicLong(1);
+    private final AtomicInteger reservas = new AtomicInteger();
+
+    private GeneradorNumeros nuevaInstancia() {
+        return new GeneradorNumeros("PED", TAMANIO_BLOQUE, () -> {
+            reservas.incrementAndGet();
+            return secuencia.getAndAdd(TAMANIO_BLOQUE);
+        });
+    }
+
+    @Test
+    void siguiente_DebeRespetarFormatoExistente() {
+        String numero = nuevaInstancia().siguiente();
+
+        assertTrue(numero.matches("PED-\\d{8}-\\d{6}-\\d{4,}"), numero);
+    }
+
+    @Test
+    void siguiente_DebeReservarUnBloquePorCadaTamanioBloque() {
+        GeneradorNumeros generador = nuevaInstancia();
+
+        for (int i = 0; i < TAMANIO_BLOQUE * 3; i++) {
+            generador.siguiente();
+        }
+
+        assertEquals(3, reservas.get());
+    }
+
+    @Test
+    void siguiente_ConVariosHilosEInstancias_NoDebeGenerarDuplicados() throws Exception {
+        int instancias = 4;
+        int hilosPorInstancia = 8;
+        int numerosPorHilo = 5_000;
+
+        List<GeneradorNumeros> generadores = new ArrayList<>();
+        for (int i = 0; i < instancias; i++) {
+            generadores.add(nuevaInstancia());
+        }
+
+        Set<String> generados = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(instancias * hilosPorInstancia);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (GeneradorNumeros generador : generadores) {
+            for (int h = 0; h < hilosPorInstancia; h++) {
+                tareas.add(executor.submit(() -> {
+                    inicio.await();
+                    for (int n = 0; n < numerosPorHilo; n++) {
+                        //Se compara sólo el sufijo: la unicidad no debe depender del segundo en curso
+                        String numero = generador.siguiente();
+                        assertTrue(generados.add(numero.substring(numero.lastIndexOf('-') + 1)),
+                                "Número duplicado: " + numero);
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(instancias * hilosPorInstancia * numerosPorHilo, generados.size());
+    }
+}
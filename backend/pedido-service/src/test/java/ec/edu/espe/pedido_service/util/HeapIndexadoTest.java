@@ -0,0 +1,94 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapIndexadoTest {
+
+    private record Elemento(int clave, int prioridad) {
+    }
+
+    private static final Comparator<Elemento> ORDEN =
+            Comparator.comparingInt(Elemento::prioridad).thenComparingInt(Elemento::clave);
+
+    @Test
+    void extraerCima_DebeDevolverEnOrden() {
+        HeapIndexado<Integer, Elemento> heap = new HeapIndexado<>(ORDEN, Elemento::clave);
+        int[] prioridades = {5, 3, 8, 1, 9, 2, 7};
+        for (int i = 0; i < prioridades.length; i++) {
+            assertTrue(heap.encolar(new Elemento(i, prioridades[i])));
+        }
+
+        int anterior = Integer.MIN_VALUE;
+        while (!heap.estaVacio()) {
+            Elemento cima = heap.extraerCima();
+            assertTrue(cima.prioridad() >= anterior);
+            anterior = cima.prioridad();
+        }
+        assertNull(heap.extraerCima());
+    }
+
+    @Test
+    void encolar_ClaveExistente_DebeReubicarEnLugarDeDuplicar() {
+        HeapIndexado<Integer, Elemento> heap = new HeapIndexado<>(ORDEN, Elemento::clave);
+        heap.encolar(new Elemento(1, 10));
+        heap.encolar(new Elemento(2, 20));
+        heap.encolar(new Elemento(3, 30));
+
+        //Subir la clave 3 a la cima y bajar la 1 al fondo
+        assertFalse(heap.encolar(new Elemento(3, 1)));
+        assertFalse(heap.encolar(new Elemento(1, 40)));
+
+        assertEquals(3, heap.tamanio());
+        assertEquals(3, heap.extraerCima().clave());
+        assertEquals(2, heap.extraerCima().clave());
+        assertEquals(1, heap.extraerCima().clave());
+    }
+
+    @Test
+    void retirar_DebeQuitarSoloEseElemento() {
+        HeapIndexado<Integer, Elemento> heap = new HeapIndexado<>(ORDEN, Elemento::clave);
+        for (int i = 0; i < 10; i++) {
+            heap.encolar(new Elemento(i, i));
+        }
+
+        assertEquals(4, heap.retirar(4).clave());
+        assertNull(heap.retirar(4));
+        assertFalse(heap.contiene(4));
+        assertEquals(9, heap.tamanio());
+        assertEquals(0, heap.cima().clave());
+    }
+
+    @Test
+    void operacionesAleatorias_DebenCoincidirConRecorridoLineal() {
+        HeapIndexado<Integer, Elemento> heap = new HeapIndexado<>(ORDEN, Elemento::clave);
+        Map<Integer, Elemento> esperado = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int paso = 0; paso < 20_000; paso++) {
+            int clave = random.nextInt(500);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    Elemento elemento = new Elemento(clave, random.nextInt(1_000));
+                    assertEquals(!esperado.containsKey(clave), heap.encolar(elemento));
+                    esperado.put(clave, elemento);
+                }
+                case 2 -> assertEquals(esperado.remove(clave), heap.retirar(clave));
+                default -> {
+                    Elemento minimo = esperado.values().stream().min(ORDEN).orElse(null);
+                    assertEquals(minimo, heap.extraerCima());
+                    if (minimo != null) {
+                        esperado.remove(minimo.clave());
+                    }
+                }
+            }
+            assertEquals(esperado.size(), heap.tamanio());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaFragmentosTest {
+
+    //Códigos postales de prueba
+    private static final List<String> ZONAS = IntStream.range(0, 2000)
+            .mapToObj(i -> String.valueOf(170000 + i))
+            .toList();
+
+    @Test
+    void fragmentoDe_DebeSerEstableEntreInstancias() {
+        MapaFragmentos primero = new MapaFragmentos(List.of("fragmento-1", "fragmento-2", "fragmento-3"));
+        MapaFragmentos segundo = new MapaFragmentos(List.of("fragmento-1", "fragmento-2", "fragmento-3"));
+
+        for (String zona : ZONAS) {
+            assertEquals(primero.fragmentoDe(zona), segundo.fragmentoDe(zona), zona);
+        }
+    }
+
+    @Test
+    void fragmentoDe_ConUnSoloFragmento_DebeDevolverloSiempre() {
+        MapaFragmentos mapa = new MapaFragmentos(List.of("principal"));
+
+        assertEquals("principal", mapa.fragmentoDe("170150"));
+        assertEquals("principal", mapa.fragmentoDe(null));
+    }
+
+    @Test
+    void agregarFragmento_SoloDebeMoverZonasAlNuevo() {
+        MapaFragmentos anterior = new MapaFragmentos(List.of("fragmento-1", "fragmento-2", "fragmento-3"));
+        MapaFragmentos ampliado = new MapaFragmentos(List.of("fragmento-1", "fragmento-2", "fragmento-3", "fragmento-4"));
+
+        int movidas = 0;
+        for (String zona : ZONAS) {
+            String antes = anterior.fragmentoDe(zona);
+            String despues = ampliado.fragmentoDe(zona);
+            if (!antes.equals(despues)) {
+                movidas++;
+                assertEquals("fragmento-4", despues, "La zona " + zona + " cambió entre fragmentos existentes");
+            }
+        }
+
+        //Se espera alrededor de 1/4 de las zonas
+        assertTrue(movidas > ZONAS.size() / 8 && movidas < ZONAS.size() * 3 / 8, "Zonas movidas: " + movidas);
+    }
+
+    @Test
+    void fragmentoDe_DebeRepartirDeFormaEquilibrada() {
+        MapaFragmentos mapa = new MapaFragmentos(List.of("fragmento-1", "fragmento-2", "fragmento-3", "fragmento-4"));
+
+        Map<String, Integer> porFragmento = new HashMap<>();
+        ZONAS.forEach(zona -> porFragmento.merge(mapa.fragmentoDe(zona), 1, Integer::sum));
+
+        assertEquals(4, porFragmento.size());
+        int esperado = ZONAS.size() / 4;
+        porFragmento.forEach((fragmento, cantidad) -> assertTrue(
+                cantidad > esperado * 0.6 && cantidad < esperado * 1.4, fragmento + ": " + cantidad));
+    }
+}
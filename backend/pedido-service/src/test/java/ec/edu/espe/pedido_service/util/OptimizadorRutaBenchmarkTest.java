@@ -0,0 +1,106 @@
+package ec.edu.espe.pedido_service.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de calidad y latencia del planificador de rutas: paradas aleatorias en un área
+ * urbana de unos 17 x 17 km, de 10 a 200 por repartidor. Para cada tamaño compara la ruta
+ * por vecino más cercano con la mejorada y, hasta 12 paradas, con el óptimo exacto
+ * (programación dinámica de Held-Karp sobre el recorrido abierto).
+ */
+@Tag("benchmark")
+@Slf4j
+class OptimizadorRutaBenchmarkTest {
+
+    private static final int[] TAMANIOS = {10, 12, 25, 50, 100, 150, 200};
+    private static final int REPETICIONES = 20;
+    private static final int MAXIMO_EXACTO = 12;
+    private static final Duration PRESUPUESTO = Duration.ofMillis(200);
+
+    @Test
+    void planificar_De10A200Paradas_SinEmpeorarYCercaDelOptimo() {
+        Random random = new Random(2024);
+        for (int paradas : TAMANIOS) {
+            double mejora = 0;
+            double brechaOptimo = 0;
+            long[] latencias = new long[REPETICIONES];
+            int agotados = 0;
+            for (int r = 0; r < REPETICIONES; r++) {
+                double[] latitudes = new double[paradas];
+                double[] longitudes = new double[paradas];
+                for (int i = 0; i < paradas; i++) {
+                    latitudes[i] = -0.25 + random.nextDouble() * 0.15;
+                    longitudes[i] = -78.55 + random.nextDouble() * 0.15;
+                }
+
+                long inicio = System.nanoTime();
+                OptimizadorRuta.Plan plan = OptimizadorRuta.planificar(latitudes, longitudes, null, null, PRESUPUESTO);
+                latencias[r] = System.nanoTime() - inicio;
+
+                assertTrue(plan.distanciaKm() <= plan.distanciaInicialKm() + 1e-9);
+                mejora += 1 - plan.distanciaKm() / plan.distanciaInicialKm();
+                agotados += plan.presupuestoAgotado() ? 1 : 0;
+                if (paradas <= MAXIMO_EXACTO) {
+                    double optimo = optimoExacto(latitudes, longitudes);
+                    brechaOptimo += plan.distanciaKm() / optimo - 1;
+                }
+            }
+            Arrays.sort(latencias);
+            long p50 = latencias[REPETICIONES / 2] / 1_000;
+            long maximo = latencias[REPETICIONES - 1] / 1_000;
+
+            //La latencia sólo se informa: depende de la máquina y no debe decidir si la prueba pasa
+            log.info("paradas={} mejora sobre vecino más cercano={}% {}latencia p50={} µs máx={} µs agotados={}/{}",
+                    paradas, String.format("%.1f", 100 * mejora / REPETICIONES),
+                    paradas <= MAXIMO_EXACTO ? String.format("sobre el óptimo=%.1f%% ", 100 * brechaOptimo / REPETICIONES) : "",
+                    p50, maximo, agotados, REPETICIONES);
+
+            if (paradas <= MAXIMO_EXACTO) {
+                assertTrue(brechaOptimo / REPETICIONES < 0.02, "brecha promedio con el óptimo " + brechaOptimo / REPETICIONES);
+            }
+        }
+    }
+
+    //Held-Karp para el recorrido abierto con inicio libre: O(2^n · n^2)
+    private static double optimoExacto(double[] latitudes, double[] longitudes) {
+        int n = latitudes.length;
+        double[][] distancias = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distancias[i][j] = GeoUtil.distanciaKm(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+            }
+        }
+        //costo[subconjunto][último]: camino más corto que visita el subconjunto y termina en último
+        double[][] costo = new double[1 << n][n];
+        for (double[] fila : costo) {
+            Arrays.fill(fila, Double.MAX_VALUE);
+        }
+        for (int i = 0; i < n; i++) {
+            costo[1 << i][i] = 0;
+        }
+        for (int subconjunto = 1; subconjunto < 1 << n; subconjunto++) {
+            for (int ultimo = 0; ultimo < n; ultimo++) {
+                double actual = costo[subconjunto][ultimo];
+                if (actual == Double.MAX_VALUE) {
+                    continue;
+                }
+                for (int siguiente = 0; siguiente < n; siguiente++) {
+                    if ((subconjunto & 1 << siguiente) == 0) {
+                        int ampliado = subconjunto | 1 << siguiente;
+                        costo[ampliado][siguiente] = Math.min(costo[ampliado][siguiente],
+                                actual + distancias[ultimo][siguiente]);
+                    }
+                }
+            }
+        }
+        return Arrays.stream(costo[(1 << n) - 1]).min().orElseThrow();
+    }
+}
@@ -0,0 +1,73 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizadorRutaTest {
+
+    private static final Duration PRESUPUESTO = Duration.ofSeconds(1);
+
+    @Test
+    void planificar_ParadasSobreUnaLinea_DebeRecorrerlasEnOrden() {
+        //Paradas desordenadas a lo largo de una avenida (misma latitud)
+        double[] longitudes = {-78.46, -78.50, -78.44, -78.48, -78.42, -78.49};
+        double[] latitudes = new double[longitudes.length];
+        Arrays.fill(latitudes, -0.18);
+
+        OptimizadorRuta.Plan plan = OptimizadorRuta.planificar(latitudes, longitudes, -0.18, -78.51, PRESUPUESTO);
+
+        assertArrayEquals(new int[]{1, 5, 3, 0, 2, 4}, plan.orden());
+        assertEquals(GeoUtil.distanciaKm(-0.18, -78.51, -0.18, -78.42), plan.distanciaKm(), 1e-6);
+        assertFalse(plan.presupuestoAgotado());
+    }
+
+    @Test
+    void planificar_DebeDevolverCadaParadaUnaVezYNoEmpeorarLaRutaInicial() {
+        Random random = new Random(7);
+        int paradas = 80;
+        double[] latitudes = IntStream.range(0, paradas).mapToDouble(i -> -0.25 + random.nextDouble() * 0.15).toArray();
+        double[] longitudes = IntStream.range(0, paradas).mapToDouble(i -> -78.55 + random.nextDouble() * 0.15).toArray();
+
+        OptimizadorRuta.Plan plan = OptimizadorRuta.planificar(latitudes, longitudes, null, null, PRESUPUESTO);
+
+        assertArrayEquals(IntStream.range(0, paradas).toArray(), Arrays.stream(plan.orden()).sorted().toArray());
+        assertEquals(longitud(plan.orden(), latitudes, longitudes), plan.distanciaKm(), 1e-6);
+        assertTrue(plan.distanciaKm() < plan.distanciaInicialKm());
+    }
+
+    @Test
+    void planificar_SinPresupuesto_DebeDevolverLaRutaPorVecinoMasCercano() {
+        double[] latitudes = {-0.18, -0.20, -0.16, -0.22};
+        double[] longitudes = {-78.47, -78.49, -78.45, -78.51};
+
+        OptimizadorRuta.Plan plan = OptimizadorRuta.planificar(latitudes, longitudes, null, null, Duration.ZERO);
+
+        assertTrue(plan.presupuestoAgotado());
+        assertEquals(plan.distanciaInicialKm(), plan.distanciaKm(), 1e-9);
+        assertEquals(4, plan.orden().length);
+    }
+
+    @Test
+    void planificar_SinParadas_DebeDevolverRutaVacia() {
+        OptimizadorRuta.Plan plan = OptimizadorRuta.planificar(new double[0], new double[0], -0.18, -78.47, PRESUPUESTO);
+
+        assertEquals(0, plan.orden().length);
+        assertEquals(0, plan.distanciaKm());
+    }
+
+    //Longitud del recorrido abierto en el orden indicado
+    static double longitud(int[] orden, double[] latitudes, double[] longitudes) {
+        double total = 0;
+        for (int i = 0; i + 1 < orden.length; i++) {
+            total += GeoUtil.distanciaKm(latitudes[orden[i]], longitudes[orden[i]],
+                    latitudes[orden[i + 1]], longitudes[orden[i + 1]]);
+        }
+        return total;
+    }
+}
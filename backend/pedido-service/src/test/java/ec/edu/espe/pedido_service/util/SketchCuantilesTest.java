@@ -0,0 +1,67 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SketchCuantilesTest {
+
+    @Test
+    void cuantil_DebeEstarDentroDelErrorRelativo() {
+        SketchCuantiles sketch = new SketchCuantiles();
+        Random random = new Random(42);
+        long[] duraciones = new long[100_000];
+        for (int i = 0; i < duraciones.length; i++) {
+            //Entre 10 minutos y 3 días, sesgado hacia duraciones cortas
+            duraciones[i] = 600 + (long) (Math.pow(random.nextDouble(), 3) * 3 * 24 * 3600);
+            sketch.agregar(duraciones[i]);
+        }
+        Arrays.sort(duraciones);
+
+        for (double q : new double[]{0.05, 0.5, 0.9, 0.95, 0.99}) {
+            long exacto = duraciones[(int) Math.floor(q * (duraciones.length - 1))];
+            long estimado = sketch.cuantil(q);
+            assertTrue(Math.abs(estimado - exacto) <= exacto * SketchCuantiles.ERROR_RELATIVO + 1,
+                    "q=" + q + " exacto=" + exacto + " estimado=" + estimado);
+        }
+        assertEquals(duraciones.length, sketch.cantidad());
+    }
+
+    @Test
+    void sumar_DebeEquivalerARegistrarTodoEnUnSoloSketch() {
+        SketchCuantiles completo = new SketchCuantiles();
+        SketchCuantiles primero = new SketchCuantiles();
+        SketchCuantiles segundo = new SketchCuantiles();
+        for (long segundos = 60; segundos < 200_000; segundos += 37) {
+            completo.agregar(segundos);
+            (segundos % 2 == 0 ? primero : segundo).agregar(segundos);
+        }
+
+        primero.sumar(segundo.extraer());
+
+        assertArrayEquals(completo.conteos(), primero.conteos());
+        assertEquals(completo.cuantil(0.9), primero.cuantil(0.9));
+        assertEquals(0, segundo.cantidad());
+        assertNull(segundo.extraer());
+    }
+
+    @Test
+    void agregar_FueraDeRango_DebeAcumularseEnLosExtremos() {
+        SketchCuantiles sketch = new SketchCuantiles();
+        sketch.agregar(0);
+        sketch.agregar(SketchCuantiles.MAXIMO_SEGUNDOS * 10);
+
+        long[] conteos = sketch.conteos();
+        assertEquals(SketchCuantiles.CUBETAS, conteos.length);
+        assertEquals(1, conteos[0]);
+        assertEquals(1, conteos[SketchCuantiles.CUBETAS - 1]);
+    }
+
+    @Test
+    void cuantil_SinMuestras_DebeLanzarExcepcion() {
+        assertThrows(IllegalStateException.class, () -> new SketchCuantiles().cuantil(0.5));
+    }
+}
@@ -0,0 +1,94 @@
+package ec.edu.espe.pedido_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    private static final long AHORA = 1_705_400_000_000L;
+
+    @Test
+    void generar_DebeTenerVersion7VarianteRfcYMilisegundoActual() {
+        long antes = System.currentTimeMillis();
+        UUID uuid = UuidV7.generar();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(UuidV7.milisegundos(uuid) >= antes && UuidV7.milisegundos(uuid) <= System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void siguiente_MismoMilisegundo_DebeSerEstrictamenteCreciente() {
+        UuidV7 generador = new UuidV7(() -> AHORA);
+
+        UUID anterior = generador.siguiente();
+        //Más de 4096 en el mismo milisegundo: el contador desborda hacia el milisegundo siguiente
+        for (int i = 0; i < 10_000; i++) {
+            UUID actual = generador.siguiente();
+            assertTrue(comparar(anterior, actual) < 0, anterior + " >= " + actual);
+            anterior = actual;
+        }
+        assertEquals(AHORA + 2, UuidV7.milisegundos(anterior));
+    }
+
+    @Test
+    void siguiente_RelojQueRetrocede_NoRetrocede() {
+        AtomicLong reloj = new AtomicLong(AHORA);
+        UuidV7 generador = new UuidV7(reloj::get);
+
+        UUID antesDelAjuste = generador.siguiente();
+        reloj.set(AHORA - 5_000);
+        UUID despuesDelAjuste = generador.siguiente();
+        reloj.set(AHORA + 1);
+        UUID alRecuperarse = generador.siguiente();
+
+        assertTrue(comparar(antesDelAjuste, despuesDelAjuste) < 0);
+        assertEquals(AHORA, UuidV7.milisegundos(despuesDelAjuste));
+        assertTrue(comparar(despuesDelAjuste, alRecuperarse) < 0);
+        assertEquals(AHORA + 1, UuidV7.milisegundos(alRecuperarse));
+    }
+
+    @Test
+    void generar_Concurrente_SinDuplicadosYCrecientePorHilo() throws Exception {
+        Set<UUID> todos = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> hilos = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            hilos.add(executor.submit(() -> {
+                UUID anterior = UuidV7.generar();
+                todos.add(anterior);
+                boolean creciente = true;
+                for (int i = 0; i < 50_000; i++) {
+                    UUID actual = UuidV7.generar();
+                    creciente &= comparar(anterior, actual) < 0;
+                    todos.add(actual);
+                    anterior = actual;
+                }
+                return creciente;
+            }));
+        }
+        for (Future<Boolean> hilo : hilos) {
+            assertTrue(hilo.get());
+        }
+        executor.shutdown();
+
+        assertEquals(8 * 50_001, todos.size());
+    }
+
+    //Orden de PostgreSQL (bytes sin signo); UUID.compareTo compara con signo
+    private static int comparar(UUID a, UUID b) {
+        int mas = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return mas != 0 ? mas : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}